@@ -26,6 +26,8 @@ import com.helger.base.timing.StopWatch;
 import com.helger.base.tostring.ToStringGenerator;
 import com.helger.photon.ajax.executor.IAjaxExecutor;
 import com.helger.photon.app.PhotonUnifiedResponse;
+import com.helger.photon.app.metrics.EndpointMetrics;
+import com.helger.photon.app.metrics.EndpointMetricsManager;
 import com.helger.statistics.api.IMutableStatisticsHandlerCounter;
 import com.helger.statistics.api.IMutableStatisticsHandlerKeyedCounter;
 import com.helger.statistics.api.IMutableStatisticsHandlerKeyedTimer;
@@ -40,6 +42,13 @@ import com.helger.web.scope.IRequestWebScopeWithoutResponse;
 @Immutable
 public class AjaxInvoker implements IAjaxInvoker
 {
+  /**
+   * The category used for the {@link EndpointMetricsManager}.
+   *
+   * @since 10.3.1
+   */
+  public static final String METRICS_CATEGORY = "ajax";
+
   private static final Logger LOGGER = LoggerFactory.getLogger (AjaxInvoker.class);
   private static final IMutableStatisticsHandlerCounter STATS_GLOBAL_INVOKE = StatisticsManager.getCounterHandler (AjaxInvoker.class.getName () +
                                                                                                                     "$invocations");
@@ -64,6 +73,9 @@ public class AjaxInvoker implements IAjaxInvoker
     if (LOGGER.isDebugEnabled ())
       LOGGER.debug ("Invoking Ajax function '" + sFunctionName + "'");
 
+    final EndpointMetrics aMetrics = EndpointMetricsManager.getEndpointMetrics (METRICS_CATEGORY, sFunctionName);
+    final long nStartNanos = aMetrics.onInvocationStart ();
+    boolean bSuccess = false;
     try
     {
       final StopWatch aSW = StopWatch.createdStarted ();
@@ -99,6 +111,7 @@ public class AjaxInvoker implements IAjaxInvoker
         AjaxSettings.longRunningExecutionCallbacks ()
                     .forEach (aCB -> aCB.onLongRunningExecution (this, sFunctionName, aRequestScope, aAjaxExecutor, nExecutionMillis));
       }
+      bSuccess = true;
     }
     catch (final Exception ex)
     {
@@ -108,6 +121,10 @@ public class AjaxInvoker implements IAjaxInvoker
       // Re-throw
       throw ex;
     }
+    finally
+    {
+      aMetrics.onInvocationEnd (nStartNanos, bSuccess);
+    }
   }
 
   @Override
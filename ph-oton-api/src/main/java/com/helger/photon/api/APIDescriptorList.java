@@ -31,7 +31,6 @@ import com.helger.collection.commons.ICommonsList;
 import com.helger.collection.commons.ICommonsMap;
 import com.helger.http.EHttpMethod;
 import com.helger.photon.api.pathdescriptor.PathDescriptorHelper;
-import com.helger.photon.api.pathdescriptor.PathMatchingResult;
 
 /**
  * This class manages a list of {@link APIDescriptor} objects.
@@ -42,12 +41,17 @@ public class APIDescriptorList implements Serializable
 {
   /** Store APIDescriptor per HTTP method for quick access. */
   private final ICommonsMap <EHttpMethod, ICommonsList <APIDescriptor>> m_aMap = new CommonsEnumMap <> (EHttpMethod.class);
+  /** The routing tree per HTTP method for resolving paths. */
+  private final ICommonsMap <EHttpMethod, APIRoutingTree> m_aTrees = new CommonsEnumMap <> (EHttpMethod.class);
 
   public APIDescriptorList ()
   {
-    // Init map
+    // Init maps
     for (final EHttpMethod e : EHttpMethod.values ())
+    {
       m_aMap.put (e, new CommonsArrayList <> ());
+      m_aTrees.put (e, new APIRoutingTree ());
+    }
   }
 
   public void addDescriptor (@NonNull final APIDescriptor aDescriptor)
@@ -56,6 +60,7 @@ public class APIDescriptorList implements Serializable
 
     // Save for correct HTTP method
     m_aMap.get (aDescriptor.getHttpMethod ()).add (aDescriptor);
+    m_aTrees.get (aDescriptor.getHttpMethod ()).addDescriptor (aDescriptor);
   }
 
   @NonNull
@@ -85,18 +90,9 @@ public class APIDescriptorList implements Serializable
     final String sSourcePath = aPath.getPath ();
     final List <String> aPathParts = PathDescriptorHelper.getCleanPathParts (sSourcePath);
 
-    final ICommonsList <InvokableAPIDescriptor> aMatching = new CommonsArrayList <> ();
-
     // HTTP Method must match
-    for (final APIDescriptor aDescriptor : m_aMap.get (aPath.getHttpMethod ()))
-    {
-      final PathMatchingResult aMatchResult = aDescriptor.getPathDescriptor ().matchesParts (aPathParts);
-      if (aMatchResult.isMatch ())
-      {
-        // A match was found
-        aMatching.add (new InvokableAPIDescriptor (aDescriptor, sSourcePath, aMatchResult.getAllVariableValues ()));
-      }
-    }
+    final ICommonsList <InvokableAPIDescriptor> aMatching = m_aTrees.get (aPath.getHttpMethod ())
+                                                                    .getAllMatching (sSourcePath, aPathParts);
 
     // Now get the result
     final int nMatching = aMatching.size ();
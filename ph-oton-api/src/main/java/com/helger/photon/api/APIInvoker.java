@@ -24,6 +24,8 @@ import com.helger.annotation.concurrent.Immutable;
 import com.helger.base.enforce.ValueEnforcer;
 import com.helger.base.timing.StopWatch;
 import com.helger.base.tostring.ToStringGenerator;
+import com.helger.photon.app.metrics.EndpointMetrics;
+import com.helger.photon.app.metrics.EndpointMetricsManager;
 import com.helger.servlet.response.UnifiedResponse;
 import com.helger.statistics.api.IMutableStatisticsHandlerCounter;
 import com.helger.statistics.api.IMutableStatisticsHandlerKeyedCounter;
@@ -39,6 +41,13 @@ import com.helger.web.scope.IRequestWebScopeWithoutResponse;
 @Immutable
 public class APIInvoker implements IAPIInvoker
 {
+  /**
+   * The category used for the {@link EndpointMetricsManager}.
+   *
+   * @since 10.3.1
+   */
+  public static final String METRICS_CATEGORY = "api";
+
   private static final Logger LOGGER = LoggerFactory.getLogger (APIInvoker.class);
   private static final IMutableStatisticsHandlerCounter STATS_GLOBAL_INVOKE = StatisticsManager.getCounterHandler (APIInvoker.class.getName () +
                                                                                                                    "$invocations");
@@ -59,6 +68,13 @@ public class APIInvoker implements IAPIInvoker
     if (LOGGER.isDebugEnabled ())
       LOGGER.debug ("Invoking API '" + sPath + "'");
 
+    // Use the path template, so that the number of endpoints is limited
+    final IAPIDescriptor aDescriptor = aInvokableDescriptor.getAPIDescriptor ();
+    final String sEndpoint = aDescriptor.getHttpMethod ().name () + " " + aDescriptor.getPathDescriptor ().getAsURLString ();
+    final EndpointMetrics aMetrics = EndpointMetricsManager.getEndpointMetrics (METRICS_CATEGORY, sEndpoint);
+    final long nStartNanos = aMetrics.onInvocationStart ();
+    boolean bSuccess = false;
+
     final StopWatch aSW = StopWatch.createdStarted ();
     try
     {
@@ -78,11 +94,12 @@ public class APIInvoker implements IAPIInvoker
 
       // Increment statistics after successful call
       STATS_FUNCTION_INVOKE.increment (sPath);
+      bSuccess = true;
     }
     catch (final Exception ex)
     {
       boolean bHandled = false;
-      final IAPIExceptionMapper aExMapper = aInvokableDescriptor.getAPIDescriptor ().getExceptionMapper ();
+      final IAPIExceptionMapper aExMapper = aDescriptor.getExceptionMapper ();
       if (aExMapper != null)
       {
         // Apply exception mapper
@@ -100,6 +117,8 @@ public class APIInvoker implements IAPIInvoker
     }
     finally
     {
+      aMetrics.onInvocationEnd (nStartNanos, bSuccess);
+
       // Long running API request?
       final long nExecutionMillis = aSW.stopAndGetMillis ();
       STATS_FUNCTION_TIMER.addTime (sPath, nExecutionMillis);
@@ -0,0 +1,280 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.photon.api;
+
+import java.io.Serializable;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import org.jspecify.annotations.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.annotation.Nonempty;
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.NotThreadSafe;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.tostring.ToStringGenerator;
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.CommonsHashMap;
+import com.helger.collection.commons.CommonsLinkedHashMap;
+import com.helger.collection.commons.ICommonsList;
+import com.helger.collection.commons.ICommonsMap;
+import com.helger.collection.commons.ICommonsOrderedMap;
+import com.helger.photon.api.pathdescriptor.PathDescriptorPart;
+import com.helger.url.codec.URLCoder;
+
+/**
+ * A routing tree for all {@link APIDescriptor} objects of a single HTTP method. Each level of the
+ * tree represents one path part. Static path parts are looked up via a hash map, variable path
+ * parts (including their constraints) are checked one after the other. All matching descriptors are
+ * returned in the order of registration, so the results are identical to checking each descriptor
+ * separately via
+ * {@link com.helger.photon.api.pathdescriptor.PathDescriptor#matchesParts(List)}. Overlapping
+ * paths are already reported upon registration.
+ *
+ * @author Philip Helger
+ * @since 10.3.1
+ */
+@NotThreadSafe
+final class APIRoutingTree implements Serializable
+{
+  private static final Logger LOGGER = LoggerFactory.getLogger (APIRoutingTree.class);
+
+  /**
+   * A single registered descriptor.
+   *
+   * @author Philip Helger
+   */
+  private static final class Entry implements Serializable
+  {
+    private final int m_nIndex;
+    private final APIDescriptor m_aDescriptor;
+    private final PathDescriptorPart [] m_aParts;
+
+    Entry (@Nonnegative final int nIndex,
+           @NonNull final APIDescriptor aDescriptor,
+           @NonNull final PathDescriptorPart [] aParts)
+    {
+      m_nIndex = nIndex;
+      m_aDescriptor = aDescriptor;
+      m_aParts = aParts;
+    }
+
+    @NonNull
+    ICommonsOrderedMap <String, String> getVariableValues (@NonNull final List <String> aPathParts)
+    {
+      final ICommonsOrderedMap <String, String> ret = new CommonsLinkedHashMap <> ();
+      for (int i = 0; i < m_aParts.length; ++i)
+      {
+        final PathDescriptorPart aPart = m_aParts[i];
+        if (aPart.isVariable ())
+        {
+          // Explicitly decode here
+          ret.put (aPart.getName (), URLCoder.urlDecodeOrNull (aPathParts.get (i)));
+        }
+      }
+      return ret;
+    }
+  }
+
+  /**
+   * A single node of the tree, representing all descriptors that share the same path prefix.
+   *
+   * @author Philip Helger
+   */
+  private static final class Node implements Serializable
+  {
+    // Created on demand
+    private ICommonsMap <String, Node> m_aStaticChildren;
+    // Created on demand - variables with the same name and constraints share a node
+    private ICommonsOrderedMap <PathDescriptorPart, Node> m_aVariableChildren;
+    // Created on demand - the descriptors ending at this node
+    private ICommonsList <Entry> m_aEntries;
+
+    @NonNull
+    Node getOrCreateChild (@NonNull final PathDescriptorPart aPart)
+    {
+      if (aPart.isVariable ())
+      {
+        if (m_aVariableChildren == null)
+          m_aVariableChildren = new CommonsLinkedHashMap <> ();
+        return m_aVariableChildren.computeIfAbsent (aPart, k -> new Node ());
+      }
+      if (m_aStaticChildren == null)
+        m_aStaticChildren = new CommonsHashMap <> ();
+      return m_aStaticChildren.computeIfAbsent (aPart.getName (), k -> new Node ());
+    }
+
+    void addEntry (@NonNull final Entry aEntry)
+    {
+      if (m_aEntries == null)
+        m_aEntries = new CommonsArrayList <> ();
+      m_aEntries.add (aEntry);
+    }
+  }
+
+  private final Node m_aRoot = new Node ();
+  private int m_nCount = 0;
+
+  APIRoutingTree ()
+  {}
+
+  /**
+   * Collect all entries that may match the same paths as the provided parts.
+   */
+  private static void _collectOverlapping (@NonNull final Node aNode,
+                                           @NonNull final PathDescriptorPart [] aParts,
+                                           @Nonnegative final int nDepth,
+                                           @NonNull final ICommonsList <Entry> aTarget)
+  {
+    if (nDepth == aParts.length)
+    {
+      if (aNode.m_aEntries != null)
+        aTarget.addAll (aNode.m_aEntries);
+      return;
+    }
+
+    final PathDescriptorPart aPart = aParts[nDepth];
+    if (aNode.m_aStaticChildren != null)
+    {
+      if (aPart.isVariable ())
+      {
+        // A variable may overlap with all static parts
+        for (final Map.Entry <String, Node> aEntry : aNode.m_aStaticChildren.entrySet ())
+          if (aPart.matches (aEntry.getKey ()))
+            _collectOverlapping (aEntry.getValue (), aParts, nDepth + 1, aTarget);
+      }
+      else
+      {
+        final Node aChild = aNode.m_aStaticChildren.get (aPart.getName ());
+        if (aChild != null)
+          _collectOverlapping (aChild, aParts, nDepth + 1, aTarget);
+      }
+    }
+    if (aNode.m_aVariableChildren != null)
+    {
+      // Constraints of two variables cannot be compared, so assume an overlap
+      for (final Map.Entry <PathDescriptorPart, Node> aEntry : aNode.m_aVariableChildren.entrySet ())
+        if (aPart.isVariable () || aEntry.getKey ().matches (aPart.getName ()))
+          _collectOverlapping (aEntry.getValue (), aParts, nDepth + 1, aTarget);
+    }
+  }
+
+  /**
+   * Add a new descriptor. If it may match the same paths as a previously registered descriptor, a
+   * warning is emitted, as such requests will need to be resolved with an
+   * {@link IAPIPathAmbiguityResolver}.
+   *
+   * @param aDescriptor
+   *        The descriptor to add. May not be <code>null</code>.
+   */
+  void addDescriptor (@NonNull final APIDescriptor aDescriptor)
+  {
+    ValueEnforcer.notNull (aDescriptor, "Descriptor");
+
+    final PathDescriptorPart [] aParts = aDescriptor.getPathDescriptor ()
+                                                    .getAllParts ()
+                                                    .toArray (new PathDescriptorPart [0]);
+
+    // Check for ambiguities upfront
+    final ICommonsList <Entry> aOverlapping = new CommonsArrayList <> ();
+    _collectOverlapping (m_aRoot, aParts, 0, aOverlapping);
+    if (aOverlapping.isNotEmpty ())
+      LOGGER.warn ("The API path '" +
+                   aDescriptor.getPathDescriptor ().getAsURLString () +
+                   "' for HTTP " +
+                   aDescriptor.getHttpMethod () +
+                   " may be ambiguous with " +
+                   new CommonsArrayList <> (aOverlapping,
+                                            x -> "'" + x.m_aDescriptor.getPathDescriptor ().getAsURLString () + "'"));
+
+    Node aNode = m_aRoot;
+    for (final PathDescriptorPart aPart : aParts)
+      aNode = aNode.getOrCreateChild (aPart);
+    aNode.addEntry (new Entry (m_nCount, aDescriptor, aParts));
+    m_nCount++;
+  }
+
+  /**
+   * @return The number of registered descriptors. Always &ge; 0.
+   */
+  @Nonnegative
+  int getCount ()
+  {
+    return m_nCount;
+  }
+
+  private static void _collectMatching (@NonNull final Node aNode,
+                                        @NonNull final List <String> aPathParts,
+                                        @Nonnegative final int nDepth,
+                                        @NonNull final ICommonsList <Entry> aTarget)
+  {
+    if (nDepth == aPathParts.size ())
+    {
+      if (aNode.m_aEntries != null)
+        aTarget.addAll (aNode.m_aEntries);
+      return;
+    }
+
+    final String sPathPart = aPathParts.get (nDepth);
+    if (aNode.m_aStaticChildren != null)
+    {
+      final Node aChild = aNode.m_aStaticChildren.get (sPathPart);
+      if (aChild != null)
+        _collectMatching (aChild, aPathParts, nDepth + 1, aTarget);
+    }
+    if (aNode.m_aVariableChildren != null)
+      for (final Map.Entry <PathDescriptorPart, Node> aEntry : aNode.m_aVariableChildren.entrySet ())
+        if (aEntry.getKey ().matches (sPathPart))
+          _collectMatching (aEntry.getValue (), aPathParts, nDepth + 1, aTarget);
+  }
+
+  /**
+   * Get all descriptors matching the provided path parts in the order of registration.
+   *
+   * @param sSourcePath
+   *        The original path. May neither be <code>null</code> nor empty.
+   * @param aPathParts
+   *        The cleaned path parts of the source path. May not be <code>null</code>.
+   * @return A new list with all matching descriptors. Never <code>null</code> but maybe empty.
+   */
+  @NonNull
+  ICommonsList <InvokableAPIDescriptor> getAllMatching (@NonNull @Nonempty final String sSourcePath,
+                                                        @NonNull final List <String> aPathParts)
+  {
+    final ICommonsList <Entry> aEntries = new CommonsArrayList <> ();
+    _collectMatching (m_aRoot, aPathParts, 0, aEntries);
+    if (aEntries.size () > 1)
+    {
+      // Same order as the registration
+      aEntries.sort (Comparator.comparingInt (x -> x.m_nIndex));
+    }
+
+    final ICommonsList <InvokableAPIDescriptor> ret = new CommonsArrayList <> (aEntries.size ());
+    for (final Entry aEntry : aEntries)
+      ret.add (new InvokableAPIDescriptor (aEntry.m_aDescriptor, sSourcePath, aEntry.getVariableValues (aPathParts)));
+    return ret;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (null).append ("Count", m_nCount).getToString ();
+  }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.photon.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.ICommonsList;
+import com.helger.http.EHttpMethod;
+import com.helger.photon.api.pathdescriptor.PathDescriptorHelper;
+import com.helger.photon.api.pathdescriptor.PathMatchingResult;
+
+/**
+ * Test class for class {@link APIRoutingTree}.
+ *
+ * @author Philip Helger
+ */
+public final class APIRoutingTreeTest
+{
+  private static final int ROUTE_COUNT = 500;
+
+  private static ICommonsList <APIDescriptor> _createRoutes ()
+  {
+    final IAPIExecutor aExec = (a, b, c, d, e) -> {};
+    final ICommonsList <APIDescriptor> ret = new CommonsArrayList <> ();
+    for (int i = 0; i < ROUTE_COUNT; ++i)
+    {
+      final String sPath = switch (i % 5)
+      {
+        case 0 -> "/api/res" + i;
+        case 1 -> "/api/res" + i + "/{id}";
+        case 2 -> "/api/res" + i + "/{id:regex=[0-9]+}/sub";
+        case 3 -> "/{tenant}/res" + i + "/items/{item}";
+        // Overlaps with the "% 5 == 1" route
+        default -> "/api/res" + (i - 3) + "/{other}";
+      };
+      ret.add (new APIDescriptor (new APIPath (i % 7 == 0 ? EHttpMethod.POST : EHttpMethod.GET, sPath), aExec));
+    }
+    return ret;
+  }
+
+  private static ICommonsList <APIPath> _createRequests ()
+  {
+    final ICommonsList <APIPath> ret = new CommonsArrayList <> ();
+    for (int i = 0; i < ROUTE_COUNT; ++i)
+      for (final EHttpMethod eMethod : new EHttpMethod [] { EHttpMethod.GET, EHttpMethod.POST })
+      {
+        ret.add (new APIPath (eMethod, "/api/res" + i));
+        ret.add (new APIPath (eMethod, "/api/res" + i + "/4711"));
+        ret.add (new APIPath (eMethod, "/api/res" + i + "/abc%20def"));
+        ret.add (new APIPath (eMethod, "/api/res" + i + "/4711/sub"));
+        ret.add (new APIPath (eMethod, "/api/res" + i + "/abc/sub"));
+        ret.add (new APIPath (eMethod, "/acme/res" + i + "/items/x%2Fy"));
+        ret.add (new APIPath (eMethod, "/api/res" + i + "/items/42"));
+        ret.add (new APIPath (eMethod, "/api/unknown" + i));
+      }
+    ret.add (APIPath.get ("/"));
+    ret.add (APIPath.get ("/api"));
+    return ret;
+  }
+
+  /**
+   * The previous implementation, checking all descriptors one after the other.
+   */
+  private static ICommonsList <InvokableAPIDescriptor> _getLinearMatches (final List <APIDescriptor> aDescriptors,
+                                                                          final APIPath aPath)
+  {
+    final String sSourcePath = aPath.getPath ();
+    final List <String> aPathParts = PathDescriptorHelper.getCleanPathParts (sSourcePath);
+    final ICommonsList <InvokableAPIDescriptor> ret = new CommonsArrayList <> ();
+    for (final APIDescriptor aDescriptor : aDescriptors)
+      if (aDescriptor.getHttpMethod () == aPath.getHttpMethod ())
+      {
+        final PathMatchingResult aMatchResult = aDescriptor.getPathDescriptor ().matchesParts (aPathParts);
+        if (aMatchResult.isMatch ())
+          ret.add (new InvokableAPIDescriptor (aDescriptor, sSourcePath, aMatchResult.getAllVariableValues ()));
+      }
+    return ret;
+  }
+
+  @Test
+  public void testSameResultsAsLinearMatching ()
+  {
+    final ICommonsList <APIDescriptor> aRoutes = _createRoutes ();
+    final APIDescriptorList aList = new APIDescriptorList ();
+    aRoutes.forEach (aList::addDescriptor);
+
+    int nSingle = 0;
+    int nAmbiguous = 0;
+    for (final APIPath aPath : _createRequests ())
+    {
+      final ICommonsList <InvokableAPIDescriptor> aExpected = _getLinearMatches (aRoutes, aPath);
+
+      // Remember what the resolver gets
+      final ICommonsList <InvokableAPIDescriptor> aResolved = new CommonsArrayList <> ();
+      final InvokableAPIDescriptor aMatch = aList.getMatching (aPath, (p, aDescriptors) -> {
+        aResolved.addAll (aDescriptors);
+        return aDescriptors.getFirstOrNull ();
+      });
+
+      final ICommonsList <InvokableAPIDescriptor> aActual = aExpected.size () == 1 ? new CommonsArrayList <> (aMatch)
+                                                                                    : aResolved;
+      assertEquals (aPath.toString (), aExpected.size (), aActual.size ());
+      for (int i = 0; i < aExpected.size (); ++i)
+      {
+        assertSame (aExpected.get (i).getAPIDescriptor (), aActual.get (i).getAPIDescriptor ());
+        assertEquals (aExpected.get (i).getPath (), aActual.get (i).getPath ());
+        assertEquals (aExpected.get (i).getAllPathVariables (), aActual.get (i).getAllPathVariables ());
+      }
+
+      if (aExpected.size () == 1)
+        nSingle++;
+      else
+        if (aExpected.size () > 1)
+          nAmbiguous++;
+    }
+    // Make sure all cases are covered
+    assertTrue (nSingle > 0);
+    assertTrue (nAmbiguous > 0);
+  }
+
+  @Test
+  public void testExplicitRoutes ()
+  {
+    final IAPIExecutor aExec = (a, b, c, d, e) -> {};
+    final APIDescriptor aStatic = new APIDescriptor (APIPath.get ("/api/items/all"), aExec);
+    final APIDescriptor aRegEx = new APIDescriptor (APIPath.get ("/api/items/{id:regex=[0-9]+}"), aExec);
+    final APIDescriptor aAny = new APIDescriptor (APIPath.get ("/api/items/{name}"), aExec);
+    final APIDescriptor aPost = new APIDescriptor (APIPath.post ("/api/items/{name}"), aExec);
+    final APIDescriptor aNested = new APIDescriptor (APIPath.get ("/{tenant}/items/{id}/sub"), aExec);
+
+    final APIRoutingTree aTree = new APIRoutingTree ();
+    aTree.addDescriptor (aStatic);
+    aTree.addDescriptor (aRegEx);
+    aTree.addDescriptor (aAny);
+    aTree.addDescriptor (aNested);
+    assertEquals (4, aTree.getCount ());
+
+    // Static part and variable without constraint - in registration order
+    ICommonsList <InvokableAPIDescriptor> aMatches = aTree.getAllMatching ("/api/items/all",
+                                                                           PathDescriptorHelper.getCleanPathParts ("/api/items/all"));
+    assertEquals (2, aMatches.size ());
+    assertSame (aStatic, aMatches.get (0).getAPIDescriptor ());
+    assertSame (aAny, aMatches.get (1).getAPIDescriptor ());
+    assertEquals ("all", aMatches.get (1).getAllPathVariables ().get ("name"));
+
+    // The constraint is considered
+    aMatches = aTree.getAllMatching ("/api/items/4711", PathDescriptorHelper.getCleanPathParts ("/api/items/4711"));
+    assertEquals (2, aMatches.size ());
+    assertSame (aRegEx, aMatches.get (0).getAPIDescriptor ());
+    assertEquals ("4711", aMatches.get (0).getAllPathVariables ().get ("id"));
+    assertSame (aAny, aMatches.get (1).getAPIDescriptor ());
+
+    // Variables are URL decoded
+    aMatches = aTree.getAllMatching ("/api/items/a%20b", PathDescriptorHelper.getCleanPathParts ("/api/items/a%20b"));
+    assertEquals (1, aMatches.size ());
+    assertSame (aAny, aMatches.get (0).getAPIDescriptor ());
+    assertEquals ("a b", aMatches.get (0).getAllPathVariables ().get ("name"));
+
+    // Variable in the first part
+    aMatches = aTree.getAllMatching ("/acme/items/1/sub", PathDescriptorHelper.getCleanPathParts ("/acme/items/1/sub"));
+    assertEquals (1, aMatches.size ());
+    assertSame (aNested, aMatches.get (0).getAPIDescriptor ());
+    assertEquals ("acme", aMatches.get (0).getAllPathVariables ().get ("tenant"));
+    assertEquals ("1", aMatches.get (0).getAllPathVariables ().get ("id"));
+
+    // No matches - too short, too long, different static part
+    for (final String sPath : new String [] { "/", "/api", "/api/items", "/api/items/1/2", "/api/other/1", "/acme/items/1" })
+      assertTrue (sPath, aTree.getAllMatching (sPath, PathDescriptorHelper.getCleanPathParts (sPath)).isEmpty ());
+
+    // The HTTP method is considered by the list
+    final APIDescriptorList aList = new APIDescriptorList ();
+    aList.addDescriptor (aAny);
+    aList.addDescriptor (aPost);
+    final IAPIPathAmbiguityResolver aResolver = (p, aDescriptors) -> aDescriptors.getFirstOrNull ();
+    assertSame (aAny, aList.getMatching (APIPath.get ("/api/items/x"), aResolver).getAPIDescriptor ());
+    assertSame (aPost, aList.getMatching (APIPath.post ("/api/items/x"), aResolver).getAPIDescriptor ());
+    assertNull (aList.getMatching (APIPath.put ("/api/items/x"), aResolver));
+  }
+}
@@ -146,6 +146,27 @@ public class PhotonUnifiedResponse extends UnifiedResponse
     return this;
   }
 
+  /**
+   * Set an already serialized JSON response. This avoids the creation of an intermediate JSON tree
+   * and String for large responses.
+   *
+   * @param aJsonUTF8
+   *        The stream containing the UTF-8 encoded JSON. May not be <code>null</code>.
+   * @return this for chaining
+   * @since 10.3.1
+   */
+  @NonNull
+  public PhotonUnifiedResponse json (@NonNull final NonBlockingByteArrayOutputStream aJsonUTF8)
+  {
+    ValueEnforcer.notNull (aJsonUTF8, "JsonUTF8");
+    final Charset aCharset = StandardCharsets.UTF_8;
+    setContent (aJsonUTF8);
+    setCharset (aCharset);
+    setMimeType (new MimeType (CMimeType.APPLICATION_JSON).addParameter (CMimeType.PARAMETER_NAME_CHARSET,
+                                                                         aCharset.name ()));
+    return this;
+  }
+
   @NonNull
   public PhotonUnifiedResponse xml (@Nullable final String sXML, @NonNull final Charset aCharset)
   {
@@ -0,0 +1,270 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.photon.app.metrics;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import org.jspecify.annotations.NonNull;
+
+import com.helger.annotation.Nonempty;
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.tostring.ToStringGenerator;
+
+/**
+ * The runtime metrics of a single endpoint (e.g. an Ajax function or an API path). All recording
+ * methods are lock-free. Besides the totals since creation, the invocations of a sliding time
+ * window (by default the last {@link #DEFAULT_WINDOW_DURATION}) are available. The window is
+ * divided into slots that are rotated based on the time of recording, so reading the metrics has
+ * no side effects and any number of readers see the same values.
+ *
+ * @author Philip Helger
+ * @since 10.3.1
+ */
+@ThreadSafe
+public final class EndpointMetrics
+{
+  /** The default duration of the sliding window */
+  public static final Duration DEFAULT_WINDOW_DURATION = Duration.ofMinutes (1);
+  /** The default number of slots the sliding window is divided into */
+  public static final int DEFAULT_WINDOW_SLOT_COUNT = 6;
+
+  /**
+   * A single time slot of the sliding window. A slot is never reset - a new slot replaces it
+   * instead.
+   *
+   * @author Philip Helger
+   */
+  private static final class WindowSlot
+  {
+    private final long m_nEpoch;
+    private final LatencyHistogram m_aHistogram = new LatencyHistogram ();
+    private final LongAdder m_aErrors = new LongAdder ();
+
+    WindowSlot (final long nEpoch)
+    {
+      m_nEpoch = nEpoch;
+    }
+  }
+
+  private final String m_sCategory;
+  private final String m_sEndpoint;
+  private final LongSupplier m_aNanoTimeSupplier;
+  private final Duration m_aWindowDuration;
+  private final long m_nSlotNanos;
+  private final LatencyHistogram m_aHistogram = new LatencyHistogram ();
+  private final AtomicInteger m_aInFlight = new AtomicInteger ();
+  private final LongAdder m_aErrors = new LongAdder ();
+  private final AtomicReferenceArray <WindowSlot> m_aSlots;
+
+  public EndpointMetrics (@NonNull @Nonempty final String sCategory, @NonNull @Nonempty final String sEndpoint)
+  {
+    this (sCategory, sEndpoint, DEFAULT_WINDOW_DURATION, DEFAULT_WINDOW_SLOT_COUNT, System::nanoTime);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param sCategory
+   *        The category of the endpoint. May neither be <code>null</code> nor empty.
+   * @param sEndpoint
+   *        The name of the endpoint. May neither be <code>null</code> nor empty.
+   * @param aWindowDuration
+   *        The duration of the sliding window. Must be positive.
+   * @param nWindowSlotCount
+   *        The number of slots the sliding window is divided into. Must be &gt; 0.
+   * @param aNanoTimeSupplier
+   *        The monotonic time source in nanoseconds, like {@link System#nanoTime()}. May not be
+   *        <code>null</code>.
+   */
+  EndpointMetrics (@NonNull @Nonempty final String sCategory,
+                   @NonNull @Nonempty final String sEndpoint,
+                   @NonNull final Duration aWindowDuration,
+                   @Nonnegative final int nWindowSlotCount,
+                   @NonNull final LongSupplier aNanoTimeSupplier)
+  {
+    ValueEnforcer.notEmpty (sCategory, "Category");
+    ValueEnforcer.notEmpty (sEndpoint, "Endpoint");
+    ValueEnforcer.notNull (aWindowDuration, "WindowDuration");
+    ValueEnforcer.isGT0 (nWindowSlotCount, "WindowSlotCount");
+    ValueEnforcer.isTrue (aWindowDuration.toNanos () >= nWindowSlotCount, "WindowDuration is too short");
+    ValueEnforcer.notNull (aNanoTimeSupplier, "NanoTimeSupplier");
+    m_sCategory = sCategory;
+    m_sEndpoint = sEndpoint;
+    m_aNanoTimeSupplier = aNanoTimeSupplier;
+    m_aWindowDuration = aWindowDuration;
+    m_nSlotNanos = aWindowDuration.toNanos () / nWindowSlotCount;
+    m_aSlots = new AtomicReferenceArray <> (nWindowSlotCount);
+  }
+
+  /**
+   * @return The category of the endpoint (e.g. "ajax"). Neither <code>null</code> nor empty.
+   */
+  @NonNull
+  @Nonempty
+  public String getCategory ()
+  {
+    return m_sCategory;
+  }
+
+  /**
+   * @return The name of the endpoint. Neither <code>null</code> nor empty.
+   */
+  @NonNull
+  @Nonempty
+  public String getEndpoint ()
+  {
+    return m_sEndpoint;
+  }
+
+  /**
+   * @return The duration of the sliding window used by {@link #getWindowSnapshot()}. Never
+   *         <code>null</code>.
+   */
+  @NonNull
+  public Duration getWindowDuration ()
+  {
+    return m_aWindowDuration;
+  }
+
+  private long _getEpoch (final long nNanoTime)
+  {
+    return Math.floorDiv (nNanoTime, m_nSlotNanos);
+  }
+
+  private int _getSlotIndex (final long nEpoch)
+  {
+    return (int) Math.floorMod (nEpoch, (long) m_aSlots.length ());
+  }
+
+  @NonNull
+  private WindowSlot _getCurrentSlot (final long nNanoTime)
+  {
+    final long nEpoch = _getEpoch (nNanoTime);
+    final int nIndex = _getSlotIndex (nEpoch);
+    while (true)
+    {
+      final WindowSlot aSlot = m_aSlots.get (nIndex);
+      // Never go back in time, if a newer slot is already present
+      if (aSlot != null && aSlot.m_nEpoch >= nEpoch)
+        return aSlot;
+      final WindowSlot aNewSlot = new WindowSlot (nEpoch);
+      if (m_aSlots.compareAndSet (nIndex, aSlot, aNewSlot))
+        return aNewSlot;
+    }
+  }
+
+  /**
+   * Must be called before the endpoint is invoked. Each call must be followed by a call to
+   * {@link #onInvocationEnd(long, boolean)}.
+   *
+   * @return The start time to be passed to {@link #onInvocationEnd(long, boolean)}.
+   */
+  public long onInvocationStart ()
+  {
+    m_aInFlight.incrementAndGet ();
+    return m_aNanoTimeSupplier.getAsLong ();
+  }
+
+  /**
+   * Must be called after the endpoint was invoked.
+   *
+   * @param nStartNanos
+   *        The value returned by {@link #onInvocationStart()}.
+   * @param bSuccess
+   *        <code>true</code> if the invocation succeeded, <code>false</code> if it failed with an
+   *        exception.
+   */
+  public void onInvocationEnd (final long nStartNanos, final boolean bSuccess)
+  {
+    final long nNow = m_aNanoTimeSupplier.getAsLong ();
+    final long nDuration = nNow - nStartNanos;
+    final WindowSlot aSlot = _getCurrentSlot (nNow);
+    m_aHistogram.recordNanos (nDuration);
+    aSlot.m_aHistogram.recordNanos (nDuration);
+    if (!bSuccess)
+    {
+      m_aErrors.increment ();
+      aSlot.m_aErrors.increment ();
+    }
+    m_aInFlight.decrementAndGet ();
+  }
+
+  /**
+   * @return The number of currently running invocations. Always &ge; 0.
+   */
+  @Nonnegative
+  public int getInFlightCount ()
+  {
+    return Math.max (m_aInFlight.get (), 0);
+  }
+
+  /**
+   * @return A snapshot of all invocations since the creation of this object. Never
+   *         <code>null</code>.
+   */
+  @NonNull
+  public EndpointMetricsSnapshot getTotalSnapshot ()
+  {
+    return new EndpointMetricsSnapshot (m_aHistogram.getTotalSnapshot (), m_aErrors.sum (), getInFlightCount ());
+  }
+
+  /**
+   * Get a snapshot of all invocations that finished within the sliding window. Calling this method
+   * has no side effects. As the window moves in slots, it covers at least the window duration minus
+   * one slot.
+   *
+   * @return A new snapshot of the sliding window. Never <code>null</code>.
+   * @see #getWindowDuration()
+   */
+  @NonNull
+  public EndpointMetricsSnapshot getWindowSnapshot ()
+  {
+    final long nCurrentEpoch = _getEpoch (m_aNanoTimeSupplier.getAsLong ());
+    final long nOldestEpoch = nCurrentEpoch - m_aSlots.length () + 1;
+
+    LatencyHistogramSnapshot aLatency = LatencyHistogramSnapshot.EMPTY;
+    long nErrors = 0;
+    for (int i = 0; i < m_aSlots.length (); ++i)
+    {
+      final WindowSlot aSlot = m_aSlots.get (i);
+      if (aSlot != null && aSlot.m_nEpoch >= nOldestEpoch && aSlot.m_nEpoch <= nCurrentEpoch)
+      {
+        aLatency = aLatency.getSum (aSlot.m_aHistogram.getTotalSnapshot ());
+        nErrors += aSlot.m_aErrors.sum ();
+      }
+    }
+    return new EndpointMetricsSnapshot (aLatency, nErrors, getInFlightCount ());
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Category", m_sCategory)
+                                       .append ("Endpoint", m_sEndpoint)
+                                       .append ("WindowDuration", m_aWindowDuration)
+                                       .append ("Histogram", m_aHistogram)
+                                       .append ("InFlight", m_aInFlight.get ())
+                                       .append ("Errors", m_aErrors.sum ())
+                                       .getToString ();
+  }
+}
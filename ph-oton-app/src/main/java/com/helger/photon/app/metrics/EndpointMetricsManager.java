@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.photon.app.metrics;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jspecify.annotations.NonNull;
+
+import com.helger.annotation.Nonempty;
+import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.annotation.style.ReturnsMutableCopy;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.ICommonsList;
+
+/**
+ * Central registry of all {@link EndpointMetrics}, grouped by category (e.g. "ajax" or "api").
+ * Additionally it can create a textual exposition of all metrics in the Prometheus text format.
+ *
+ * @author Philip Helger
+ * @since 10.3.1
+ */
+@ThreadSafe
+public final class EndpointMetricsManager
+{
+  /** The metric name prefix used in the text exposition */
+  public static final String METRIC_PREFIX = "photon_endpoint_";
+
+  private static final double [] PERCENTILES = { 50, 95, 99 };
+  private static final String [] QUANTILES = { "0.5", "0.95", "0.99" };
+  private static final double NANOS_PER_SECOND = 1_000_000_000d;
+
+  private static final Map <String, Map <String, EndpointMetrics>> METRICS = new ConcurrentHashMap <> ();
+
+  private EndpointMetricsManager ()
+  {}
+
+  /**
+   * Get or create the metrics of a single endpoint.
+   *
+   * @param sCategory
+   *        The category of the endpoint. May neither be <code>null</code> nor empty.
+   * @param sEndpoint
+   *        The name of the endpoint. May neither be <code>null</code> nor empty.
+   * @return The metrics object and never <code>null</code>.
+   */
+  @NonNull
+  public static EndpointMetrics getEndpointMetrics (@NonNull @Nonempty final String sCategory,
+                                                    @NonNull @Nonempty final String sEndpoint)
+  {
+    ValueEnforcer.notEmpty (sCategory, "Category");
+    ValueEnforcer.notEmpty (sEndpoint, "Endpoint");
+
+    // Avoid locking in computeIfAbsent for the common case
+    Map <String, EndpointMetrics> aMap = METRICS.get (sCategory);
+    if (aMap == null)
+      aMap = METRICS.computeIfAbsent (sCategory, k -> new ConcurrentHashMap <> ());
+    final EndpointMetrics ret = aMap.get (sEndpoint);
+    if (ret != null)
+      return ret;
+    return aMap.computeIfAbsent (sEndpoint, k -> new EndpointMetrics (sCategory, k));
+  }
+
+  /**
+   * @return All endpoint metrics, sorted by category and endpoint. Never <code>null</code>.
+   */
+  @NonNull
+  @ReturnsMutableCopy
+  public static ICommonsList <EndpointMetrics> getAllEndpointMetrics ()
+  {
+    final ICommonsList <EndpointMetrics> ret = new CommonsArrayList <> ();
+    for (final Map <String, EndpointMetrics> aMap : METRICS.values ())
+      ret.addAll (aMap.values ());
+    ret.sort (Comparator.comparing (EndpointMetrics::getCategory).thenComparing (EndpointMetrics::getEndpoint));
+    return ret;
+  }
+
+  /**
+   * Remove all endpoint metrics. This is primarily meant for testing.
+   */
+  public static void clear ()
+  {
+    METRICS.clear ();
+  }
+
+  @NonNull
+  private static String _escape (@NonNull final String s)
+  {
+    return s.replace ("\\", "\\\\").replace ("\"", "\\\"").replace ("\n", "\\n");
+  }
+
+  private static void _appendHeader (@NonNull final StringBuilder aSB,
+                                     @NonNull final String sName,
+                                     @NonNull final String sType,
+                                     @NonNull final String sHelp)
+  {
+    aSB.append ("# HELP ").append (METRIC_PREFIX).append (sName).append (' ').append (sHelp).append ('\n');
+    aSB.append ("# TYPE ").append (METRIC_PREFIX).append (sName).append (' ').append (sType).append ('\n');
+  }
+
+  private static void _appendLine (@NonNull final StringBuilder aSB,
+                                   @NonNull final String sName,
+                                   @NonNull final String sLabels,
+                                   @NonNull final String sValue)
+  {
+    aSB.append (METRIC_PREFIX).append (sName).append ('{').append (sLabels).append ("} ").append (sValue).append ('\n');
+  }
+
+  @NonNull
+  private static String _seconds (final long nNanos)
+  {
+    return Double.toString (nNanos / NANOS_PER_SECOND);
+  }
+
+  /**
+   * Get all endpoint metrics in the Prometheus text exposition format. The counters (invocations,
+   * errors and total latency) are totals since the start of the application. The latency quantiles,
+   * the maximum latency and the error rate are gauges referring to the sliding window of each
+   * endpoint (see {@link EndpointMetrics#DEFAULT_WINDOW_DURATION}), so that they directly show
+   * changes in tail latency. Calling this method has no side effects, so any number of scrapers may
+   * use it.
+   *
+   * @return The text exposition. Never <code>null</code>.
+   */
+  @NonNull
+  public static String getAsText ()
+  {
+    final ICommonsList <EndpointMetrics> aAll = getAllEndpointMetrics ();
+    final ICommonsList <String> aLabels = new CommonsArrayList <> (aAll.size ());
+    final ICommonsList <EndpointMetricsSnapshot> aTotals = new CommonsArrayList <> (aAll.size ());
+    final ICommonsList <EndpointMetricsSnapshot> aWindows = new CommonsArrayList <> (aAll.size ());
+    for (final EndpointMetrics aMetrics : aAll)
+    {
+      aLabels.add ("category=\"" +
+                   _escape (aMetrics.getCategory ()) +
+                   "\",endpoint=\"" +
+                   _escape (aMetrics.getEndpoint ()) +
+                   "\"");
+      aTotals.add (aMetrics.getTotalSnapshot ());
+      aWindows.add (aMetrics.getWindowSnapshot ());
+    }
+    final String sWindow = "of the last " + EndpointMetrics.DEFAULT_WINDOW_DURATION.toSeconds () + " seconds";
+
+    final StringBuilder aSB = new StringBuilder ();
+    _appendHeader (aSB, "latency_window_seconds", "gauge", "Endpoint latency quantiles " + sWindow);
+    for (int i = 0; i < aAll.size (); ++i)
+    {
+      final LatencyHistogramSnapshot aLatency = aWindows.get (i).getLatency ();
+      for (int j = 0; j < PERCENTILES.length; ++j)
+        _appendLine (aSB,
+                     "latency_window_seconds",
+                     aLabels.get (i) + ",quantile=\"" + QUANTILES[j] + "\"",
+                     _seconds (aLatency.getValueAtPercentile (PERCENTILES[j])));
+    }
+
+    _appendHeader (aSB, "latency_max_seconds", "gauge", "Maximum endpoint latency " + sWindow);
+    for (int i = 0; i < aAll.size (); ++i)
+      _appendLine (aSB, "latency_max_seconds", aLabels.get (i), _seconds (aWindows.get (i).getLatency ().getMaxNanos ()));
+
+    _appendHeader (aSB, "latency_seconds_total", "counter", "Total latency of all finished endpoint invocations");
+    for (int i = 0; i < aAll.size (); ++i)
+      _appendLine (aSB,
+                   "latency_seconds_total",
+                   aLabels.get (i),
+                   _seconds (aTotals.get (i).getLatency ().getTotalNanos ()));
+
+    _appendHeader (aSB, "invocations_total", "counter", "Finished endpoint invocations");
+    for (int i = 0; i < aAll.size (); ++i)
+      _appendLine (aSB, "invocations_total", aLabels.get (i), Long.toString (aTotals.get (i).getInvocationCount ()));
+
+    _appendHeader (aSB, "in_flight", "gauge", "Currently running endpoint invocations");
+    for (int i = 0; i < aAll.size (); ++i)
+      _appendLine (aSB, "in_flight", aLabels.get (i), Integer.toString (aTotals.get (i).getInFlightCount ()));
+
+    _appendHeader (aSB, "errors_total", "counter", "Endpoint invocations that failed with an exception");
+    for (int i = 0; i < aAll.size (); ++i)
+      _appendLine (aSB, "errors_total", aLabels.get (i), Long.toString (aTotals.get (i).getErrorCount ()));
+
+    _appendHeader (aSB, "error_rate", "gauge", "Ratio of failed endpoint invocations " + sWindow);
+    for (int i = 0; i < aAll.size (); ++i)
+      _appendLine (aSB, "error_rate", aLabels.get (i), Double.toString (aWindows.get (i).getErrorRate ()));
+
+    return aSB.toString ();
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.photon.app.metrics;
+
+import org.jspecify.annotations.NonNull;
+
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.Immutable;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.tostring.ToStringGenerator;
+
+/**
+ * An immutable snapshot of {@link EndpointMetrics}.
+ *
+ * @author Philip Helger
+ * @since 10.3.1
+ */
+@Immutable
+public final class EndpointMetricsSnapshot
+{
+  private final LatencyHistogramSnapshot m_aLatency;
+  private final long m_nErrorCount;
+  private final int m_nInFlightCount;
+
+  EndpointMetricsSnapshot (@NonNull final LatencyHistogramSnapshot aLatency,
+                           @Nonnegative final long nErrorCount,
+                           @Nonnegative final int nInFlightCount)
+  {
+    m_aLatency = aLatency;
+    m_nErrorCount = nErrorCount;
+    m_nInFlightCount = nInFlightCount;
+  }
+
+  /**
+   * @return The latencies of all finished invocations. Never <code>null</code>.
+   */
+  @NonNull
+  public LatencyHistogramSnapshot getLatency ()
+  {
+    return m_aLatency;
+  }
+
+  /**
+   * @return The number of finished invocations. Always &ge; 0.
+   */
+  @Nonnegative
+  public long getInvocationCount ()
+  {
+    return m_aLatency.getCount ();
+  }
+
+  /**
+   * @return The number of invocations that failed with an exception. Always &ge; 0.
+   */
+  @Nonnegative
+  public long getErrorCount ()
+  {
+    return m_nErrorCount;
+  }
+
+  /**
+   * @return The ratio of failed invocations in the range 0 to 1. 0 if there was no invocation.
+   */
+  public double getErrorRate ()
+  {
+    final long nCount = m_aLatency.getCount ();
+    return nCount == 0 ? 0 : Math.min ((double) m_nErrorCount / nCount, 1d);
+  }
+
+  /**
+   * @return The number of invocations that were running when the snapshot was taken. Always &ge; 0.
+   */
+  @Nonnegative
+  public int getInFlightCount ()
+  {
+    return m_nInFlightCount;
+  }
+
+  /**
+   * Get the invocations between the provided older snapshot and this snapshot.
+   *
+   * @param aOlder
+   *        The older snapshot of the same endpoint. May not be <code>null</code>.
+   * @return A new snapshot with the in-flight count of this snapshot. Never <code>null</code>.
+   */
+  @NonNull
+  public EndpointMetricsSnapshot getDifference (@NonNull final EndpointMetricsSnapshot aOlder)
+  {
+    ValueEnforcer.notNull (aOlder, "Older");
+    return new EndpointMetricsSnapshot (m_aLatency.getDifference (aOlder.m_aLatency),
+                                        Math.max (m_nErrorCount - aOlder.m_nErrorCount, 0),
+                                        m_nInFlightCount);
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Latency", m_aLatency)
+                                       .append ("ErrorCount", m_nErrorCount)
+                                       .append ("InFlightCount", m_nInFlightCount)
+                                       .getToString ();
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.photon.app.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.jspecify.annotations.NonNull;
+
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.base.tostring.ToStringGenerator;
+
+/**
+ * A lock-free latency histogram with nanosecond resolution. Values are stored in log-linear buckets
+ * (as in HDR histograms): each power of two range is divided into {@value #SUB_BUCKET_COUNT}
+ * linear sub-buckets, so each recorded value is represented with a relative error of at most
+ * 1/{@value #SUB_BUCKET_COUNT} while the memory footprint is fixed and independent of the number of
+ * recorded values.
+ *
+ * @author Philip Helger
+ * @since 10.3.1
+ */
+@ThreadSafe
+public final class LatencyHistogram
+{
+  static final int SUB_BUCKET_BITS = 5;
+  public static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+  /** Enough buckets to represent all positive long values */
+  static final int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+  private final AtomicLongArray m_aCounts = new AtomicLongArray (BUCKET_COUNT);
+  private final LongAdder m_aTotalNanos = new LongAdder ();
+  private final AtomicLong m_aMaxNanos = new AtomicLong ();
+
+  public LatencyHistogram ()
+  {}
+
+  static int getBucketIndex (@Nonnegative final long nValue)
+  {
+    if (nValue < SUB_BUCKET_COUNT)
+      return (int) nValue;
+    final int nShift = Long.SIZE - 1 - Long.numberOfLeadingZeros (nValue) - SUB_BUCKET_BITS;
+    return (nShift + 1) * SUB_BUCKET_COUNT + (int) ((nValue >>> nShift) - SUB_BUCKET_COUNT);
+  }
+
+  static long getBucketHighestValue (@Nonnegative final int nIndex)
+  {
+    final int nRange = nIndex >>> SUB_BUCKET_BITS;
+    final int nSubBucket = nIndex & (SUB_BUCKET_COUNT - 1);
+    if (nRange == 0)
+      return nSubBucket;
+    final int nShift = nRange - 1;
+    final long nLowest = ((long) (SUB_BUCKET_COUNT + nSubBucket)) << nShift;
+    return nLowest + (1L << nShift) - 1;
+  }
+
+  private void _updateMax (final long nValue)
+  {
+    long nCurrent = m_aMaxNanos.get ();
+    while (nValue > nCurrent && !m_aMaxNanos.compareAndSet (nCurrent, nValue))
+      nCurrent = m_aMaxNanos.get ();
+  }
+
+  /**
+   * Record a single duration.
+   *
+   * @param nNanos
+   *        The duration in nanoseconds. Negative values (e.g. caused by clock adjustments) are
+   *        recorded as 0.
+   */
+  public void recordNanos (final long nNanos)
+  {
+    final long nValue = Math.max (nNanos, 0);
+    m_aCounts.incrementAndGet (getBucketIndex (nValue));
+    m_aTotalNanos.add (nValue);
+    _updateMax (nValue);
+  }
+
+  /**
+   * Get a snapshot of all values recorded since the creation of this histogram. While values are
+   * recorded concurrently, the snapshot may be off by these values.
+   *
+   * @return A new snapshot and never <code>null</code>.
+   */
+  @NonNull
+  public LatencyHistogramSnapshot getTotalSnapshot ()
+  {
+    final long [] aCounts = new long [BUCKET_COUNT];
+    for (int i = 0; i < BUCKET_COUNT; ++i)
+      aCounts[i] = m_aCounts.get (i);
+    return new LatencyHistogramSnapshot (aCounts, m_aTotalNanos.sum (), m_aMaxNanos.get ());
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("TotalNanos", m_aTotalNanos.sum ())
+                                       .append ("MaxNanos", m_aMaxNanos.get ())
+                                       .getToString ();
+  }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.photon.app.metrics;
+
+import org.jspecify.annotations.NonNull;
+
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.Immutable;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.tostring.ToStringGenerator;
+
+/**
+ * An immutable snapshot of a {@link LatencyHistogram}.
+ *
+ * @author Philip Helger
+ * @since 10.3.1
+ */
+@Immutable
+public final class LatencyHistogramSnapshot
+{
+  /** A snapshot without any values */
+  public static final LatencyHistogramSnapshot EMPTY = new LatencyHistogramSnapshot (new long [LatencyHistogram.BUCKET_COUNT],
+                                                                                     0,
+                                                                                     0);
+
+  private final long [] m_aCounts;
+  private final long m_nCount;
+  private final long m_nTotalNanos;
+  private final long m_nMaxNanos;
+
+  LatencyHistogramSnapshot (final long @NonNull [] aCounts, final long nTotalNanos, final long nMaxNanos)
+  {
+    long nCount = 0;
+    for (final long n : aCounts)
+      nCount += n;
+    m_aCounts = aCounts;
+    m_nCount = nCount;
+    m_nTotalNanos = nTotalNanos;
+    m_nMaxNanos = nMaxNanos;
+  }
+
+  /**
+   * @return The number of recorded values. Always &ge; 0.
+   */
+  @Nonnegative
+  public long getCount ()
+  {
+    return m_nCount;
+  }
+
+  /**
+   * @return The sum of all recorded values in nanoseconds. Always &ge; 0.
+   */
+  @Nonnegative
+  public long getTotalNanos ()
+  {
+    return m_nTotalNanos;
+  }
+
+  /**
+   * @return The maximum recorded value in nanoseconds or 0 if no value was recorded.
+   */
+  @Nonnegative
+  public long getMaxNanos ()
+  {
+    return m_nMaxNanos;
+  }
+
+  /**
+   * @return The average of all recorded values in nanoseconds or 0 if no value was recorded.
+   */
+  @Nonnegative
+  public long getAverageNanos ()
+  {
+    return m_nCount == 0 ? 0 : m_nTotalNanos / m_nCount;
+  }
+
+  /**
+   * Get the value at the provided percentile. The result is the highest value that is equivalent to
+   * the bucket the percentile falls into, but never larger than the maximum value.
+   *
+   * @param dPercentile
+   *        The percentile to use. Must be &gt; 0 and &le; 100.
+   * @return The value in nanoseconds or 0 if no value was recorded.
+   */
+  @Nonnegative
+  public long getValueAtPercentile (final double dPercentile)
+  {
+    ValueEnforcer.isTrue (dPercentile > 0 && dPercentile <= 100, "Percentile must be > 0 and <= 100");
+    if (m_nCount == 0)
+      return 0;
+
+    final long nTarget = Math.max (1, (long) Math.ceil (dPercentile / 100d * m_nCount));
+    long nSum = 0;
+    for (int i = 0; i < m_aCounts.length; ++i)
+    {
+      nSum += m_aCounts[i];
+      if (nSum >= nTarget)
+        return Math.min (LatencyHistogram.getBucketHighestValue (i), m_nMaxNanos);
+    }
+    return m_nMaxNanos;
+  }
+
+  /**
+   * Get the values that were recorded between the provided older snapshot and this snapshot.
+   *
+   * @param aOlder
+   *        The older snapshot of the same histogram. May not be <code>null</code>.
+   * @return A new snapshot with the maximum value of this snapshot. Never <code>null</code>.
+   */
+  @NonNull
+  public LatencyHistogramSnapshot getDifference (@NonNull final LatencyHistogramSnapshot aOlder)
+  {
+    ValueEnforcer.notNull (aOlder, "Older");
+
+    final long [] aCounts = new long [m_aCounts.length];
+    for (int i = 0; i < aCounts.length; ++i)
+      aCounts[i] = Math.max (m_aCounts[i] - aOlder.m_aCounts[i], 0);
+    return new LatencyHistogramSnapshot (aCounts, Math.max (m_nTotalNanos - aOlder.m_nTotalNanos, 0), m_nMaxNanos);
+  }
+
+  /**
+   * Combine the values of this snapshot with the values of another snapshot, e.g. to aggregate the
+   * histograms of several time slots.
+   *
+   * @param aOther
+   *        The other snapshot to add. May not be <code>null</code>.
+   * @return A new snapshot with the values of both snapshots. Never <code>null</code>.
+   */
+  @NonNull
+  public LatencyHistogramSnapshot getSum (@NonNull final LatencyHistogramSnapshot aOther)
+  {
+    ValueEnforcer.notNull (aOther, "Other");
+
+    final long [] aCounts = new long [m_aCounts.length];
+    for (int i = 0; i < aCounts.length; ++i)
+      aCounts[i] = m_aCounts[i] + aOther.m_aCounts[i];
+    return new LatencyHistogramSnapshot (aCounts,
+                                         m_nTotalNanos + aOther.m_nTotalNanos,
+                                         Math.max (m_nMaxNanos, aOther.m_nMaxNanos));
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Count", m_nCount)
+                                       .append ("TotalNanos", m_nTotalNanos)
+                                       .append ("MaxNanos", m_nMaxNanos)
+                                       .getToString ();
+  }
+}
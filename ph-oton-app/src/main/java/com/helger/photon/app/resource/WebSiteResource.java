@@ -273,9 +273,11 @@ public class WebSiteResource
     if (o == null || !getClass ().equals (o.getClass ()))
       return false;
     final WebSiteResource rhs = (WebSiteResource) o;
+    // The content hash is part of the identity, so that bundles are re-created if a resource changes
     return m_eResourceType.equals (rhs.m_eResourceType) &&
            m_sPath.equals (rhs.m_sPath) &&
-           m_aCharset.equals (rhs.m_aCharset);
+           m_aCharset.equals (rhs.m_aCharset) &&
+           m_sContentHash.equals (rhs.m_sContentHash);
   }
 
   @Override
@@ -287,6 +289,7 @@ public class WebSiteResource
       ret = m_nHashCode = new HashCodeGenerator (this).append (m_eResourceType)
                                                       .append (m_sPath)
                                                       .append (m_aCharset)
+                                                      .append (m_sContentHash)
                                                       .getHashCode ();
     return ret;
   }
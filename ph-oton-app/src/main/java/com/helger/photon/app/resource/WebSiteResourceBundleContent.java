@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.photon.app.resource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+import org.jspecify.annotations.NonNull;
+
+import com.helger.annotation.Nonempty;
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.Immutable;
+import com.helger.annotation.style.ReturnsMutableObject;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.io.nonblocking.NonBlockingByteArrayOutputStream;
+import com.helger.base.tostring.ToStringGenerator;
+
+/**
+ * The merged content of a single {@link WebSiteResourceBundleSerialized} in memory. The content is
+ * kept uncompressed and GZip compressed, so that it can be delivered without any further
+ * processing. The byte arrays are shared and must never be modified.
+ *
+ * @author Philip Helger
+ * @since 10.3.1
+ */
+@Immutable
+public final class WebSiteResourceBundleContent
+{
+  private final String m_sBundleID;
+  private final String m_sETag;
+  private final String m_sETagGZip;
+  private final byte [] m_aContent;
+  private final byte [] m_aContentGZip;
+
+  private WebSiteResourceBundleContent (@NonNull @Nonempty final String sBundleID,
+                                        @NonNull @Nonempty final String sETag,
+                                        final byte @NonNull [] aContent,
+                                        final byte @NonNull [] aContentGZip)
+  {
+    m_sBundleID = sBundleID;
+    m_sETag = sETag;
+    // Each representation needs its own strong ETag
+    m_sETagGZip = sETag.endsWith ("\"") ? sETag.substring (0, sETag.length () - 1) + "-gzip\"" : sETag + "-gzip";
+    m_aContent = aContent;
+    m_aContentGZip = aContentGZip;
+  }
+
+  /**
+   * @return The ID of the bundle this content belongs to. Neither <code>null</code> nor empty.
+   */
+  @NonNull
+  @Nonempty
+  public String getBundleID ()
+  {
+    return m_sBundleID;
+  }
+
+  /**
+   * @return The strong ETag of the uncompressed content including the surrounding quotes. Neither
+   *         <code>null</code> nor empty.
+   * @see WebSiteResourceBundleSerialized#getETag()
+   */
+  @NonNull
+  @Nonempty
+  public String getETag ()
+  {
+    return m_sETag;
+  }
+
+  /**
+   * @return The strong ETag of the GZip compressed content including the surrounding quotes. It
+   *         is the ETag of the uncompressed content with a "-gzip" suffix. Neither
+   *         <code>null</code> nor empty.
+   */
+  @NonNull
+  @Nonempty
+  public String getETagGZip ()
+  {
+    return m_sETagGZip;
+  }
+
+  /**
+   * @return The uncompressed bundle content. Never <code>null</code>. The returned array must not
+   *         be modified.
+   */
+  @ReturnsMutableObject ("shared for performance reasons")
+  public byte @NonNull [] getContent ()
+  {
+    return m_aContent;
+  }
+
+  /**
+   * @return The GZip compressed bundle content. Never <code>null</code>. The returned array must
+   *         not be modified.
+   */
+  @ReturnsMutableObject ("shared for performance reasons")
+  public byte @NonNull [] getContentGZip ()
+  {
+    return m_aContentGZip;
+  }
+
+  /**
+   * @return The number of bytes occupied by the uncompressed and the compressed content.
+   */
+  @Nonnegative
+  public long getMemorySize ()
+  {
+    return (long) m_aContent.length + m_aContentGZip.length;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("BundleID", m_sBundleID)
+                                       .append ("ETag", m_sETag)
+                                       .append ("ContentLength", m_aContent.length)
+                                       .append ("ContentGZipLength", m_aContentGZip.length)
+                                       .getToString ();
+  }
+
+  @NonNull
+  private static byte [] _getGZipped (final byte @NonNull [] aContent)
+  {
+    try (final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream (aContent.length / 4 + 64))
+    {
+      try (final GZIPOutputStream aGZOS = new GZIPOutputStream (aBAOS))
+      {
+        aGZOS.write (aContent);
+      }
+      return aBAOS.toByteArray ();
+    }
+    catch (final IOException ex)
+    {
+      throw new UncheckedIOException ("Failed to GZip bundle content", ex);
+    }
+  }
+
+  /**
+   * Create a new bundle content. The compressed version is created immediately.
+   *
+   * @param sBundleID
+   *        The bundle ID. May neither be <code>null</code> nor empty.
+   * @param sETag
+   *        The strong ETag of the uncompressed content. May neither be <code>null</code> nor empty.
+   * @param aContent
+   *        The uncompressed content. May not be <code>null</code>. The array is used as is and
+   *        may not be modified afterwards.
+   * @return The new object and never <code>null</code>.
+   */
+  @NonNull
+  public static WebSiteResourceBundleContent create (@NonNull @Nonempty final String sBundleID,
+                                                     @NonNull @Nonempty final String sETag,
+                                                     final byte @NonNull [] aContent)
+  {
+    ValueEnforcer.notEmpty (sBundleID, "BundleID");
+    ValueEnforcer.notEmpty (sETag, "ETag");
+    ValueEnforcer.notNull (aContent, "Content");
+    return new WebSiteResourceBundleContent (sBundleID, sETag, aContent, _getGZipped (aContent));
+  }
+}
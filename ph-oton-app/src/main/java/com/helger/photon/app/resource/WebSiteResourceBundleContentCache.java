@@ -0,0 +1,209 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.photon.app.resource;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.GuardedBy;
+import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.base.concurrent.SimpleLock;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.tostring.ToStringGenerator;
+
+/**
+ * A memory bounded cache for {@link WebSiteResourceBundleContent} objects. The least recently used
+ * entries are evicted if the sum of the content sizes exceeds the configured maximum. Evicted
+ * entries are re-created from the serialized bundle files on demand.
+ *
+ * @author Philip Helger
+ * @since 10.3.1
+ */
+@ThreadSafe
+public final class WebSiteResourceBundleContentCache
+{
+  /** The default maximum number of bytes to be kept in memory: 64 MiB */
+  public static final long DEFAULT_MAX_MEMORY_SIZE = 64L * 1024 * 1024;
+
+  private static final Logger LOGGER = LoggerFactory.getLogger (WebSiteResourceBundleContentCache.class);
+
+  private final SimpleLock m_aLock = new SimpleLock ();
+  private final long m_nMaxMemorySize;
+  // Access ordered map - the first entry is the least recently used one
+  @GuardedBy ("m_aLock")
+  private final Map <String, WebSiteResourceBundleContent> m_aMap = new LinkedHashMap <> (16, 0.75f, true);
+  @GuardedBy ("m_aLock")
+  private long m_nMemorySize = 0;
+
+  public WebSiteResourceBundleContentCache ()
+  {
+    this (DEFAULT_MAX_MEMORY_SIZE);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param nMaxMemorySize
+   *        The maximum number of bytes to be cached. Must be &ge; 0. Use 0 to disable caching.
+   */
+  public WebSiteResourceBundleContentCache (@Nonnegative final long nMaxMemorySize)
+  {
+    ValueEnforcer.isGE0 (nMaxMemorySize, "MaxMemorySize");
+    m_nMaxMemorySize = nMaxMemorySize;
+  }
+
+  /**
+   * @return The maximum number of bytes to be cached. Always &ge; 0.
+   */
+  @Nonnegative
+  public long getMaxMemorySize ()
+  {
+    return m_nMaxMemorySize;
+  }
+
+  /**
+   * @return <code>true</code> if contents are cached, <code>false</code> if caching is disabled.
+   */
+  public boolean isEnabled ()
+  {
+    return m_nMaxMemorySize > 0;
+  }
+
+  /**
+   * @return The number of bytes currently cached. Always &ge; 0.
+   */
+  @Nonnegative
+  public long getMemorySize ()
+  {
+    return m_aLock.lockedLong ( () -> m_nMemorySize);
+  }
+
+  /**
+   * @return The number of currently cached bundles. Always &ge; 0.
+   */
+  @Nonnegative
+  public int getCount ()
+  {
+    return m_aLock.lockedInt (m_aMap::size);
+  }
+
+  /**
+   * Get the cached content of the bundle with the provided ID.
+   *
+   * @param sBundleID
+   *        The bundle ID to query. May be <code>null</code>.
+   * @return <code>null</code> if the bundle content is not cached.
+   */
+  @Nullable
+  public WebSiteResourceBundleContent get (@Nullable final String sBundleID)
+  {
+    if (sBundleID == null)
+      return null;
+    return m_aLock.lockedGet ( () -> m_aMap.get (sBundleID));
+  }
+
+  @GuardedBy ("m_aLock")
+  private void _evict ()
+  {
+    final Iterator <WebSiteResourceBundleContent> it = m_aMap.values ().iterator ();
+    while (m_nMemorySize > m_nMaxMemorySize && it.hasNext ())
+    {
+      final WebSiteResourceBundleContent aEvicted = it.next ();
+      it.remove ();
+      m_nMemorySize -= aEvicted.getMemorySize ();
+      if (LOGGER.isDebugEnabled ())
+        LOGGER.debug ("Evicted content of resource bundle '" + aEvicted.getBundleID () + "' from the cache");
+    }
+  }
+
+  /**
+   * Put the provided content into the cache. Content that is larger than the maximum memory size
+   * is not cached. Nothing is cached if caching is disabled.
+   *
+   * @param aContent
+   *        The content to cache. May not be <code>null</code>.
+   */
+  public void put (@NonNull final WebSiteResourceBundleContent aContent)
+  {
+    ValueEnforcer.notNull (aContent, "Content");
+
+    if (!isEnabled ())
+      return;
+
+    final long nSize = aContent.getMemorySize ();
+    if (nSize > m_nMaxMemorySize)
+    {
+      LOGGER.warn ("The content of resource bundle '" +
+                   aContent.getBundleID () +
+                   "' has " +
+                   nSize +
+                   " bytes and is too large to be cached");
+      return;
+    }
+
+    m_aLock.locked ( () -> {
+      final WebSiteResourceBundleContent aOld = m_aMap.put (aContent.getBundleID (), aContent);
+      if (aOld != null)
+        m_nMemorySize -= aOld.getMemorySize ();
+      m_nMemorySize += nSize;
+      _evict ();
+    });
+  }
+
+  /**
+   * Remove the content of the bundle with the provided ID from the cache.
+   *
+   * @param sBundleID
+   *        The bundle ID to remove. May be <code>null</code>.
+   */
+  public void remove (@Nullable final String sBundleID)
+  {
+    if (sBundleID != null)
+      m_aLock.locked ( () -> {
+        final WebSiteResourceBundleContent aOld = m_aMap.remove (sBundleID);
+        if (aOld != null)
+          m_nMemorySize -= aOld.getMemorySize ();
+      });
+  }
+
+  /**
+   * Remove all cached contents.
+   */
+  public void clear ()
+  {
+    m_aLock.locked ( () -> {
+      m_aMap.clear ();
+      m_nMemorySize = 0;
+    });
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("MaxMemorySize", m_nMaxMemorySize)
+                                       .append ("MemorySize", getMemorySize ())
+                                       .append ("Count", getCount ())
+                                       .getToString ();
+  }
+}
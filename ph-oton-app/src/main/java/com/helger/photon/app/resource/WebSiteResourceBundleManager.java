@@ -20,6 +20,13 @@ import java.io.File;
 import java.nio.charset.Charset;
 import java.time.LocalDateTime;
 import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 import org.jspecify.annotations.NonNull;
 import org.jspecify.annotations.Nullable;
@@ -27,9 +34,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.helger.annotation.Nonempty;
+import com.helger.annotation.Nonnegative;
 import com.helger.annotation.concurrent.GuardedBy;
 import com.helger.annotation.style.ReturnsMutableCopy;
 import com.helger.base.charset.CharsetHelper;
+import com.helger.base.concurrent.BasicThreadFactoryBuilder;
+import com.helger.base.concurrent.SimpleLock;
 import com.helger.base.enforce.ValueEnforcer;
 import com.helger.base.equals.EqualsHelper;
 import com.helger.base.id.factory.GlobalIDFactory;
@@ -38,8 +48,11 @@ import com.helger.base.string.StringHelper;
 import com.helger.base.string.StringParser;
 import com.helger.collection.commons.CommonsArrayList;
 import com.helger.collection.commons.CommonsHashMap;
+import com.helger.collection.commons.CommonsLinkedHashMap;
 import com.helger.collection.commons.ICommonsList;
 import com.helger.collection.commons.ICommonsMap;
+import com.helger.collection.commons.ICommonsOrderedMap;
+import com.helger.collection.map.LRUMap;
 import com.helger.css.media.CSSMediaList;
 import com.helger.css.media.ECSSMedium;
 import com.helger.dao.DAOException;
@@ -69,11 +82,63 @@ public final class WebSiteResourceBundleManager extends AbstractPhotonSimpleDAO
   private static final String ATTR_CONTENT_HASH = "contenthash";
   private static final String ATTR_CHARSET = "charset";
 
+  /** The maximum number of processed resource contents to keep in memory */
+  private static final int MAX_PROCESSED_CONTENT_CACHE_SIZE = 500;
+
+  /** The maximum number of threads to read and process the resources of new bundles */
+  private static final int MAX_PROCESSING_THREADS = Math.min (4, Runtime.getRuntime ().availableProcessors ());
+
   private static final Logger LOGGER = LoggerFactory.getLogger (WebSiteResourceBundleManager.class);
+
+  // The idle threads time out, so that no explicit shutdown is needed
+  private static final ThreadPoolExecutor PROCESSING_EXECUTOR = _createProcessingExecutor ();
+
+  /**
+   * The processed content of a single resource together with the content hash it was created
+   * from.
+   *
+   * @author Philip Helger
+   */
+  private static final class ProcessedContent
+  {
+    private final String m_sContentHash;
+    private final String m_sContent;
+
+    ProcessedContent (@NonNull final String sContentHash, @NonNull final String sContent)
+    {
+      m_sContentHash = sContentHash;
+      m_sContent = sContent;
+    }
+  }
+
   @GuardedBy ("m_aRWLock")
   private final ICommonsMap <WebSiteResourceBundle, String> m_aMapToData = new CommonsHashMap <> ();
   @GuardedBy ("m_aRWLock")
   private final ICommonsMap <String, WebSiteResourceBundleSerialized> m_aMapToBundle = new CommonsHashMap <> ();
+  // The bundles currently created - others wait for the creation to finish
+  @GuardedBy ("m_aRWLock")
+  private final ICommonsMap <WebSiteResourceBundle, CompletableFuture <WebSiteResourceBundleSerialized>> m_aBundlesInCreation = new CommonsHashMap <> ();
+  private volatile WebSiteResourceBundleContentCache m_aContentCache = new WebSiteResourceBundleContentCache ();
+  private final SimpleLock m_aProcessedContentLock = new SimpleLock ();
+  // The processed content of single resources, so that it can be shared between bundles. One entry
+  // per resource and processing mode - a changed content hash replaces the old entry.
+  @GuardedBy ("m_aProcessedContentLock")
+  private final LRUMap <String, ProcessedContent> m_aProcessedContentCache = new LRUMap <> (MAX_PROCESSED_CONTENT_CACHE_SIZE);
+
+  @NonNull
+  private static ThreadPoolExecutor _createProcessingExecutor ()
+  {
+    final ThreadPoolExecutor ret = new ThreadPoolExecutor (MAX_PROCESSING_THREADS,
+                                                           MAX_PROCESSING_THREADS,
+                                                           30,
+                                                           TimeUnit.SECONDS,
+                                                           new LinkedBlockingQueue <> (),
+                                                           new BasicThreadFactoryBuilder ().namingPattern ("ph-oton-resource-bundle-%d")
+                                                                                           .daemon (true)
+                                                                                           .build ());
+    ret.allowCoreThreadTimeOut (true);
+    return ret;
+  }
 
   public WebSiteResourceBundleManager (@Nullable final String sFilename) throws DAOException
   {
@@ -292,6 +357,131 @@ public final class WebSiteResourceBundleManager extends AbstractPhotonSimpleDAO
     return m_aRWLock.readLockedBoolean ( () -> m_aMapToBundle.containsKey (sBundleID));
   }
 
+  @Nullable
+  private String _getProcessedContent (@NonNull final WebSiteResource aResource, final boolean bRegular)
+  {
+    final String sContentHash = aResource.getContentHashAsString ();
+    if (sContentHash.isEmpty ())
+    {
+      // No hash - cannot cache
+      return aResource.getContent (bRegular);
+    }
+
+    // CSS URLs are rewritten relative to the resource path, so the path is part of the key
+    final String sKey = (bRegular ? "r:" : "m:") + aResource.getPath ();
+    final ProcessedContent aCached = m_aProcessedContentLock.lockedGet ( () -> m_aProcessedContentCache.get (sKey));
+    if (aCached != null && aCached.m_sContentHash.equals (sContentHash))
+      return aCached.m_sContent;
+
+    // Process outside of the lock as processing may take long
+    final String ret = aResource.getContent (bRegular);
+    if (ret != null)
+      m_aProcessedContentLock.locked ( () -> m_aProcessedContentCache.put (sKey, new ProcessedContent (sContentHash, ret)));
+    return ret;
+  }
+
+  /**
+   * Read and process the passed resource on the processing executor. The context class loader of
+   * the calling thread is used while processing, so that class path resources of the web
+   * application can be resolved.
+   *
+   * @param aResource
+   *        The resource to process. May not be <code>null</code>.
+   * @param bRegular
+   *        <code>true</code> for the regular version, <code>false</code> for the minified version.
+   * @param aContextClassLoader
+   *        The context class loader of the caller. May be <code>null</code>.
+   * @return The future with the processed content. Never <code>null</code>.
+   */
+  @NonNull
+  private CompletableFuture <String> _getProcessedContentAsync (@NonNull final WebSiteResource aResource,
+                                                                final boolean bRegular,
+                                                                @Nullable final ClassLoader aContextClassLoader)
+  {
+    return CompletableFuture.supplyAsync ( () -> {
+      final Thread aThread = Thread.currentThread ();
+      final ClassLoader aOldClassLoader = aThread.getContextClassLoader ();
+      aThread.setContextClassLoader (aContextClassLoader);
+      try
+      {
+        return _getProcessedContent (aResource, bRegular);
+      }
+      finally
+      {
+        aThread.setContextClassLoader (aOldClassLoader);
+      }
+    }, PROCESSING_EXECUTOR);
+  }
+
+  @Nullable
+  private static <T> T _join (@NonNull final CompletableFuture <T> aFuture)
+  {
+    try
+    {
+      return aFuture.join ();
+    }
+    catch (final CompletionException ex)
+    {
+      if (ex.getCause () instanceof final RuntimeException aRTE)
+        throw aRTE;
+      throw ex;
+    }
+  }
+
+  /**
+   * @return The memory bounded cache for the bundle contents. Never <code>null</code>.
+   * @since 10.3.1
+   */
+  @NonNull
+  public WebSiteResourceBundleContentCache getContentCache ()
+  {
+    return m_aContentCache;
+  }
+
+  /**
+   * Change the settings of the bundle content cache. All cached contents are discarded and read
+   * again from the serialized bundle files on demand.
+   *
+   * @param nMaxMemorySize
+   *        The maximum number of bytes to be cached. Use 0 to disable caching. The default is
+   *        {@link WebSiteResourceBundleContentCache#DEFAULT_MAX_MEMORY_SIZE}.
+   * @return this for chaining
+   * @since 10.3.1
+   */
+  @NonNull
+  public WebSiteResourceBundleManager setContentCacheSettings (@Nonnegative final long nMaxMemorySize)
+  {
+    m_aContentCache = new WebSiteResourceBundleContentCache (nMaxMemorySize);
+    return this;
+  }
+
+  /**
+   * Get the in-memory content of the resource bundle with the passed ID. If the content is not
+   * cached, it is read from the serialized bundle file and put into the cache.
+   *
+   * @param sBundleID
+   *        The bundle ID to be resolved. May be <code>null</code>.
+   * @return <code>null</code> if no such bundle exists or if the serialized bundle cannot be read.
+   * @since 10.3.1
+   */
+  @Nullable
+  public WebSiteResourceBundleContent getResourceBundleContent (@Nullable final String sBundleID)
+  {
+    final WebSiteResourceBundleContentCache aContentCache = m_aContentCache;
+    WebSiteResourceBundleContent ret = aContentCache.get (sBundleID);
+    if (ret == null)
+    {
+      final WebSiteResourceBundleSerialized aBundle = getResourceBundleOfID (sBundleID);
+      if (aBundle != null)
+      {
+        ret = aBundle.readContent ();
+        if (ret != null)
+          aContentCache.put (ret);
+      }
+    }
+    return ret;
+  }
+
   @NonNull
   @ReturnsMutableCopy
   public ICommonsList <WebSiteResourceBundleSerialized> getResourceBundles (@NonNull @Nonempty final ICommonsList <WebSiteResourceWithCondition> aList,
@@ -299,10 +489,10 @@ public final class WebSiteResourceBundleManager extends AbstractPhotonSimpleDAO
   {
     ValueEnforcer.notEmptyNoNullValue (aList, "List");
 
-    final ICommonsList <WebSiteResourceBundleSerialized> ret = new CommonsArrayList <> ();
+    final ICommonsList <CompletableFuture <WebSiteResourceBundleSerialized>> aFutures = new CommonsArrayList <> ();
+    final ICommonsOrderedMap <WebSiteResourceBundle, CompletableFuture <WebSiteResourceBundleSerialized>> aBundlesToCreate = new CommonsLinkedHashMap <> ();
 
     // Create a copy for modification
-    boolean bCreatedAnyBundle = false;
     final ICommonsList <WebSiteResourceWithCondition> aCopy = new CommonsArrayList <> (aList);
     while (aCopy.isNotEmpty ())
     {
@@ -333,62 +523,88 @@ public final class WebSiteResourceBundleManager extends AbstractPhotonSimpleDAO
                                                                                                         aFirst.isBundlable (),
                                                                        aFirst.getMediaList ());
 
-      // Try to find existing bundle (ID and serialized one)
-      String sBundleID;
-      WebSiteResourceBundleSerialized aBundleSerialized;
-      m_aRWLock.readLock ().lock ();
-      try
-      {
-        sBundleID = m_aMapToData.get (aBundle);
-        aBundleSerialized = m_aMapToBundle.get (sBundleID);
-      }
-      finally
+      // Try to find existing bundle
+      final WebSiteResourceBundleSerialized aBundleSerialized = m_aRWLock.readLockedGet ( () -> {
+        final String sBundleID = m_aMapToData.get (aBundle);
+        return sBundleID == null ? null : m_aMapToBundle.get (sBundleID);
+      });
+      if (aBundleSerialized != null)
+        aFutures.add (CompletableFuture.completedFuture (aBundleSerialized));
+      else
       {
-        m_aRWLock.readLock ().unlock ();
+        // No bundle found so far - check if it is currently in creation
+        final CompletableFuture <WebSiteResourceBundleSerialized> aNewFuture = new CompletableFuture <> ();
+        final CompletableFuture <WebSiteResourceBundleSerialized> aFuture = m_aRWLock.writeLockedGet ( () -> {
+          // Try again in write lock
+          final String sBundleID = m_aMapToData.get (aBundle);
+          if (sBundleID != null)
+            return CompletableFuture.completedFuture (m_aMapToBundle.get (sBundleID));
+          return m_aBundlesInCreation.computeIfAbsent (aBundle, k -> aNewFuture);
+        });
+        if (aFuture == aNewFuture)
+        {
+          // We're responsible for creating the bundle
+          aBundlesToCreate.put (aBundle, aNewFuture);
+        }
+        aFutures.add (aFuture);
       }
+    }
 
-      if (aBundleSerialized == null)
-      {
-        // No bundle found so far
-        m_aRWLock.writeLock ().lock ();
-        try
-        {
-          // Try again in write lock
-          sBundleID = m_aMapToData.get (aBundle);
-          if (sBundleID == null)
-          {
-            // Create a new bundle ID
-            sBundleID = GlobalIDFactory.getNewPersistentStringID ();
-            m_aMapToData.put (aBundle, sBundleID);
+    // Read and process the resources of all new bundles in parallel. Each bundle takes the results
+    // in the order of its resources, so the serialized bundles don't depend on the timing.
+    final ClassLoader aContextClassLoader = Thread.currentThread ().getContextClassLoader ();
+    final ICommonsMap <WebSiteResource, CompletableFuture <String>> aProcessedContents = new CommonsHashMap <> ();
+    for (final WebSiteResourceBundle aBundle : aBundlesToCreate.keySet ())
+      for (final WebSiteResource aResource : aBundle.getAllResources ())
+        aProcessedContents.computeIfAbsent (aResource,
+                                            k -> _getProcessedContentAsync (k, bRegular, aContextClassLoader));
+    final Function <WebSiteResource, String> aContentProvider = x -> _join (aProcessedContents.get (x));
 
-            // Create the main bundle
-            aBundleSerialized = new WebSiteResourceBundleSerialized (sBundleID, aBundle, bRegular);
-            m_aMapToBundle.put (sBundleID, aBundleSerialized);
+    // Create all new bundles outside of the lock
+    for (final Map.Entry <WebSiteResourceBundle, CompletableFuture <WebSiteResourceBundleSerialized>> aEntry : aBundlesToCreate.entrySet ())
+    {
+      final WebSiteResourceBundle aBundle = aEntry.getKey ();
+      final CompletableFuture <WebSiteResourceBundleSerialized> aFuture = aEntry.getValue ();
+      try
+      {
+        // Create a new bundle ID and the main bundle
+        final String sBundleID = GlobalIDFactory.getNewPersistentStringID ();
+        final WebSiteResourceBundleSerialized aBundleSerialized = new WebSiteResourceBundleSerialized (sBundleID,
+                                                                                                       aBundle,
+                                                                                                       aContentProvider);
 
-            // Remember that we created a bundle
-            bCreatedAnyBundle = true;
-          }
-          else
-          {
-            // We found it in the write-lock :)
-            aBundleSerialized = m_aMapToBundle.get (sBundleID);
-          }
-        }
-        finally
+        // Create the in-memory content once
+        final WebSiteResourceBundleContentCache aContentCache = m_aContentCache;
+        if (aContentCache.isEnabled ())
         {
-          m_aRWLock.writeLock ().unlock ();
+          final WebSiteResourceBundleContent aContent = aBundleSerialized.readContent ();
+          if (aContent != null)
+            aContentCache.put (aContent);
         }
-      }
 
-      // Use bundled version
-      ret.add (aBundleSerialized);
+        m_aRWLock.writeLocked ( () -> {
+          m_aMapToData.put (aBundle, sBundleID);
+          m_aMapToBundle.put (sBundleID, aBundleSerialized);
+          m_aBundlesInCreation.remove (aBundle);
+        });
+        aFuture.complete (aBundleSerialized);
+      }
+      catch (final RuntimeException | Error ex)
+      {
+        // Allow a retry
+        m_aRWLock.writeLocked ( () -> m_aBundlesInCreation.remove (aBundle));
+        aFuture.completeExceptionally (ex);
+      }
     }
 
     // Write once at the end
-    if (bCreatedAnyBundle)
-    {
+    if (aBundlesToCreate.isNotEmpty ())
       m_aRWLock.writeLocked (this::markAsChanged);
-    }
+
+    // Wait for all bundles in the original order
+    final ICommonsList <WebSiteResourceBundleSerialized> ret = new CommonsArrayList <> (aFutures.size ());
+    for (final CompletableFuture <WebSiteResourceBundleSerialized> aFuture : aFutures)
+      ret.add (_join (aFuture));
 
     return ret;
   }
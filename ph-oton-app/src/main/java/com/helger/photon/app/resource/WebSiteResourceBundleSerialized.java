@@ -21,6 +21,7 @@ import java.io.Writer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.function.Function;
 
 import org.jspecify.annotations.NonNull;
 import org.jspecify.annotations.Nullable;
@@ -33,7 +34,9 @@ import com.helger.base.io.EAppend;
 import com.helger.base.io.iface.IHasInputStream;
 import com.helger.base.io.stream.StreamHelper;
 import com.helger.base.string.StringHelper;
+import com.helger.base.string.StringHex;
 import com.helger.base.tostring.ToStringGenerator;
+import com.helger.collection.commons.ICommonsList;
 import com.helger.datetime.helper.PDTFactory;
 import com.helger.html.hc.IHCNode;
 import com.helger.io.resource.FileSystemResource;
@@ -41,6 +44,7 @@ import com.helger.mime.IMimeType;
 import com.helger.photon.app.PhotonAppSettings;
 import com.helger.photon.app.url.LinkHelper;
 import com.helger.photon.io.WebFileIO;
+import com.helger.security.messagedigest.EMessageDigestAlgorithm;
 import com.helger.url.ISimpleURL;
 import com.helger.web.scope.IRequestWebScopeWithoutResponse;
 
@@ -60,14 +64,36 @@ public class WebSiteResourceBundleSerialized implements IHasInputStream
   private final String m_sBundleID;
   private final WebSiteResourceBundle m_aBundle;
   private final LocalDateTime m_aCreationDT;
+  // Lazily created from the serialized bytes
+  private volatile String m_sETag;
 
   public WebSiteResourceBundleSerialized (@NonNull @Nonempty final String sBundleID,
                                           @NonNull final WebSiteResourceBundle aBundle,
                                           final boolean bRegular)
+  {
+    this (sBundleID, aBundle, x -> x.getContent (bRegular));
+  }
+
+  /**
+   * Constructor for a new bundle.
+   *
+   * @param sBundleID
+   *        Bundle ID
+   * @param aBundle
+   *        Bundle data
+   * @param aContentProvider
+   *        The function to retrieve the processed content of a single resource. May not be
+   *        <code>null</code>.
+   * @since 10.3.1
+   */
+  public WebSiteResourceBundleSerialized (@NonNull @Nonempty final String sBundleID,
+                                          @NonNull final WebSiteResourceBundle aBundle,
+                                          @NonNull final Function <? super WebSiteResource, String> aContentProvider)
   {
     this (sBundleID, aBundle, PDTFactory.getCurrentLocalDateTime ());
+    ValueEnforcer.notNull (aContentProvider, "ContentProvider");
     // Always serialize new bundles
-    _ensureSerialized (bRegular);
+    _ensureSerialized (aContentProvider);
   }
 
   /**
@@ -89,7 +115,14 @@ public class WebSiteResourceBundleSerialized implements IHasInputStream
     m_aCreationDT = ValueEnforcer.notNull (aCreationDT, "CreationDT");
   }
 
-  private void _ensureSerialized (final boolean bRegular)
+  @NonNull
+  private static String _createETag (@NonNull final byte [] aBytes)
+  {
+    // The serialized bytes already reflect minification and CSS URL rewriting
+    return '"' + StringHex.getHexEncoded (EMessageDigestAlgorithm.SHA_512.createMessageDigest ().digest (aBytes)) + '"';
+  }
+
+  private void _ensureSerialized (@NonNull final Function <? super WebSiteResource, String> aContentProvider)
   {
     final FileSystemResource aTargetRes = getResource (m_sBundleID);
     if (!aTargetRes.exists ())
@@ -115,8 +148,13 @@ public class WebSiteResourceBundleSerialized implements IHasInputStream
         }
         else
         {
+          final ICommonsList <WebSiteResource> aResources = m_aBundle.getAllResources ();
+
+          // Read and process all resources first - the order is maintained
+          final ICommonsList <String> aContents = aResources.getAllMapped (aContentProvider);
+
           // Write all used files into the result file (at least for now)
-          for (final WebSiteResource aRes : m_aBundle.getAllResources ())
+          for (final WebSiteResource aRes : aResources)
           {
             // This type of comment works for CSS and JS!
             // Update don't display the resource as URL because that might
@@ -130,9 +168,10 @@ public class WebSiteResourceBundleSerialized implements IHasInputStream
             aWriter.write (sMetaInfo);
           }
           // Write all resources themselves
-          for (final WebSiteResource aRes : m_aBundle.getAllResources ())
+          for (int i = 0; i < aResources.size (); ++i)
           {
-            final String sContent = aRes.getContent (bRegular);
+            final WebSiteResource aRes = aResources.get (i);
+            final String sContent = aContents.get (i);
             if (sContent != null)
             {
               aWriter.write (sContent);
@@ -196,6 +235,29 @@ public class WebSiteResourceBundleSerialized implements IHasInputStream
     return m_aBundle;
   }
 
+  /**
+   * @return The strong ETag of the uncompressed bundle including the surrounding quotes. It is the
+   *         SHA-512 hash of the serialized bundle, so it changes whenever the contained resources or
+   *         the minification and CSS rewriting settings change. May be <code>null</code> if the
+   *         serialized bundle file cannot be read.
+   * @since 10.3.1
+   */
+  @Nullable
+  public String getETag ()
+  {
+    String ret = m_sETag;
+    if (ret == null)
+    {
+      final byte [] aBytes = StreamHelper.getAllBytes (getResource (m_sBundleID));
+      if (aBytes != null)
+      {
+        ret = _createETag (aBytes);
+        m_sETag = ret;
+      }
+    }
+    return ret;
+  }
+
   @Nullable
   public static FileSystemResource getResource (@NonNull @Nonempty final String sBundleID)
   {
@@ -209,6 +271,26 @@ public class WebSiteResourceBundleSerialized implements IHasInputStream
     return getResource (m_sBundleID).getInputStream ();
   }
 
+  /**
+   * Read the serialized bundle file into memory and create the compressed version of it.
+   *
+   * @return <code>null</code> if the serialized bundle file cannot be read.
+   * @since 10.3.1
+   */
+  @Nullable
+  public WebSiteResourceBundleContent readContent ()
+  {
+    final byte [] aBytes = StreamHelper.getAllBytes (getResource (m_sBundleID));
+    if (aBytes == null)
+    {
+      LOGGER.error ("Failed to read serialized bundle '" + m_sBundleID + "'");
+      return null;
+    }
+    final String sETag = _createETag (aBytes);
+    m_sETag = sETag;
+    return WebSiteResourceBundleContent.create (m_sBundleID, sETag, aBytes);
+  }
+
   public boolean isReadMultiple ()
   {
     return true;
@@ -259,6 +341,7 @@ public class WebSiteResourceBundleSerialized implements IHasInputStream
     return new ToStringGenerator (this).append ("BundleID", m_sBundleID)
                                        .append ("Bundle", m_aBundle)
                                        .append ("CreationDT", m_aCreationDT)
+                                       .append ("ETag", m_sETag)
                                        .getToString ();
   }
 }
@@ -16,27 +16,31 @@
  */
 package com.helger.photon.app.resource;
 
+import java.io.File;
 import java.nio.charset.Charset;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.helger.annotation.Nonempty;
-import com.helger.annotation.concurrent.GuardedBy;
+import com.helger.annotation.Nonnegative;
 import com.helger.annotation.concurrent.ThreadSafe;
 import com.helger.annotation.style.PresentForCodeCoverage;
-import com.helger.base.concurrent.SimpleReadWriteLock;
 import com.helger.base.debug.GlobalDebug;
 import com.helger.base.enforce.ValueEnforcer;
 import com.helger.base.state.EChange;
-import com.helger.collection.commons.CommonsHashMap;
-import com.helger.collection.commons.ICommonsMap;
 
 /**
  * A global cache for {@link WebSiteResource} objects, to avoid the hash calculation over and over
- * again.
+ * again. Lookups are lock-free. Optionally the cached resources are revalidated based on the last
+ * modification date time of the underlying file, so that only changed resources are hashed again.
  *
  * @author Philip Helger
  */
@@ -46,11 +50,47 @@ public final class WebSiteResourceCache
   private static final Logger LOGGER = LoggerFactory.getLogger (WebSiteResourceCache.class);
   private static final AtomicBoolean SILENT_MODE = new AtomicBoolean (GlobalDebug.DEFAULT_SILENT_MODE);
 
-  private static final SimpleReadWriteLock RW_LOCK = new SimpleReadWriteLock ();
-  @GuardedBy ("RW_LOCK")
-  private static boolean s_bCacheEnabled = !GlobalDebug.isDebugMode ();
-  @GuardedBy ("RW_LOCK")
-  private static final ICommonsMap <String, WebSiteResource> s_aMap = new CommonsHashMap <> ();
+  /**
+   * A single cache entry that remembers the last modification of the underlying file.
+   *
+   * @author Philip Helger
+   */
+  private static final class CacheEntry
+  {
+    private final WebSiteResource m_aResource;
+    // The underlying file or null if the resource is not file based
+    private final File m_aFile;
+    private final long m_nLastModified;
+    private volatile long m_nLastCheckNanos;
+
+    CacheEntry (@NonNull final WebSiteResource aResource)
+    {
+      m_aResource = aResource;
+      m_aFile = aResource.getResource ().getAsFile ();
+      m_nLastModified = m_aFile == null ? 0 : m_aFile.lastModified ();
+      m_nLastCheckNanos = System.nanoTime ();
+    }
+
+    boolean isOutdated (final long nRevalidationNanos)
+    {
+      if (m_aFile == null)
+        return false;
+
+      final long nNow = System.nanoTime ();
+      if (nNow - m_nLastCheckNanos < nRevalidationNanos)
+        return false;
+      m_nLastCheckNanos = nNow;
+      return m_aFile.lastModified () != m_nLastModified;
+    }
+  }
+
+  private static volatile boolean s_bCacheEnabled = !GlobalDebug.isDebugMode ();
+  // Nanoseconds - 0 means revalidation is disabled
+  private static volatile long s_nRevalidationNanos = 0;
+  private static final Map <String, CacheEntry> MAP = new ConcurrentHashMap <> ();
+  private static final LongAdder HIT_COUNT = new LongAdder ();
+  private static final LongAdder MISS_COUNT = new LongAdder ();
+  private static final LongAdder REHASH_COUNT = new LongAdder ();
 
   @PresentForCodeCoverage
   private static final WebSiteResourceCache INSTANCE = new WebSiteResourceCache ();
@@ -84,7 +124,7 @@ public final class WebSiteResourceCache
    */
   public static boolean isCacheEnabled ()
   {
-    return RW_LOCK.readLockedBoolean ( () -> s_bCacheEnabled);
+    return s_bCacheEnabled;
   }
 
   /**
@@ -95,11 +135,42 @@ public final class WebSiteResourceCache
    */
   public static void setCacheEnabled (final boolean bCacheEnabled)
   {
-    RW_LOCK.writeLocked ( () -> s_bCacheEnabled = bCacheEnabled);
+    s_bCacheEnabled = bCacheEnabled;
     if (!isSilentMode ())
       LOGGER.info ("WebSiteResourceCache is now: " + (bCacheEnabled ? "enabled" : "disabled"));
   }
 
+  /**
+   * @return The minimum duration between two checks of the last modification of a cached file
+   *         based resource. {@link Duration#ZERO} means that no revalidation happens. Never
+   *         <code>null</code>.
+   * @since 10.3.1
+   */
+  @NonNull
+  public static Duration getRevalidationInterval ()
+  {
+    return Duration.ofNanos (s_nRevalidationNanos);
+  }
+
+  /**
+   * Set the minimum duration between two checks of the last modification of a cached file based
+   * resource. If the file was modified, a new {@link WebSiteResource} with an updated content hash
+   * is created. By default no revalidation happens.
+   *
+   * @param aRevalidationInterval
+   *        The interval to use. May be <code>null</code> or {@link Duration#ZERO} to disable
+   *        revalidation. Must not be negative.
+   * @since 10.3.1
+   */
+  public static void setRevalidationInterval (@Nullable final Duration aRevalidationInterval)
+  {
+    if (aRevalidationInterval != null)
+      ValueEnforcer.isFalse (aRevalidationInterval.isNegative (), "RevalidationInterval may not be negative");
+    s_nRevalidationNanos = aRevalidationInterval == null ? 0 : aRevalidationInterval.toNanos ();
+    if (!isSilentMode ())
+      LOGGER.info ("WebSiteResourceCache revalidation interval is now: " + getRevalidationInterval ());
+  }
+
   @NonNull
   public static WebSiteResource getOrCreateResource (@NonNull final EWebSiteResourceType eResourceType,
                                                      @NonNull @Nonempty final String sPath,
@@ -109,7 +180,7 @@ public final class WebSiteResourceCache
     ValueEnforcer.notEmpty (sPath, "Path");
     ValueEnforcer.notNull (aCharset, "Charset");
 
-    if (!isCacheEnabled ())
+    if (!s_bCacheEnabled)
     {
       // Always create a new resource to allow for modifications
       final WebSiteResource aResource = new WebSiteResource (eResourceType, sPath, aCharset);
@@ -125,15 +196,30 @@ public final class WebSiteResourceCache
     final String sCacheKey = eResourceType.getID () + "-" + sPath;
 
     // Entry already existing?
-    final WebSiteResource ret = RW_LOCK.readLockedGet ( () -> s_aMap.get (sCacheKey));
-    if (ret != null)
-      return ret;
-
-    // Try again in write lock
-    return RW_LOCK.writeLockedGet ( () -> s_aMap.computeIfAbsent (sCacheKey,
-                                                                  k -> new WebSiteResource (eResourceType,
-                                                                                            sPath,
-                                                                                            aCharset)));
+    final CacheEntry aEntry = MAP.get (sCacheKey);
+    if (aEntry != null)
+    {
+      final long nRevalidationNanos = s_nRevalidationNanos;
+      if (nRevalidationNanos == 0 || !aEntry.isOutdated (nRevalidationNanos))
+      {
+        HIT_COUNT.increment ();
+        return aEntry.m_aResource;
+      }
+
+      // The underlying file changed - hash again, unless another thread did it already
+      return MAP.compute (sCacheKey, (k, aOld) -> {
+        if (aOld != null && aOld != aEntry)
+          return aOld;
+        REHASH_COUNT.increment ();
+        if (!isSilentMode ())
+          LOGGER.info ("WebSiteResource '" + sPath + "' of type " + eResourceType + " changed and is hashed again");
+        return new CacheEntry (new WebSiteResource (eResourceType, sPath, aCharset));
+      }).m_aResource;
+    }
+
+    MISS_COUNT.increment ();
+    return MAP.computeIfAbsent (sCacheKey,
+                                k -> new CacheEntry (new WebSiteResource (eResourceType, sPath, aCharset))).m_aResource;
   }
 
   @NonNull
@@ -145,7 +231,7 @@ public final class WebSiteResourceCache
 
     final String sCacheKey = eType.getID () + "-" + sPath;
 
-    return RW_LOCK.writeLockedGet ( () -> s_aMap.removeObject (sCacheKey));
+    return EChange.valueOf (MAP.remove (sCacheKey) != null);
   }
 
   /**
@@ -156,6 +242,51 @@ public final class WebSiteResourceCache
   @NonNull
   public static EChange clearCache ()
   {
-    return RW_LOCK.writeLockedGet (s_aMap::removeAll);
+    if (MAP.isEmpty ())
+      return EChange.UNCHANGED;
+    MAP.clear ();
+    return EChange.CHANGED;
+  }
+
+  /**
+   * @return The number of lookups that were answered from the cache.
+   * @since 10.3.1
+   */
+  @Nonnegative
+  public static long getHitCount ()
+  {
+    return HIT_COUNT.sum ();
+  }
+
+  /**
+   * @return The number of lookups that required the creation of a new resource.
+   * @since 10.3.1
+   */
+  @Nonnegative
+  public static long getMissCount ()
+  {
+    return MISS_COUNT.sum ();
+  }
+
+  /**
+   * @return The number of resources that were hashed again because the underlying file changed.
+   * @since 10.3.1
+   */
+  @Nonnegative
+  public static long getRehashCount ()
+  {
+    return REHASH_COUNT.sum ();
+  }
+
+  /**
+   * Reset the hit, miss and rehash counters.
+   *
+   * @since 10.3.1
+   */
+  public static void resetStatistics ()
+  {
+    HIT_COUNT.reset ();
+    MISS_COUNT.reset ();
+    REHASH_COUNT.reset ();
   }
 }
@@ -0,0 +1,197 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.photon.app.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+/**
+ * Test class for class {@link LatencyHistogram}.
+ *
+ * @author Philip Helger
+ */
+public final class LatencyHistogramTest
+{
+  @Test
+  public void testBuckets ()
+  {
+    long nPrevHighest = -1;
+    for (int i = 0; i < LatencyHistogram.BUCKET_COUNT; ++i)
+    {
+      final long nHighest = LatencyHistogram.getBucketHighestValue (i);
+      assertTrue (nHighest > nPrevHighest);
+      // Lowest and highest value of each bucket map to the bucket
+      assertEquals (i, LatencyHistogram.getBucketIndex (nPrevHighest + 1));
+      assertEquals (i, LatencyHistogram.getBucketIndex (nHighest));
+      nPrevHighest = nHighest;
+    }
+    assertEquals (Long.MAX_VALUE, nPrevHighest);
+
+    // Relative error
+    for (long n = 1; n < 100_000_000_000L; n = n * 3 + 1)
+    {
+      final long nHighest = LatencyHistogram.getBucketHighestValue (LatencyHistogram.getBucketIndex (n));
+      assertTrue (nHighest >= n);
+      assertTrue ((nHighest - n) <= n / LatencyHistogram.SUB_BUCKET_COUNT);
+    }
+  }
+
+  @Test
+  public void testPercentiles ()
+  {
+    final LatencyHistogram aHG = new LatencyHistogram ();
+    assertEquals (0, aHG.getTotalSnapshot ().getValueAtPercentile (99));
+
+    // 1..1000 microseconds
+    for (int i = 1; i <= 1000; ++i)
+      aHG.recordNanos (i * 1000L);
+    final LatencyHistogramSnapshot aSnapshot = aHG.getTotalSnapshot ();
+    assertEquals (1000, aSnapshot.getCount ());
+    assertEquals (1_000_000, aSnapshot.getMaxNanos ());
+    assertEquals (500_500, aSnapshot.getAverageNanos ());
+    for (final double dPercentile : new double [] { 50, 95, 99, 100 })
+    {
+      final long nExpected = (long) (dPercentile * 10_000);
+      final long nActual = aSnapshot.getValueAtPercentile (dPercentile);
+      assertTrue (nActual >= nExpected);
+      assertTrue (nActual <= nExpected + nExpected / LatencyHistogram.SUB_BUCKET_COUNT);
+    }
+    assertEquals (1_000_000, aSnapshot.getValueAtPercentile (100));
+  }
+
+  @Test
+  public void testWindow ()
+  {
+    final AtomicLong aNanos = new AtomicLong (0);
+    // 60 seconds in 6 slots of 10 seconds
+    final EndpointMetrics aMetrics = new EndpointMetrics ("test",
+                                                          "func",
+                                                          Duration.ofSeconds (60),
+                                                          6,
+                                                          aNanos::get);
+    final long nSecond = 1_000_000_000L;
+    for (int i = 0; i < 10; ++i)
+    {
+      final long nStart = aMetrics.onInvocationStart ();
+      aNanos.addAndGet (1000);
+      aMetrics.onInvocationEnd (nStart, i != 0);
+    }
+
+    EndpointMetricsSnapshot aWindow = aMetrics.getWindowSnapshot ();
+    assertEquals (10, aWindow.getInvocationCount ());
+    assertEquals (1, aWindow.getErrorCount ());
+    assertEquals (0.1, aWindow.getErrorRate (), 0.0001);
+    assertEquals (0, aWindow.getInFlightCount ());
+    assertEquals (1000, aWindow.getLatency ().getMaxNanos ());
+
+    // Reading has no side effects
+    aWindow = aMetrics.getWindowSnapshot ();
+    assertEquals (10, aWindow.getInvocationCount ());
+    assertEquals (1, aWindow.getErrorCount ());
+
+    // A slower invocation in a later slot
+    aNanos.addAndGet (25 * nSecond);
+    final long nStart = aMetrics.onInvocationStart ();
+    assertEquals (1, aMetrics.getWindowSnapshot ().getInFlightCount ());
+    aNanos.addAndGet (5000);
+    aMetrics.onInvocationEnd (nStart, false);
+    aWindow = aMetrics.getWindowSnapshot ();
+    assertEquals (11, aWindow.getInvocationCount ());
+    assertEquals (2, aWindow.getErrorCount ());
+    assertEquals (5000, aWindow.getLatency ().getMaxNanos ());
+
+    // The first slot left the window
+    aNanos.addAndGet (40 * nSecond);
+    aWindow = aMetrics.getWindowSnapshot ();
+    assertEquals (1, aWindow.getInvocationCount ());
+    assertEquals (1, aWindow.getErrorRate (), 0);
+    assertEquals (5000, aWindow.getLatency ().getMaxNanos ());
+
+    // Everything left the window
+    aNanos.addAndGet (60 * nSecond);
+    aWindow = aMetrics.getWindowSnapshot ();
+    assertEquals (0, aWindow.getInvocationCount ());
+    assertEquals (0, aWindow.getLatency ().getMaxNanos ());
+    assertEquals (0, aWindow.getErrorRate (), 0);
+
+    // A slot of the same index is replaced and not added to
+    aMetrics.onInvocationEnd (aMetrics.onInvocationStart (), true);
+    assertEquals (1, aMetrics.getWindowSnapshot ().getInvocationCount ());
+
+    // Totals are not affected by the window
+    assertEquals (12, aMetrics.getTotalSnapshot ().getInvocationCount ());
+    assertEquals (2, aMetrics.getTotalSnapshot ().getErrorCount ());
+  }
+
+  @Test
+  public void testConcurrentRecording () throws InterruptedException
+  {
+    final LatencyHistogram aHG = new LatencyHistogram ();
+    final int nThreads = 8;
+    final int nPerThread = 100_000;
+    final ExecutorService aES = Executors.newFixedThreadPool (nThreads);
+    for (int t = 0; t < nThreads; ++t)
+      aES.submit ( () -> {
+        for (int i = 0; i < nPerThread; ++i)
+          aHG.recordNanos (i);
+      });
+    aES.shutdown ();
+    assertTrue (aES.awaitTermination (1, TimeUnit.MINUTES));
+
+    final LatencyHistogramSnapshot aSnapshot = aHG.getTotalSnapshot ();
+    assertEquals (nThreads * nPerThread, aSnapshot.getCount ());
+    assertEquals (nPerThread - 1, aSnapshot.getMaxNanos ());
+  }
+
+  @Test
+  public void testTextExposition ()
+  {
+    EndpointMetricsManager.clear ();
+    try
+    {
+      final EndpointMetrics aMetrics = EndpointMetricsManager.getEndpointMetrics ("ajax", "say\"hello\"");
+      aMetrics.onInvocationEnd (aMetrics.onInvocationStart (), true);
+      aMetrics.onInvocationEnd (aMetrics.onInvocationStart (), false);
+
+      final String sText = EndpointMetricsManager.getAsText ();
+      final String sLabels = "{category=\"ajax\",endpoint=\"say\\\"hello\\\"\"";
+      assertTrue (sText.contains ("# TYPE photon_endpoint_latency_window_seconds gauge\n"));
+      assertTrue (sText.contains ("photon_endpoint_latency_window_seconds" + sLabels + ",quantile=\"0.99\"} "));
+      assertTrue (sText.contains ("# TYPE photon_endpoint_invocations_total counter\n"));
+      assertTrue (sText.contains ("photon_endpoint_invocations_total" + sLabels + "} 2\n"));
+      assertTrue (sText.contains ("photon_endpoint_in_flight" + sLabels + "} 0\n"));
+      assertTrue (sText.contains ("photon_endpoint_errors_total" + sLabels + "} 1\n"));
+      assertTrue (sText.contains ("photon_endpoint_error_rate" + sLabels + "} 0.5\n"));
+
+
+      // Scraping has no side effects
+      assertEquals (sText, EndpointMetricsManager.getAsText ());
+    }
+    finally
+    {
+      EndpointMetricsManager.clear ();
+    }
+  }
+}
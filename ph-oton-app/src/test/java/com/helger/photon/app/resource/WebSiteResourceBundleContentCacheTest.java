@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.photon.app.resource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Test class for class {@link WebSiteResourceBundleContentCache}.
+ *
+ * @author Philip Helger
+ */
+public final class WebSiteResourceBundleContentCacheTest
+{
+  @Test
+  public void testLRU ()
+  {
+    final WebSiteResourceBundleContent a = WebSiteResourceBundleContent.create ("a", "\"a\"", new byte [1000]);
+    final WebSiteResourceBundleContent b = WebSiteResourceBundleContent.create ("b", "\"b\"", new byte [1000]);
+    final WebSiteResourceBundleContent c = WebSiteResourceBundleContent.create ("c", "\"c\"", new byte [1000]);
+    assertTrue (a.getMemorySize () > 1000);
+
+    // Enough room for two entries
+    final WebSiteResourceBundleContentCache aCache = new WebSiteResourceBundleContentCache (a.getMemorySize () +
+                                                                                            b.getMemorySize () +
+                                                                                            10);
+    aCache.put (a);
+    aCache.put (b);
+    assertEquals (2, aCache.getCount ());
+    assertEquals (a.getMemorySize () + b.getMemorySize (), aCache.getMemorySize ());
+
+    // Access "a" so that "b" is the least recently used one
+    assertNotNull (aCache.get ("a"));
+    aCache.put (c);
+    assertEquals (2, aCache.getCount ());
+    assertNotNull (aCache.get ("a"));
+    assertNull (aCache.get ("b"));
+    assertNotNull (aCache.get ("c"));
+
+    aCache.remove ("a");
+    assertEquals (c.getMemorySize (), aCache.getMemorySize ());
+
+    // Too large
+    final WebSiteResourceBundleContentCache aSmallCache = new WebSiteResourceBundleContentCache (100);
+    aSmallCache.put (a);
+    assertEquals (0, aSmallCache.getCount ());
+
+    aCache.clear ();
+    assertEquals (0, aCache.getCount ());
+    assertEquals (0, aCache.getMemorySize ());
+  }
+
+  @Test
+  public void testDisabled ()
+  {
+    final WebSiteResourceBundleContentCache aCache = new WebSiteResourceBundleContentCache (0);
+    assertFalse (aCache.isEnabled ());
+    aCache.put (WebSiteResourceBundleContent.create ("a", "\"a\"", new byte [10]));
+    assertEquals (0, aCache.getCount ());
+    assertNull (aCache.get ("a"));
+  }
+}
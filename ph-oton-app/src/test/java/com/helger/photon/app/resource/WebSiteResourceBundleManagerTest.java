@@ -16,19 +16,41 @@
  */
 package com.helger.photon.app.resource;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+
+import org.jspecify.annotations.NonNull;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestRule;
 
+import com.helger.base.concurrent.ExecutorServiceHelper;
+import com.helger.base.io.nonblocking.NonBlockingByteArrayInputStream;
+import com.helger.base.io.stream.StreamHelper;
 import com.helger.collection.commons.CommonsArrayList;
 import com.helger.collection.commons.ICommonsList;
 import com.helger.html.resource.css.ConstantCSSPathProvider;
 import com.helger.html.resource.js.ConstantJSPathProvider;
+import com.helger.io.file.FileOperations;
+import com.helger.io.file.SimpleFileIO;
 import com.helger.photon.app.PhotonAppManager;
 import com.helger.photon.app.mock.PhotonAppWebTestRule;
+import com.helger.photon.io.WebFileIO;
 
 /**
  * Test class for class {@link WebSiteResourceBundleManager}.
@@ -37,6 +59,8 @@ import com.helger.photon.app.mock.PhotonAppWebTestRule;
  */
 public final class WebSiteResourceBundleManagerTest
 {
+  private static final String MODIFIABLE_PATH = "bundle-test/modifiable.css";
+
   @Rule
   public final TestRule m_aRule = new PhotonAppWebTestRule ();
 
@@ -67,4 +91,173 @@ public final class WebSiteResourceBundleManagerTest
     assertNotNull (aBundles);
     assertEquals (1, aBundles.size ());
   }
+
+  @Test
+  public void testContent () throws IOException
+  {
+    final ICommonsList <WebSiteResourceWithCondition> aList = new CommonsArrayList <> ();
+    aList.add (WebSiteResourceWithCondition.createForCSS (ConstantCSSPathProvider.builder ().path ("external/res/animate.css").minifiedPathFromPath ().build (),
+                                                          true));
+    final WebSiteResourceBundleManager aMgr = PhotonAppManager.getWebSiteResourceBundleMgr ();
+    final WebSiteResourceBundleSerialized aBundle = aMgr.getResourceBundles (aList, true).getFirstOrNull ();
+    assertNotNull (aBundle);
+    assertTrue (aBundle.getETag ().startsWith ("\""));
+
+    final WebSiteResourceBundleContent aContent = aMgr.getResourceBundleContent (aBundle.getBundleID ());
+    assertNotNull (aContent);
+    assertEquals (aBundle.getETag (), aContent.getETag ());
+    assertEquals (aContent.getETag ().substring (0, aContent.getETag ().length () - 1) + "-gzip\"",
+                  aContent.getETagGZip ());
+    assertArrayEquals (StreamHelper.getAllBytes (aBundle), aContent.getContent ());
+    try (final GZIPInputStream aIS = new GZIPInputStream (new NonBlockingByteArrayInputStream (aContent.getContentGZip ())))
+    {
+      assertArrayEquals (aContent.getContent (), StreamHelper.getAllBytes (aIS));
+    }
+
+    // Cached
+    assertSame (aContent, aMgr.getResourceBundleContent (aBundle.getBundleID ()));
+
+    // Evicted and re-read
+    aMgr.getContentCache ().remove (aBundle.getBundleID ());
+    final WebSiteResourceBundleContent aContent2 = aMgr.getResourceBundleContent (aBundle.getBundleID ());
+    assertNotNull (aContent2);
+    assertArrayEquals (aContent.getContent (), aContent2.getContent ());
+  }
+
+  @Test
+  public void testResourceOrder ()
+  {
+    final ICommonsList <WebSiteResourceWithCondition> aList = new CommonsArrayList <> ();
+    for (final String sPath : new String [] { "external/res/famfam.css", "external/res/animate.css" })
+      aList.add (WebSiteResourceWithCondition.createForCSS (ConstantCSSPathProvider.builder ().path (sPath).minifiedPathFromPath ().build (),
+                                                            true));
+    final WebSiteResourceBundleManager aMgr = PhotonAppManager.getWebSiteResourceBundleMgr ();
+    final WebSiteResourceBundleSerialized aBundle = aMgr.getResourceBundles (aList, false).getFirstOrNull ();
+    assertNotNull (aBundle);
+
+    // The resources are processed in parallel, but written in the original order
+    final String sContent = new String (aMgr.getResourceBundleContent (aBundle.getBundleID ()).getContent (),
+                                        StandardCharsets.UTF_8);
+    int nLastIndex = -1;
+    for (final WebSiteResourceWithCondition aRes : aList)
+    {
+      final int nIndex = sContent.indexOf (aRes.getResource ().getContent (false));
+      assertTrue (nIndex > nLastIndex);
+      nLastIndex = nIndex;
+    }
+  }
+
+  @Test
+  public void testContentCacheDisabled ()
+  {
+    final ICommonsList <WebSiteResourceWithCondition> aList = new CommonsArrayList <> ();
+    aList.add (WebSiteResourceWithCondition.createForCSS (ConstantCSSPathProvider.builder ().path ("external/res/famfam.css").minifiedPathFromPath ().build (),
+                                                          true));
+    final WebSiteResourceBundleManager aMgr = PhotonAppManager.getWebSiteResourceBundleMgr ();
+    try
+    {
+      aMgr.setContentCacheSettings (0);
+      final WebSiteResourceBundleSerialized aBundle = aMgr.getResourceBundles (aList, true).getFirstOrNull ();
+      assertNotNull (aBundle);
+
+      // Read from the serialized file every time
+      final WebSiteResourceBundleContent aContent = aMgr.getResourceBundleContent (aBundle.getBundleID ());
+      assertNotNull (aContent);
+      assertArrayEquals (StreamHelper.getAllBytes (aBundle), aContent.getContent ());
+      assertEquals (0, aMgr.getContentCache ().getCount ());
+      assertNotSame (aContent, aMgr.getResourceBundleContent (aBundle.getBundleID ()));
+    }
+    finally
+    {
+      aMgr.setContentCacheSettings (WebSiteResourceBundleContentCache.DEFAULT_MAX_MEMORY_SIZE);
+    }
+  }
+
+  @Test
+  public void testConcurrentCreation () throws Exception
+  {
+    final ICommonsList <WebSiteResourceWithCondition> aList = new CommonsArrayList <> ();
+    aList.add (WebSiteResourceWithCondition.createForJS (ConstantJSPathProvider.builder ().path ("external/res/stacktrace.js").minifiedPathFromPath ().build (),
+                                                         true));
+    aList.add (WebSiteResourceWithCondition.createForJS (ConstantJSPathProvider.builder ().path ("external/res/serverlog.js").minifiedPathFromPath ().build (),
+                                                         true));
+    final WebSiteResourceBundleManager aMgr = PhotonAppManager.getWebSiteResourceBundleMgr ();
+
+    final ExecutorService aES = Executors.newFixedThreadPool (8);
+    final ICommonsList <Future <ICommonsList <WebSiteResourceBundleSerialized>>> aFutures = new CommonsArrayList <> ();
+    for (int i = 0; i < 16; ++i)
+      aFutures.add (aES.submit ( () -> aMgr.getResourceBundles (aList, false)));
+    ExecutorServiceHelper.shutdownAndWaitUntilAllTasksAreFinished (aES);
+
+    // All threads must get the same bundle
+    final WebSiteResourceBundleSerialized aBundle = aFutures.getFirstOrNull ().get ().getFirstOrNull ();
+    assertNotNull (aBundle);
+    for (final Future <ICommonsList <WebSiteResourceBundleSerialized>> aFuture : aFutures)
+    {
+      assertEquals (1, aFuture.get ().size ());
+      assertSame (aBundle, aFuture.get ().getFirstOrNull ());
+    }
+    assertSame (aBundle, aMgr.getResourceBundleOfID (aBundle.getBundleID ()));
+  }
+
+  @NonNull
+  private static ICommonsList <WebSiteResourceWithCondition> _createModifiableList ()
+  {
+    return new CommonsArrayList <> (WebSiteResourceWithCondition.createForCSS (ConstantCSSPathProvider.builder ()
+                                                                                                      .path ("/" +
+                                                                                                             MODIFIABLE_PATH)
+                                                                                                      .minifiedPathFromPath ()
+                                                                                                      .build (),
+                                                                               true));
+  }
+
+  @Test
+  public void testModifiedResource ()
+  {
+    final boolean bOldEnabled = WebSiteResourceCache.isCacheEnabled ();
+    final File aFile = WebFileIO.getServletContextIO ().getResource (MODIFIABLE_PATH).getAsFile ();
+    try
+    {
+      WebSiteResourceCache.setCacheEnabled (true);
+      WebSiteResourceCache.setRevalidationInterval (Duration.ofNanos (1));
+      FileOperations.createDirRecursiveIfNotExisting (aFile.getParentFile ());
+      SimpleFileIO.writeFile (aFile, "div { color: red; }\n", StandardCharsets.UTF_8);
+
+      final WebSiteResourceBundleManager aMgr = PhotonAppManager.getWebSiteResourceBundleMgr ();
+      final WebSiteResourceBundleSerialized aBundle1 = aMgr.getResourceBundles (_createModifiableList (), true)
+                                                           .getFirstOrNull ();
+      assertNotNull (aBundle1);
+      final WebSiteResourceBundleContent aContent1 = aMgr.getResourceBundleContent (aBundle1.getBundleID ());
+      assertNotNull (aContent1);
+      assertTrue (new String (aContent1.getContent (), StandardCharsets.UTF_8).contains ("red"));
+
+      // Unchanged file - same bundle
+      assertSame (aBundle1, aMgr.getResourceBundles (_createModifiableList (), true).getFirstOrNull ());
+
+      // Modify the file and make sure the modification time differs
+      final long nOldLastModified = aFile.lastModified ();
+      SimpleFileIO.writeFile (aFile, "div { color: blue; }\n", StandardCharsets.UTF_8);
+      assertTrue (aFile.setLastModified (nOldLastModified + 2_000));
+
+      final WebSiteResourceBundleSerialized aBundle2 = aMgr.getResourceBundles (_createModifiableList (), true)
+                                                           .getFirstOrNull ();
+      assertNotNull (aBundle2);
+      assertNotEquals (aBundle1.getBundleID (), aBundle2.getBundleID ());
+      assertNotEquals (aBundle1.getETag (), aBundle2.getETag ());
+
+      final WebSiteResourceBundleContent aContent2 = aMgr.getResourceBundleContent (aBundle2.getBundleID ());
+      assertNotNull (aContent2);
+      final String sContent2 = new String (aContent2.getContent (), StandardCharsets.UTF_8);
+      assertTrue (sContent2.contains ("blue"));
+      assertFalse (sContent2.contains ("red"));
+      assertEquals (aBundle2.getETag (), aContent2.getETag ());
+      assertNotEquals (aContent1.getETag (), aContent2.getETag ());
+    }
+    finally
+    {
+      WebSiteResourceCache.setRevalidationInterval (null);
+      WebSiteResourceCache.setCacheEnabled (bOldEnabled);
+      FileOperations.deleteFileIfExisting (aFile);
+    }
+  }
 }
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.photon.app.resource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+
+import com.helger.photon.app.mock.PhotonAppWebTestRule;
+
+/**
+ * Test class for class {@link WebSiteResourceCache}.
+ *
+ * @author Philip Helger
+ */
+public final class WebSiteResourceCacheTest
+{
+  private static final String PATH = "external/res/animate.css";
+
+  @Rule
+  public final TestRule m_aRule = new PhotonAppWebTestRule ();
+
+  @Test
+  public void testBasic ()
+  {
+    final boolean bOldEnabled = WebSiteResourceCache.isCacheEnabled ();
+    try
+    {
+      WebSiteResourceCache.setCacheEnabled (true);
+      WebSiteResourceCache.removeFromCache (EWebSiteResourceType.CSS, PATH);
+      WebSiteResourceCache.resetStatistics ();
+
+      final WebSiteResource aRes = WebSiteResourceCache.getOrCreateResource (EWebSiteResourceType.CSS,
+                                                                             PATH,
+                                                                             WebSiteResource.DEFAULT_CHARSET);
+      assertTrue (aRes.isExisting ());
+      assertEquals (1, WebSiteResourceCache.getMissCount ());
+      assertSame (aRes,
+                  WebSiteResourceCache.getOrCreateResource (EWebSiteResourceType.CSS,
+                                                            PATH,
+                                                            WebSiteResource.DEFAULT_CHARSET));
+      assertEquals (1, WebSiteResourceCache.getHitCount ());
+
+      // Revalidation of an unchanged resource
+      WebSiteResourceCache.setRevalidationInterval (Duration.ofNanos (1));
+      assertSame (aRes,
+                  WebSiteResourceCache.getOrCreateResource (EWebSiteResourceType.CSS,
+                                                            PATH,
+                                                            WebSiteResource.DEFAULT_CHARSET));
+      assertEquals (2, WebSiteResourceCache.getHitCount ());
+      assertEquals (0, WebSiteResourceCache.getRehashCount ());
+
+      // Disabled cache
+      WebSiteResourceCache.setCacheEnabled (false);
+      assertNotSame (aRes,
+                     WebSiteResourceCache.getOrCreateResource (EWebSiteResourceType.CSS,
+                                                               PATH,
+                                                               WebSiteResource.DEFAULT_CHARSET));
+      assertEquals (3, WebSiteResourceCache.getHitCount () + WebSiteResourceCache.getMissCount ());
+    }
+    finally
+    {
+      WebSiteResourceCache.setRevalidationInterval (null);
+      WebSiteResourceCache.setCacheEnabled (bOldEnabled);
+    }
+  }
+}
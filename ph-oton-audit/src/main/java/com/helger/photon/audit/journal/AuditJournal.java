@@ -0,0 +1,474 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.photon.audit.journal;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.GuardedBy;
+import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.annotation.style.ReturnsMutableCopy;
+import com.helger.base.concurrent.BasicThreadFactoryBuilder;
+import com.helger.base.concurrent.SimpleReadWriteLock;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.string.StringHelper;
+import com.helger.base.string.StringParser;
+import com.helger.base.tostring.ToStringGenerator;
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.ICommonsList;
+import com.helger.photon.audit.IAuditItem;
+
+/**
+ * An append-only audit journal. Audit items are appended to rolling segment files in a compact
+ * binary format. A new segment is started when the current one exceeds the configured size or item
+ * count, or when the date of the audit items changes. Each segment keeps a small index by
+ * timestamp (see {@link AuditJournalSegment}), so that reading the latest items only touches the
+ * tail of the newest segments.<br>
+ * Writing costs are independent of the number of items already written. The active segment is
+ * flushed after every batch and synced to disk according to
+ * {@link AuditJournalSettings#getSyncInterval()}. For a sync interval &gt; 0 a background timer
+ * ensures that the tail of a burst is synced at the latest one interval after it was written, even
+ * if no further items are appended.
+ *
+ * @author Philip Helger
+ */
+@ThreadSafe
+public class AuditJournal implements AutoCloseable
+{
+  /** The file name prefix of all segment files */
+  public static final String SEGMENT_FILE_PREFIX = "segment-";
+  /** The file extension of all segment files */
+  public static final String SEGMENT_FILE_EXT = ".ajs";
+  /** The file extension of the segment index files (appended to the segment filename) */
+  public static final String INDEX_FILE_EXT = ".idx";
+
+  private static final Logger LOGGER = LoggerFactory.getLogger (AuditJournal.class);
+  private static final ThreadFactory SYNC_THREAD_FACTORY = new BasicThreadFactoryBuilder ().namingPattern ("AuditJournalSync")
+                                                                                           .daemon (true)
+                                                                                           .build ();
+
+  private final SimpleReadWriteLock m_aRWLock = new SimpleReadWriteLock ();
+  private final File m_aDir;
+  private final AuditJournalSettings m_aSettings;
+  @GuardedBy ("m_aRWLock")
+  private final ICommonsList <AuditJournalSegment> m_aSegments = new CommonsArrayList <> ();
+  @GuardedBy ("m_aRWLock")
+  private AuditJournalSegment m_aActiveSegment;
+  @GuardedBy ("m_aRWLock")
+  private FileOutputStream m_aActiveFOS;
+  @GuardedBy ("m_aRWLock")
+  private OutputStream m_aActiveOS;
+  @GuardedBy ("m_aRWLock")
+  private boolean m_bUnsyncedData = false;
+  @GuardedBy ("m_aRWLock")
+  private long m_nLastSyncNanos = System.nanoTime ();
+  @GuardedBy ("m_aRWLock")
+  private boolean m_bClosed = false;
+  // Only present for a sync interval > 0
+  private final ScheduledExecutorService m_aSyncTimer;
+
+  /**
+   * Constructor. Opens all existing segments in the provided directory. New items are always
+   * written to a new segment.
+   *
+   * @param aDir
+   *        The directory containing the segment files. Is created if it does not exist. May not be
+   *        <code>null</code>.
+   * @param aSettings
+   *        The settings to use. May not be <code>null</code>.
+   * @throws IOException
+   *         If the directory cannot be created or an existing segment cannot be read
+   */
+  public AuditJournal (@NonNull final File aDir, @NonNull final AuditJournalSettings aSettings) throws IOException
+  {
+    ValueEnforcer.notNull (aDir, "Dir");
+    ValueEnforcer.notNull (aSettings, "Settings");
+    if (!aDir.isDirectory () && !aDir.mkdirs ())
+      throw new IOException ("Failed to create audit journal directory " + aDir.getAbsolutePath ());
+    m_aDir = aDir;
+    m_aSettings = aSettings;
+
+    final File [] aFiles = aDir.listFiles ( (d, n) -> n.startsWith (SEGMENT_FILE_PREFIX) &&
+                                                      n.endsWith (SEGMENT_FILE_EXT));
+    if (aFiles != null)
+      for (final File aFile : aFiles)
+      {
+        final int nSequence = _getSequence (aFile.getName ());
+        if (nSequence < 0)
+          continue;
+
+        AuditJournalSegment aSegment = AuditJournalSegment.readFromIndexFile (nSequence, aFile);
+        if (aSegment == null)
+        {
+          // Happens for the segment that was active upon the last shutdown
+          LOGGER.info ("Rebuilding index of audit journal segment " + aFile.getName ());
+          aSegment = AuditJournalSegment.rebuildFromFile (nSequence, aFile, aSettings.getIndexInterval ());
+          aSegment.writeIndexFile ();
+        }
+        if (aSegment.isEmpty ())
+        {
+          // Don't keep empty segments
+          _deleteSegmentFiles (aSegment);
+        }
+        else
+          m_aSegments.add (aSegment);
+      }
+    m_aSegments.sort (Comparator.comparingInt (AuditJournalSegment::getSequence));
+
+    final long nSyncIntervalNanos = aSettings.getSyncInterval ().toNanos ();
+    if (nSyncIntervalNanos > 0)
+    {
+      m_aSyncTimer = Executors.newSingleThreadScheduledExecutor (SYNC_THREAD_FACTORY);
+      m_aSyncTimer.scheduleWithFixedDelay (this::_syncIfDue,
+                                           nSyncIntervalNanos,
+                                           nSyncIntervalNanos,
+                                           TimeUnit.NANOSECONDS);
+    }
+    else
+      m_aSyncTimer = null;
+  }
+
+  private static int _getSequence (@NonNull final String sFilename)
+  {
+    return StringParser.parseInt (sFilename.substring (SEGMENT_FILE_PREFIX.length (),
+                                                       sFilename.length () - SEGMENT_FILE_EXT.length ()),
+                                  -1);
+  }
+
+  private static void _deleteSegmentFiles (@NonNull final AuditJournalSegment aSegment)
+  {
+    if (!aSegment.getFile ().delete ())
+      LOGGER.warn ("Failed to delete empty audit journal segment " + aSegment.getFile ().getAbsolutePath ());
+    aSegment.getIndexFile ().delete ();
+  }
+
+  @NonNull
+  public final File getDirectory ()
+  {
+    return m_aDir;
+  }
+
+  @NonNull
+  public final AuditJournalSettings getSettings ()
+  {
+    return m_aSettings;
+  }
+
+  @GuardedBy ("m_aRWLock")
+  private void _syncActiveSegment () throws IOException
+  {
+    if (m_bUnsyncedData)
+    {
+      m_aActiveFOS.getChannel ().force (false);
+      m_bUnsyncedData = false;
+      m_nLastSyncNanos = System.nanoTime ();
+    }
+  }
+
+  /**
+   * Invoked by the sync timer. Syncs the active segment if it contains data that is older than the
+   * sync interval.
+   */
+  private void _syncIfDue ()
+  {
+    m_aRWLock.writeLock ().lock ();
+    try
+    {
+      if (!m_bClosed &&
+          m_aActiveSegment != null &&
+          System.nanoTime () - m_nLastSyncNanos >= m_aSettings.getSyncInterval ().toNanos ())
+        _syncActiveSegment ();
+    }
+    catch (final IOException ex)
+    {
+      LOGGER.error ("Failed to sync audit journal segment " + m_aActiveSegment.getFile ().getAbsolutePath (), ex);
+    }
+    finally
+    {
+      m_aRWLock.writeLock ().unlock ();
+    }
+  }
+
+  /**
+   * Sync all data written so far to disk, independent of the configured sync interval.
+   *
+   * @throws IOException
+   *         In case syncing failed
+   * @since 10.3.1
+   */
+  public void sync () throws IOException
+  {
+    m_aRWLock.writeLock ().lock ();
+    try
+    {
+      if (!m_bClosed && m_aActiveSegment != null)
+        _syncActiveSegment ();
+    }
+    finally
+    {
+      m_aRWLock.writeLock ().unlock ();
+    }
+  }
+
+  /**
+   * @return <code>true</code> if data was written that was not yet synced to disk.
+   */
+  final boolean hasUnsyncedData ()
+  {
+    return m_aRWLock.readLockedBoolean ( () -> m_bUnsyncedData);
+  }
+
+  @GuardedBy ("m_aRWLock")
+  private void _sealActiveSegment () throws IOException
+  {
+    if (m_aActiveSegment != null)
+    {
+      try
+      {
+        m_aActiveOS.flush ();
+        _syncActiveSegment ();
+      }
+      finally
+      {
+        m_aActiveOS.close ();
+        m_aActiveFOS = null;
+        m_aActiveOS = null;
+      }
+      m_aActiveSegment.writeIndexFile ();
+      m_aActiveSegment = null;
+    }
+  }
+
+  @GuardedBy ("m_aRWLock")
+  private void _openNewSegment () throws IOException
+  {
+    final int nSequence = m_aSegments.isEmpty () ? 1 : m_aSegments.getLastOrNull ().getSequence () + 1;
+    final File aFile = new File (m_aDir,
+                                 SEGMENT_FILE_PREFIX + StringHelper.getLeadingZero (nSequence, 10) + SEGMENT_FILE_EXT);
+    m_aActiveSegment = new AuditJournalSegment (nSequence, aFile, m_aSettings.getIndexInterval ());
+    m_aActiveFOS = new FileOutputStream (aFile);
+    m_aActiveOS = new BufferedOutputStream (m_aActiveFOS, 64 * 1024);
+    m_aSegments.add (m_aActiveSegment);
+  }
+
+  @GuardedBy ("m_aRWLock")
+  private boolean _needsNewSegment (@NonNull final IAuditItem aItem, final int nRecordBytes)
+  {
+    if (m_aActiveSegment == null)
+      return true;
+    if (m_aActiveSegment.isEmpty ())
+      return false;
+    return m_aActiveSegment.getItemCount () >= m_aSettings.getMaxSegmentItems () ||
+           m_aActiveSegment.getByteLength () + nRecordBytes > m_aSettings.getMaxSegmentBytes () ||
+           !aItem.getDateTime ().toLocalDate ().equals (m_aActiveSegment.getDate ());
+  }
+
+  /**
+   * Append all provided items to the journal. The items are flushed to the file system before this
+   * method returns.
+   *
+   * @param aItems
+   *        The items to append. May not be <code>null</code>.
+   * @throws IOException
+   *         In case writing failed
+   * @throws IllegalStateException
+   *         If the journal was already closed
+   */
+  public void append (@NonNull final Collection <? extends IAuditItem> aItems) throws IOException
+  {
+    ValueEnforcer.notNull (aItems, "Items");
+    if (aItems.isEmpty ())
+      return;
+
+    m_aRWLock.writeLock ().lock ();
+    try
+    {
+      if (m_bClosed)
+        throw new IllegalStateException ("The audit journal was already closed");
+
+      for (final IAuditItem aItem : aItems)
+      {
+        final byte [] aRecord = AuditJournalRecordCodec.encode (aItem);
+        if (_needsNewSegment (aItem, aRecord.length))
+        {
+          _sealActiveSegment ();
+          _openNewSegment ();
+        }
+        m_aActiveOS.write (aRecord);
+        m_aActiveSegment.onItemAppended (aItem, m_aActiveSegment.getByteLength (), aRecord.length);
+        m_bUnsyncedData = true;
+      }
+
+      // Make the data visible to readers
+      m_aActiveOS.flush ();
+
+      // Batch fsync
+      final long nSyncIntervalNanos = m_aSettings.getSyncInterval ().toNanos ();
+      if (nSyncIntervalNanos == 0 || System.nanoTime () - m_nLastSyncNanos >= nSyncIntervalNanos)
+        _syncActiveSegment ();
+    }
+    finally
+    {
+      m_aRWLock.writeLock ().unlock ();
+    }
+  }
+
+  /**
+   * @return A snapshot of all non-empty segments in the order of creation. Never <code>null</code>.
+   */
+  @NonNull
+  @ReturnsMutableCopy
+  public ICommonsList <AuditJournalSegment> getAllSegments ()
+  {
+    return m_aRWLock.readLockedGet ( () -> {
+      final ICommonsList <AuditJournalSegment> ret = new CommonsArrayList <> (m_aSegments.size ());
+      for (final AuditJournalSegment aSegment : m_aSegments)
+        if (!aSegment.isEmpty ())
+          ret.add (aSegment.getSnapshot ());
+      return ret;
+    });
+  }
+
+  /**
+   * @return The total number of items in all segments.
+   */
+  @Nonnegative
+  public long getItemCount ()
+  {
+    return m_aRWLock.readLockedGet ( () -> {
+      long ret = 0;
+      for (final AuditJournalSegment aSegment : m_aSegments)
+        ret += aSegment.getItemCount ();
+      return Long.valueOf (ret);
+    }).longValue ();
+  }
+
+  /**
+   * @return The timestamp of the oldest item in the journal (with millisecond precision) or
+   *         <code>null</code> if the journal is empty.
+   */
+  @Nullable
+  public LocalDateTime getEarliestDateTime ()
+  {
+    return m_aRWLock.readLockedGet ( () -> {
+      for (final AuditJournalSegment aSegment : m_aSegments)
+        if (!aSegment.isEmpty ())
+          return AuditJournalRecordCodec.getFromIndexKey (aSegment.getFirstIndexKey ());
+      return null;
+    });
+  }
+
+  /**
+   * Get the latest items, newest first. Only the tails of the newest segments are read.
+   *
+   * @param nMaxItems
+   *        The maximum number of items to return. Must be &gt; 0.
+   * @return The list of items, sorted descending by date time. Never <code>null</code>.
+   * @throws IOException
+   *         In case of a read error
+   */
+  @NonNull
+  @ReturnsMutableCopy
+  public ICommonsList <IAuditItem> getLastItems (@Nonnegative final int nMaxItems) throws IOException
+  {
+    ValueEnforcer.isGT0 (nMaxItems, "MaxItems");
+
+    final ICommonsList <AuditJournalSegment> aSegments = getAllSegments ();
+    final ICommonsList <IAuditItem> ret = new CommonsArrayList <> ();
+    for (int i = aSegments.size () - 1; i >= 0 && ret.size () < nMaxItems; --i)
+    {
+      final AuditJournalSegment aSegment = aSegments.get (i);
+      final int nRemaining = nMaxItems - ret.size ();
+      final ICommonsList <IAuditItem> aSegmentItems = new CommonsArrayList <> ();
+      aSegment.readItems (Math.max (0, aSegment.getItemCount () - nRemaining), aSegmentItems::add);
+      // Newer segments come first
+      ret.addAll (0, aSegmentItems);
+    }
+    ret.sort (Comparator.comparing (IAuditItem::getDateTime).reversed ());
+    return ret.size () > nMaxItems ? new CommonsArrayList <> (ret.subList (0, nMaxItems)) : ret;
+  }
+
+  /**
+   * Get all items of the provided date in the order they were written.
+   *
+   * @param aDate
+   *        The date to query. May not be <code>null</code>.
+   * @return The list of items. Never <code>null</code> but maybe empty.
+   * @throws IOException
+   *         In case of a read error
+   */
+  @NonNull
+  @ReturnsMutableCopy
+  public ICommonsList <IAuditItem> getAllItemsOfDate (@NonNull final LocalDate aDate) throws IOException
+  {
+    ValueEnforcer.notNull (aDate, "Date");
+
+    final ICommonsList <IAuditItem> ret = new CommonsArrayList <> ();
+    for (final AuditJournalSegment aSegment : getAllSegments ())
+      if (aDate.equals (aSegment.getDate ()))
+        aSegment.readItems (0, ret::add);
+    return ret;
+  }
+
+  /**
+   * Seal the active segment and don't accept any further items. Consecutive calls have no effect.
+   *
+   * @throws IOException
+   *         In case sealing the active segment failed
+   */
+  public void close () throws IOException
+  {
+    m_aRWLock.writeLock ().lock ();
+    try
+    {
+      if (!m_bClosed)
+      {
+        m_bClosed = true;
+        _sealActiveSegment ();
+      }
+    }
+    finally
+    {
+      m_aRWLock.writeLock ().unlock ();
+      if (m_aSyncTimer != null)
+        m_aSyncTimer.shutdown ();
+    }
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Dir", m_aDir).append ("Settings", m_aSettings).getToString ();
+  }
+}
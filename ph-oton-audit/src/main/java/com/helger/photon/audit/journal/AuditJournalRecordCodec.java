@@ -0,0 +1,208 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.photon.audit.journal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.function.IntConsumer;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import com.helger.annotation.concurrent.Immutable;
+import com.helger.base.state.ESuccess;
+import com.helger.photon.audit.AuditItem;
+import com.helger.photon.audit.EAuditActionType;
+import com.helger.photon.audit.IAuditItem;
+
+/**
+ * Binary encoding of a single {@link IAuditItem} inside an audit journal segment. Each record is
+ * length prefixed, so that a partially written record at the end of a segment (e.g. after a crash)
+ * can be detected and ignored.
+ *
+ * @author Philip Helger
+ */
+@Immutable
+final class AuditJournalRecordCodec
+{
+  /** Upper bound for a single record to detect corrupted length prefixes */
+  static final int MAX_RECORD_BYTES = 16 * 1024 * 1024;
+
+  /**
+   * Thrown if a record has an invalid length prefix or a payload that cannot be decoded. This
+   * usually happens for a torn write at the end of a segment.
+   *
+   * @author Philip Helger
+   */
+  static final class CorruptRecordException extends IOException
+  {
+    CorruptRecordException (@NonNull final String sMsg, @Nullable final Throwable aCause)
+    {
+      super (sMsg, aCause);
+    }
+  }
+
+  private AuditJournalRecordCodec ()
+  {}
+
+  /**
+   * @param aDT
+   *        Date time to convert. May not be <code>null</code>.
+   * @return The milliseconds used as the key in the segment index.
+   */
+  static long getIndexKey (@NonNull final LocalDateTime aDT)
+  {
+    return aDT.toInstant (ZoneOffset.UTC).toEpochMilli ();
+  }
+
+  @NonNull
+  static LocalDateTime getFromIndexKey (final long nIndexKey)
+  {
+    return LocalDateTime.ofEpochSecond (Math.floorDiv (nIndexKey, 1000),
+                                        (int) Math.floorMod (nIndexKey, 1000) * 1_000_000,
+                                        ZoneOffset.UTC);
+  }
+
+  /**
+   * Encode the passed item.
+   *
+   * @param aItem
+   *        The item to encode. May not be <code>null</code>.
+   * @return The encoded bytes including the length prefix. Never <code>null</code>.
+   * @throws IOException
+   *         Never
+   */
+  @NonNull
+  static byte [] encode (@NonNull final IAuditItem aItem) throws IOException
+  {
+    final byte [] aAction = aItem.getAction ().getBytes (StandardCharsets.UTF_8);
+
+    final ByteArrayOutputStream aBAOS = new ByteArrayOutputStream (64 + aAction.length);
+    try (final DataOutputStream aDOS = new DataOutputStream (aBAOS))
+    {
+      // Placeholder for the length
+      aDOS.writeInt (0);
+      final LocalDateTime aDT = aItem.getDateTime ();
+      aDOS.writeLong (aDT.toEpochSecond (ZoneOffset.UTC));
+      aDOS.writeInt (aDT.getNano ());
+      aDOS.writeUTF (aItem.getUserID ());
+      aDOS.writeUTF (aItem.getTypeID ());
+      aDOS.writeBoolean (aItem.isSuccess ());
+      aDOS.writeInt (aAction.length);
+      aDOS.write (aAction);
+    }
+    final byte [] ret = aBAOS.toByteArray ();
+    final int nPayloadLength = ret.length - 4;
+    ret[0] = (byte) (nPayloadLength >>> 24);
+    ret[1] = (byte) (nPayloadLength >>> 16);
+    ret[2] = (byte) (nPayloadLength >>> 8);
+    ret[3] = (byte) nPayloadLength;
+    return ret;
+  }
+
+  /**
+   * Read the next record from the passed stream.
+   *
+   * @param aDIS
+   *        The stream to read from. May not be <code>null</code>.
+   * @return <code>null</code> if the end of the stream was reached or if the last record is
+   *         incomplete.
+   * @throws IOException
+   *         In case of a read error or a corrupt record
+   */
+  @Nullable
+  static AuditItem read (@NonNull final DataInputStream aDIS) throws IOException
+  {
+    return read (aDIS, null);
+  }
+
+  /**
+   * Read the next record from the passed stream.
+   *
+   * @param aDIS
+   *        The stream to read from. May not be <code>null</code>.
+   * @param aRecordBytesConsumer
+   *        An optional consumer that receives the total number of bytes of the record read,
+   *        including the length prefix. Only invoked if a complete record was read. May be
+   *        <code>null</code>.
+   * @return <code>null</code> if the end of the stream was reached or if the last record is
+   *         incomplete.
+   * @throws CorruptRecordException
+   *         In case of an invalid length prefix or a payload that cannot be decoded
+   * @throws IOException
+   *         In case of a read error
+   */
+  @Nullable
+  static AuditItem read (@NonNull final DataInputStream aDIS,
+                         @Nullable final IntConsumer aRecordBytesConsumer) throws IOException
+  {
+    final int nPayloadLength;
+    final byte [] aPayload;
+    try
+    {
+      nPayloadLength = aDIS.readInt ();
+      if (nPayloadLength <= 0 || nPayloadLength > MAX_RECORD_BYTES)
+        throw new CorruptRecordException ("Invalid audit journal record length " + nPayloadLength, null);
+      aPayload = new byte [nPayloadLength];
+      aDIS.readFully (aPayload);
+    }
+    catch (final EOFException ex)
+    {
+      // End of segment or torn write
+      return null;
+    }
+    if (aRecordBytesConsumer != null)
+      aRecordBytesConsumer.accept (4 + nPayloadLength);
+
+    try (final DataInputStream aPayloadIS = new DataInputStream (new ByteArrayInputStream (aPayload)))
+    {
+      final long nEpochSecond = aPayloadIS.readLong ();
+      final int nNano = aPayloadIS.readInt ();
+      final String sUserID = aPayloadIS.readUTF ();
+      final String sTypeID = aPayloadIS.readUTF ();
+      final boolean bSuccess = aPayloadIS.readBoolean ();
+      final byte [] aAction = new byte [aPayloadIS.readInt ()];
+      aPayloadIS.readFully (aAction);
+
+      final EAuditActionType eType = EAuditActionType.getFromIDOrNull (sTypeID);
+      if (eType == null)
+        throw new CorruptRecordException ("Failed to resolve audit action type '" + sTypeID + "'", null);
+      return new AuditItem (LocalDateTime.ofEpochSecond (nEpochSecond, nNano, ZoneOffset.UTC),
+                            sUserID,
+                            eType,
+                            ESuccess.valueOf (bSuccess),
+                            new String (aAction, StandardCharsets.UTF_8));
+    }
+    catch (final CorruptRecordException ex)
+    {
+      throw ex;
+    }
+    catch (final IOException | RuntimeException ex)
+    {
+      // The payload is read from memory, so any error means it is garbage
+      throw new CorruptRecordException ("Failed to decode audit journal record of " + nPayloadLength + " bytes",
+                                        ex);
+    }
+  }
+}
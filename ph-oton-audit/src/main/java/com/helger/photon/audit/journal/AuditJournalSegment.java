@@ -0,0 +1,389 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.photon.audit.journal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.NotThreadSafe;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.tostring.ToStringGenerator;
+import com.helger.photon.audit.AuditItem;
+import com.helger.photon.audit.IAuditItem;
+
+/**
+ * Meta data of a single audit journal segment file. Each segment contains the items of at most one
+ * day. Every {@link #getIndexInterval()} items an entry containing the timestamp and the file
+ * offset of the item is added to the in-memory index. Sealed segments persist the index in a small
+ * side car file so that it does not need to be rebuilt on startup.
+ *
+ * @author Philip Helger
+ */
+@NotThreadSafe
+public final class AuditJournalSegment
+{
+  private static final Logger LOGGER = LoggerFactory.getLogger (AuditJournalSegment.class);
+
+  private static final int INDEX_MAGIC = 0x414a4958;
+  private static final int INDEX_VERSION = 1;
+
+  private final int m_nSequence;
+  private final File m_aFile;
+  private final int m_nIndexInterval;
+  private long m_nByteLength;
+  private int m_nItemCount;
+  private LocalDate m_aDate;
+  private long m_nFirstKey;
+  private long m_nLastKey;
+  private long [] m_aIndexKeys;
+  private long [] m_aIndexOffsets;
+  private int m_nIndexSize;
+
+  AuditJournalSegment (final int nSequence, @NonNull final File aFile, @Nonnegative final int nIndexInterval)
+  {
+    ValueEnforcer.notNull (aFile, "File");
+    ValueEnforcer.isGT0 (nIndexInterval, "IndexInterval");
+    m_nSequence = nSequence;
+    m_aFile = aFile;
+    m_nIndexInterval = nIndexInterval;
+    m_aIndexKeys = new long [16];
+    m_aIndexOffsets = new long [16];
+  }
+
+  public int getSequence ()
+  {
+    return m_nSequence;
+  }
+
+  @NonNull
+  public File getFile ()
+  {
+    return m_aFile;
+  }
+
+  @NonNull
+  File getIndexFile ()
+  {
+    return new File (m_aFile.getParentFile (), m_aFile.getName () + AuditJournal.INDEX_FILE_EXT);
+  }
+
+  @Nonnegative
+  public int getIndexInterval ()
+  {
+    return m_nIndexInterval;
+  }
+
+  @Nonnegative
+  public long getByteLength ()
+  {
+    return m_nByteLength;
+  }
+
+  @Nonnegative
+  public int getItemCount ()
+  {
+    return m_nItemCount;
+  }
+
+  public boolean isEmpty ()
+  {
+    return m_nItemCount == 0;
+  }
+
+  /**
+   * @return The date of the first item in this segment or <code>null</code> if the segment is
+   *         empty.
+   */
+  @Nullable
+  public LocalDate getDate ()
+  {
+    return m_aDate;
+  }
+
+  public long getFirstIndexKey ()
+  {
+    return m_nFirstKey;
+  }
+
+  public long getLastIndexKey ()
+  {
+    return m_nLastKey;
+  }
+
+  /**
+   * Remember that an item was appended to the segment.
+   *
+   * @param aItem
+   *        The item that was written. May not be <code>null</code>.
+   * @param nOffset
+   *        The offset in the file where the record starts.
+   * @param nRecordBytes
+   *        The number of bytes of the record.
+   */
+  void onItemAppended (@NonNull final IAuditItem aItem, final long nOffset, final int nRecordBytes)
+  {
+    final long nKey = AuditJournalRecordCodec.getIndexKey (aItem.getDateTime ());
+    if (m_nItemCount == 0)
+    {
+      m_aDate = aItem.getDateTime ().toLocalDate ();
+      m_nFirstKey = nKey;
+    }
+    if ((m_nItemCount % m_nIndexInterval) == 0)
+    {
+      if (m_nIndexSize == m_aIndexKeys.length)
+      {
+        m_aIndexKeys = Arrays.copyOf (m_aIndexKeys, m_nIndexSize * 2);
+        m_aIndexOffsets = Arrays.copyOf (m_aIndexOffsets, m_nIndexSize * 2);
+      }
+      m_aIndexKeys[m_nIndexSize] = nKey;
+      m_aIndexOffsets[m_nIndexSize] = nOffset;
+      m_nIndexSize++;
+    }
+    m_nLastKey = nKey;
+    m_nItemCount++;
+    m_nByteLength = nOffset + nRecordBytes;
+  }
+
+  /**
+   * @return A copy of this segment that can safely be read while the original segment is still
+   *         appended.
+   */
+  @NonNull
+  AuditJournalSegment getSnapshot ()
+  {
+    final AuditJournalSegment ret = new AuditJournalSegment (m_nSequence, m_aFile, m_nIndexInterval);
+    ret.m_nByteLength = m_nByteLength;
+    ret.m_nItemCount = m_nItemCount;
+    ret.m_aDate = m_aDate;
+    ret.m_nFirstKey = m_nFirstKey;
+    ret.m_nLastKey = m_nLastKey;
+    ret.m_aIndexKeys = Arrays.copyOf (m_aIndexKeys, Math.max (m_nIndexSize, 1));
+    ret.m_aIndexOffsets = Arrays.copyOf (m_aIndexOffsets, Math.max (m_nIndexSize, 1));
+    ret.m_nIndexSize = m_nIndexSize;
+    return ret;
+  }
+
+  /**
+   * Read the items of this segment, starting at the record with the provided number. The index is
+   * used to seek close to the record, so only the records of at most one index interval are read
+   * unnecessarily.
+   *
+   * @param nFirstRecord
+   *        The 0-based number of the first record to be passed to the consumer.
+   * @param aConsumer
+   *        The consumer for the read items. May not be <code>null</code>.
+   * @throws IOException
+   *         In case of a read error
+   */
+  void readItems (@Nonnegative final int nFirstRecord, @NonNull final Consumer <? super AuditItem> aConsumer)
+                                                                                                           throws IOException
+  {
+    if (nFirstRecord >= m_nItemCount)
+      return;
+
+    final int nIndexEntry = Math.min (nFirstRecord / m_nIndexInterval, m_nIndexSize - 1);
+    int nRecord = nIndexEntry * m_nIndexInterval;
+    try (final FileInputStream aFIS = new FileInputStream (m_aFile))
+    {
+      aFIS.getChannel ().position (m_aIndexOffsets[nIndexEntry]);
+      final DataInputStream aDIS = new DataInputStream (new BufferedInputStream (aFIS, 64 * 1024));
+      while (nRecord < m_nItemCount)
+      {
+        final AuditItem aItem = AuditJournalRecordCodec.read (aDIS);
+        if (aItem == null)
+          break;
+        if (nRecord >= nFirstRecord)
+          aConsumer.accept (aItem);
+        nRecord++;
+      }
+    }
+  }
+
+  /**
+   * Write the index of this segment to the side car file.
+   *
+   * @throws IOException
+   *         In case of a write error
+   */
+  void writeIndexFile () throws IOException
+  {
+    try (final DataOutputStream aDOS = new DataOutputStream (new BufferedOutputStream (new FileOutputStream (getIndexFile ()))))
+    {
+      aDOS.writeInt (INDEX_MAGIC);
+      aDOS.writeInt (INDEX_VERSION);
+      aDOS.writeInt (m_nIndexInterval);
+      aDOS.writeLong (m_nByteLength);
+      aDOS.writeInt (m_nItemCount);
+      aDOS.writeLong (m_nFirstKey);
+      aDOS.writeLong (m_nLastKey);
+      aDOS.writeInt (m_nIndexSize);
+      for (int i = 0; i < m_nIndexSize; ++i)
+      {
+        aDOS.writeLong (m_aIndexKeys[i]);
+        aDOS.writeLong (m_aIndexOffsets[i]);
+      }
+    }
+  }
+
+  /**
+   * Try to read the index of an existing segment from its side car file.
+   *
+   * @param nSequence
+   *        Segment sequence number
+   * @param aFile
+   *        The segment file. May not be <code>null</code>.
+   * @return <code>null</code> if no index file is present, if it is invalid or if it does not match
+   *         the segment file.
+   */
+  @Nullable
+  static AuditJournalSegment readFromIndexFile (final int nSequence, @NonNull final File aFile)
+  {
+    final AuditJournalSegment aTmp = new AuditJournalSegment (nSequence, aFile, 1);
+    final File aIndexFile = aTmp.getIndexFile ();
+    if (!aIndexFile.isFile ())
+      return null;
+
+    try (final DataInputStream aDIS = new DataInputStream (new BufferedInputStream (new FileInputStream (aIndexFile))))
+    {
+      if (aDIS.readInt () != INDEX_MAGIC || aDIS.readInt () != INDEX_VERSION)
+        return null;
+      final AuditJournalSegment ret = new AuditJournalSegment (nSequence, aFile, aDIS.readInt ());
+      ret.m_nByteLength = aDIS.readLong ();
+      ret.m_nItemCount = aDIS.readInt ();
+      ret.m_nFirstKey = aDIS.readLong ();
+      ret.m_nLastKey = aDIS.readLong ();
+      ret.m_nIndexSize = aDIS.readInt ();
+      ret.m_aIndexKeys = new long [Math.max (ret.m_nIndexSize, 1)];
+      ret.m_aIndexOffsets = new long [Math.max (ret.m_nIndexSize, 1)];
+      for (int i = 0; i < ret.m_nIndexSize; ++i)
+      {
+        ret.m_aIndexKeys[i] = aDIS.readLong ();
+        ret.m_aIndexOffsets[i] = aDIS.readLong ();
+      }
+      if (ret.m_nItemCount > 0)
+        ret.m_aDate = AuditJournalRecordCodec.getFromIndexKey (ret.m_nFirstKey).toLocalDate ();
+
+      // The segment file must not have been truncated in the meantime
+      if (aFile.length () < ret.m_nByteLength)
+        return null;
+      return ret;
+    }
+    catch (final IOException | RuntimeException ex)
+    {
+      // Rebuild from segment
+      return null;
+    }
+  }
+
+  /**
+   * Rebuild the meta data of a segment by reading all of its records. Incomplete or corrupt records
+   * at the end (e.g. from a crash while writing) are ignored and the file is truncated to the end of
+   * the last valid record.
+   *
+   * @param nSequence
+   *        Segment sequence number
+   * @param aFile
+   *        The segment file. May not be <code>null</code>.
+   * @param nIndexInterval
+   *        The index interval to use.
+   * @return The rebuilt segment. Never <code>null</code>.
+   * @throws IOException
+   *         In case of a read error
+   */
+  @NonNull
+  static AuditJournalSegment rebuildFromFile (final int nSequence,
+                                              @NonNull final File aFile,
+                                              @Nonnegative final int nIndexInterval) throws IOException
+  {
+    final AuditJournalSegment ret = new AuditJournalSegment (nSequence, aFile, nIndexInterval);
+    try (final FileInputStream aFIS = new FileInputStream (aFile))
+    {
+      final DataInputStream aDIS = new DataInputStream (new BufferedInputStream (aFIS, 64 * 1024));
+      // The record length is taken from the framing - no need to re-encode
+      final int [] aRecordBytes = new int [1];
+      long nOffset = 0;
+      while (true)
+      {
+        final AuditItem aItem;
+        try
+        {
+          aItem = AuditJournalRecordCodec.read (aDIS, n -> aRecordBytes[0] = n);
+        }
+        catch (final AuditJournalRecordCodec.CorruptRecordException ex)
+        {
+          LOGGER.warn ("Audit journal segment " +
+                       aFile.getName () +
+                       " contains a corrupt record at offset " +
+                       nOffset +
+                       ": " +
+                       ex.getMessage ());
+          break;
+        }
+        if (aItem == null)
+          break;
+        ret.onItemAppended (aItem, nOffset, aRecordBytes[0]);
+        nOffset += aRecordBytes[0];
+      }
+    }
+
+    final long nFileLength = aFile.length ();
+    if (nFileLength > ret.m_nByteLength)
+    {
+      LOGGER.warn ("Truncating audit journal segment " +
+                   aFile.getName () +
+                   " from " +
+                   nFileLength +
+                   " to " +
+                   ret.m_nByteLength +
+                   " bytes to remove an incomplete record");
+      try (final FileChannel aChannel = FileChannel.open (aFile.toPath (), StandardOpenOption.WRITE))
+      {
+        aChannel.truncate (ret.m_nByteLength);
+      }
+    }
+    return ret;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Sequence", m_nSequence)
+                                       .append ("File", m_aFile)
+                                       .append ("ByteLength", m_nByteLength)
+                                       .append ("ItemCount", m_nItemCount)
+                                       .append ("Date", m_aDate)
+                                       .append ("IndexSize", m_nIndexSize)
+                                       .getToString ();
+  }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.photon.audit.journal;
+
+import java.time.Duration;
+
+import org.jspecify.annotations.NonNull;
+
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.NotThreadSafe;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.tostring.ToStringGenerator;
+
+/**
+ * Settings for an {@link AuditJournal}.
+ *
+ * @author Philip Helger
+ */
+@NotThreadSafe
+public class AuditJournalSettings
+{
+  /** Default maximum size of a single segment file in bytes */
+  public static final long DEFAULT_MAX_SEGMENT_BYTES = 16L * 1024 * 1024;
+  /** Default maximum number of items in a single segment */
+  public static final int DEFAULT_MAX_SEGMENT_ITEMS = 100_000;
+  /** Default number of items between two entries of the segment index */
+  public static final int DEFAULT_INDEX_INTERVAL = 256;
+  /** By default all items of a batch are synced together */
+  public static final Duration DEFAULT_SYNC_INTERVAL = Duration.ZERO;
+
+  private long m_nMaxSegmentBytes = DEFAULT_MAX_SEGMENT_BYTES;
+  private int m_nMaxSegmentItems = DEFAULT_MAX_SEGMENT_ITEMS;
+  private int m_nIndexInterval = DEFAULT_INDEX_INTERVAL;
+  private Duration m_aSyncInterval = DEFAULT_SYNC_INTERVAL;
+
+  public AuditJournalSettings ()
+  {}
+
+  /**
+   * @return The maximum number of bytes of a single segment before a new segment is started.
+   */
+  @Nonnegative
+  public final long getMaxSegmentBytes ()
+  {
+    return m_nMaxSegmentBytes;
+  }
+
+  @NonNull
+  public final AuditJournalSettings setMaxSegmentBytes (@Nonnegative final long nMaxSegmentBytes)
+  {
+    ValueEnforcer.isGT0 (nMaxSegmentBytes, "MaxSegmentBytes");
+    m_nMaxSegmentBytes = nMaxSegmentBytes;
+    return this;
+  }
+
+  /**
+   * @return The maximum number of items of a single segment before a new segment is started.
+   */
+  @Nonnegative
+  public final int getMaxSegmentItems ()
+  {
+    return m_nMaxSegmentItems;
+  }
+
+  @NonNull
+  public final AuditJournalSettings setMaxSegmentItems (@Nonnegative final int nMaxSegmentItems)
+  {
+    ValueEnforcer.isGT0 (nMaxSegmentItems, "MaxSegmentItems");
+    m_nMaxSegmentItems = nMaxSegmentItems;
+    return this;
+  }
+
+  /**
+   * @return Every how many items an entry in the per-segment index is created.
+   */
+  @Nonnegative
+  public final int getIndexInterval ()
+  {
+    return m_nIndexInterval;
+  }
+
+  @NonNull
+  public final AuditJournalSettings setIndexInterval (@Nonnegative final int nIndexInterval)
+  {
+    ValueEnforcer.isGT0 (nIndexInterval, "IndexInterval");
+    m_nIndexInterval = nIndexInterval;
+    return this;
+  }
+
+  /**
+   * @return The minimum duration between two fsync calls on the active segment.
+   *         {@link Duration#ZERO} means that each written batch is synced once.
+   */
+  @NonNull
+  public final Duration getSyncInterval ()
+  {
+    return m_aSyncInterval;
+  }
+
+  @NonNull
+  public final AuditJournalSettings setSyncInterval (@NonNull final Duration aSyncInterval)
+  {
+    ValueEnforcer.notNull (aSyncInterval, "SyncInterval");
+    ValueEnforcer.isFalse (aSyncInterval.isNegative (), "SyncInterval may not be negative");
+    m_aSyncInterval = aSyncInterval;
+    return this;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("MaxSegmentBytes", m_nMaxSegmentBytes)
+                                       .append ("MaxSegmentItems", m_nMaxSegmentItems)
+                                       .append ("IndexInterval", m_nIndexInterval)
+                                       .append ("SyncInterval", m_aSyncInterval)
+                                       .getToString ();
+  }
+}
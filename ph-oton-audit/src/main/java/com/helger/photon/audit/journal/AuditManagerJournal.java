@@ -0,0 +1,230 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.photon.audit.journal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.annotation.Nonempty;
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.annotation.style.ReturnsMutableCopy;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.tostring.ToStringGenerator;
+import com.helger.collection.commons.ICommonsList;
+import com.helger.commons.concurrent.collector.IConcurrentPerformer;
+import com.helger.io.file.FilenameHelper;
+import com.helger.photon.audit.AsynchronousAuditor;
+import com.helger.photon.audit.AuditManager;
+import com.helger.photon.audit.IAuditItem;
+import com.helger.photon.audit.IAuditManager;
+import com.helger.photon.io.WebFileIO;
+import com.helger.security.authentication.subject.user.ICurrentUserIDProvider;
+
+/**
+ * An {@link IAuditManager} that appends all audit items to an {@link AuditJournal}. In contrast to
+ * {@link AuditManager} the costs for writing audit items don't grow with the number of items
+ * already written on the same day, and no audit items are kept in memory.
+ *
+ * @author Philip Helger
+ */
+@ThreadSafe
+public class AuditManagerJournal implements IAuditManager
+{
+  private static final Logger LOGGER = LoggerFactory.getLogger (AuditManagerJournal.class);
+
+  private final String m_sBaseDir;
+  private final AuditJournal m_aJournal;
+  private final AsynchronousAuditor m_aAuditor;
+
+  /**
+   * Constructor using the default settings.
+   *
+   * @param sBaseDir
+   *        The base directory, relative to the default IO base directory. May neither be
+   *        <code>null</code> nor empty and must end with a path separator.
+   * @param aCurrentUserIDProvider
+   *        The current user ID provider. May not be <code>null</code>.
+   * @throws IOException
+   *         In case opening the journal failed
+   */
+  public AuditManagerJournal (@NonNull @Nonempty final String sBaseDir,
+                              @NonNull final ICurrentUserIDProvider aCurrentUserIDProvider) throws IOException
+  {
+    this (sBaseDir, aCurrentUserIDProvider, new AuditJournalSettings ());
+  }
+
+  /**
+   * Constructor
+   *
+   * @param sBaseDir
+   *        The base directory, relative to the default IO base directory. May neither be
+   *        <code>null</code> nor empty and must end with a path separator.
+   * @param aCurrentUserIDProvider
+   *        The current user ID provider. May not be <code>null</code>.
+   * @param aSettings
+   *        The journal settings to use. May not be <code>null</code>.
+   * @throws IOException
+   *         In case opening the journal failed
+   */
+  public AuditManagerJournal (@NonNull @Nonempty final String sBaseDir,
+                              @NonNull final ICurrentUserIDProvider aCurrentUserIDProvider,
+                              @NonNull final AuditJournalSettings aSettings) throws IOException
+  {
+    this (sBaseDir, WebFileIO.getDataIO ().getFile (sBaseDir), aCurrentUserIDProvider, aSettings);
+  }
+
+  /**
+   * Constructor with an absolute journal directory.
+   *
+   * @param sBaseDir
+   *        The base directory to be returned by {@link #getBaseDir()}. May neither be
+   *        <code>null</code> nor empty and must end with a path separator.
+   * @param aDir
+   *        The absolute directory to store the journal segments in. May not be <code>null</code>.
+   * @param aCurrentUserIDProvider
+   *        The current user ID provider. May not be <code>null</code>.
+   * @param aSettings
+   *        The journal settings to use. May not be <code>null</code>.
+   * @throws IOException
+   *         In case opening the journal failed
+   */
+  public AuditManagerJournal (@NonNull @Nonempty final String sBaseDir,
+                              @NonNull final File aDir,
+                              @NonNull final ICurrentUserIDProvider aCurrentUserIDProvider,
+                              @NonNull final AuditJournalSettings aSettings) throws IOException
+  {
+    ValueEnforcer.notEmpty (sBaseDir, "BaseDir");
+    ValueEnforcer.isTrue (FilenameHelper.endsWithPathSeparatorChar (sBaseDir),
+                          () -> "BaseDir '" + sBaseDir + "' must end with path separator!");
+    ValueEnforcer.notNull (aCurrentUserIDProvider, "CurrentUserIDProvider");
+
+    m_sBaseDir = sBaseDir;
+    m_aJournal = new AuditJournal (aDir, aSettings);
+
+    // This is the performer that invoked in a background thread
+    final IConcurrentPerformer <List <IAuditItem>> aPerformer = aAuditItems -> {
+      try
+      {
+        m_aJournal.append (aAuditItems);
+      }
+      catch (final IOException ex)
+      {
+        LOGGER.error ("Failed to append " + aAuditItems.size () + " items to the audit journal", ex);
+      }
+    };
+    m_aAuditor = new AsynchronousAuditor (aCurrentUserIDProvider, aPerformer);
+  }
+
+  public boolean isInMemory ()
+  {
+    return false;
+  }
+
+  @NonNull
+  @Nonempty
+  public String getBaseDir ()
+  {
+    return m_sBaseDir;
+  }
+
+  @NonNull
+  public final AuditJournal getJournal ()
+  {
+    return m_aJournal;
+  }
+
+  @NonNull
+  public AsynchronousAuditor getAuditor ()
+  {
+    return m_aAuditor;
+  }
+
+  @NonNull
+  @ReturnsMutableCopy
+  public ICommonsList <IAuditItem> getLastAuditItems (@Nonnegative final int nMaxItems)
+  {
+    try
+    {
+      return m_aJournal.getLastItems (nMaxItems);
+    }
+    catch (final IOException ex)
+    {
+      throw new UncheckedIOException (ex);
+    }
+  }
+
+  /**
+   * @param aDate
+   *        The date to query. May not be <code>null</code>.
+   * @return All audit items of the provided date. Never <code>null</code> but maybe empty.
+   */
+  @NonNull
+  @ReturnsMutableCopy
+  public ICommonsList <IAuditItem> getAllAuditItemsOfDate (@NonNull final LocalDate aDate)
+  {
+    try
+    {
+      return m_aJournal.getAllItemsOfDate (aDate);
+    }
+    catch (final IOException ex)
+    {
+      throw new UncheckedIOException (ex);
+    }
+  }
+
+  public void stop ()
+  {
+    // Blocks until all queued items were written
+    if (m_aAuditor.stop ().isChanged ())
+    {
+      try
+      {
+        m_aJournal.close ();
+      }
+      catch (final IOException ex)
+      {
+        LOGGER.error ("Failed to close audit journal", ex);
+      }
+    }
+  }
+
+  @Nullable
+  public LocalDate getEarliestAuditDate ()
+  {
+    final LocalDateTime aLDT = m_aJournal.getEarliestDateTime ();
+    return aLDT == null ? null : aLDT.toLocalDate ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("BaseDir", m_sBaseDir)
+                                       .append ("Journal", m_aJournal)
+                                       .append ("Auditor", m_aAuditor)
+                                       .getToString ();
+  }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.photon.audit.ringbuffer;
+
+/**
+ * Defines what happens if an audit item should be queued in a full ring buffer.
+ *
+ * @author Philip Helger
+ * @since 10.3.1
+ */
+public enum ERingBufferOverflowPolicy
+{
+  /** The producing thread waits until there is space in the buffer */
+  BLOCK,
+  /** The audit item is discarded and counted as dropped */
+  DROP;
+
+  public boolean isBlock ()
+  {
+    return this == BLOCK;
+  }
+
+  public boolean isDrop ()
+  {
+    return this == DROP;
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.photon.audit.ringbuffer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.jspecify.annotations.NonNull;
+
+import com.helger.annotation.Nonnegative;
+
+/**
+ * Strategy how the consumer of an {@link MpscRingBuffer} waits if the buffer is empty. Strategies
+ * trade CPU usage against the latency until a newly published element is consumed.
+ *
+ * @author Philip Helger
+ * @since 10.3.1
+ */
+public interface IRingBufferWaitStrategy
+{
+  /**
+   * Keeps spinning. Lowest latency but occupies a full CPU core.
+   */
+  IRingBufferWaitStrategy BUSY_SPIN = nIdleRounds -> Thread.onSpinWait ();
+
+  /**
+   * Spins for a short time and yields afterwards.
+   */
+  IRingBufferWaitStrategy YIELDING = nIdleRounds -> {
+    if (nIdleRounds < 100)
+      Thread.onSpinWait ();
+    else
+      Thread.yield ();
+  };
+
+  /**
+   * Spins, then yields and finally parks the consumer thread for short intervals. A good compromise
+   * between latency and CPU usage.
+   */
+  IRingBufferWaitStrategy SLEEPING = nIdleRounds -> {
+    if (nIdleRounds < 100)
+      Thread.onSpinWait ();
+    else
+      if (nIdleRounds < 200)
+        Thread.yield ();
+      else
+        LockSupport.parkNanos (TimeUnit.MICROSECONDS.toNanos (100));
+  };
+
+  /**
+   * Called by the consumer if nothing was available in the buffer.
+   *
+   * @param nIdleRounds
+   *        The number of consecutive calls to this method without any consumed element. Starts at
+   *        0.
+   */
+  void idle (@Nonnegative int nIdleRounds);
+
+  /**
+   * Called by producers after an element was published. Only blocking strategies need to implement
+   * this to wake up the consumer.
+   */
+  default void onPublished ()
+  {}
+
+  /**
+   * @return A new blocking wait strategy, that parks the consumer thread until a producer published
+   *         a new element. Lowest CPU usage but highest latency. Each instance can only be used for
+   *         a single consumer.
+   */
+  @NonNull
+  static IRingBufferWaitStrategy createBlocking ()
+  {
+    return new IRingBufferWaitStrategy ()
+    {
+      private volatile Thread m_aWaiter;
+
+      public void idle (final int nIdleRounds)
+      {
+        if (nIdleRounds < 100)
+          Thread.onSpinWait ();
+        else
+        {
+          m_aWaiter = Thread.currentThread ();
+          // Bounded park, so that a missed wake up only causes a short delay
+          LockSupport.parkNanos (this, TimeUnit.MILLISECONDS.toNanos (10));
+          m_aWaiter = null;
+        }
+      }
+
+      @Override
+      public void onPublished ()
+      {
+        final Thread aWaiter = m_aWaiter;
+        if (aWaiter != null)
+          LockSupport.unpark (aWaiter);
+      }
+    };
+  }
+}
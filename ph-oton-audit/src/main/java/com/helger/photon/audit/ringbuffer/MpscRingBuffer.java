@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.photon.audit.ringbuffer;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+import org.jspecify.annotations.NonNull;
+
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.tostring.ToStringGenerator;
+
+/**
+ * A bounded, lock-free multi-producer/single-consumer ring buffer. Producers claim a slot with a
+ * single CAS on the tail counter and publish the element by updating the per-slot sequence number.
+ * The single consumer reads published slots in order without any CAS.<br>
+ * {@link #offer(Object)} may be called from any thread, whereas {@link #drain(Consumer, int)} may
+ * only be called from one thread at a time.
+ *
+ * @author Philip Helger
+ * @param <T>
+ *        The element type
+ * @since 10.3.1
+ */
+@ThreadSafe
+public final class MpscRingBuffer <T>
+{
+  private final int m_nCapacity;
+  private final int m_nMask;
+  private final AtomicReferenceArray <T> m_aElements;
+  // Sequence number per slot. Equal to the position if the slot is free for the producer of that
+  // position, equal to position+1 if the element at that position was published
+  private final AtomicLongArray m_aSequences;
+  private final AtomicLong m_aTail = new AtomicLong (0);
+  // Only written by the consumer, volatile for size computations
+  private volatile long m_nHead = 0;
+
+  /**
+   * Constructor
+   *
+   * @param nMinCapacity
+   *        The minimum capacity. Is rounded up to the next power of 2. Must be &gt; 0.
+   */
+  public MpscRingBuffer (@Nonnegative final int nMinCapacity)
+  {
+    ValueEnforcer.isBetweenInclusive (nMinCapacity, "MinCapacity", 1, 1 << 30);
+    m_nCapacity = nMinCapacity == 1 ? 1 : Integer.highestOneBit (nMinCapacity - 1) << 1;
+    m_nMask = m_nCapacity - 1;
+    m_aElements = new AtomicReferenceArray <> (m_nCapacity);
+    m_aSequences = new AtomicLongArray (m_nCapacity);
+    for (int i = 0; i < m_nCapacity; ++i)
+      m_aSequences.set (i, i);
+  }
+
+  /**
+   * @return The effective capacity of the buffer. Always a power of 2.
+   */
+  @Nonnegative
+  public int getCapacity ()
+  {
+    return m_nCapacity;
+  }
+
+  /**
+   * @return The approximate number of elements in the buffer.
+   */
+  @Nonnegative
+  public int size ()
+  {
+    final long nSize = m_aTail.get () - m_nHead;
+    return (int) Math.max (0, Math.min (nSize, m_nCapacity));
+  }
+
+  public boolean isEmpty ()
+  {
+    return size () == 0;
+  }
+
+  /**
+   * Try to add an element. This method never blocks.
+   *
+   * @param aElement
+   *        The element to add. May not be <code>null</code>.
+   * @return <code>true</code> if the element was added, <code>false</code> if the buffer is full.
+   */
+  public boolean offer (@NonNull final T aElement)
+  {
+    ValueEnforcer.notNull (aElement, "Element");
+
+    while (true)
+    {
+      final long nPos = m_aTail.get ();
+      final int nIndex = (int) (nPos & m_nMask);
+      final long nDiff = m_aSequences.get (nIndex) - nPos;
+      if (nDiff == 0)
+      {
+        // Slot is free - try to claim it
+        if (m_aTail.compareAndSet (nPos, nPos + 1))
+        {
+          m_aElements.lazySet (nIndex, aElement);
+          // Publish
+          m_aSequences.set (nIndex, nPos + 1);
+          return true;
+        }
+      }
+      else
+        if (nDiff < 0)
+        {
+          // The consumer did not yet free this slot
+          return false;
+        }
+      // else another producer claimed this position - retry
+    }
+  }
+
+  /**
+   * Remove up to the provided number of elements in FIFO order and pass them to the consumer. Must
+   * only be called from a single consumer thread.
+   *
+   * @param aConsumer
+   *        The consumer to be invoked for each element. May not be <code>null</code>.
+   * @param nMaxElements
+   *        The maximum number of elements to drain. Must be &gt; 0.
+   * @return The number of drained elements. Always &ge; 0.
+   */
+  @Nonnegative
+  public int drain (@NonNull final Consumer <? super T> aConsumer, @Nonnegative final int nMaxElements)
+  {
+    long nHead = m_nHead;
+    int nCount = 0;
+    try
+    {
+      while (nCount < nMaxElements)
+      {
+        final int nIndex = (int) (nHead & m_nMask);
+        if (m_aSequences.get (nIndex) != nHead + 1)
+        {
+          // Empty or not yet published
+          break;
+        }
+        final T aElement = m_aElements.get (nIndex);
+        m_aElements.lazySet (nIndex, null);
+        // Free the slot for the producer of the next round
+        m_aSequences.set (nIndex, nHead + m_nCapacity);
+        nHead++;
+        nCount++;
+        aConsumer.accept (aElement);
+      }
+    }
+    finally
+    {
+      if (nCount > 0)
+        m_nHead = nHead;
+    }
+    return nCount;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Capacity", m_nCapacity).append ("Size", size ()).getToString ();
+  }
+}
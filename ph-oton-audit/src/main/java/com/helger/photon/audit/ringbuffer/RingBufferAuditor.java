@@ -0,0 +1,396 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.photon.audit.ringbuffer;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.jspecify.annotations.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.base.concurrent.BasicThreadFactoryBuilder;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.state.EChange;
+import com.helger.base.tostring.ToStringGenerator;
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.ICommonsList;
+import com.helger.commons.concurrent.collector.IConcurrentPerformer;
+import com.helger.photon.audit.AbstractAuditor;
+import com.helger.photon.audit.AsynchronousAuditor;
+import com.helger.photon.audit.IAuditItem;
+import com.helger.security.authentication.subject.user.ICurrentUserIDProvider;
+
+/**
+ * A drop-in alternative to {@link AsynchronousAuditor} that queues audit items in a lock-free
+ * {@link MpscRingBuffer} instead of a lock protected collector. A single background thread drains
+ * the buffer in batches and passes them to the {@link IConcurrentPerformer} provided in the
+ * constructor. Queue depth, dropped items and queue latency are recorded and can be queried.<br>
+ * Please ensure to call {@link #stop()} if this auditor is no longer used, so that all queued items
+ * are handled. If the consumer thread ended unexpectedly, audit items (including the ones of
+ * producers waiting for space) are passed to the performer synchronously in the calling thread.
+ *
+ * @author Philip Helger
+ * @since 10.3.1
+ */
+@ThreadSafe
+public class RingBufferAuditor extends AbstractAuditor
+{
+  // Just to have custom named threads....
+  private static final ThreadFactory THREAD_FACTORY = new BasicThreadFactoryBuilder ().namingPattern ("RingBufferAuditor")
+                                                                                      .daemon (true)
+                                                                                      .build ();
+  private static final Logger LOGGER = LoggerFactory.getLogger (RingBufferAuditor.class);
+
+  private static final class QueuedItem
+  {
+    private final IAuditItem m_aItem;
+    private final long m_nQueuedNanos;
+
+    QueuedItem (@NonNull final IAuditItem aItem, final long nQueuedNanos)
+    {
+      m_aItem = aItem;
+      m_nQueuedNanos = nQueuedNanos;
+    }
+  }
+
+  private final MpscRingBuffer <QueuedItem> m_aBuffer;
+  private final IConcurrentPerformer <List <IAuditItem>> m_aPerformer;
+  private final int m_nMaxBatchSize;
+  private final ERingBufferOverflowPolicy m_eOverflowPolicy;
+  private final IRingBufferWaitStrategy m_aWaitStrategy;
+  private final ExecutorService m_aConsumerThreadPool;
+  private final AtomicBoolean m_aStopped = new AtomicBoolean (false);
+  private volatile boolean m_bConsumerRunning = true;
+  // Serializes all consumer side buffer access after the consumer thread ended
+  private final Object m_aDrainLock = new Object ();
+
+  // Metrics
+  private final LongAdder m_aQueuedCount = new LongAdder ();
+  private final LongAdder m_aDroppedCount = new LongAdder ();
+  private final LongAdder m_aBlockedCount = new LongAdder ();
+  private final AtomicLong m_aHandledCount = new AtomicLong (0);
+  private final AtomicLong m_aTotalLatencyNanos = new AtomicLong (0);
+  private final AtomicLong m_aMaxLatencyNanos = new AtomicLong (0);
+  private final AtomicLong m_aMaxQueueDepth = new AtomicLong (0);
+
+  public RingBufferAuditor (@NonNull final ICurrentUserIDProvider aUserIDProvider,
+                            @NonNull final IConcurrentPerformer <List <IAuditItem>> aPerformer)
+  {
+    this (aUserIDProvider, aPerformer, new RingBufferAuditorSettings ());
+  }
+
+  public RingBufferAuditor (@NonNull final ICurrentUserIDProvider aUserIDProvider,
+                            @NonNull final IConcurrentPerformer <List <IAuditItem>> aPerformer,
+                            @NonNull final RingBufferAuditorSettings aSettings)
+  {
+    super (aUserIDProvider);
+    ValueEnforcer.notNull (aPerformer, "Performer");
+    ValueEnforcer.notNull (aSettings, "Settings");
+
+    m_aBuffer = new MpscRingBuffer <> (aSettings.getCapacity ());
+    m_aPerformer = aPerformer;
+    m_nMaxBatchSize = aSettings.getMaxBatchSize ();
+    m_eOverflowPolicy = aSettings.getOverflowPolicy ();
+    m_aWaitStrategy = aSettings.getWaitStrategy ();
+    m_aConsumerThreadPool = Executors.newSingleThreadExecutor (THREAD_FACTORY);
+    m_aConsumerThreadPool.submit (this::_consume);
+  }
+
+  private void _consume ()
+  {
+    try
+    {
+      _consumeLoop ();
+    }
+    finally
+    {
+      // Producers check this flag after publishing. Either they see it, or the following drain sees
+      // their item.
+      m_bConsumerRunning = false;
+      _drainRemaining ();
+    }
+  }
+
+  private void _performBatch (@NonNull final ICommonsList <IAuditItem> aBatch)
+  {
+    try
+    {
+      m_aPerformer.runAsync (aBatch);
+    }
+    catch (final Exception ex)
+    {
+      LOGGER.error ("Failed to perform " + aBatch.size () + " audit items", ex);
+    }
+    m_aHandledCount.addAndGet (aBatch.size ());
+  }
+
+  /**
+   * Handle everything left in the buffer. Only called after the consumer thread ended.
+   */
+  private void _drainRemaining ()
+  {
+    synchronized (m_aDrainLock)
+    {
+      while (true)
+      {
+        final ICommonsList <IAuditItem> aBatch = new CommonsArrayList <> ();
+        if (m_aBuffer.drain (aQueued -> aBatch.add (aQueued.m_aItem), m_nMaxBatchSize) == 0)
+          break;
+        _performBatch (aBatch);
+      }
+    }
+  }
+
+  private void _performSynchronously (@NonNull final IAuditItem aAuditItem)
+  {
+    final ICommonsList <IAuditItem> aBatch = new CommonsArrayList <> (1);
+    aBatch.add (aAuditItem);
+    synchronized (m_aDrainLock)
+    {
+      _performBatch (aBatch);
+    }
+  }
+
+  private void _consumeLoop ()
+  {
+    int nIdleRounds = 0;
+    while (true)
+    {
+      final long nDepth = m_aBuffer.size ();
+      if (nDepth > m_aMaxQueueDepth.get ())
+        m_aMaxQueueDepth.set (nDepth);
+
+      final long nNow = System.nanoTime ();
+      final ICommonsList <IAuditItem> aBatch = new CommonsArrayList <> ();
+      final int nDrained = m_aBuffer.drain (aQueued -> {
+        aBatch.add (aQueued.m_aItem);
+        final long nLatency = nNow - aQueued.m_nQueuedNanos;
+        m_aTotalLatencyNanos.addAndGet (nLatency);
+        if (nLatency > m_aMaxLatencyNanos.get ())
+          m_aMaxLatencyNanos.set (nLatency);
+      }, m_nMaxBatchSize);
+
+      if (nDrained > 0)
+      {
+        nIdleRounds = 0;
+        _performBatch (aBatch);
+      }
+      else
+      {
+        if (m_aStopped.get () && m_aBuffer.isEmpty ())
+          break;
+        m_aWaitStrategy.idle (nIdleRounds);
+        if (nIdleRounds < Integer.MAX_VALUE)
+          nIdleRounds++;
+      }
+    }
+  }
+
+  @Override
+  protected void handleAuditItem (@NonNull final IAuditItem aAuditItem)
+  {
+    ValueEnforcer.notNull (aAuditItem, "AuditItem");
+
+    if (m_aStopped.get ())
+      throw new IllegalStateException ("The auditor was already stopped");
+
+    if (!m_bConsumerRunning)
+    {
+      // The consumer died unexpectedly
+      _performSynchronously (aAuditItem);
+      return;
+    }
+
+    final QueuedItem aQueued = new QueuedItem (aAuditItem, System.nanoTime ());
+    if (!m_aBuffer.offer (aQueued))
+    {
+      if (m_eOverflowPolicy.isDrop ())
+      {
+        m_aDroppedCount.increment ();
+        return;
+      }
+
+      // Wait until there is space
+      m_aBlockedCount.increment ();
+      int nRounds = 0;
+      while (!m_aBuffer.offer (aQueued))
+      {
+        if (!m_bConsumerRunning)
+        {
+          // Nobody will ever make space again
+          _performSynchronously (aAuditItem);
+          return;
+        }
+        if (nRounds++ < 100)
+          Thread.onSpinWait ();
+        else
+          LockSupport.parkNanos (TimeUnit.MICROSECONDS.toNanos (50));
+      }
+    }
+    m_aQueuedCount.increment ();
+    m_aWaitStrategy.onPublished ();
+
+    if (!m_bConsumerRunning)
+    {
+      // The consumer ended concurrently and may not have seen this item
+      _drainRemaining ();
+    }
+  }
+
+  /**
+   * @return <code>true</code> if the consumer thread is running, <code>false</code> if it ended
+   *         because the auditor was stopped or because of an unexpected error.
+   */
+  public boolean isConsumerRunning ()
+  {
+    return m_bConsumerRunning;
+  }
+
+  /**
+   * @return The current number of queued audit items.
+   */
+  @Nonnegative
+  public int getQueueLength ()
+  {
+    return m_aBuffer.size ();
+  }
+
+  /**
+   * @return The maximum number of queued audit items observed by the consumer.
+   */
+  @Nonnegative
+  public long getMaxQueueLength ()
+  {
+    return m_aMaxQueueDepth.get ();
+  }
+
+  /**
+   * @return The number of audit items that were successfully queued.
+   */
+  @Nonnegative
+  public long getQueuedCount ()
+  {
+    return m_aQueuedCount.sum ();
+  }
+
+  /**
+   * @return The number of audit items that were dropped because the buffer was full. Only relevant
+   *         for {@link ERingBufferOverflowPolicy#DROP}.
+   */
+  @Nonnegative
+  public long getDroppedCount ()
+  {
+    return m_aDroppedCount.sum ();
+  }
+
+  /**
+   * @return The number of times a producer had to wait because the buffer was full. Only relevant
+   *         for {@link ERingBufferOverflowPolicy#BLOCK}.
+   */
+  @Nonnegative
+  public long getBlockedCount ()
+  {
+    return m_aBlockedCount.sum ();
+  }
+
+  /**
+   * @return The number of audit items that were passed to the performer.
+   */
+  @Nonnegative
+  public long getHandledCount ()
+  {
+    return m_aHandledCount.get ();
+  }
+
+  /**
+   * @return The average time in nanoseconds an audit item spent in the buffer.
+   */
+  @Nonnegative
+  public long getAverageLatencyNanos ()
+  {
+    final long nCount = m_aHandledCount.get ();
+    return nCount == 0 ? 0 : m_aTotalLatencyNanos.get () / nCount;
+  }
+
+  /**
+   * @return The maximum time in nanoseconds an audit item spent in the buffer.
+   */
+  @Nonnegative
+  public long getMaxLatencyNanos ()
+  {
+    return m_aMaxLatencyNanos.get ();
+  }
+
+  /**
+   * When using this auditor, it is important to call this {@link #stop()} method before shutdown.
+   * It avoids further queuing of objects and waits until all items are handled. This method blocks
+   * until all remaining objects are handled. Items that were published concurrently to this call are
+   * handled as well.
+   *
+   * @return {@link EChange#CHANGED} if the shutdown was performed, {@link EChange#UNCHANGED} if the
+   *         auditor was already shut down.
+   */
+  @NonNull
+  public EChange stop ()
+  {
+    if (!m_aStopped.compareAndSet (false, true))
+    {
+      // Already shutdown!
+      return EChange.UNCHANGED;
+    }
+
+    m_aConsumerThreadPool.shutdown ();
+    final int nQueueLength = m_aBuffer.size ();
+    if (nQueueLength > 0)
+      LOGGER.info ("Stopping ring buffer auditor with " + nQueueLength + " items");
+    m_aWaitStrategy.onPublished ();
+
+    try
+    {
+      while (!m_aConsumerThreadPool.awaitTermination (1, TimeUnit.SECONDS))
+      {
+        // wait until we're done
+      }
+    }
+    catch (final InterruptedException ex)
+    {
+      LOGGER.error ("Error stopping ring buffer auditor", ex);
+      Thread.currentThread ().interrupt ();
+    }
+    return EChange.CHANGED;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Buffer", m_aBuffer)
+                                       .append ("MaxBatchSize", m_nMaxBatchSize)
+                                       .append ("OverflowPolicy", m_eOverflowPolicy)
+                                       .append ("Stopped", m_aStopped.get ())
+                                       .getToString ();
+  }
+}
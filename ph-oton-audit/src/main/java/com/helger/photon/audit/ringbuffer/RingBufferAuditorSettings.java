@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.photon.audit.ringbuffer;
+
+import org.jspecify.annotations.NonNull;
+
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.NotThreadSafe;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.tostring.ToStringGenerator;
+
+/**
+ * Settings for a {@link RingBufferAuditor}.
+ *
+ * @author Philip Helger
+ * @since 10.3.1
+ */
+@NotThreadSafe
+public class RingBufferAuditorSettings
+{
+  /** Default minimum ring buffer capacity */
+  public static final int DEFAULT_CAPACITY = 16 * 1024;
+  /** Default maximum number of items passed to the performer at once */
+  public static final int DEFAULT_MAX_BATCH_SIZE = 1024;
+  /** Default overflow policy */
+  public static final ERingBufferOverflowPolicy DEFAULT_OVERFLOW_POLICY = ERingBufferOverflowPolicy.BLOCK;
+
+  private int m_nCapacity = DEFAULT_CAPACITY;
+  private int m_nMaxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+  private ERingBufferOverflowPolicy m_eOverflowPolicy = DEFAULT_OVERFLOW_POLICY;
+  private IRingBufferWaitStrategy m_aWaitStrategy;
+
+  public RingBufferAuditorSettings ()
+  {}
+
+  @Nonnegative
+  public final int getCapacity ()
+  {
+    return m_nCapacity;
+  }
+
+  /**
+   * @param nCapacity
+   *        The minimum capacity of the ring buffer. Is rounded up to the next power of 2. Must be
+   *        &gt; 0.
+   * @return this for chaining
+   */
+  @NonNull
+  public final RingBufferAuditorSettings setCapacity (@Nonnegative final int nCapacity)
+  {
+    ValueEnforcer.isGT0 (nCapacity, "Capacity");
+    m_nCapacity = nCapacity;
+    return this;
+  }
+
+  @Nonnegative
+  public final int getMaxBatchSize ()
+  {
+    return m_nMaxBatchSize;
+  }
+
+  @NonNull
+  public final RingBufferAuditorSettings setMaxBatchSize (@Nonnegative final int nMaxBatchSize)
+  {
+    ValueEnforcer.isGT0 (nMaxBatchSize, "MaxBatchSize");
+    m_nMaxBatchSize = nMaxBatchSize;
+    return this;
+  }
+
+  @NonNull
+  public final ERingBufferOverflowPolicy getOverflowPolicy ()
+  {
+    return m_eOverflowPolicy;
+  }
+
+  @NonNull
+  public final RingBufferAuditorSettings setOverflowPolicy (@NonNull final ERingBufferOverflowPolicy eOverflowPolicy)
+  {
+    ValueEnforcer.notNull (eOverflowPolicy, "OverflowPolicy");
+    m_eOverflowPolicy = eOverflowPolicy;
+    return this;
+  }
+
+  /**
+   * @return The wait strategy to use. If none was set explicitly, a new blocking wait strategy is
+   *         returned.
+   */
+  @NonNull
+  public final IRingBufferWaitStrategy getWaitStrategy ()
+  {
+    // Blocking strategies are stateful and must not be shared
+    return m_aWaitStrategy != null ? m_aWaitStrategy : IRingBufferWaitStrategy.createBlocking ();
+  }
+
+  @NonNull
+  public final RingBufferAuditorSettings setWaitStrategy (@NonNull final IRingBufferWaitStrategy aWaitStrategy)
+  {
+    ValueEnforcer.notNull (aWaitStrategy, "WaitStrategy");
+    m_aWaitStrategy = aWaitStrategy;
+    return this;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Capacity", m_nCapacity)
+                                       .append ("MaxBatchSize", m_nMaxBatchSize)
+                                       .append ("OverflowPolicy", m_eOverflowPolicy)
+                                       .append ("WaitStrategy", m_aWaitStrategy)
+                                       .getToString ();
+  }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.photon.audit.journal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.helger.base.concurrent.ThreadHelper;
+import com.helger.base.state.ESuccess;
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.ICommonsList;
+import com.helger.io.file.FileOperationManager;
+import com.helger.photon.audit.AuditItem;
+import com.helger.photon.audit.EAuditActionType;
+import com.helger.photon.audit.IAuditItem;
+
+/**
+ * Test class for class {@link AuditJournal}.
+ *
+ * @author Philip Helger
+ */
+public final class AuditJournalTest
+{
+  private static final LocalDateTime START = LocalDateTime.of (2026, Month.MARCH, 1, 23, 0, 0, 123_456_789);
+
+  private static ICommonsList <IAuditItem> _createItems (final int nStart, final int nCount)
+  {
+    final ICommonsList <IAuditItem> ret = new CommonsArrayList <> ();
+    for (int i = nStart; i < nStart + nCount; ++i)
+      ret.add (new AuditItem (START.plusSeconds (i),
+                              "user" + (i % 3),
+                              EAuditActionType.values ()[i % EAuditActionType.values ().length],
+                              ESuccess.valueOf ((i % 2) == 0),
+                              "action " + i + "\nwith line break and umlaut \u00e4"));
+    return ret;
+  }
+
+  @Test
+  public void testAppendAndRead () throws Exception
+  {
+    final File aDir = new File ("target/audit-journal-test");
+    FileOperationManager.INSTANCE.deleteDirRecursiveIfExisting (aDir);
+
+    final AuditJournalSettings aSettings = new AuditJournalSettings ().setMaxSegmentItems (100).setIndexInterval (7);
+    final ICommonsList <IAuditItem> aAll = _createItems (0, 1000);
+
+    try (final AuditJournal aJournal = new AuditJournal (aDir, aSettings))
+    {
+      assertEquals (0, aJournal.getItemCount ());
+      assertNull (aJournal.getEarliestDateTime ());
+      assertTrue (aJournal.getLastItems (5).isEmpty ());
+
+      // Write in batches
+      for (int i = 0; i < aAll.size (); i += 33)
+        aJournal.append (aAll.subList (i, Math.min (i + 33, aAll.size ())));
+
+      assertEquals (1000, aJournal.getItemCount ());
+      // 3600 seconds until midnight -> 1000 items on 1 day but max 100 per segment
+      assertEquals (10, aJournal.getAllSegments ().size ());
+      assertEquals (START.withNano (123_000_000), aJournal.getEarliestDateTime ());
+
+      final List <IAuditItem> aLast = aJournal.getLastItems (150);
+      assertEquals (150, aLast.size ());
+      for (int i = 0; i < 150; ++i)
+        assertEquals (aAll.get (999 - i), aLast.get (i));
+
+      assertEquals (1000, aJournal.getAllItemsOfDate (START.toLocalDate ()).size ());
+      assertEquals (0, aJournal.getAllItemsOfDate (START.toLocalDate ().plusDays (1)).size ());
+    }
+
+    // Re-open and continue writing past midnight
+    try (final AuditJournal aJournal = new AuditJournal (aDir, aSettings))
+    {
+      assertEquals (1000, aJournal.getItemCount ());
+      final ICommonsList <IAuditItem> aNextDay = _createItems (3600, 10);
+      aJournal.append (aNextDay);
+      assertEquals (11, aJournal.getAllSegments ().size ());
+
+      final LocalDate aNextDate = START.toLocalDate ().plusDays (1);
+      assertEquals (aNextDay, aJournal.getAllItemsOfDate (aNextDate));
+
+      final List <IAuditItem> aLast = aJournal.getLastItems (12);
+      assertEquals (aNextDay.getLastOrNull (), aLast.get (0));
+      assertEquals (aAll.getLastOrNull (), aLast.get (10));
+    }
+    finally
+    {
+      FileOperationManager.INSTANCE.deleteDirRecursiveIfExisting (aDir);
+    }
+  }
+
+  @Test
+  public void testSyncTimer () throws Exception
+  {
+    final File aDir = new File ("target/audit-journal-test-sync");
+    FileOperationManager.INSTANCE.deleteDirRecursiveIfExisting (aDir);
+
+    // Long enough that the append itself does not sync
+    final AuditJournalSettings aSettings = new AuditJournalSettings ().setSyncInterval (Duration.ofMillis (500));
+    try (final AuditJournal aJournal = new AuditJournal (aDir, aSettings))
+    {
+      aJournal.append (_createItems (0, 10));
+      assertTrue (aJournal.hasUnsyncedData ());
+
+      // No further appends - the timer must sync the tail
+      final long nStart = System.nanoTime ();
+      while (aJournal.hasUnsyncedData () && System.nanoTime () - nStart < Duration.ofSeconds (10).toNanos ())
+        ThreadHelper.sleep (10);
+      assertFalse (aJournal.hasUnsyncedData ());
+
+      aJournal.append (_createItems (10, 10));
+      aJournal.sync ();
+      assertFalse (aJournal.hasUnsyncedData ());
+    }
+    finally
+    {
+      FileOperationManager.INSTANCE.deleteDirRecursiveIfExisting (aDir);
+    }
+  }
+
+  @Test
+  public void testZeroPaddedTail () throws Exception
+  {
+    final File aDir = new File ("target/audit-journal-test-tail");
+    FileOperationManager.INSTANCE.deleteDirRecursiveIfExisting (aDir);
+
+    final ICommonsList <IAuditItem> aAll = _createItems (0, 10);
+    try
+    {
+      final File aSegmentFile;
+      final File aIndexFile;
+      final long nValidLength;
+      try (final AuditJournal aJournal = new AuditJournal (aDir, new AuditJournalSettings ()))
+      {
+        aJournal.append (aAll);
+        final AuditJournalSegment aSegment = aJournal.getAllSegments ().getFirstOrNull ();
+        aSegmentFile = aSegment.getFile ();
+        aIndexFile = aSegment.getIndexFile ();
+        nValidLength = aSegment.getByteLength ();
+      }
+
+      // Simulate a crash while writing: the file was extended but the record was not written
+      assertEquals (nValidLength, aSegmentFile.length ());
+      try (final FileOutputStream aFOS = new FileOutputStream (aSegmentFile, true))
+      {
+        aFOS.write (new byte [100]);
+      }
+      // Index file of the active segment is missing after a crash
+      FileOperationManager.INSTANCE.deleteFileIfExisting (aIndexFile);
+
+      try (final AuditJournal aJournal = new AuditJournal (aDir, new AuditJournalSettings ()))
+      {
+        assertEquals (10, aJournal.getItemCount ());
+        assertEquals (aAll.getLastOrNull (), aJournal.getLastItems (1).get (0));
+      }
+      // Truncated to the last valid record
+      assertEquals (nValidLength, aSegmentFile.length ());
+    }
+    finally
+    {
+      FileOperationManager.INSTANCE.deleteDirRecursiveIfExisting (aDir);
+    }
+  }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.photon.audit.ringbuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.Test;
+
+import com.helger.base.concurrent.ThreadHelper;
+import com.helger.base.state.ESuccess;
+import com.helger.base.type.ObjectType;
+import com.helger.commons.concurrent.collector.IConcurrentPerformer;
+import com.helger.photon.audit.AbstractAuditor;
+import com.helger.photon.audit.AsynchronousAuditor;
+import com.helger.photon.audit.AuditHelper;
+import com.helger.photon.audit.EAuditActionType;
+import com.helger.photon.audit.IAuditItem;
+import com.helger.photon.audit.mock.MockCurrentUserIDProvider;
+
+/**
+ * Test class for class {@link RingBufferAuditor}.
+ *
+ * @author Philip Helger
+ */
+public final class RingBufferAuditorTest
+{
+  @Test
+  public void testBasic ()
+  {
+    final ObjectType aOT = new ObjectType ("mock");
+    final AtomicInteger aPerformCount = new AtomicInteger (0);
+    final IConcurrentPerformer <List <IAuditItem>> aPerformer = aItems -> aPerformCount.addAndGet (aItems.size ());
+    final RingBufferAuditor aAuditor = new RingBufferAuditor (new MockCurrentUserIDProvider ("userid"), aPerformer);
+    AuditHelper.setAuditor (aAuditor);
+    try
+    {
+      AuditHelper.onAuditCreateSuccess (aOT);
+      AuditHelper.onAuditModifySuccess (aOT, "this", "is", Integer.valueOf (2), "a", "test");
+      AuditHelper.onAuditDeleteFailure (aOT, "this", "is", Integer.valueOf (2), "a", "test");
+      AuditHelper.onAuditExecuteSuccess ("spawn", "this", "is", Integer.valueOf (2), "a", "test");
+      // Stop!
+      assertTrue (aAuditor.stop ().isChanged ());
+      assertFalse (aAuditor.stop ().isChanged ());
+
+      // Ensure that all audit were performed
+      assertEquals (4, aPerformCount.intValue ());
+      assertEquals (4, aAuditor.getQueuedCount ());
+      assertEquals (4, aAuditor.getHandledCount ());
+      assertEquals (0, aAuditor.getDroppedCount ());
+
+      // And now, after we stopped...
+      try
+      {
+        AuditHelper.onAuditExecuteFailure (aOT, "this", "is", "a", "test");
+        fail ();
+      }
+      catch (final IllegalStateException ex)
+      {
+        // ... no new objects can be queued!
+      }
+    }
+    finally
+    {
+      AuditHelper.setDefaultAuditor ();
+    }
+  }
+
+  @Test
+  public void testDrop ()
+  {
+    final RingBufferAuditor aAuditor = new RingBufferAuditor (new MockCurrentUserIDProvider ("userid"),
+                                                              aItems -> ThreadHelper.sleep (50),
+                                                              new RingBufferAuditorSettings ().setCapacity (4)
+                                                                                              .setMaxBatchSize (1)
+                                                                                              .setOverflowPolicy (ERingBufferOverflowPolicy.DROP));
+    for (int i = 0; i < 20; ++i)
+      aAuditor.createAuditItem (EAuditActionType.EXECUTE, ESuccess.SUCCESS, null, "drop", Integer.valueOf (i));
+    aAuditor.stop ();
+    assertEquals (20, aAuditor.getQueuedCount () + aAuditor.getDroppedCount ());
+    assertTrue (aAuditor.getDroppedCount () > 0);
+    assertEquals (aAuditor.getQueuedCount (), aAuditor.getHandledCount ());
+  }
+
+  private static void _runProducers (final int nThreads,
+                                     final int nItemsPerThread,
+                                     final AbstractAuditor aAuditor) throws Exception
+  {
+    final ExecutorService aES = Executors.newFixedThreadPool (nThreads);
+    for (int t = 0; t < nThreads; ++t)
+      aES.submit ( () -> {
+        for (int i = 0; i < nItemsPerThread; ++i)
+          aAuditor.createAuditItem (EAuditActionType.EXECUTE, ESuccess.SUCCESS, null, "bench");
+      });
+    aES.shutdown ();
+    assertTrue (aES.awaitTermination (1, TimeUnit.MINUTES));
+  }
+
+  @Test
+  public void testManyProducers () throws Exception
+  {
+    final int nItemsPerThread = 5_000;
+    for (final int nThreads : new int [] { 1, 8, 64 })
+    {
+      final AtomicInteger aRBCount = new AtomicInteger (0);
+      final AtomicInteger aAACount = new AtomicInteger (0);
+      final Function <AtomicInteger, IConcurrentPerformer <List <IAuditItem>>> aPerformerFactory = x -> aItems -> x.addAndGet (aItems.size ());
+
+      // Small buffer, so that producers block
+      final RingBufferAuditor aRB = new RingBufferAuditor (new MockCurrentUserIDProvider ("userid"),
+                                                           aPerformerFactory.apply (aRBCount),
+                                                           new RingBufferAuditorSettings ().setCapacity (64));
+      _runProducers (nThreads, nItemsPerThread, aRB);
+      aRB.stop ();
+
+      final AsynchronousAuditor aAA = new AsynchronousAuditor (new MockCurrentUserIDProvider ("userid"),
+                                                               aPerformerFactory.apply (aAACount));
+      _runProducers (nThreads, nItemsPerThread, aAA);
+      aAA.stop ();
+
+      // Same result as the reference implementation
+      assertEquals (nThreads * nItemsPerThread, aRBCount.get ());
+      assertEquals (nThreads * nItemsPerThread, aAACount.get ());
+      assertEquals (nThreads * nItemsPerThread, aRB.getQueuedCount ());
+      assertEquals (nThreads * nItemsPerThread, aRB.getHandledCount ());
+      assertEquals (0, aRB.getDroppedCount ());
+      assertEquals (0, aRB.getQueueLength ());
+    }
+  }
+
+  @Test
+  public void testConsumerDied ()
+  {
+    final AtomicBoolean aFirst = new AtomicBoolean (true);
+    final AtomicInteger aPerformCount = new AtomicInteger (0);
+    final RingBufferAuditor aAuditor = new RingBufferAuditor (new MockCurrentUserIDProvider ("userid"), aItems -> {
+      if (aFirst.getAndSet (false))
+        throw new AssertionError ("Consumer dies");
+      aPerformCount.addAndGet (aItems.size ());
+    }, new RingBufferAuditorSettings ().setCapacity (4).setOverflowPolicy (ERingBufferOverflowPolicy.BLOCK));
+
+    aAuditor.createAuditItem (EAuditActionType.EXECUTE, ESuccess.SUCCESS, null, "kill");
+    final long nStart = System.nanoTime ();
+    while (aAuditor.isConsumerRunning () && System.nanoTime () - nStart < TimeUnit.SECONDS.toNanos (10))
+      ThreadHelper.sleep (10);
+    assertFalse (aAuditor.isConsumerRunning ());
+
+    // More items than the capacity - must neither block nor get lost
+    for (int i = 0; i < 20; ++i)
+      aAuditor.createAuditItem (EAuditActionType.EXECUTE, ESuccess.SUCCESS, null, "after", Integer.valueOf (i));
+    assertEquals (20, aPerformCount.get ());
+    assertTrue (aAuditor.stop ().isChanged ());
+  }
+}
@@ -0,0 +1,471 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.photon.connect.generic;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.GuardedBy;
+import com.helger.annotation.concurrent.NotThreadSafe;
+import com.helger.annotation.style.ReturnsMutableCopy;
+import com.helger.base.concurrent.SimpleLock;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.state.ESuccess;
+import com.helger.base.tostring.ToStringGenerator;
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.ICommonsList;
+import com.helger.io.file.FileHelper;
+import com.helger.security.authentication.credentials.IAuthCredentials;
+import com.jcraft.jsch.SftpProgressMonitor;
+
+/**
+ * Transfer many files with {@link IConnectorFileBased} connectors. A bounded number of connectors
+ * is opened once and each of them processes the next pending file as soon as it is done with the
+ * previous one, so the round trip latency of the single files overlaps. Failed files are retried on
+ * a fresh connection. The progress of the whole batch can be reported to any
+ * {@link SftpProgressMonitor} (like the ones in the <code>sftp.progress</code> package): it is
+ * initialized once per batch and each transferred file is counted with its size.<br>
+ * A {@link java.util.stream.Stream} of items can be passed as <code>aStream::iterator</code>; the
+ * items are consumed lazily.
+ *
+ * @author Philip Helger
+ * @since 10.3.1
+ */
+@NotThreadSafe
+public class ConnectorBatchTransfer
+{
+  public static final int DEFAULT_MAX_CONNECTIONS = 4;
+  public static final int DEFAULT_MAX_ATTEMPTS = 3;
+  public static final Duration DEFAULT_RETRY_DELAY = Duration.ofSeconds (1);
+  /** The source name passed to the progress monitor */
+  public static final String PROGRESS_SOURCE_BATCH = "batch";
+
+  private static final Logger LOGGER = LoggerFactory.getLogger (ConnectorBatchTransfer.class);
+
+  private final Supplier <? extends IConnectorFileBased <?, ?>> m_aConnectorFactory;
+  private final IAuthCredentials m_aCredentials;
+  private int m_nMaxConnections = DEFAULT_MAX_CONNECTIONS;
+  private int m_nMaxAttempts = DEFAULT_MAX_ATTEMPTS;
+  private Duration m_aRetryDelay = DEFAULT_RETRY_DELAY;
+  private String m_sRemoteDirectory;
+  private SftpProgressMonitor m_aProgressMonitor;
+
+  /**
+   * Constructor
+   *
+   * @param aConnectorFactory
+   *        The factory for new, unopened connectors. It is invoked once per connection. May not be
+   *        <code>null</code>.
+   * @param aCredentials
+   *        The credentials used to open each connection. May not be <code>null</code>.
+   */
+  public ConnectorBatchTransfer (@NonNull final Supplier <? extends IConnectorFileBased <?, ?>> aConnectorFactory,
+                                 @NonNull final IAuthCredentials aCredentials)
+  {
+    ValueEnforcer.notNull (aConnectorFactory, "ConnectorFactory");
+    ValueEnforcer.notNull (aCredentials, "Credentials");
+    m_aConnectorFactory = aConnectorFactory;
+    m_aCredentials = aCredentials;
+  }
+
+  /**
+   * @return The maximum number of parallel connections. Always &gt; 0.
+   */
+  @Nonnegative
+  public final int getMaxConnections ()
+  {
+    return m_nMaxConnections;
+  }
+
+  /**
+   * @param nMaxConnections
+   *        The maximum number of parallel connections. Must be &gt; 0.
+   * @return this for chaining
+   */
+  @NonNull
+  public final ConnectorBatchTransfer setMaxConnections (@Nonnegative final int nMaxConnections)
+  {
+    ValueEnforcer.isGT0 (nMaxConnections, "MaxConnections");
+    m_nMaxConnections = nMaxConnections;
+    return this;
+  }
+
+  /**
+   * @return The maximum number of attempts per file, including the first one. Always &gt; 0.
+   */
+  @Nonnegative
+  public final int getMaxAttempts ()
+  {
+    return m_nMaxAttempts;
+  }
+
+  /**
+   * @param nMaxAttempts
+   *        The maximum number of attempts per file, including the first one. Must be &gt; 0.
+   * @return this for chaining
+   */
+  @NonNull
+  public final ConnectorBatchTransfer setMaxAttempts (@Nonnegative final int nMaxAttempts)
+  {
+    ValueEnforcer.isGT0 (nMaxAttempts, "MaxAttempts");
+    m_nMaxAttempts = nMaxAttempts;
+    return this;
+  }
+
+  /**
+   * @return The delay before a failed file is retried. Never <code>null</code>.
+   */
+  @NonNull
+  public final Duration getRetryDelay ()
+  {
+    return m_aRetryDelay;
+  }
+
+  /**
+   * @param aRetryDelay
+   *        The delay before a failed file is retried. May not be <code>null</code> and must not be
+   *        negative.
+   * @return this for chaining
+   */
+  @NonNull
+  public final ConnectorBatchTransfer setRetryDelay (@NonNull final Duration aRetryDelay)
+  {
+    ValueEnforcer.notNull (aRetryDelay, "RetryDelay");
+    ValueEnforcer.isFalse (aRetryDelay.isNegative (), "RetryDelay may not be negative");
+    m_aRetryDelay = aRetryDelay;
+    return this;
+  }
+
+  /**
+   * @return The remote directory to change to after each connection was opened. May be
+   *         <code>null</code>.
+   */
+  @Nullable
+  public final String getRemoteDirectory ()
+  {
+    return m_sRemoteDirectory;
+  }
+
+  /**
+   * @param sRemoteDirectory
+   *        The remote directory to change to after each connection was opened. May be
+   *        <code>null</code> to stay in the initial directory.
+   * @return this for chaining
+   */
+  @NonNull
+  public final ConnectorBatchTransfer setRemoteDirectory (@Nullable final String sRemoteDirectory)
+  {
+    m_sRemoteDirectory = sRemoteDirectory;
+    return this;
+  }
+
+  /**
+   * @return The progress monitor for the whole batch. May be <code>null</code>.
+   */
+  @Nullable
+  public final SftpProgressMonitor getProgressMonitor ()
+  {
+    return m_aProgressMonitor;
+  }
+
+  /**
+   * @param aProgressMonitor
+   *        The progress monitor for the whole batch. May be <code>null</code>. It is only invoked
+   *        by one thread at a time. If {@link SftpProgressMonitor#count(long)} returns
+   *        <code>false</code> no further files are started.
+   * @return this for chaining
+   */
+  @NonNull
+  public final ConnectorBatchTransfer setProgressMonitor (@Nullable final SftpProgressMonitor aProgressMonitor)
+  {
+    m_aProgressMonitor = aProgressMonitor;
+    return this;
+  }
+
+  /**
+   * The state shared between all connections of a single batch.
+   *
+   * @author Philip Helger
+   */
+  private static final class BatchState
+  {
+    private final SimpleLock m_aLock = new SimpleLock ();
+    @GuardedBy ("m_aLock")
+    private final Iterator <? extends ConnectorTransferItem> m_aItems;
+    @GuardedBy ("m_aLock")
+    private final ICommonsList <ConnectorTransferItem> m_aFailed = new CommonsArrayList <> ();
+    private final SftpProgressMonitor m_aProgressMonitor;
+    @GuardedBy ("m_aLock")
+    private boolean m_bCancelled = false;
+
+    BatchState (@NonNull final Iterator <? extends ConnectorTransferItem> aItems,
+                @Nullable final SftpProgressMonitor aProgressMonitor)
+    {
+      m_aItems = aItems;
+      m_aProgressMonitor = aProgressMonitor;
+    }
+
+    @Nullable
+    ConnectorTransferItem next ()
+    {
+      return m_aLock.lockedGet ( () -> !m_bCancelled && m_aItems.hasNext () ? m_aItems.next () : null);
+    }
+
+    void onSuccess (final long nBytes)
+    {
+      if (m_aProgressMonitor != null)
+        m_aLock.locked ( () -> {
+          if (!m_aProgressMonitor.count (nBytes))
+            m_bCancelled = true;
+        });
+    }
+
+    void onFailure (@NonNull final ConnectorTransferItem aItem)
+    {
+      m_aLock.locked ( () -> m_aFailed.add (aItem));
+    }
+
+    @NonNull
+    @ReturnsMutableCopy
+    ICommonsList <ConnectorTransferItem> finish ()
+    {
+      return m_aLock.lockedGet ( () -> {
+        // All items that were never started are failed as well
+        while (m_aItems.hasNext ())
+          m_aFailed.add (m_aItems.next ());
+        return m_aFailed.getClone ();
+      });
+    }
+  }
+
+  private boolean _connect (@NonNull final IConnectorFileBased <?, ?> aConnector)
+  {
+    aConnector.openConnection (m_aCredentials);
+    if (!aConnector.isConnectionOpen ())
+    {
+      LOGGER.warn ("Failed to open connection to " + aConnector.getDestination ());
+      return false;
+    }
+    if (m_sRemoteDirectory != null && aConnector.changeWorkingDirectory (m_sRemoteDirectory).isFailure ())
+    {
+      LOGGER.warn ("Failed to change to remote directory '" + m_sRemoteDirectory + "'");
+      aConnector.closeConnection ();
+      return false;
+    }
+    return true;
+  }
+
+  @NonNull
+  private static ESuccess _transfer (@NonNull final IConnectorFileBased <?, ?> aConnector,
+                                     final boolean bUpload,
+                                     @NonNull final ConnectorTransferItem aItem)
+  {
+    if (bUpload)
+    {
+      final InputStream aIS = FileHelper.getInputStream (aItem.getLocalFile ());
+      if (aIS == null)
+      {
+        LOGGER.error ("Failed to read local file " + aItem.getLocalFile ().getAbsolutePath ());
+        return ESuccess.FAILURE;
+      }
+      return aConnector.putData (aItem.getRemoteName (), aIS);
+    }
+
+    final OutputStream aOS = FileHelper.getOutputStream (aItem.getLocalFile ());
+    if (aOS == null)
+    {
+      LOGGER.error ("Failed to write local file " + aItem.getLocalFile ().getAbsolutePath ());
+      return ESuccess.FAILURE;
+    }
+    return aConnector.getData (aItem.getRemoteName (), aOS);
+  }
+
+  private static void _closeQuietly (@Nullable final IConnectorFileBased <?, ?> aConnector)
+  {
+    if (aConnector != null)
+      try
+      {
+        aConnector.closeConnection ();
+      }
+      catch (final RuntimeException ex)
+      {
+        LOGGER.warn ("Failed to close connection to " + aConnector.getDestination (), ex);
+      }
+  }
+
+  private void _runConnection (final boolean bUpload, @NonNull final BatchState aState)
+  {
+    IConnectorFileBased <?, ?> aConnector = null;
+    boolean bConnected = false;
+    try
+    {
+      ConnectorTransferItem aItem;
+      while ((aItem = aState.next ()) != null)
+      {
+        boolean bSuccess = false;
+        for (int nAttempt = 1; nAttempt <= m_nMaxAttempts && !bSuccess; ++nAttempt)
+        {
+          if (nAttempt > 1)
+          {
+            LOGGER.info ("Retrying transfer of '" + aItem.getRemoteName () + "' (attempt " + nAttempt + ")");
+            try
+            {
+              Thread.sleep (m_aRetryDelay.toMillis ());
+            }
+            catch (final InterruptedException ex)
+            {
+              Thread.currentThread ().interrupt ();
+              break;
+            }
+          }
+          try
+          {
+            if (nAttempt > 1 || !bConnected)
+            {
+              // The previous connection may be broken - use a fresh one
+              _closeQuietly (aConnector);
+              aConnector = m_aConnectorFactory.get ();
+              bConnected = _connect (aConnector);
+              if (!bConnected)
+                continue;
+            }
+            bSuccess = _transfer (aConnector, bUpload, aItem).isSuccess ();
+          }
+          catch (final RuntimeException ex)
+          {
+            // Don't let the worker die - count it as a failed attempt on a broken connection
+            LOGGER.error ("Error transferring '" + aItem.getRemoteName () + "' (attempt " + nAttempt + ")", ex);
+            bConnected = false;
+          }
+        }
+
+        if (bSuccess)
+          aState.onSuccess (aItem.getLocalFile ().length ());
+        else
+          aState.onFailure (aItem);
+
+        if (Thread.currentThread ().isInterrupted ())
+          break;
+      }
+    }
+    finally
+    {
+      _closeQuietly (aConnector);
+    }
+  }
+
+  @NonNull
+  @ReturnsMutableCopy
+  private ICommonsList <ConnectorTransferItem> _transferAll (final boolean bUpload,
+                                                            @NonNull final Iterable <? extends ConnectorTransferItem> aItems)
+  {
+    ValueEnforcer.notNull (aItems, "Items");
+
+    if (m_aProgressMonitor != null)
+    {
+      // 0 means unknown
+      long nTotalBytes = 0;
+      if (bUpload && aItems instanceof Collection <?>)
+        for (final ConnectorTransferItem aItem : aItems)
+          nTotalBytes += aItem.getLocalFile ().length ();
+      m_aProgressMonitor.init (bUpload ? SftpProgressMonitor.PUT : SftpProgressMonitor.GET,
+                               PROGRESS_SOURCE_BATCH,
+                               m_sRemoteDirectory,
+                               nTotalBytes);
+    }
+
+    final BatchState aState = new BatchState (aItems.iterator (), m_aProgressMonitor);
+    final ExecutorService aES = Executors.newFixedThreadPool (m_nMaxConnections);
+    try
+    {
+      for (int i = 0; i < m_nMaxConnections; ++i)
+        aES.execute ( () -> _runConnection (bUpload, aState));
+      aES.shutdown ();
+      while (!aES.awaitTermination (1, TimeUnit.MINUTES))
+      {
+        // Keep on waiting
+      }
+    }
+    catch (final InterruptedException ex)
+    {
+      LOGGER.warn ("Interrupted while waiting for the batch transfer to finish");
+      aES.shutdownNow ();
+      Thread.currentThread ().interrupt ();
+    }
+
+    final ICommonsList <ConnectorTransferItem> ret = aState.finish ();
+    if (m_aProgressMonitor != null)
+      m_aProgressMonitor.end ();
+    if (ret.isNotEmpty ())
+      LOGGER.warn ("Failed to " + (bUpload ? "upload " : "download ") + ret.size () + " file(s)");
+    return ret;
+  }
+
+  /**
+   * Upload all provided files.
+   *
+   * @param aItems
+   *        The files to upload. May not be <code>null</code>.
+   * @return All items that could not be uploaded, even after all retries. Never <code>null</code>
+   *         but empty if all files were uploaded.
+   */
+  @NonNull
+  @ReturnsMutableCopy
+  public ICommonsList <ConnectorTransferItem> uploadAll (@NonNull final Iterable <? extends ConnectorTransferItem> aItems)
+  {
+    return _transferAll (true, aItems);
+  }
+
+  /**
+   * Download all provided files.
+   *
+   * @param aItems
+   *        The files to download. May not be <code>null</code>.
+   * @return All items that could not be downloaded, even after all retries. Never
+   *         <code>null</code> but empty if all files were downloaded.
+   */
+  @NonNull
+  @ReturnsMutableCopy
+  public ICommonsList <ConnectorTransferItem> downloadAll (@NonNull final Iterable <? extends ConnectorTransferItem> aItems)
+  {
+    return _transferAll (false, aItems);
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("MaxConnections", m_nMaxConnections)
+                                       .append ("MaxAttempts", m_nMaxAttempts)
+                                       .append ("RetryDelay", m_aRetryDelay)
+                                       .append ("RemoteDirectory", m_sRemoteDirectory)
+                                       .append ("ProgressMonitor", m_aProgressMonitor)
+                                       .getToString ();
+  }
+}
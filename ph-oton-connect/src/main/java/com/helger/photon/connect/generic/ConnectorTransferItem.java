@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.photon.connect.generic;
+
+import java.io.File;
+
+import org.jspecify.annotations.NonNull;
+
+import com.helger.annotation.Nonempty;
+import com.helger.annotation.concurrent.Immutable;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.hashcode.HashCodeGenerator;
+import com.helger.base.tostring.ToStringGenerator;
+
+/**
+ * A single file of a {@link ConnectorBatchTransfer}, mapping a local file to a remote name.
+ *
+ * @author Philip Helger
+ * @since 10.3.1
+ */
+@Immutable
+public final class ConnectorTransferItem
+{
+  private final File m_aLocalFile;
+  private final String m_sRemoteName;
+
+  /**
+   * Constructor
+   *
+   * @param aLocalFile
+   *        The local file to read from (upload) or to write to (download). May not be
+   *        <code>null</code>.
+   * @param sRemoteName
+   *        The remote file name, relative to the remote working directory. May neither be
+   *        <code>null</code> nor empty.
+   */
+  public ConnectorTransferItem (@NonNull final File aLocalFile, @NonNull @Nonempty final String sRemoteName)
+  {
+    ValueEnforcer.notNull (aLocalFile, "LocalFile");
+    ValueEnforcer.notEmpty (sRemoteName, "RemoteName");
+    m_aLocalFile = aLocalFile;
+    m_sRemoteName = sRemoteName;
+  }
+
+  /**
+   * @return The local file. Never <code>null</code>.
+   */
+  @NonNull
+  public File getLocalFile ()
+  {
+    return m_aLocalFile;
+  }
+
+  /**
+   * @return The remote file name. Neither <code>null</code> nor empty.
+   */
+  @NonNull
+  @Nonempty
+  public String getRemoteName ()
+  {
+    return m_sRemoteName;
+  }
+
+  @Override
+  public boolean equals (final Object o)
+  {
+    if (o == this)
+      return true;
+    if (o == null || !getClass ().equals (o.getClass ()))
+      return false;
+    final ConnectorTransferItem rhs = (ConnectorTransferItem) o;
+    return m_aLocalFile.equals (rhs.m_aLocalFile) && m_sRemoteName.equals (rhs.m_sRemoteName);
+  }
+
+  @Override
+  public int hashCode ()
+  {
+    return new HashCodeGenerator (this).append (m_aLocalFile).append (m_sRemoteName).getHashCode ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("LocalFile", m_aLocalFile)
+                                       .append ("RemoteName", m_sRemoteName)
+                                       .getToString ();
+  }
+}
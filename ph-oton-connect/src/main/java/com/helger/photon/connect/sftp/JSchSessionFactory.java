@@ -83,6 +83,9 @@ public final class JSchSessionFactory
     aConfig.put ("StrictHostKeyChecking", "no");
     aSession.setConfig (aConfig);
 
+    // Pooled sessions may stay open and must not prevent the JVM from exiting
+    aSession.setDaemonThread (true);
+
     return aSession;
   }
 
@@ -16,7 +16,10 @@
  */
 package com.helger.photon.connect.sftp;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.jspecify.annotations.NonNull;
 import org.slf4j.Logger;
@@ -39,15 +42,118 @@ import com.jcraft.jsch.JSchException;
 public final class SftpMaxParallelRunner
 {
   private static final Logger LOGGER = LoggerFactory.getLogger (SftpMaxParallelRunner.class);
-  private static final ICommonsMap <String, Semaphore> MAX_CONNECTIONS = new CommonsConcurrentHashMap <> ();
+  /**
+   * The session pool and the connection limit of a single host, together with the settings they
+   * were created from.
+   *
+   * @author Philip Helger
+   */
+  private static final class HostEntry
+  {
+    private final List <Object> m_aSettingsKey;
+    private final Semaphore m_aSemaphore;
+    private final SftpSessionPool m_aPool;
+
+    HostEntry (@NonNull final List <Object> aSettingsKey, @NonNull final ISftpSettingsHost aSFTPSettings)
+    {
+      m_aSettingsKey = aSettingsKey;
+      m_aSemaphore = new Semaphore (aSFTPSettings.getMaximumParallelConnections ());
+      m_aPool = new SftpSessionPool (new JschSessionProvider (aSFTPSettings),
+                                     aSFTPSettings.getConnectionTimeout (),
+                                     aSFTPSettings.getMaximumParallelConnections ());
+    }
+  }
+
+  // Key: display name of the settings
+  private static final ICommonsMap <String, HostEntry> HOSTS = new CommonsConcurrentHashMap <> ();
 
   private SftpMaxParallelRunner ()
   {}
 
+  /**
+   * @return All values of the settings that are relevant for creating sessions, so that a change of
+   *         any of them (e.g. a rotated password or key) can be detected.
+   */
+  @NonNull
+  private static List <Object> _getSettingsKey (@NonNull final ISftpSettingsHost aSFTPSettings)
+  {
+    return Arrays.asList (aSFTPSettings.getServerHost (),
+                          Integer.valueOf (aSFTPSettings.getServerPort ()),
+                          aSFTPSettings.getConnectionTimeout (),
+                          aSFTPSettings.getServerUserName (),
+                          aSFTPSettings.getServerPassword (),
+                          aSFTPSettings.getKeyPairPrivateKeyFile (),
+                          aSFTPSettings.getKeyPairPublicKeyFile (),
+                          aSFTPSettings.getKeyPairPassphrase (),
+                          aSFTPSettings.getKnownHostsPath (),
+                          Integer.valueOf (aSFTPSettings.getMaximumParallelConnections ()));
+  }
+
+  @NonNull
+  private static HostEntry _getHostEntry (@NonNull final ISftpSettingsHost aSFTPSettings)
+  {
+    final List <Object> aSettingsKey = _getSettingsKey (aSFTPSettings);
+    final AtomicReference <HostEntry> aReplaced = new AtomicReference <> ();
+    final HostEntry ret = HOSTS.compute (aSFTPSettings.getDisplayName (), (k, aOld) -> {
+      if (aOld != null && aOld.m_aSettingsKey.equals (aSettingsKey))
+        return aOld;
+      aReplaced.set (aOld);
+      return new HostEntry (aSettingsKey, aSFTPSettings);
+    });
+
+    final HostEntry aOld = aReplaced.get ();
+    if (aOld != null)
+    {
+      // Sessions currently in use are closed when they are returned
+      LOGGER.info (aSFTPSettings.getLogPrefix () + "Settings changed - replacing the session pool");
+      aOld.m_aPool.close ();
+    }
+    return ret;
+  }
+
+  /**
+   * Get or create the session pool for the provided host. The pool is identified by the display
+   * name of the settings - the same key that is used for the maximum parallel connections. If any of
+   * the connection relevant settings (credentials, keys, timeout, maximum connections etc.) differ
+   * from the ones the existing pool was created with, the existing pool is closed and replaced.
+   *
+   * @param aSFTPSettings
+   *        Connections settings to the server. May not be <code>null</code>.
+   * @return The session pool and never <code>null</code>. Changes to the pool settings affect all
+   *         subsequent actions to this host.
+   * @since 10.3.1
+   */
+  @NonNull
+  public static SftpSessionPool getSessionPool (@NonNull final ISftpSettingsHost aSFTPSettings)
+  {
+    ValueEnforcer.notNull (aSFTPSettings, "SFTPSettings");
+
+    return _getHostEntry (aSFTPSettings).m_aPool;
+  }
+
+  /**
+   * Close all session pools and the contained sessions. This should be called upon application
+   * shutdown. Subsequent actions create new pools.
+   *
+   * @since 10.3.1
+   */
+  public static void closeAllSessionPools ()
+  {
+    for (final String sKey : HOSTS.copyOfKeySet ())
+    {
+      final HostEntry aEntry = HOSTS.remove (sKey);
+      if (aEntry != null)
+        aEntry.m_aPool.close ();
+    }
+  }
+
   /**
    * Upload a file to the server. Note: must be synchronized with a semaphore, because on one server
    * only a limited number of connections can be open at the same time. Otherwise we may get
-   * connection exception!
+   * connection exception!<br>
+   * Since 10.3.1 the SFTP channels are taken from the pool returned by
+   * {@link #getSessionPool(ISftpSettingsHost)}, so that the SSH handshake is not performed for each
+   * action.
    *
    * @param aSFTPSettings
    *        Connections settings to the server.
@@ -65,11 +171,9 @@ public final class SftpMaxParallelRunner
     ValueEnforcer.notNull (aRunnable, "Runnable");
 
     // Find the Semaphore per server
-    final String sSemaKey = aSFTPSettings.getDisplayName ();
-
     // The maximum number of parallel connections is defined by the SFTP Settings
-    final Semaphore aSemaphore = MAX_CONNECTIONS.computeIfAbsent (sSemaKey,
-                                                                  k -> new Semaphore (aSFTPSettings.getMaximumParallelConnections ()));
+    final HostEntry aEntry = _getHostEntry (aSFTPSettings);
+    final Semaphore aSemaphore = aEntry.m_aSemaphore;
 
     try
     {
@@ -83,8 +187,7 @@ public final class SftpMaxParallelRunner
 
     try
     {
-      final JschSessionProvider aSessionProvider = new JschSessionProvider (aSFTPSettings);
-      return ChannelSftpRunner.execute (aSessionProvider, aSFTPSettings.getConnectionTimeout (), aRunnable);
+      return aEntry.m_aPool.execute (aRunnable);
     }
     finally
     {
@@ -0,0 +1,549 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.photon.connect.sftp;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.GuardedBy;
+import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.base.concurrent.SimpleLock;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.state.ESuccess;
+import com.helger.base.tostring.ToStringGenerator;
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.ICommonsList;
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+import com.jcraft.jsch.SftpException;
+
+/**
+ * A pool of connected SFTP channels to a single host. Each pooled entry consists of a JSch
+ * {@link Session} and an open SFTP channel on it, so that the SSH handshake and the key exchange
+ * are only performed once per entry and not once per action.
+ * <ul>
+ * <li>Idle entries are evicted after {@link #getMaxIdleTime()}.</li>
+ * <li>Entries are closed after {@link #getMaxLifetime()}, independent of their usage.</li>
+ * <li>Entries that were idle for at least {@link #getValidationInterval()} are checked with a
+ * server round trip before they are reused.</li>
+ * <li>After each action the working directory of the channel is reset to the home directory.</li>
+ * </ul>
+ * Eviction happens whenever an entry is borrowed or returned. Applications that only rarely use the
+ * pool may additionally call {@link #evictIdle()} regularly. The maximum number of concurrent
+ * actions is not limited by the pool itself - see {@link SftpMaxParallelRunner} for that.
+ *
+ * @author Philip Helger
+ * @since 10.3.1
+ */
+@ThreadSafe
+public class SftpSessionPool implements AutoCloseable
+{
+  public static final Duration DEFAULT_MAX_IDLE_TIME = Duration.ofMinutes (1);
+  public static final Duration DEFAULT_MAX_LIFETIME = Duration.ofMinutes (30);
+  public static final Duration DEFAULT_VALIDATION_INTERVAL = Duration.ofSeconds (30);
+
+  private static final Logger LOGGER = LoggerFactory.getLogger (SftpSessionPool.class);
+
+  /**
+   * A single pooled session with its SFTP channel.
+   *
+   * @author Philip Helger
+   */
+  private static final class Entry
+  {
+    private final Session m_aSession;
+    private final ChannelSftp m_aChannel;
+    private final String m_sHomeDirectory;
+    private final long m_nCreationNanos;
+    private long m_nLastUsedNanos;
+
+    Entry (@NonNull final Session aSession,
+           @NonNull final ChannelSftp aChannel,
+           @NonNull final String sHomeDirectory,
+           final long nNowNanos)
+    {
+      m_aSession = aSession;
+      m_aChannel = aChannel;
+      m_sHomeDirectory = sHomeDirectory;
+      m_nCreationNanos = nNowNanos;
+      m_nLastUsedNanos = nNowNanos;
+    }
+
+    boolean isConnected ()
+    {
+      return m_aSession.isConnected () && m_aChannel.isConnected () && !m_aChannel.isClosed ();
+    }
+  }
+
+  private final IJSchSessionProvider m_aSessionProvider;
+  private final Duration m_aChannelConnectTimeout;
+  private final int m_nMaxIdleEntries;
+
+  private final SimpleLock m_aLock = new SimpleLock ();
+  @GuardedBy ("m_aLock")
+  private final Deque <Entry> m_aIdle = new ArrayDeque <> ();
+  @GuardedBy ("m_aLock")
+  private boolean m_bClosed = false;
+
+  private volatile Duration m_aMaxIdleTime = DEFAULT_MAX_IDLE_TIME;
+  private volatile Duration m_aMaxLifetime = DEFAULT_MAX_LIFETIME;
+  private volatile Duration m_aValidationInterval = DEFAULT_VALIDATION_INTERVAL;
+
+  // Metrics
+  private final AtomicInteger m_aActive = new AtomicInteger ();
+  private final LongAdder m_aCreated = new LongAdder ();
+  private final LongAdder m_aReused = new LongAdder ();
+  private final LongAdder m_aDestroyed = new LongAdder ();
+  private final LongAdder m_aValidationFailures = new LongAdder ();
+
+  /**
+   * Constructor
+   *
+   * @param aSessionProvider
+   *        The provider for new connected sessions. May not be <code>null</code>.
+   * @param aChannelConnectTimeout
+   *        The channel connection timeout. A <code>null</code> or negative duration means "no
+   *        timeout"; {@link Duration#ZERO} means infinite.
+   * @param nMaxIdleEntries
+   *        The maximum number of idle entries to keep. Usually this is the maximum number of
+   *        parallel connections to the host. Must be &gt; 0.
+   */
+  public SftpSessionPool (@NonNull final IJSchSessionProvider aSessionProvider,
+                          @Nullable final Duration aChannelConnectTimeout,
+                          @Nonnegative final int nMaxIdleEntries)
+  {
+    ValueEnforcer.notNull (aSessionProvider, "SessionProvider");
+    ValueEnforcer.isGT0 (nMaxIdleEntries, "MaxIdleEntries");
+    m_aSessionProvider = aSessionProvider;
+    m_aChannelConnectTimeout = aChannelConnectTimeout;
+    m_nMaxIdleEntries = nMaxIdleEntries;
+  }
+
+  /**
+   * @return The maximum number of idle entries that are kept. Always &gt; 0.
+   */
+  @Nonnegative
+  public final int getMaxIdleEntries ()
+  {
+    return m_nMaxIdleEntries;
+  }
+
+  /**
+   * @return The duration after which an unused entry is closed. Never <code>null</code>.
+   */
+  @NonNull
+  public final Duration getMaxIdleTime ()
+  {
+    return m_aMaxIdleTime;
+  }
+
+  /**
+   * @param aMaxIdleTime
+   *        The duration after which an unused entry is closed. May not be <code>null</code> and
+   *        must not be negative.
+   * @return this for chaining
+   */
+  @NonNull
+  public final SftpSessionPool setMaxIdleTime (@NonNull final Duration aMaxIdleTime)
+  {
+    ValueEnforcer.notNull (aMaxIdleTime, "MaxIdleTime");
+    ValueEnforcer.isFalse (aMaxIdleTime.isNegative (), "MaxIdleTime may not be negative");
+    m_aMaxIdleTime = aMaxIdleTime;
+    return this;
+  }
+
+  /**
+   * @return The duration after which an entry is closed, even if it is used regularly. Never
+   *         <code>null</code>.
+   */
+  @NonNull
+  public final Duration getMaxLifetime ()
+  {
+    return m_aMaxLifetime;
+  }
+
+  /**
+   * @param aMaxLifetime
+   *        The duration after which an entry is closed, even if it is used regularly. May not be
+   *        <code>null</code> and must not be negative.
+   * @return this for chaining
+   */
+  @NonNull
+  public final SftpSessionPool setMaxLifetime (@NonNull final Duration aMaxLifetime)
+  {
+    ValueEnforcer.notNull (aMaxLifetime, "MaxLifetime");
+    ValueEnforcer.isFalse (aMaxLifetime.isNegative (), "MaxLifetime may not be negative");
+    m_aMaxLifetime = aMaxLifetime;
+    return this;
+  }
+
+  /**
+   * @return The minimum idle duration after which an entry is checked with a server round trip
+   *         before it is reused. Never <code>null</code>.
+   */
+  @NonNull
+  public final Duration getValidationInterval ()
+  {
+    return m_aValidationInterval;
+  }
+
+  /**
+   * @param aValidationInterval
+   *        The minimum idle duration after which an entry is checked with a server round trip
+   *        before it is reused. Use {@link Duration#ZERO} to check every time. May not be
+   *        <code>null</code> and must not be negative.
+   * @return this for chaining
+   */
+  @NonNull
+  public final SftpSessionPool setValidationInterval (@NonNull final Duration aValidationInterval)
+  {
+    ValueEnforcer.notNull (aValidationInterval, "ValidationInterval");
+    ValueEnforcer.isFalse (aValidationInterval.isNegative (), "ValidationInterval may not be negative");
+    m_aValidationInterval = aValidationInterval;
+    return this;
+  }
+
+  private boolean _isExpired (@NonNull final Entry aEntry, final long nNowNanos)
+  {
+    return nNowNanos - aEntry.m_nCreationNanos > m_aMaxLifetime.toNanos () ||
+           nNowNanos - aEntry.m_nLastUsedNanos > m_aMaxIdleTime.toNanos ();
+  }
+
+  private void _destroy (@NonNull final Entry aEntry)
+  {
+    try
+    {
+      // end SFTP session and close channel
+      aEntry.m_aChannel.quit ();
+    }
+    finally
+    {
+      // destroy session
+      JSchSessionFactory.destroySession (aEntry.m_aSession);
+      m_aDestroyed.increment ();
+    }
+  }
+
+  private void _destroyAll (@NonNull final Iterable <Entry> aEntries)
+  {
+    for (final Entry aEntry : aEntries)
+      _destroy (aEntry);
+  }
+
+  @GuardedBy ("m_aLock")
+  private void _removeExpiredIdle (final long nNowNanos, @NonNull final ICommonsList <Entry> aTarget)
+  {
+    final Iterator <Entry> it = m_aIdle.iterator ();
+    while (it.hasNext ())
+    {
+      final Entry aEntry = it.next ();
+      if (_isExpired (aEntry, nNowNanos) || !aEntry.isConnected ())
+      {
+        it.remove ();
+        aTarget.add (aEntry);
+      }
+    }
+  }
+
+  @NonNull
+  private Entry _createEntry () throws JSchException
+  {
+    final Session aSession = m_aSessionProvider.createSession ();
+    if (aSession == null)
+      throw new IllegalStateException ("Failed to create JSch session from provider");
+
+    ChannelSftp aChannel = null;
+    try
+    {
+      // Open the SFTP channel
+      aChannel = (ChannelSftp) aSession.openChannel ("sftp");
+
+      // Set connection timeout
+      final int nChannelConnectTimeoutMillis = m_aChannelConnectTimeout == null ||
+                                               m_aChannelConnectTimeout.isNegative () ? 0
+                                                                                      : Math.toIntExact (m_aChannelConnectTimeout.toMillis ());
+      aChannel.connect (nChannelConnectTimeoutMillis);
+
+      // Remember where to go back to after each action
+      final Entry ret = new Entry (aSession, aChannel, aChannel.pwd (), System.nanoTime ());
+      m_aCreated.increment ();
+      return ret;
+    }
+    catch (final SftpException ex)
+    {
+      if (aChannel != null)
+        aChannel.quit ();
+      JSchSessionFactory.destroySession (aSession);
+      throw new JSchException ("Failed to determine the SFTP home directory", ex);
+    }
+    catch (final JSchException | RuntimeException ex)
+    {
+      if (aChannel != null)
+        aChannel.quit ();
+      JSchSessionFactory.destroySession (aSession);
+      throw ex;
+    }
+  }
+
+  @NonNull
+  private Entry _borrow () throws JSchException
+  {
+    while (true)
+    {
+      final ICommonsList <Entry> aToBeDestroyed = new CommonsArrayList <> ();
+      final long nNowNanos = System.nanoTime ();
+      final Entry aEntry = m_aLock.lockedGet ( () -> {
+        if (m_bClosed)
+          throw new IllegalStateException ("This SFTP session pool is already closed");
+        _removeExpiredIdle (nNowNanos, aToBeDestroyed);
+        // Use the most recently used one, so that the others can expire
+        return m_aIdle.pollLast ();
+      });
+      _destroyAll (aToBeDestroyed);
+
+      if (aEntry == null)
+      {
+        // Pay the handshake
+        final Entry ret = _createEntry ();
+        m_aActive.incrementAndGet ();
+        return ret;
+      }
+
+      boolean bValid = true;
+      if (nNowNanos - aEntry.m_nLastUsedNanos >= m_aValidationInterval.toNanos ())
+      {
+        try
+        {
+          // Requires a server round trip
+          aEntry.m_aChannel.realpath (".");
+        }
+        catch (final SftpException | RuntimeException ex)
+        {
+          LOGGER.warn ("Pooled SFTP session failed validation - creating a new one: " + ex.getMessage ());
+          m_aValidationFailures.increment ();
+          bValid = false;
+        }
+      }
+
+      if (bValid)
+      {
+        m_aReused.increment ();
+        m_aActive.incrementAndGet ();
+        return aEntry;
+      }
+      _destroy (aEntry);
+    }
+  }
+
+  private void _return (@NonNull final Entry aEntry, final boolean bReusable)
+  {
+    m_aActive.decrementAndGet ();
+
+    final long nNowNanos = System.nanoTime ();
+    aEntry.m_nLastUsedNanos = nNowNanos;
+    boolean bKeep = bReusable && aEntry.isConnected () && !_isExpired (aEntry, nNowNanos);
+    if (bKeep)
+    {
+      try
+      {
+        // pwd is cached in the channel and does not require a round trip
+        if (!aEntry.m_sHomeDirectory.equals (aEntry.m_aChannel.pwd ()))
+          aEntry.m_aChannel.cd (aEntry.m_sHomeDirectory);
+      }
+      catch (final SftpException ex)
+      {
+        bKeep = false;
+      }
+    }
+
+    final ICommonsList <Entry> aToBeDestroyed = new CommonsArrayList <> ();
+    if (bKeep)
+    {
+      m_aLock.locked ( () -> {
+        if (!m_bClosed && m_aIdle.size () < m_nMaxIdleEntries)
+          m_aIdle.addLast (aEntry);
+        else
+          aToBeDestroyed.add (aEntry);
+        _removeExpiredIdle (nNowNanos, aToBeDestroyed);
+      });
+    }
+    else
+      aToBeDestroyed.add (aEntry);
+    _destroyAll (aToBeDestroyed);
+  }
+
+  /**
+   * Execute the provided action on a pooled SFTP channel. If no idle channel is available, a new
+   * session is created. The channel is returned to the pool afterwards, unless the action failed
+   * with an unexpected exception.
+   *
+   * @param aRunnable
+   *        The callback that performs the actions via SFTP. May not be <code>null</code>.
+   * @return {@link ESuccess#SUCCESS} if operation succeeded, {@link ESuccess#FAILURE} otherwise.
+   * @throws JSchException
+   *         If a new session could not be created.
+   * @throws IllegalStateException
+   *         If this pool is already closed.
+   */
+  @NonNull
+  public ESuccess execute (@NonNull final IChannelSftpRunnable aRunnable) throws JSchException
+  {
+    ValueEnforcer.notNull (aRunnable, "Runnable");
+
+    final Entry aEntry = _borrow ();
+    boolean bReusable = false;
+    try
+    {
+      aRunnable.execute (aEntry.m_aChannel);
+      bReusable = true;
+      return ESuccess.SUCCESS;
+    }
+    catch (final SftpException ex)
+    {
+      LOGGER.error ("Error peforming SFTP action: " + aRunnable.getDisplayName (), ex);
+      // The channel itself is usually still fine (e.g. for "no such file")
+      bReusable = true;
+      return ESuccess.FAILURE;
+    }
+    finally
+    {
+      _return (aEntry, bReusable);
+    }
+  }
+
+  /**
+   * Close all idle entries that are expired or disconnected.
+   *
+   * @return The number of closed entries. Always &ge; 0.
+   */
+  @Nonnegative
+  public int evictIdle ()
+  {
+    final ICommonsList <Entry> aToBeDestroyed = new CommonsArrayList <> ();
+    final long nNowNanos = System.nanoTime ();
+    m_aLock.locked ( () -> _removeExpiredIdle (nNowNanos, aToBeDestroyed));
+    _destroyAll (aToBeDestroyed);
+    return aToBeDestroyed.size ();
+  }
+
+  /**
+   * Close all idle entries and reject all further actions. Entries that are currently in use are
+   * closed when they are returned.
+   */
+  public void close ()
+  {
+    final ICommonsList <Entry> aToBeDestroyed = m_aLock.lockedGet ( () -> {
+      m_bClosed = true;
+      final ICommonsList <Entry> ret = new CommonsArrayList <> (m_aIdle);
+      m_aIdle.clear ();
+      return ret;
+    });
+    _destroyAll (aToBeDestroyed);
+  }
+
+  /**
+   * @return <code>true</code> if {@link #close()} was called.
+   */
+  public boolean isClosed ()
+  {
+    return m_aLock.lockedBoolean ( () -> m_bClosed);
+  }
+
+  /**
+   * @return The number of idle entries. Always &ge; 0.
+   */
+  @Nonnegative
+  public int getIdleCount ()
+  {
+    return m_aLock.lockedInt (m_aIdle::size);
+  }
+
+  /**
+   * @return The number of entries currently in use. Always &ge; 0.
+   */
+  @Nonnegative
+  public int getActiveCount ()
+  {
+    return Math.max (m_aActive.get (), 0);
+  }
+
+  /**
+   * @return The number of sessions created by this pool, which is the number of performed SSH
+   *         handshakes. Always &ge; 0.
+   */
+  @Nonnegative
+  public long getCreatedCount ()
+  {
+    return m_aCreated.sum ();
+  }
+
+  /**
+   * @return The number of times an idle entry was reused. Always &ge; 0.
+   */
+  @Nonnegative
+  public long getReusedCount ()
+  {
+    return m_aReused.sum ();
+  }
+
+  /**
+   * @return The number of sessions closed by this pool. Always &ge; 0.
+   */
+  @Nonnegative
+  public long getDestroyedCount ()
+  {
+    return m_aDestroyed.sum ();
+  }
+
+  /**
+   * @return The number of idle entries that failed the validation. Always &ge; 0.
+   */
+  @Nonnegative
+  public long getValidationFailureCount ()
+  {
+    return m_aValidationFailures.sum ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("SessionProvider", m_aSessionProvider)
+                                       .append ("ChannelConnectTimeout", m_aChannelConnectTimeout)
+                                       .append ("MaxIdleEntries", m_nMaxIdleEntries)
+                                       .append ("MaxIdleTime", m_aMaxIdleTime)
+                                       .append ("MaxLifetime", m_aMaxLifetime)
+                                       .append ("ValidationInterval", m_aValidationInterval)
+                                       .append ("Idle", getIdleCount ())
+                                       .append ("Active", getActiveCount ())
+                                       .append ("Created", getCreatedCount ())
+                                       .append ("Reused", getReusedCount ())
+                                       .append ("Destroyed", getDestroyedCount ())
+                                       .append ("ValidationFailures", getValidationFailureCount ())
+                                       .getToString ();
+  }
+}
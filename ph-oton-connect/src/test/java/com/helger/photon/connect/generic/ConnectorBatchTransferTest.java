@@ -0,0 +1,206 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.photon.connect.generic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jspecify.annotations.NonNull;
+import org.junit.Test;
+
+import com.helger.base.io.stream.StreamHelper;
+import com.helger.base.state.ESuccess;
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.ICommonsList;
+import com.helger.io.file.FileOperations;
+import com.helger.io.file.SimpleFileIO;
+import com.helger.photon.connect.generic.file.FileConnectionDestination;
+import com.helger.photon.connect.generic.file.FileConnector;
+import com.helger.photon.connect.sftp.progress.CountingSftpProgressMonitor;
+import com.helger.security.authentication.credentials.usernamepw.UserNamePasswordCredentials;
+
+/**
+ * Test class for class {@link ConnectorBatchTransfer}.
+ *
+ * @author Philip Helger
+ */
+public final class ConnectorBatchTransferTest
+{
+  private static final File BASE_DIR = new File ("target/batch-transfer");
+  private static final int FILE_COUNT = 100;
+
+  /**
+   * A file connector where the first upload of each file fails.
+   *
+   * @author Philip Helger
+   */
+  private static final class FlakyFileConnector extends FileConnector
+  {
+    private final Set <String> m_aFailedOnce;
+
+    FlakyFileConnector (@NonNull final Set <String> aFailedOnce)
+    {
+      super (new FileConnectionDestination ());
+      m_aFailedOnce = aFailedOnce;
+    }
+
+    @Override
+    @NonNull
+    public ESuccess putData (@NonNull final String sFilename, @NonNull final InputStream aIS)
+    {
+      if (m_aFailedOnce.add (sFilename))
+      {
+        StreamHelper.close (aIS);
+        return ESuccess.FAILURE;
+      }
+      return super.putData (sFilename, aIS);
+    }
+  }
+
+  /**
+   * A file connector that throws an exception for all files with a name in the provided set.
+   *
+   * @author Philip Helger
+   */
+  private static final class ThrowingFileConnector extends FileConnector
+  {
+    private final Set <String> m_aThrowFor;
+
+    ThrowingFileConnector (@NonNull final Set <String> aThrowFor)
+    {
+      super (new FileConnectionDestination ());
+      m_aThrowFor = aThrowFor;
+    }
+
+    @Override
+    @NonNull
+    public ESuccess putData (@NonNull final String sFilename, @NonNull final InputStream aIS)
+    {
+      if (m_aThrowFor.contains (sFilename))
+      {
+        StreamHelper.close (aIS);
+        throw new IllegalStateException ("Broken connection for " + sFilename);
+      }
+      return super.putData (sFilename, aIS);
+    }
+  }
+
+  @NonNull
+  private static ICommonsList <ConnectorTransferItem> _createItems (@NonNull final File aLocalDir,
+                                                                    final boolean bWriteFiles)
+  {
+    FileOperations.createDirRecursiveIfNotExisting (aLocalDir);
+    final ICommonsList <ConnectorTransferItem> ret = new CommonsArrayList <> ();
+    for (int i = 0; i < FILE_COUNT; ++i)
+    {
+      final String sName = "file" + i + ".txt";
+      final File aFile = new File (aLocalDir, sName);
+      if (bWriteFiles)
+        SimpleFileIO.writeFile (aFile, "Content " + i, StandardCharsets.UTF_8);
+      ret.add (new ConnectorTransferItem (aFile, sName));
+    }
+    return ret;
+  }
+
+  @Test
+  public void testUploadAndDownload ()
+  {
+    final File aRemoteDir = new File (BASE_DIR, "remote1");
+    FileOperations.createDirRecursiveIfNotExisting (aRemoteDir);
+
+    final ICommonsList <ConnectorTransferItem> aUploads = _createItems (new File (BASE_DIR, "src1"), true);
+    long nTotalBytes = 0;
+    for (final ConnectorTransferItem aItem : aUploads)
+      nTotalBytes += aItem.getLocalFile ().length ();
+
+    final CountingSftpProgressMonitor aMonitor = new CountingSftpProgressMonitor ();
+    final ConnectorBatchTransfer aBatch = new ConnectorBatchTransfer ( () -> new FileConnector (new FileConnectionDestination ()),
+                                                                       new UserNamePasswordCredentials ("any", "any"));
+    aBatch.setRemoteDirectory (aRemoteDir.getPath ()).setProgressMonitor (aMonitor);
+    assertTrue (aBatch.uploadAll (aUploads).isEmpty ());
+    assertEquals (nTotalBytes, aMonitor.getNumberOfBytes ());
+
+    // Download via a lazily consumed stream
+    final ICommonsList <ConnectorTransferItem> aDownloads = _createItems (new File (BASE_DIR, "dst1"), false);
+    assertTrue (aBatch.downloadAll (aDownloads.stream ()::iterator).isEmpty ());
+    assertEquals (nTotalBytes, aMonitor.getNumberOfBytes ());
+    for (int i = 0; i < FILE_COUNT; ++i)
+      assertEquals (SimpleFileIO.getFileAsString (aUploads.get (i).getLocalFile (), StandardCharsets.UTF_8),
+                    SimpleFileIO.getFileAsString (aDownloads.get (i).getLocalFile (), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testRetry ()
+  {
+    final File aRemoteDir = new File (BASE_DIR, "remote2");
+    FileOperations.createDirRecursiveIfNotExisting (aRemoteDir);
+    final ICommonsList <ConnectorTransferItem> aUploads = _createItems (new File (BASE_DIR, "src2"), true);
+
+    final Set <String> aFailedOnce = ConcurrentHashMap.newKeySet ();
+    final ConnectorBatchTransfer aBatch = new ConnectorBatchTransfer ( () -> new FlakyFileConnector (aFailedOnce),
+                                                                       new UserNamePasswordCredentials ("any", "any"));
+    aBatch.setRemoteDirectory (aRemoteDir.getPath ()).setRetryDelay (Duration.ZERO);
+
+    // Succeeds on the second attempt
+    assertTrue (aBatch.uploadAll (aUploads).isEmpty ());
+    assertEquals (FILE_COUNT, aFailedOnce.size ());
+    for (final ConnectorTransferItem aItem : aUploads)
+      assertTrue (new File (aRemoteDir, aItem.getRemoteName ()).isFile ());
+
+    // No retries at all
+    aFailedOnce.clear ();
+    aBatch.setMaxAttempts (1);
+    assertEquals (FILE_COUNT, aBatch.uploadAll (aUploads).size ());
+  }
+
+  @Test
+  public void testConnectorThrows ()
+  {
+    final File aRemoteDir = new File (BASE_DIR, "remote3");
+    FileOperations.createDirRecursiveIfNotExisting (aRemoteDir);
+    final ICommonsList <ConnectorTransferItem> aUploads = _createItems (new File (BASE_DIR, "src3"), true);
+
+    final Set <String> aThrowFor = Set.of ("file3.txt", "file42.txt", "file99.txt");
+    final CountingSftpProgressMonitor aMonitor = new CountingSftpProgressMonitor ();
+    final ConnectorBatchTransfer aBatch = new ConnectorBatchTransfer ( () -> new ThrowingFileConnector (aThrowFor),
+                                                                       new UserNamePasswordCredentials ("any", "any"));
+    aBatch.setRemoteDirectory (aRemoteDir.getPath ()).setRetryDelay (Duration.ZERO).setProgressMonitor (aMonitor);
+
+    // The failing items are reported, all others are still transferred
+    final ICommonsList <ConnectorTransferItem> aFailed = aBatch.uploadAll (aUploads);
+    assertEquals (aThrowFor, new HashSet <> (aFailed.getAllMapped (ConnectorTransferItem::getRemoteName)));
+    long nExpectedBytes = 0;
+    for (final ConnectorTransferItem aItem : aUploads)
+      if (aThrowFor.contains (aItem.getRemoteName ()))
+        assertFalse (new File (aRemoteDir, aItem.getRemoteName ()).isFile ());
+      else
+      {
+        assertTrue (new File (aRemoteDir, aItem.getRemoteName ()).isFile ());
+        nExpectedBytes += aItem.getLocalFile ().length ();
+      }
+    assertEquals (nExpectedBytes, aMonitor.getNumberOfBytes ());
+  }
+}
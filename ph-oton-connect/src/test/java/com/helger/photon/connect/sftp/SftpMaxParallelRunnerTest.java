@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.photon.connect.sftp;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+
+import org.jspecify.annotations.NonNull;
+import org.junit.Test;
+
+/**
+ * Test class for class {@link SftpMaxParallelRunner}.
+ *
+ * @author Philip Helger
+ */
+public final class SftpMaxParallelRunnerTest
+{
+  @NonNull
+  private static SftpSettingsHost _createSettings (@NonNull final String sPassword, final int nMaxConnections)
+  {
+    return new SftpSettingsHost ("localhost",
+                                 ISftpSettingsHost.DEFAULT_PORT,
+                                 Duration.ofSeconds (1),
+                                 "user",
+                                 sPassword,
+                                 null,
+                                 null,
+                                 null,
+                                 null,
+                                 nMaxConnections);
+  }
+
+  @Test
+  public void testSessionPoolFollowsSettings ()
+  {
+    try
+    {
+      final SftpSessionPool aPool1 = SftpMaxParallelRunner.getSessionPool (_createSettings ("pw1", 2));
+      // Equal settings in a different object
+      assertSame (aPool1, SftpMaxParallelRunner.getSessionPool (_createSettings ("pw1", 2)));
+      assertFalse (aPool1.isClosed ());
+
+      // Rotated password
+      final SftpSessionPool aPool2 = SftpMaxParallelRunner.getSessionPool (_createSettings ("pw2", 2));
+      assertNotSame (aPool1, aPool2);
+      assertTrue (aPool1.isClosed ());
+
+      // Changed pool size
+      final SftpSessionPool aPool3 = SftpMaxParallelRunner.getSessionPool (_createSettings ("pw2", 3));
+      assertNotSame (aPool2, aPool3);
+      assertTrue (aPool2.isClosed ());
+      assertSame (aPool3, SftpMaxParallelRunner.getSessionPool (_createSettings ("pw2", 3)));
+    }
+    finally
+    {
+      SftpMaxParallelRunner.closeAllSessionPools ();
+    }
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.photon.connect.sftp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.time.Duration;
+
+import org.jspecify.annotations.NonNull;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.SftpException;
+
+/**
+ * Test class for class {@link SftpSessionPool}.
+ *
+ * @author Philip Helger
+ */
+public final class SftpSessionPoolTest
+{
+  private static final IChannelSftpRunnable PWD = new IChannelSftpRunnable ()
+  {
+    @NonNull
+    public String getDisplayName ()
+    {
+      return "pwd";
+    }
+
+    public void execute (@NonNull final ChannelSftp aChannel) throws SftpException
+    {
+      aChannel.cd ("..");
+      aChannel.realpath (".");
+    }
+  };
+
+  @Test
+  public void testSessionCreationFails ()
+  {
+    try (final SftpSessionPool aPool = new SftpSessionPool ( () -> {
+      throw new JSchException ("No server");
+    }, Duration.ofSeconds (1), 2))
+    {
+      try
+      {
+        aPool.execute (PWD);
+        fail ();
+      }
+      catch (final JSchException ex)
+      {
+        // expected
+      }
+      assertEquals (0, aPool.getCreatedCount ());
+      assertEquals (0, aPool.getActiveCount ());
+      assertEquals (0, aPool.getIdleCount ());
+      assertEquals (0, aPool.evictIdle ());
+
+      aPool.close ();
+      assertTrue (aPool.isClosed ());
+      try
+      {
+        aPool.execute (PWD);
+        fail ();
+      }
+      catch (final IllegalStateException | JSchException ex)
+      {
+        // expected
+      }
+    }
+  }
+
+  @Test
+  @Ignore ("An SFTP server must be running on localhost")
+  public void testReuse () throws JSchException
+  {
+    final ISftpSettings aSettings = new SftpSettings (new SftpSettingsHost ("localhost",
+                                                                            ISftpSettingsHost.DEFAULT_PORT,
+                                                                            ISftpSettingsHost.DEFAULT_CONNECTION_TIMEOUT,
+                                                                            "user",
+                                                                            "password",
+                                                                            null,
+                                                                            null,
+                                                                            null,
+                                                                            null,
+                                                                            2),
+                                                      null,
+                                                      null);
+    final SftpSessionPool aPool = SftpMaxParallelRunner.getSessionPool (aSettings);
+    try
+    {
+      for (int i = 0; i < 20; ++i)
+        assertTrue (SftpMaxParallelRunner.execute (aSettings, PWD).isSuccess ());
+
+      // Only a single handshake
+      assertEquals (1, aPool.getCreatedCount ());
+      assertEquals (19, aPool.getReusedCount ());
+      assertEquals (1, aPool.getIdleCount ());
+
+      // Rotate all sessions
+      aPool.setMaxLifetime (Duration.ZERO);
+      assertTrue (aPool.execute (PWD).isSuccess ());
+      assertEquals (2, aPool.getCreatedCount ());
+      assertEquals (2, aPool.getDestroyedCount ());
+      assertEquals (0, aPool.getIdleCount ());
+    }
+    finally
+    {
+      SftpMaxParallelRunner.closeAllSessionPools ();
+    }
+  }
+}
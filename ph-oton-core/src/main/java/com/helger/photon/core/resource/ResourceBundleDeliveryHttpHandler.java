@@ -20,6 +20,7 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 
 import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -27,10 +28,14 @@ import com.helger.annotation.Nonnegative;
 import com.helger.annotation.OverridingMethodsMustInvokeSuper;
 import com.helger.base.CGlobal;
 import com.helger.base.state.EContinue;
+import com.helger.http.CHttpHeader;
 import com.helger.io.file.FilenameHelper;
 import com.helger.photon.app.PhotonAppManager;
+import com.helger.photon.app.resource.WebSiteResourceBundleContent;
 import com.helger.photon.app.resource.WebSiteResourceBundleSerialized;
 import com.helger.photon.core.servlet.AbstractObjectDeliveryHttpHandler;
+import com.helger.servlet.request.RequestHelper;
+import com.helger.servlet.response.ResponseHelperSettings;
 import com.helger.servlet.response.UnifiedResponse;
 import com.helger.web.scope.IRequestWebScopeWithoutResponse;
 
@@ -67,6 +72,49 @@ public class ResourceBundleDeliveryHttpHandler extends AbstractObjectDeliveryHtt
     return EContinue.CONTINUE;
   }
 
+  /**
+   * Check if the pre-compressed GZip content of a bundle should be delivered. This is only the case
+   * if the on-the-fly response compression is disabled and if the client accepts GZip.
+   *
+   * @param aRequestScope
+   *        The current request scope. May not be <code>null</code>.
+   * @return <code>true</code> to deliver the GZip compressed content.
+   */
+  protected boolean isDeliverGZip (@NonNull final IRequestWebScopeWithoutResponse aRequestScope)
+  {
+    return !ResponseHelperSettings.isResponseCompressionEnabled () &&
+           RequestHelper.getAcceptEncodings (aRequestScope.getRequest ()).supportsGZIP ();
+  }
+
+  /**
+   * Use the strong ETag of the representation of the requested bundle that is delivered. It is
+   * derived from the serialized bundle content and the compressed variant has a different ETag.
+   */
+  @Override
+  @Nullable
+  public String getSupportedETag (@NonNull final IRequestWebScopeWithoutResponse aRequestScope)
+  {
+    final String sFilename = aRequestScope.attrs ().getAsString (REQUEST_ATTR_OBJECT_DELIVERY_FILENAME);
+    if (sFilename != null)
+    {
+      final String sBundleID = _getBundleIDFromFilename (sFilename);
+      final WebSiteResourceBundleContent aContent = PhotonAppManager.getWebSiteResourceBundleMgr ()
+                                                                    .getResourceBundleContent (sBundleID);
+      if (aContent != null)
+        return isDeliverGZip (aRequestScope) ? aContent.getETagGZip () : aContent.getETag ();
+
+      final WebSiteResourceBundleSerialized aBundle = PhotonAppManager.getWebSiteResourceBundleMgr ()
+                                                                      .getResourceBundleOfID (sBundleID);
+      if (aBundle != null)
+      {
+        final String sETag = aBundle.getETag ();
+        if (sETag != null)
+          return sETag;
+      }
+    }
+    return super.getSupportedETag (aRequestScope);
+  }
+
   /**
    * @return The number of days to cache the result.
    */
@@ -88,7 +136,31 @@ public class ResourceBundleDeliveryHttpHandler extends AbstractObjectDeliveryHtt
     final int nCachingDays = getCachingDays ();
     aUnifiedResponse.enableCaching (CGlobal.SECONDS_PER_DAY * nCachingDays)
                     .setMimeType (aBundle.getMimeType ())
-                    .setContent (aBundle)
                     .setCharset (StandardCharsets.UTF_8);
+
+    // Use the pre-built in-memory content if possible
+    final WebSiteResourceBundleContent aContent = PhotonAppManager.getWebSiteResourceBundleMgr ()
+                                                                  .getResourceBundleContent (sBundleID);
+    if (aContent == null)
+    {
+      // Fall back to the serialized file
+      aUnifiedResponse.setContent (aBundle);
+    }
+    else
+    {
+      if (!ResponseHelperSettings.isResponseCompressionEnabled ())
+      {
+        // The representation depends on the Accept-Encoding header
+        aUnifiedResponse.addCustomResponseHeader (CHttpHeader.VARY, CHttpHeader.ACCEPT_ENCODING);
+      }
+      if (isDeliverGZip (aRequestScope))
+      {
+        // On-the-fly compression is disabled - deliver the pre-compressed content
+        aUnifiedResponse.addCustomResponseHeader (CHttpHeader.CONTENT_ENCODING, "gzip");
+        aUnifiedResponse.setContent (aContent.getContentGZip ());
+      }
+      else
+        aUnifiedResponse.setContent (aContent.getContent ());
+    }
   }
 }
@@ -360,9 +360,14 @@ public abstract class AbstractObjectDeliveryHttpHandler implements IXServletSimp
     return EContinue.CONTINUE;
   }
 
+  /**
+   * {@inheritDoc}<br>
+   * By default the per startup ETag {@link #ETAG_VALUE_OBJECT_DELIVERY_SERVLET} is used. Override
+   * this method if a more specific ETag is available.
+   */
   @Override
   @Nullable
-  public final String getSupportedETag (@NonNull final IRequestWebScopeWithoutResponse aRequestScope)
+  public String getSupportedETag (@NonNull final IRequestWebScopeWithoutResponse aRequestScope)
   {
     return ETAG_VALUE_OBJECT_DELIVERY_SERVLET;
   }
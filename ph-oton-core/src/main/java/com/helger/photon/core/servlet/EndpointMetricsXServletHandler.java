@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.photon.core.servlet;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import org.jspecify.annotations.NonNull;
+
+import com.helger.mime.CMimeType;
+import com.helger.mime.IMimeType;
+import com.helger.photon.app.metrics.EndpointMetricsManager;
+import com.helger.servlet.response.UnifiedResponse;
+import com.helger.web.scope.IRequestWebScopeWithoutResponse;
+import com.helger.xservlet.handler.simple.IXServletSimpleHandler;
+
+import jakarta.servlet.ServletException;
+
+/**
+ * A handler that responds with the latency, in-flight and error metrics of all Ajax functions and
+ * API paths in the Prometheus text format. The quantiles refer to a sliding time window, so
+ * requests have no side effects. As the metrics are sensitive, this handler should only be
+ * reachable from internal networks.
+ *
+ * @author Philip Helger
+ * @since 10.3.1
+ * @see EndpointMetricsManager#getAsText()
+ */
+public class EndpointMetricsXServletHandler implements IXServletSimpleHandler
+{
+  /** The response charset */
+  public static final Charset RESPONSE_CHARSET = StandardCharsets.UTF_8;
+
+  /** The response MIME type */
+  public static final IMimeType RESPONSE_MIMETYPE = CMimeType.TEXT_PLAIN;
+
+  public EndpointMetricsXServletHandler ()
+  {}
+
+  @Override
+  public void handleRequest (@NonNull final IRequestWebScopeWithoutResponse aRequestScope,
+                             @NonNull final UnifiedResponse aUnifiedResponse) throws ServletException
+  {
+    aUnifiedResponse.setContentAndCharset (EndpointMetricsManager.getAsText (), RESPONSE_CHARSET)
+                    .setMimeType (RESPONSE_MIMETYPE)
+                    .disableCaching ();
+  }
+}
@@ -74,6 +74,7 @@ import com.helger.photon.app.html.PhotonJS;
 import com.helger.photon.core.uistate.UIStateRegistry;
 import com.helger.photon.uicore.js.JSJQueryHelper;
 import com.helger.photon.uictrls.datatables.ajax.DataTablesServerData;
+import com.helger.photon.uictrls.datatables.ajax.DataTablesServerDataRowStore;
 import com.helger.photon.uictrls.datatables.column.DTCol;
 import com.helger.photon.uictrls.datatables.column.DataTablesColumnDef;
 import com.helger.photon.uictrls.datatables.column.EDTColType;
@@ -256,6 +257,7 @@ public class DataTables extends AbstractHCScriptInline <DataTables>
   // Custom properties
   private boolean m_bGenerateOnDocumentReady = DataTablesSettings.isDefaultGenerateOnDocumentReady ();
   private EDataTablesFilterType m_eServerFilterType = EDataTablesFilterType.DEFAULT;
+  private transient DataTablesServerDataRowStore m_aServerRowStore;
   private transient Consumer <JSPackage> m_aJSBeforeModifier;
   private transient BiConsumer <JSPackage, JSLet> m_aJSAfterModifier;
 
@@ -579,6 +581,33 @@ public class DataTables extends AbstractHCScriptInline <DataTables>
     return this;
   }
 
+  /**
+   * @return The shared row store to be used for server side processing. May be <code>null</code>.
+   * @since 10.3.1
+   */
+  @Nullable
+  public DataTablesServerDataRowStore getServerRowStore ()
+  {
+    return m_aServerRowStore;
+  }
+
+  /**
+   * Set a row store to be used for server side processing instead of copying the body rows of the
+   * table. This is helpful if the table content is identical for all users, as the same row store
+   * can be shared by all sessions.
+   *
+   * @param aServerRowStore
+   *        The row store to use. May be <code>null</code> to copy the body rows of the table.
+   * @return this for chaining
+   * @since 10.3.1
+   */
+  @NonNull
+  public DataTables setServerRowStore (@Nullable final DataTablesServerDataRowStore aServerRowStore)
+  {
+    m_aServerRowStore = aServerRowStore;
+    return this;
+  }
+
   //
   // DataTables - Callbacks
   //
@@ -1208,8 +1237,11 @@ public class DataTables extends AbstractHCScriptInline <DataTables>
     if (isServerSide ())
     {
       aJSParams.add ("serverSide", true);
-      // This copies the content of the table
+      // This copies the content of the table, unless a shared row store is used
+      final DataTablesServerDataRowStore aRowStore = m_aServerRowStore != null ? m_aServerRowStore
+                                                                                : new DataTablesServerDataRowStore (m_aTable);
       final DataTablesServerData aServerData = new DataTablesServerData (m_aTable,
+                                                                         aRowStore,
                                                                          m_aColumnDefs,
                                                                          m_aDisplayLocale,
                                                                          m_eServerFilterType);
@@ -16,16 +16,20 @@
  */
 package com.helger.photon.uictrls.datatables.ajax;
 
-import java.util.Arrays;
-import java.util.BitSet;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.Locale;
 
 import org.jspecify.annotations.NonNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.helger.base.array.ArrayHelper;
+import com.helger.annotation.Nonnegative;
+import com.helger.base.CGlobal;
 import com.helger.base.compare.ESortOrder;
+import com.helger.base.io.nonblocking.NonBlockingByteArrayOutputStream;
 import com.helger.base.string.StringParser;
 import com.helger.collection.commons.CommonsArrayList;
 import com.helger.collection.commons.ICommonsList;
@@ -34,12 +38,13 @@ import com.helger.html.hc.special.HCSpecialNodes;
 import com.helger.html.hc.special.IHCSpecialNodes;
 import com.helger.json.IJsonObject;
 import com.helger.json.JsonObject;
+import com.helger.json.serialize.IJsonWriterSettings;
+import com.helger.json.serialize.JsonWriterSettings;
 import com.helger.photon.ajax.executor.IAjaxExecutor;
 import com.helger.photon.app.PhotonUnifiedResponse;
 import com.helger.photon.core.uistate.UIStateRegistry;
 import com.helger.photon.uicore.css.CPageParam;
 import com.helger.photon.uictrls.datatables.DataTablesLengthMenu;
-import com.helger.photon.uictrls.datatables.EDataTablesFilterType;
 import com.helger.photon.uictrls.datatables.EDataTablesOrderDirectionType;
 import com.helger.servlet.request.IRequestParamMap;
 import com.helger.typeconvert.impl.TypeConverter;
@@ -198,135 +203,13 @@ public class AjaxExecutorDataTables implements IAjaxExecutor
       return aServerData.getAllRows ();
     }
 
-    final Locale aDisplayLocale = aServerData.getDisplayLocale ();
-
     // filter rows
-    final DTSSRequestDataSearch aGlobalSearch = aRequestData.getSearch ();
-    final String [] aGlobalSearchTexts = aGlobalSearch.getSearchTexts ();
-    final boolean bGlobalSearchRegEx = aGlobalSearch.isRegEx ();
-    final DTSSRequestDataColumn [] aColumns = aRequestData.getColumnDataArray ();
-    final EDataTablesFilterType eFilterType = aServerData.getFilterType ();
-
-    boolean bContainsAnyColumnSpecificSearch = false;
-    for (final DTSSRequestDataColumn aColumn : aColumns)
-      if (aColumn.isSearchable () && aColumn.getSearch ().hasSearchText ())
-      {
-        bContainsAnyColumnSpecificSearch = true;
-        if (eFilterType == EDataTablesFilterType.ALL_TERMS_PER_ROW)
-          LOGGER.error ("DataTables has column specific search term - this is not implemented for filter type ALL_TERMS_PER_ROW!");
-      }
-
+    final DataTablesServerDataFilter aFilter = DataTablesServerDataFilter.create (aRequestData,
+                                                                                  aServerData.getMaxCellCount (),
+                                                                                  aServerData.getFilterType (),
+                                                                                  aServerData.getDisplayLocale ());
     final int nUnfilteredRowCount = aServerData.getRowCount ();
-    final ICommonsList <DataTablesServerDataRow> aFilteredRows = new CommonsArrayList <> ();
-    if (bContainsAnyColumnSpecificSearch)
-    {
-      // For all rows
-      aServerData.forEachRow (aRow -> {
-        // For all cells in row
-        int nSearchableCellIndex = 0;
-        for (final DataTablesServerDataCell aCell : aRow.directGetAllCells ())
-        {
-          final DTSSRequestDataColumn aColumn = ArrayHelper.getSafeElement (aColumns, nSearchableCellIndex);
-          if (aColumn == null)
-          {
-            LOGGER.warn ("Invalid columnn index " +
-                         nSearchableCellIndex +
-                         " for columns " +
-                         Arrays.toString (aColumns));
-          }
-          else
-            if (aColumn.isSearchable ())
-            {
-              // Determine search texts
-              final DTSSRequestDataSearch aColumnSearch = aColumn.getSearch ();
-              String [] aColumnSearchTexts;
-              boolean bColumnSearchRegEx;
-              if (aColumnSearch.hasSearchText ())
-              {
-                aColumnSearchTexts = aColumnSearch.getSearchTexts ();
-                bColumnSearchRegEx = aColumnSearch.isRegEx ();
-              }
-              else
-              {
-                aColumnSearchTexts = aGlobalSearchTexts;
-                bColumnSearchRegEx = bGlobalSearchRegEx;
-              }
-
-              // Search text may be null!
-              if (aColumnSearchTexts != null)
-              {
-                final BitSet aMatchingWords = new BitSet (aColumnSearchTexts.length);
-
-                // Main matching
-                if (bColumnSearchRegEx)
-                  aCell.matchRegEx (aColumnSearchTexts, aMatchingWords);
-                else
-                  aCell.matchPlainTextIgnoreCase (aColumnSearchTexts, aDisplayLocale, aMatchingWords);
-                if (!aMatchingWords.isEmpty ())
-                {
-                  aFilteredRows.add (aRow);
-                  break;
-                }
-              }
-              nSearchableCellIndex++;
-            }
-        }
-      });
-    }
-    else
-    {
-      // Only global search is relevant
-
-      // For all rows
-      aServerData.forEachRow (aRow -> {
-        // Each matching search term is represented as a bit in here
-        final BitSet aMatchingWords = new BitSet (aGlobalSearchTexts.length);
-
-        // For all cells in row
-        int nSearchableCellIndex = 0;
-        per_row: for (final DataTablesServerDataCell aCell : aRow.directGetAllCells ())
-        {
-          final DTSSRequestDataColumn aColumn = aColumns[nSearchableCellIndex];
-          if (aColumn.isSearchable ())
-          {
-            // Main matching
-            if (bGlobalSearchRegEx)
-              aCell.matchRegEx (aGlobalSearchTexts, aMatchingWords);
-            else
-              aCell.matchPlainTextIgnoreCase (aGlobalSearchTexts, aDisplayLocale, aMatchingWords);
-
-            switch (eFilterType)
-            {
-              case ALL_TERMS_PER_ROW:
-                if (aMatchingWords.cardinality () == aGlobalSearchTexts.length)
-                {
-                  // Row matched all search terms
-                  aFilteredRows.add (aRow);
-
-                  // Goto next row
-                  break per_row;
-                }
-                break;
-              case ANY_TERM_PER_ROW:
-                if (!aMatchingWords.isEmpty ())
-                {
-                  // Row matched any search term
-                  aFilteredRows.add (aRow);
-
-                  // Goto next row
-                  break per_row;
-                }
-                // Clear again for next cell
-                aMatchingWords.clear ();
-                break;
-              default:
-                throw new IllegalStateException ("Unhandled filter type: " + eFilterType);
-            }
-          }
-          nSearchableCellIndex++;
-        }
-      });
-    }
+    final ICommonsList <DataTablesServerDataRow> aFilteredRows = aServerData.getAllFilteredRows (aFilter);
 
     if (LOGGER.isDebugEnabled ())
       LOGGER.debug ("DataTables filtered " + aFilteredRows.size () + " rows out of " + nUnfilteredRowCount);
@@ -335,22 +218,42 @@ public class AjaxExecutorDataTables implements IAjaxExecutor
     return aFilteredRows;
   }
 
-  @NonNull
-  private static DTSSResponseData _handleRequest (@NonNull final DTSSRequestData aRequestData,
-                                                  @NonNull final DataTablesServerData aServerData)
+  /**
+   * Callback for a single result row.
+   *
+   * @param <EX>
+   *        The exception type that may be thrown
+   */
+  @FunctionalInterface
+  private interface IResultRowConsumer <EX extends Exception>
   {
-    // Sort before filtering, because if only filtering changes, the sorting
-    // does not need to be performed again. If we would filter first, we would
-    // need to apply the sorting each time which might be time consuming. So
-    // this pattern assumes that filtering changes more often than sorting order
-    // changes.
-    _sort (aRequestData, aServerData);
-
-    final ICommonsList <DataTablesServerDataRow> aResultRows = _filter (aRequestData, aServerData);
+    void accept (@Nonnegative int nIndex, @NonNull IJsonObject aRowData) throws EX;
+  }
 
-    // Build the resulting array
-    final HCSpecialNodes aSpecialNodes = new HCSpecialNodes ();
-    final ICommonsList <IJsonObject> aData = new CommonsArrayList <> ();
+  /**
+   * Iterate all rows of the response and invoke the provided consumer for the JSON
+   * representation of each row.
+   *
+   * @param aRequestData
+   *        The request data. May not be <code>null</code>.
+   * @param aServerData
+   *        The server data. May not be <code>null</code>.
+   * @param aResultRows
+   *        The sorted and filtered rows. May not be <code>null</code>.
+   * @param aSpecialNodes
+   *        The special nodes to merge the special nodes of all returned cells into. May not be
+   *        <code>null</code>.
+   * @param aRowConsumer
+   *        The consumer for the JSON of each row. May not be <code>null</code>.
+   * @throws EX
+   *         If the consumer throws it
+   */
+  private static <EX extends Exception> void _forEachResultRow (@NonNull final DTSSRequestData aRequestData,
+                                                                @NonNull final DataTablesServerData aServerData,
+                                                                @NonNull final ICommonsList <DataTablesServerDataRow> aResultRows,
+                                                                @NonNull final HCSpecialNodes aSpecialNodes,
+                                                                @NonNull final IResultRowConsumer <EX> aRowConsumer) throws EX
+  {
     int nResultRowCount = 0;
     final boolean bAllEntries = aRequestData.showAllEntries ();
     // Just in case ;-)
@@ -385,12 +288,40 @@ public class AjaxExecutorDataTables implements IAjaxExecutor
         if (aCellSpecialNodes != null)
           aSpecialNodes.addAll (aCellSpecialNodes);
       }
-      aData.add (aRowData);
+      aRowConsumer.accept (nResultRowCount, aRowData);
       ++nResultRowCount;
     }
 
     // Check if the special nodes can be merged
     // TODO HCSpecialNodeHandler.applyModifiers (aNodes);
+  }
+
+  /**
+   * Handle the request and build the complete response in memory.
+   *
+   * @param aRequestData
+   *        The request data. May not be <code>null</code>.
+   * @param aServerData
+   *        The server data. May not be <code>null</code>.
+   * @return The response data. Never <code>null</code>.
+   */
+  @NonNull
+  static DTSSResponseData createResponseData (@NonNull final DTSSRequestData aRequestData,
+                                              @NonNull final DataTablesServerData aServerData)
+  {
+    // Sort before filtering, because if only filtering changes, the sorting
+    // does not need to be performed again. If we would filter first, we would
+    // need to apply the sorting each time which might be time consuming. So
+    // this pattern assumes that filtering changes more often than sorting order
+    // changes.
+    _sort (aRequestData, aServerData);
+
+    final ICommonsList <DataTablesServerDataRow> aResultRows = _filter (aRequestData, aServerData);
+
+    // Build the resulting array
+    final HCSpecialNodes aSpecialNodes = new HCSpecialNodes ();
+    final ICommonsList <IJsonObject> aData = new CommonsArrayList <> ();
+    _forEachResultRow (aRequestData, aServerData, aResultRows, aSpecialNodes, (nIndex, aRowData) -> aData.add (aRowData));
 
     // Main response
     final int nTotalRecords = aServerData.getRowCount ();
@@ -404,6 +335,65 @@ public class AjaxExecutorDataTables implements IAjaxExecutor
                                  aSpecialNodes);
   }
 
+  /**
+   * Handle the request and write the response JSON row by row to the provided writer. The result
+   * is identical to serializing the result of {@link #createResponseData(DTSSRequestData,
+   * DataTablesServerData)} with
+   * {@link PhotonUnifiedResponse.HtmlHelper#getResponseAsJSON(IJsonObject, IHCSpecialNodes)}, but
+   * the rows are never all kept in memory as JSON objects.
+   *
+   * @param aRequestData
+   *        The request data. May not be <code>null</code>.
+   * @param aServerData
+   *        The server data. May not be <code>null</code>.
+   * @param aJWS
+   *        The JSON writer settings to use. Must not use indentation. May not be
+   *        <code>null</code>.
+   * @param aWriter
+   *        The writer to write to. May not be <code>null</code>.
+   * @throws IOException
+   *         In case writing fails
+   */
+  static void writeResponseJson (@NonNull final DTSSRequestData aRequestData,
+                                 @NonNull final DataTablesServerData aServerData,
+                                 @NonNull final IJsonWriterSettings aJWS,
+                                 @NonNull final Writer aWriter) throws IOException
+  {
+    // Same as in createResponseData
+    _sort (aRequestData, aServerData);
+
+    final ICommonsList <DataTablesServerDataRow> aResultRows = _filter (aRequestData, aServerData);
+
+    // Layout as in DTSSResponseData.getAsJson
+    aWriter.write ("{\"" + PhotonUnifiedResponse.HtmlHelper.PROPERTY_VALUE + "\":{\"draw\":\"");
+    aWriter.write (Integer.toString (aRequestData.getDraw ()));
+    aWriter.write ("\",\"recordsTotal\":");
+    aWriter.write (Integer.toString (aServerData.getRowCount ()));
+    aWriter.write (",\"recordsFiltered\":");
+    aWriter.write (Integer.toString (aResultRows.size ()));
+    aWriter.write (",\"data\":[");
+
+    final HCSpecialNodes aSpecialNodes = new HCSpecialNodes ();
+    _forEachResultRow (aRequestData, aServerData, aResultRows, aSpecialNodes, (nIndex, aRowData) -> {
+      if (nIndex > 0)
+        aWriter.write (',');
+      aWriter.write (aRowData.getAsJsonString (aJWS));
+    });
+    aWriter.write ("]}");
+
+    // Append the special nodes, which are the remaining properties of the outer object
+    final String sSpecialNodes = PhotonUnifiedResponse.HtmlHelper.getResponseAsJSON (null, aSpecialNodes)
+                                                                 .getAsJsonString (aJWS);
+    if (sSpecialNodes.length () > 2)
+    {
+      // Skip the leading "{"
+      aWriter.write (',');
+      aWriter.write (sSpecialNodes, 1, sSpecialNodes.length () - 1);
+    }
+    else
+      aWriter.write ('}');
+  }
+
   public void handleRequest (@NonNull final IRequestWebScopeWithoutResponse aRequestScope,
                              @NonNull final PhotonUnifiedResponse aAjaxResponse) throws Exception
   {
@@ -424,12 +414,29 @@ public class AjaxExecutorDataTables implements IAjaxExecutor
     }
     else
     {
-      // Main request handling
-      final DTSSResponseData aResponseData = _handleRequest (aRequestData, aServerData);
+      final IJsonWriterSettings aJWS = aAjaxResponse.getJsonWriterSettings ();
+      if (aJWS == JsonWriterSettings.DEFAULT_SETTINGS)
+      {
+        // Write the rows directly without building the whole JSON tree
+        try (final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream (16 *
+                                                                                                  CGlobal.BYTES_PER_KILOBYTE))
+        {
+          try (final Writer aWriter = new OutputStreamWriter (aBAOS, StandardCharsets.UTF_8))
+          {
+            writeResponseJson (aRequestData, aServerData, aJWS, aWriter);
+          }
+          aAjaxResponse.json (aBAOS);
+        }
+      }
+      else
+      {
+        // Main request handling
+        final DTSSResponseData aResponseData = createResponseData (aRequestData, aServerData);
 
-      // Convert the response to JSON and add the special nodes
-      aAjaxResponse.json (PhotonUnifiedResponse.HtmlHelper.getResponseAsJSON (aResponseData.getAsJson (),
-                                                                              aResponseData.getSpecialNodes ()));
+        // Convert the response to JSON and add the special nodes
+        aAjaxResponse.json (PhotonUnifiedResponse.HtmlHelper.getResponseAsJSON (aResponseData.getAsJson (),
+                                                                                aResponseData.getSpecialNodes ()));
+      }
     }
   }
 }
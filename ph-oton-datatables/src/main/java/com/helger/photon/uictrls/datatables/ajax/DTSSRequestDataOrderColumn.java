@@ -84,6 +84,16 @@ public final class DTSSRequestDataOrderColumn
     m_aOrderSpec = aOrderSpec;
   }
 
+  /**
+   * @return The order specification of the column. May be <code>null</code> if not yet set.
+   * @since 10.3.1
+   */
+  @Nullable
+  public DTOrderSpec getOrderSpec ()
+  {
+    return m_aOrderSpec;
+  }
+
   @NonNull
   public Comparator <String> getOrderComparator ()
   {
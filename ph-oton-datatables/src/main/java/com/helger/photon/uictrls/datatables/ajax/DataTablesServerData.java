@@ -16,10 +16,12 @@
  */
 package com.helger.photon.uictrls.datatables.ajax;
 
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Locale;
 import java.util.function.Consumer;
+import java.util.function.IntBinaryOperator;
 
 import org.jspecify.annotations.NonNull;
 import org.jspecify.annotations.Nullable;
@@ -41,7 +43,6 @@ import com.helger.html.hc.IHCConversionSettings;
 import com.helger.html.hc.IHCCustomizer;
 import com.helger.html.hc.config.HCConversionSettings;
 import com.helger.html.hc.ext.HCCustomizerAutoFocusFirstCtrl;
-import com.helger.html.hc.html.tabular.HCRow;
 import com.helger.html.hc.html.tabular.IHCTable;
 import com.helger.html.hc.impl.HCCustomizerList;
 import com.helger.photon.app.html.PhotonHTMLHelper;
@@ -53,20 +54,55 @@ import com.helger.photon.uictrls.datatables.column.DataTablesColumnDef;
 /**
  * This class holds tables to be used by the DataTables server side handling. Each DataTable in each
  * session is represented as a single object of this class. SO if you have a lot of DataTables
- * instances of this class may use a huge amount of memory!
+ * instances of this class may use a huge amount of memory! The cell contents are kept in a compact
+ * form and equal contents are shared. If the rows are identical for all users, a shared
+ * {@link DataTablesServerDataRowStore} should be used.
  *
  * @author Philip Helger
  */
 public final class DataTablesServerData implements IHasUIState
 {
+  /**
+   * The rows matched by a filter.
+   *
+   * @author Philip Helger
+   */
+  private static final class FilterResult
+  {
+    private final DataTablesServerDataFilter m_aFilter;
+    private final int m_nSortVersion;
+    private final int [] m_aRowIndexes;
+
+    FilterResult (@NonNull final DataTablesServerDataFilter aFilter,
+                  final int nSortVersion,
+                  @NonNull final int [] aRowIndexes)
+    {
+      m_aFilter = aFilter;
+      m_nSortVersion = nSortVersion;
+      m_aRowIndexes = aRowIndexes;
+    }
+  }
+
   public static final ObjectType OT_DATATABLES = new ObjectType ("datatables");
   public static final IHCConversionSettings DEFAULT_CONVERSION_SETTINGS = createConversionSettings ();
   private static final Logger LOGGER = LoggerFactory.getLogger (DataTablesServerData.class);
 
   private final SimpleReadWriteLock m_aRWLock = new SimpleReadWriteLock ();
   private final DTOrderSpec [] m_aColumns;
+  private final DataTablesServerDataRowStore m_aRowStore;
+  // All rows in the original order
+  private final DataTablesServerDataRow [] m_aAllRows;
+  // Sort keys and search texts per column
+  private final DataTablesServerDataColumn [] m_aColumnData;
+  // All rows in the current sort order
   @GuardedBy ("m_aRWLock")
   private final ICommonsList <DataTablesServerDataRow> m_aRows;
+  // The original row indexes in the current sort order
+  @GuardedBy ("m_aRWLock")
+  private int [] m_aRowOrder;
+  @GuardedBy ("m_aRWLock")
+  private int m_nSortVersion = 0;
+  private transient volatile FilterResult m_aLastFilterResult;
   private final Locale m_aDisplayLocale;
   @GuardedBy ("m_aRWLock")
   private DataTablesServerSortState m_aServerSortState;
@@ -76,8 +112,34 @@ public final class DataTablesServerData implements IHasUIState
                                @NonNull final List <DataTablesColumnDef> aColumns,
                                @NonNull final Locale aDisplayLocale,
                                @NonNull final EDataTablesFilterType eFilterType)
+  {
+    this (aTable, new DataTablesServerDataRowStore (aTable), aColumns, aDisplayLocale, eFilterType);
+  }
+
+  /**
+   * Constructor using an existing row store, that may be shared with other sessions.
+   *
+   * @param aTable
+   *        The table to take the column definitions from. Its body rows are ignored. May not be
+   *        <code>null</code>.
+   * @param aRowStore
+   *        The row store to use. May not be <code>null</code>.
+   * @param aColumns
+   *        The DataTables column definitions. May not be <code>null</code>.
+   * @param aDisplayLocale
+   *        The display locale to use. May not be <code>null</code>.
+   * @param eFilterType
+   *        The filter type to use. May not be <code>null</code>.
+   * @since 10.3.1
+   */
+  public DataTablesServerData (@NonNull final IHCTable <?> aTable,
+                               @NonNull final DataTablesServerDataRowStore aRowStore,
+                               @NonNull final List <DataTablesColumnDef> aColumns,
+                               @NonNull final Locale aDisplayLocale,
+                               @NonNull final EDataTablesFilterType eFilterType)
   {
     ValueEnforcer.notNull (aTable, "Table");
+    ValueEnforcer.notNull (aRowStore, "RowStore");
     ValueEnforcer.notNull (aColumns, "Columns");
     ValueEnforcer.notNull (aDisplayLocale, "DisplayLocale");
     ValueEnforcer.notNull (eFilterType, "FilterType");
@@ -110,20 +172,18 @@ public final class DataTablesServerData implements IHasUIState
         m_aColumns[i] = new DTOrderSpec ().setDisplayLocale (aDisplayLocale);
 
     // Row data
-    m_aRows = new CommonsArrayList <> (aTable.getBodyRowCount ());
-    int nCells = 0;
-    for (final HCRow aRow : aTable.getAllBodyRows ())
-    {
-      m_aRows.add (new DataTablesServerDataRow (aRow));
-      nCells += aRow.getCellCount ();
-    }
+    m_aRowStore = aRowStore;
+    m_aAllRows = aRowStore.directGetAllRows ();
+    m_aRows = new CommonsArrayList <> (m_aAllRows);
+    m_aRowOrder = new int [m_aAllRows.length];
+    for (int i = 0; i < m_aRowOrder.length; ++i)
+      m_aRowOrder[i] = i;
+    // Rows may have more cells than columns are defined
+    final int nMaxCellCount = Math.max (nColumnCount, aRowStore.getMaxCellCount ());
+    m_aColumnData = new DataTablesServerDataColumn [nMaxCellCount];
+    for (int i = 0; i < nMaxCellCount; ++i)
+      m_aColumnData[i] = new DataTablesServerDataColumn (i);
 
-    if (LOGGER.isDebugEnabled ())
-      LOGGER.debug ("Having ServerSide DataTables with " +
-                    aTable.getBodyRowCount () +
-                    " rows and a total of " +
-                    nCells +
-                    " cells");
     m_aDisplayLocale = aDisplayLocale;
     m_aServerSortState = new DataTablesServerSortState (this, aDisplayLocale);
     m_eFilterType = eFilterType;
@@ -164,18 +224,171 @@ public final class DataTablesServerData implements IHasUIState
     return m_aRWLock.readLockedBoolean ( () -> m_aServerSortState.equals (aOtherserverSortState));
   }
 
+  /**
+   * Stable sort of a part of the provided row indexes via merge sort, to avoid boxing.
+   *
+   * @param aIndexes
+   *        The row indexes to sort. Modified in place.
+   * @param aTmp
+   *        Temporary array of the same size as the row indexes.
+   * @param nFrom
+   *        First index to sort (inclusive).
+   * @param nTo
+   *        Last index to sort (exclusive).
+   * @param aComparator
+   *        The row index comparator.
+   */
+  private static void _sortIndexes (@NonNull final int [] aIndexes,
+                                    @NonNull final int [] aTmp,
+                                    final int nFrom,
+                                    final int nTo,
+                                    @NonNull final IntBinaryOperator aComparator)
+  {
+    if (nTo - nFrom <= 16)
+    {
+      // Insertion sort for small ranges
+      for (int i = nFrom + 1; i < nTo; ++i)
+      {
+        final int nIndex = aIndexes[i];
+        int j = i - 1;
+        while (j >= nFrom && aComparator.applyAsInt (aIndexes[j], nIndex) > 0)
+        {
+          aIndexes[j + 1] = aIndexes[j];
+          j--;
+        }
+        aIndexes[j + 1] = nIndex;
+      }
+      return;
+    }
+
+    final int nMid = (nFrom + nTo) >>> 1;
+    _sortIndexes (aIndexes, aTmp, nFrom, nMid, aComparator);
+    _sortIndexes (aIndexes, aTmp, nMid, nTo, aComparator);
+    if (aComparator.applyAsInt (aIndexes[nMid - 1], aIndexes[nMid]) <= 0)
+    {
+      // Already in order
+      return;
+    }
+
+    // Merge - on equality the left element comes first to keep the sort stable
+    System.arraycopy (aIndexes, nFrom, aTmp, nFrom, nTo - nFrom);
+    int nLeft = nFrom;
+    int nRight = nMid;
+    int nDest = nFrom;
+    while (nLeft < nMid && nRight < nTo)
+      aIndexes[nDest++] = aComparator.applyAsInt (aTmp[nLeft], aTmp[nRight]) <= 0 ? aTmp[nLeft++] : aTmp[nRight++];
+    while (nLeft < nMid)
+      aIndexes[nDest++] = aTmp[nLeft++];
+    while (nRight < nTo)
+      aIndexes[nDest++] = aTmp[nRight++];
+  }
+
   public void setServerSortStateAndSort (@NonNull final DataTablesServerSortState aNewServerSortState)
   {
     ValueEnforcer.notNull (aNewServerSortState, "NewServerSortState");
 
-    final Comparator <DataTablesServerDataRow> aComp = new ComparatorDataTablesServerDataRow (aNewServerSortState);
+    // Get the sort keys of all sort columns - created only once per column
+    final ICommonsList <DTSSRequestDataOrderColumn> aOrderColumns = aNewServerSortState.directGetAllOrderColumns ();
+    final int nOrderColumns = aOrderColumns.size ();
+    final Object [] [] aSortKeys = new Object [nOrderColumns] [];
+    final ICommonsList <Comparator <Object>> aComparators = new CommonsArrayList <> (nOrderColumns);
+    final boolean [] aAscending = new boolean [nOrderColumns];
+    for (int i = 0; i < nOrderColumns; ++i)
+    {
+      final DTSSRequestDataOrderColumn aOrderColumn = aOrderColumns.get (i);
+      DTOrderSpec aOrderSpec = aOrderColumn.getOrderSpec ();
+      if (aOrderSpec == null)
+        aOrderSpec = new DTOrderSpec ();
+      aSortKeys[i] = m_aColumnData[aOrderColumn.getColumnIndex ()].getSortKeys (m_aAllRows,
+                                                                               aOrderSpec.getSortKeyExtractor ());
+      aComparators.add (aOrderSpec.getSortKeyComparator ());
+      aAscending[i] = aOrderColumn.getSortDirectionOrDefault ().isAscending ();
+    }
+
+    final IntBinaryOperator aRowIndexComparator = (n1, n2) -> {
+      for (int i = 0; i < nOrderColumns; ++i)
+      {
+        final int ret = aComparators.get (i).compare (aSortKeys[i][n1], aSortKeys[i][n2]);
+        if (ret != 0)
+          return aAscending[i] ? ret : -ret;
+      }
+      return 0;
+    };
 
     m_aRWLock.writeLocked ( () -> {
       m_aServerSortState = aNewServerSortState;
-      m_aRows.sort (aComp);
+
+      // Sort the row indexes based on the current order (stable sort)
+      final int nRowCount = m_aRowOrder.length;
+      _sortIndexes (m_aRowOrder, new int [nRowCount], 0, nRowCount, aRowIndexComparator);
+
+      m_aRows.clear ();
+      for (final int nIndex : m_aRowOrder)
+        m_aRows.add (m_aAllRows[nIndex]);
+      m_nSortVersion++;
+    });
+  }
+
+  /**
+   * Get all rows matching the provided filter in the current sort order. If the filter only
+   * refines the previous filter (e.g. because a character was added to the search term), only the
+   * previously matching rows are checked.
+   *
+   * @param aFilter
+   *        The filter to apply. May not be <code>null</code>.
+   * @return A new list with all matching rows. Never <code>null</code>.
+   */
+  @NonNull
+  @ReturnsMutableCopy
+  ICommonsList <DataTablesServerDataRow> getAllFilteredRows (@NonNull final DataTablesServerDataFilter aFilter)
+  {
+    // Get the lower case texts of all columns
+    final int nEntries = aFilter.getEntryCount ();
+    final String [] [] aEntryTexts = new String [nEntries] [];
+    for (int i = 0; i < nEntries; ++i)
+      if (!aFilter.isEntryRegEx (i))
+        aEntryTexts[i] = m_aColumnData[aFilter.getEntryCellIndex (i)].getFoldedTexts (m_aAllRows, m_aDisplayLocale);
+
+    return m_aRWLock.readLockedGet ( () -> {
+      // Can the last result be used as the base?
+      final FilterResult aLastResult = m_aLastFilterResult;
+      final int [] aCandidates;
+      if (aLastResult != null &&
+          aLastResult.m_nSortVersion == m_nSortVersion &&
+          aFilter.isRefinementOf (aLastResult.m_aFilter))
+        aCandidates = aLastResult.m_aRowIndexes;
+      else
+        aCandidates = m_aRowOrder;
+
+      final int [] aMatches = new int [aCandidates.length];
+      int nMatches = 0;
+      for (final int nIndex : aCandidates)
+        if (aFilter.matches (m_aAllRows[nIndex], nIndex, aEntryTexts))
+          aMatches[nMatches++] = nIndex;
+
+      final int [] aRowIndexes = Arrays.copyOf (aMatches, nMatches);
+      m_aLastFilterResult = new FilterResult (aFilter, m_nSortVersion, aRowIndexes);
+
+      final ICommonsList <DataTablesServerDataRow> ret = new CommonsArrayList <> (nMatches);
+      for (final int nIndex : aRowIndexes)
+        ret.add (m_aAllRows[nIndex]);
+      return ret;
     });
   }
 
+  /**
+   * Remove all cached sort keys and search texts. This must be called if the content of any cell
+   * was modified.
+   *
+   * @since 10.3.1
+   */
+  public void clearCachedColumnData ()
+  {
+    for (final DataTablesServerDataColumn aColumn : m_aColumnData)
+      aColumn.clear ();
+    m_aLastFilterResult = null;
+  }
+
   @Nonnegative
   public int getRowCount ()
   {
@@ -208,12 +421,41 @@ public final class DataTablesServerData implements IHasUIState
     return m_aRWLock.readLockedGet ( () -> m_aRows.findFirst (x -> sID.equals (x.getRowID ())));
   }
 
+  /**
+   * @return The row store with the rows in the original order. Never <code>null</code>.
+   * @since 10.3.1
+   */
+  @NonNull
+  public DataTablesServerDataRowStore getRowStore ()
+  {
+    return m_aRowStore;
+  }
+
   @NonNull
   public Locale getDisplayLocale ()
   {
     return m_aDisplayLocale;
   }
 
+  /**
+   * @return The number of table columns. Always &ge; 0.
+   * @since 10.3.1
+   */
+  @Nonnegative
+  public int getColumnCount ()
+  {
+    return m_aColumns.length;
+  }
+
+  /**
+   * @return The maximum number of cells per row, which is at least the number of columns.
+   */
+  @Nonnegative
+  int getMaxCellCount ()
+  {
+    return m_aColumnData.length;
+  }
+
   @Nullable
   public DTOrderSpec getColumnOrderSpec (@Nonnegative final int nColumnIndex)
   {
@@ -27,6 +27,7 @@ import org.jspecify.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.helger.annotation.Nonnegative;
 import com.helger.base.string.StringHelper;
 import com.helger.base.tostring.ToStringGenerator;
 import com.helger.cache.regex.RegExHelper;
@@ -34,18 +35,26 @@ import com.helger.html.hc.IHCConversionSettings;
 import com.helger.html.hc.IHCNodeList;
 import com.helger.html.hc.config.IHCOnDocumentReadyProvider;
 import com.helger.html.hc.html.tabular.IHCCell;
+import com.helger.html.hc.impl.HCDOMWrapper;
 import com.helger.html.hc.impl.HCNodeList;
+import com.helger.html.hc.impl.HCTextNode;
 import com.helger.html.hc.render.HCRenderer;
 import com.helger.html.hc.special.HCSpecialNodeHandler;
 import com.helger.html.hc.special.HCSpecialNodes;
 import com.helger.html.hc.special.IHCSpecialNodes;
+import com.helger.html.parser.XHTMLParser;
+import com.helger.xml.microdom.IMicroContainer;
 import com.helger.xml.microdom.IMicroNode;
 import com.helger.xml.microdom.IMicroNodeWithChildren;
 import com.helger.xml.microdom.IMicroText;
 import com.helger.xml.microdom.serialize.MicroWriter;
 
 /**
- * This class holds table cells to be used by the DataTables server side handling.
+ * This class holds table cells to be used by the DataTables server side handling. The cell content
+ * is rendered once upon creation and only the resulting HTML and text content are kept in a compact
+ * and interned form. The HC and MicroDOM trees are not retained, as they would use a multiple of
+ * the memory. After creation instances are immutable unless {@link #setContent(IHCNodeList)} is
+ * called.
  *
  * @author Philip Helger
  */
@@ -53,12 +62,9 @@ public final class DataTablesServerDataCell
 {
   private static final Logger LOGGER = LoggerFactory.getLogger (DataTablesServerDataCell.class);
 
-  private IHCNodeList <?> m_aContent;
-  // Lazy stuff
-  private HCSpecialNodes m_aLazySpecialNodes;
-  private IMicroNode m_aLazyMicroNode;
-  private String m_sLazyHTML;
-  private String m_sLazyTextContent;
+  private HCSpecialNodes m_aSpecialNodes;
+  private DataTablesServerDataString m_aHTML;
+  private DataTablesServerDataString m_aTextContent;
 
   public DataTablesServerDataCell (@NonNull final IHCCell <?> aCell)
   {
@@ -75,68 +81,101 @@ public final class DataTablesServerDataCell
 
   private void writeObject (@NonNull final ObjectOutputStream out) throws IOException
   {
-    out.writeObject (m_aContent);
-    out.writeObject (m_aLazySpecialNodes);
+    out.writeObject (m_aHTML.getAsString ());
+    out.writeObject (m_aTextContent.getAsString ());
+    out.writeObject (m_aSpecialNodes);
   }
 
   private void readObject (@NonNull final ObjectInputStream in) throws IOException, ClassNotFoundException
   {
-    m_aContent = (HCNodeList) in.readObject ();
-    m_aLazySpecialNodes = (HCSpecialNodes) in.readObject ();
+    m_aHTML = DataTablesServerDataString.create ((String) in.readObject ());
+    m_aTextContent = DataTablesServerDataString.create ((String) in.readObject ());
+    m_aSpecialNodes = (HCSpecialNodes) in.readObject ();
   }
 
-  public void setContent (@NonNull final IHCNodeList <?> aCellChildren)
+  @Nullable
+  private static String _getTextContent (@NonNull final IMicroNode aMicroNode)
   {
-    if (m_aLazySpecialNodes != null)
-      m_aLazySpecialNodes.clear ();
+    if (aMicroNode instanceof final IMicroNodeWithChildren aNodeWithChildren)
+      return aNodeWithChildren.getTextContent ();
+
+    if (aMicroNode.isText ())
+    {
+      // ignore whitespace-only content
+      if (!((IMicroText) aMicroNode).isElementContentWhitespace ())
+        return aMicroNode.getNodeValue ();
+      return null;
+    }
 
+    if (aMicroNode.isCDATA ())
+      return aMicroNode.getNodeValue ();
+    return null;
+  }
+
+  public void setContent (@NonNull final IHCNodeList <?> aCellChildren)
+  {
     final IHCConversionSettings aCS = DataTablesServerData.DEFAULT_CONVERSION_SETTINGS;
 
     // customize, finalize and extract resources
     HCRenderer.prepareForConversion (aCellChildren, aCellChildren, aCS);
 
+    HCSpecialNodes aSpecialNodes = null;
     if (aCS.isExtractOutOfBandNodes ())
     {
-      if (m_aLazySpecialNodes == null)
-        m_aLazySpecialNodes = new HCSpecialNodes ();
+      aSpecialNodes = new HCSpecialNodes ();
 
       // Add the content without the out-of-band nodes (but no document.ready()
       // because this is invoked per AJAX)
       final IHCOnDocumentReadyProvider aOnDocumentReadyProvider = null;
-      HCSpecialNodeHandler.extractSpecialContent (aCellChildren, m_aLazySpecialNodes, aOnDocumentReadyProvider);
+      HCSpecialNodeHandler.extractSpecialContent (aCellChildren, aSpecialNodes, aOnDocumentReadyProvider);
 
       // Free memory if nothing is contained
-      if (m_aLazySpecialNodes.isEmpty ())
-        m_aLazySpecialNodes = null;
+      if (aSpecialNodes.isEmpty ())
+        aSpecialNodes = null;
     }
 
-    m_aContent = aCellChildren;
-    m_aLazyMicroNode = null;
-    m_sLazyHTML = null;
-    m_sLazyTextContent = null;
+    // Convert to HC node to Micro node and render it once - afterwards both trees are no longer
+    // needed
+    String sHTML = null;
+    String sTextContent = null;
+    final IMicroNode aMicroNode = aCellChildren.convertToMicroNode (aCS);
+    if (aMicroNode != null)
+    {
+      sHTML = MicroWriter.getNodeAsString (aMicroNode, aCS.getXMLWriterSettings ());
+      // e.g. for initial sorting
+      sTextContent = _getTextContent (aMicroNode);
+    }
+
+    m_aSpecialNodes = aSpecialNodes;
+    m_aHTML = sHTML == null ? DataTablesServerDataString.EMPTY : DataTablesServerDataString.create (sHTML);
+    m_aTextContent = sTextContent == null ? DataTablesServerDataString.EMPTY
+                                          : DataTablesServerDataString.create (sTextContent);
   }
 
+  /**
+   * Get the cell content as HC nodes. As the original HC content is no longer retained after the
+   * cell was rendered, it is recreated from the rendered HTML with every call, so it is
+   * comparatively expensive.
+   *
+   * @return A new node list with the cell content. Never <code>null</code>.
+   * @deprecated Use {@link #getHTMLString()} or {@link #getTextContent()} instead.
+   */
+  @Deprecated (since = "10.3.1")
   @NonNull
   public IHCNodeList <?> getContent ()
   {
-    return m_aContent;
-  }
-
-  @Nullable
-  private IMicroNode _getOrCreateMicroNode ()
-  {
-    IMicroNode ret = m_aLazyMicroNode;
-    if (ret == null)
+    final HCNodeList ret = new HCNodeList ();
+    final String sHTML = getHTMLString ();
+    if (StringHelper.isNotEmpty (sHTML))
     {
-      // Convert to HC node to Micro node
-      ret = m_aContent.convertToMicroNode (DataTablesServerData.DEFAULT_CONVERSION_SETTINGS);
-      m_aLazyMicroNode = ret;
-
-      if (ret == null)
+      final IHCConversionSettings aCS = DataTablesServerData.DEFAULT_CONVERSION_SETTINGS;
+      final IMicroContainer aContainer = new XHTMLParser (aCS.getHTMLVersion ()).unescapeXHTMLFragment (sHTML);
+      if (aContainer != null)
+        ret.addChild (new HCDOMWrapper (aContainer));
+      else
       {
-        // Avoid later checks
-        m_sLazyHTML = "";
-        m_sLazyTextContent = "";
+        LOGGER.warn ("Failed to re-parse the HTML of a cell - using the text content instead");
+        ret.addChild (new HCTextNode (getTextContent ()));
       }
     }
     return ret;
@@ -145,77 +184,30 @@ public final class DataTablesServerDataCell
   @Nullable
   public String getHTMLString ()
   {
-    String ret = m_sLazyHTML;
-    if (ret == null)
-    {
-      // _getMicroNode may change lazy variable
-      final IMicroNode aMicroNode = _getOrCreateMicroNode ();
-      ret = m_sLazyHTML;
-
-      // Re-check
-      if (ret == null)
-      {
-        assert aMicroNode != null;
-
-        // Create lazy
-        ret = MicroWriter.getNodeAsString (aMicroNode,
-                                           DataTablesServerData.DEFAULT_CONVERSION_SETTINGS.getXMLWriterSettings ());
-
-        // Avoid multiple calls for non-cached version
-        if (ret == null)
-          ret = "";
-        m_sLazyHTML = ret;
-      }
-    }
-    return ret;
+    return m_aHTML.getAsString ();
   }
 
   @NonNull
   public String getTextContent ()
   {
-    String ret = m_sLazyTextContent;
-    if (ret == null)
-    {
-      // _getMicroNode may change lazy variable
-      final IMicroNode aMicroNode = _getOrCreateMicroNode ();
-      ret = m_sLazyTextContent;
-
-      // Re-check
-      if (ret == null)
-      {
-        assert aMicroNode != null;
-
-        // Create lazy
-        // e.g. for initial sorting
-        if (aMicroNode instanceof final IMicroNodeWithChildren aNodeWithChildren)
-          ret = aNodeWithChildren.getTextContent ();
-        else
-          if (aMicroNode.isText ())
-          {
-            // ignore whitespace-only content
-            if (!((IMicroText) aMicroNode).isElementContentWhitespace ())
-              ret = aMicroNode.getNodeValue ();
-          }
-          else
-            if (aMicroNode.isCDATA ())
-            {
-              ret = aMicroNode.getNodeValue ();
-            }
-
-        // Avoid multiple calls for non-cached version
-        if (ret == null)
-          ret = "";
-        m_sLazyTextContent = ret;
-      }
-    }
+    return m_aTextContent.getAsString ();
+  }
 
-    return m_sLazyTextContent;
+  /**
+   * @return The number of bytes used for the HTML and the text content of this cell, not
+   *         considering sharing with other cells. Always &ge; 0.
+   * @since 10.3.1
+   */
+  @Nonnegative
+  public long getContentByteCount ()
+  {
+    return (long) m_aHTML.getByteCount () + m_aTextContent.getByteCount ();
   }
 
   @Nullable
   public IHCSpecialNodes getSpecialNodes ()
   {
-    return m_aLazySpecialNodes;
+    return m_aSpecialNodes;
   }
 
   public void matchRegEx (@NonNull final String [] aSearchTexts, @NonNull final BitSet aMatchingWords)
@@ -260,6 +252,9 @@ public final class DataTablesServerDataCell
   @NonNull
   public String toString ()
   {
-    return new ToStringGenerator (this).append ("Content", m_aContent).getToString ();
+    return new ToStringGenerator (this).append ("HTML", m_aHTML)
+                                       .append ("TextContent", m_aTextContent)
+                                       .appendIfNotNull ("SpecialNodes", m_aSpecialNodes)
+                                       .getToString ();
   }
 }
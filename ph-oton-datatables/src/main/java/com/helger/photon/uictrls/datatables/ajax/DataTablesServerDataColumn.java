@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.photon.uictrls.datatables.ajax;
+
+import java.util.Locale;
+import java.util.function.Function;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.ThreadSafe;
+
+/**
+ * The column based view on the cells of a {@link DataTablesServerData}. It contains the sort keys
+ * and the lower case texts of all cells of a single column, indexed by the original row index.
+ * Both are created lazily once and are used for sorting and filtering.
+ *
+ * @author Philip Helger
+ */
+@ThreadSafe
+final class DataTablesServerDataColumn
+{
+  private final int m_nColumnIndex;
+  // Lazily created - concurrent creation is harmless, as the result is always the same
+  private volatile Object [] m_aSortKeys;
+  private volatile String [] m_aFoldedTexts;
+
+  DataTablesServerDataColumn (@Nonnegative final int nColumnIndex)
+  {
+    m_nColumnIndex = nColumnIndex;
+  }
+
+  @Nullable
+  private DataTablesServerDataCell _getCell (@NonNull final DataTablesServerDataRow aRow)
+  {
+    return m_nColumnIndex < aRow.getCellCount () ? aRow.getCellAtIndex (m_nColumnIndex) : null;
+  }
+
+  void clear ()
+  {
+    m_aSortKeys = null;
+    m_aFoldedTexts = null;
+  }
+
+  /**
+   * Get the sort keys of all cells of this column.
+   *
+   * @param aRows
+   *        All rows in the original order. May not be <code>null</code>.
+   * @param aSortKeyExtractor
+   *        The sort key extractor of the column. Must always be the same for this column.
+   * @return The sort keys indexed by the original row index. Contains <code>null</code> elements
+   *         for rows that don't have a cell in this column.
+   */
+  @NonNull
+  Object [] getSortKeys (@NonNull final DataTablesServerDataRow [] aRows,
+                         @NonNull final Function <String, Object> aSortKeyExtractor)
+  {
+    Object [] ret = m_aSortKeys;
+    if (ret == null)
+    {
+      ret = new Object [aRows.length];
+      for (int i = 0; i < aRows.length; ++i)
+      {
+        final DataTablesServerDataCell aCell = _getCell (aRows[i]);
+        if (aCell != null)
+          ret[i] = aSortKeyExtractor.apply (aCell.getTextContent ());
+      }
+      m_aSortKeys = ret;
+    }
+    return ret;
+  }
+
+  /**
+   * Get the lower case text contents of all cells of this column.
+   *
+   * @param aRows
+   *        All rows in the original order. May not be <code>null</code>.
+   * @param aDisplayLocale
+   *        The display locale of the table used for lower casing.
+   * @return The lower case texts indexed by the original row index. Contains <code>null</code>
+   *         elements for rows that don't have a cell in this column.
+   */
+  @NonNull
+  String [] getFoldedTexts (@NonNull final DataTablesServerDataRow [] aRows, @NonNull final Locale aDisplayLocale)
+  {
+    String [] ret = m_aFoldedTexts;
+    if (ret == null)
+    {
+      ret = new String [aRows.length];
+      for (int i = 0; i < aRows.length; ++i)
+      {
+        final DataTablesServerDataCell aCell = _getCell (aRows[i]);
+        if (aCell != null)
+          ret[i] = aCell.getTextContent ().toLowerCase (aDisplayLocale);
+      }
+      m_aFoldedTexts = ret;
+    }
+    return ret;
+  }
+}
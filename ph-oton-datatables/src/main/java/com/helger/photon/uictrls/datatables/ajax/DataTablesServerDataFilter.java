@@ -0,0 +1,323 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.photon.uictrls.datatables.ajax;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Locale;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.Immutable;
+import com.helger.base.array.ArrayHelper;
+import com.helger.base.tostring.ToStringGenerator;
+import com.helger.cache.regex.RegExHelper;
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.ICommonsList;
+import com.helger.photon.uictrls.datatables.EDataTablesFilterType;
+
+/**
+ * The filter of a single DataTables request, resolved against the columns of a
+ * {@link DataTablesServerData}. It consists of one entry per searchable cell index with the search
+ * texts to be applied to the cell.
+ *
+ * @author Philip Helger
+ */
+@Immutable
+final class DataTablesServerDataFilter
+{
+  private static final Logger LOGGER = LoggerFactory.getLogger (DataTablesServerDataFilter.class);
+
+  /**
+   * The search texts to be applied to a single cell of each row.
+   *
+   * @author Philip Helger
+   */
+  private static final class Entry
+  {
+    private final int m_nCellIndex;
+    private final String [] m_aSearchTexts;
+    // Lower case search texts - only for non regular expressions
+    private final String [] m_aFoldedSearchTexts;
+    private final boolean m_bRegEx;
+
+    Entry (final int nCellIndex,
+           @NonNull final String [] aSearchTexts,
+           final boolean bRegEx,
+           @NonNull final Locale aDisplayLocale)
+    {
+      m_nCellIndex = nCellIndex;
+      m_aSearchTexts = aSearchTexts;
+      m_bRegEx = bRegEx;
+      if (bRegEx)
+        m_aFoldedSearchTexts = null;
+      else
+      {
+        m_aFoldedSearchTexts = new String [aSearchTexts.length];
+        for (int i = 0; i < aSearchTexts.length; ++i)
+          m_aFoldedSearchTexts[i] = aSearchTexts[i].toLowerCase (aDisplayLocale);
+      }
+    }
+
+    /**
+     * @return <code>true</code> if every row matching this entry also matches the other entry.
+     */
+    boolean isRefinementOf (@NonNull final Entry aOther)
+    {
+      if (m_nCellIndex != aOther.m_nCellIndex || m_bRegEx || aOther.m_bRegEx)
+        return false;
+      if (m_aFoldedSearchTexts.length != aOther.m_aFoldedSearchTexts.length)
+        return false;
+      for (int i = 0; i < m_aFoldedSearchTexts.length; ++i)
+        if (!m_aFoldedSearchTexts[i].contains (aOther.m_aFoldedSearchTexts[i]))
+          return false;
+      return true;
+    }
+
+    @Override
+    public String toString ()
+    {
+      return new ToStringGenerator (this).append ("CellIndex", m_nCellIndex)
+                                         .append ("SearchTexts", m_aSearchTexts)
+                                         .append ("RegEx", m_bRegEx)
+                                         .getToString ();
+    }
+  }
+
+  private final Entry [] m_aEntries;
+  // true: all search terms must match in any cell; false: any search term must match in any cell
+  private final boolean m_bAllTerms;
+  private final int m_nAllTermsCount;
+
+  private DataTablesServerDataFilter (@NonNull final ICommonsList <Entry> aEntries,
+                                      final boolean bAllTerms,
+                                      final int nAllTermsCount)
+  {
+    m_aEntries = aEntries.toArray (new Entry [0]);
+    m_bAllTerms = bAllTerms;
+    m_nAllTermsCount = nAllTermsCount;
+  }
+
+  /**
+   * @return The number of filter entries. Always &ge; 0.
+   */
+  @Nonnegative
+  int getEntryCount ()
+  {
+    return m_aEntries.length;
+  }
+
+  /**
+   * @param nEntryIndex
+   *        The entry index.
+   * @return The cell index to which the entry applies.
+   */
+  @Nonnegative
+  int getEntryCellIndex (final int nEntryIndex)
+  {
+    return m_aEntries[nEntryIndex].m_nCellIndex;
+  }
+
+  /**
+   * @param nEntryIndex
+   *        The entry index.
+   * @return <code>true</code> if the entry uses regular expressions and therefore needs the
+   *         original cell text instead of the lower case text.
+   */
+  boolean isEntryRegEx (final int nEntryIndex)
+  {
+    return m_aEntries[nEntryIndex].m_bRegEx;
+  }
+
+  /**
+   * Check if all rows matching this filter are also matched by the other filter. In this case only
+   * the rows matched by the other filter need to be checked.
+   *
+   * @param aOther
+   *        The other filter. May be <code>null</code>.
+   * @return <code>true</code> if this filter refines the other filter.
+   */
+  boolean isRefinementOf (@Nullable final DataTablesServerDataFilter aOther)
+  {
+    if (aOther == null || m_bAllTerms != aOther.m_bAllTerms || m_aEntries.length != aOther.m_aEntries.length)
+      return false;
+    for (int i = 0; i < m_aEntries.length; ++i)
+      if (!m_aEntries[i].isRefinementOf (aOther.m_aEntries[i]))
+        return false;
+    return true;
+  }
+
+  /**
+   * Check if the provided row matches this filter.
+   *
+   * @param aRow
+   *        The row to check. May not be <code>null</code>.
+   * @param nRowIndex
+   *        The original index of the row.
+   * @param aEntryTexts
+   *        The lower case column texts for each entry, indexed by the original row index. Only
+   *        filled for entries not using regular expressions.
+   * @return <code>true</code> if the row matches.
+   */
+  boolean matches (@NonNull final DataTablesServerDataRow aRow,
+                   @Nonnegative final int nRowIndex,
+                   @NonNull final String [] [] aEntryTexts)
+  {
+    // Each matching search term is represented as a bit in here
+    final BitSet aMatchingWords = m_bAllTerms ? new BitSet (m_nAllTermsCount) : null;
+    for (int nEntry = 0; nEntry < m_aEntries.length; ++nEntry)
+    {
+      final Entry aEntry = m_aEntries[nEntry];
+      final String [] aSearchTexts = aEntry.m_aSearchTexts;
+      if (aEntry.m_bRegEx)
+      {
+        if (aEntry.m_nCellIndex < aRow.getCellCount ())
+        {
+          final String sTextContent = aRow.getCellAtIndex (aEntry.m_nCellIndex).getTextContent ();
+          for (int i = 0; i < aSearchTexts.length; ++i)
+            if (RegExHelper.stringMatchesPattern (aSearchTexts[i], sTextContent))
+            {
+              if (aMatchingWords == null)
+                return true;
+              aMatchingWords.set (i);
+            }
+        }
+      }
+      else
+      {
+        final String sFoldedText = aEntryTexts[nEntry][nRowIndex];
+        if (sFoldedText != null)
+        {
+          final String [] aFoldedSearchTexts = aEntry.m_aFoldedSearchTexts;
+          for (int i = 0; i < aFoldedSearchTexts.length; ++i)
+            if (sFoldedText.contains (aFoldedSearchTexts[i]))
+            {
+              if (aMatchingWords == null)
+                return true;
+              aMatchingWords.set (i);
+            }
+        }
+      }
+
+      if (aMatchingWords != null && aMatchingWords.cardinality () == m_nAllTermsCount)
+      {
+        // Row matched all search terms
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Entries", Arrays.asList (m_aEntries))
+                                       .append ("AllTerms", m_bAllTerms)
+                                       .getToString ();
+  }
+
+  /**
+   * Resolve the search settings of a request against the columns of the server data.
+   *
+   * @param aRequestData
+   *        The request data with an active search. May not be <code>null</code>.
+   * @param nCellCount
+   *        The maximum number of cells per row.
+   * @param eFilterType
+   *        The filter type of the table. May not be <code>null</code>.
+   * @param aDisplayLocale
+   *        The display locale of the table. May not be <code>null</code>.
+   * @return The new filter. Never <code>null</code>.
+   */
+  @NonNull
+  static DataTablesServerDataFilter create (@NonNull final DTSSRequestData aRequestData,
+                                            @Nonnegative final int nCellCount,
+                                            @NonNull final EDataTablesFilterType eFilterType,
+                                            @NonNull final Locale aDisplayLocale)
+  {
+    final DTSSRequestDataSearch aGlobalSearch = aRequestData.getSearch ();
+    final String [] aGlobalSearchTexts = aGlobalSearch.getSearchTexts ();
+    final boolean bGlobalSearchRegEx = aGlobalSearch.isRegEx ();
+    final DTSSRequestDataColumn [] aColumns = aRequestData.getColumnDataArray ();
+
+    boolean bContainsAnyColumnSpecificSearch = false;
+    for (final DTSSRequestDataColumn aColumn : aColumns)
+      if (aColumn.isSearchable () && aColumn.getSearch ().hasSearchText ())
+      {
+        bContainsAnyColumnSpecificSearch = true;
+        if (eFilterType == EDataTablesFilterType.ALL_TERMS_PER_ROW)
+          LOGGER.error ("DataTables has column specific search term - this is not implemented for filter type ALL_TERMS_PER_ROW!");
+      }
+
+    final ICommonsList <Entry> aEntries = new CommonsArrayList <> ();
+    if (bContainsAnyColumnSpecificSearch)
+    {
+      // The column index only advances on searchable columns
+      int nSearchableCellIndex = 0;
+      for (int nCellIndex = 0; nCellIndex < nCellCount; ++nCellIndex)
+      {
+        final DTSSRequestDataColumn aColumn = ArrayHelper.getSafeElement (aColumns, nSearchableCellIndex);
+        if (aColumn == null)
+        {
+          LOGGER.warn ("Invalid columnn index " + nSearchableCellIndex + " for columns " + Arrays.toString (aColumns));
+        }
+        else
+          if (aColumn.isSearchable ())
+          {
+            // Determine search texts
+            final DTSSRequestDataSearch aColumnSearch = aColumn.getSearch ();
+            String [] aColumnSearchTexts;
+            boolean bColumnSearchRegEx;
+            if (aColumnSearch.hasSearchText ())
+            {
+              aColumnSearchTexts = aColumnSearch.getSearchTexts ();
+              bColumnSearchRegEx = aColumnSearch.isRegEx ();
+            }
+            else
+            {
+              aColumnSearchTexts = aGlobalSearchTexts;
+              bColumnSearchRegEx = bGlobalSearchRegEx;
+            }
+
+            // Search text may be null!
+            if (aColumnSearchTexts != null)
+              aEntries.add (new Entry (nCellIndex, aColumnSearchTexts, bColumnSearchRegEx, aDisplayLocale));
+            nSearchableCellIndex++;
+          }
+      }
+
+      // Any search term in any cell
+      return new DataTablesServerDataFilter (aEntries, false, 0);
+    }
+
+    // Only global search is relevant
+    for (int nCellIndex = 0; nCellIndex < nCellCount && nCellIndex < aColumns.length; ++nCellIndex)
+      if (aColumns[nCellIndex].isSearchable ())
+        aEntries.add (new Entry (nCellIndex, aGlobalSearchTexts, bGlobalSearchRegEx, aDisplayLocale));
+
+    return switch (eFilterType)
+    {
+      case ALL_TERMS_PER_ROW -> new DataTablesServerDataFilter (aEntries, true, aGlobalSearchTexts.length);
+      case ANY_TERM_PER_ROW -> new DataTablesServerDataFilter (aEntries, false, 0);
+      default -> throw new IllegalStateException ("Unhandled filter type: " + eFilterType);
+    };
+  }
+}
@@ -142,6 +142,16 @@ public final class DataTablesServerDataRow
     return m_aCells;
   }
 
+  /**
+   * @return The number of cells in this row.
+   * @since 10.3.1
+   */
+  @Nonnegative
+  public int getCellCount ()
+  {
+    return m_aCells.size ();
+  }
+
   @NonNull
   public DataTablesServerDataCell getCellAtIndex (@Nonnegative final int nIndex)
   {
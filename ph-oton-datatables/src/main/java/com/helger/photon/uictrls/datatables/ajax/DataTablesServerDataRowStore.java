@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.photon.uictrls.datatables.ajax;
+
+import org.jspecify.annotations.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.Immutable;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.tostring.ToStringGenerator;
+import com.helger.html.hc.html.tabular.HCRow;
+import com.helger.html.hc.html.tabular.IHCTable;
+
+/**
+ * The rows of a DataTables server side table. By default each {@link DataTablesServerData} has its
+ * own row store. If the table content is identical for all users (e.g. a code list), a single row
+ * store may be created once and shared by all sessions. The rows of a shared store must not be
+ * modified afterwards.
+ *
+ * @author Philip Helger
+ * @since 10.3.1
+ */
+@Immutable
+public final class DataTablesServerDataRowStore
+{
+  private static final Logger LOGGER = LoggerFactory.getLogger (DataTablesServerDataRowStore.class);
+
+  private final DataTablesServerDataRow [] m_aRows;
+  private final int m_nMaxCellCount;
+
+  /**
+   * Create a new row store by copying all body rows of the provided table.
+   *
+   * @param aTable
+   *        The table to copy the body rows from. May not be <code>null</code>.
+   */
+  public DataTablesServerDataRowStore (@NonNull final IHCTable <?> aTable)
+  {
+    ValueEnforcer.notNull (aTable, "Table");
+
+    m_aRows = new DataTablesServerDataRow [aTable.getBodyRowCount ()];
+    int nIndex = 0;
+    int nCells = 0;
+    int nMaxCellCount = 0;
+    for (final HCRow aRow : aTable.getAllBodyRows ())
+    {
+      m_aRows[nIndex++] = new DataTablesServerDataRow (aRow);
+      nCells += aRow.getCellCount ();
+      nMaxCellCount = Math.max (nMaxCellCount, aRow.getCellCount ());
+    }
+    m_nMaxCellCount = nMaxCellCount;
+
+    if (LOGGER.isDebugEnabled ())
+      LOGGER.debug ("Having ServerSide DataTables with " + m_aRows.length + " rows and a total of " + nCells + " cells");
+  }
+
+  /**
+   * @return The number of rows. Always &ge; 0.
+   */
+  @Nonnegative
+  public int getRowCount ()
+  {
+    return m_aRows.length;
+  }
+
+  /**
+   * @return The maximum number of cells of all rows. Always &ge; 0.
+   */
+  @Nonnegative
+  public int getMaxCellCount ()
+  {
+    return m_nMaxCellCount;
+  }
+
+  /**
+   * @return All rows in the original order. The array must not be modified.
+   */
+  @NonNull
+  DataTablesServerDataRow [] directGetAllRows ()
+  {
+    return m_aRows;
+  }
+
+  /**
+   * @return The number of bytes used for the HTML and the text content of all cells, not
+   *         considering sharing of equal contents. Always &ge; 0.
+   */
+  @Nonnegative
+  public long getContentByteCount ()
+  {
+    long ret = 0;
+    for (final DataTablesServerDataRow aRow : m_aRows)
+      for (final DataTablesServerDataCell aCell : aRow.directGetAllCells ())
+        ret += aCell.getContentByteCount ();
+    return ret;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("RowCount", m_aRows.length)
+                                       .append ("MaxCellCount", m_nMaxCellCount)
+                                       .getToString ();
+  }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.photon.uictrls.datatables.ajax;
+
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.jspecify.annotations.NonNull;
+
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.GuardedBy;
+import com.helger.annotation.concurrent.Immutable;
+import com.helger.base.concurrent.SimpleLock;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.tostring.ToStringGenerator;
+
+/**
+ * A compact, interned representation of a string used in DataTables server side cells. The string
+ * is stored as UTF-8 bytes, which requires approximately half of the memory of a
+ * {@link String} for most western texts. Equal strings share the same instance as long as any of
+ * them is referenced, so identical cell contents of different sessions use the memory only once.
+ * The pool is split into several independently locked stripes, so that concurrently created
+ * tables don't contend on a single lock. The decoded string is kept softly reachable, so that
+ * repeated accesses don't decode the bytes again, unless memory gets scarce.
+ *
+ * @author Philip Helger
+ * @since 10.3.1
+ */
+@Immutable
+final class DataTablesServerDataString
+{
+  static final DataTablesServerDataString EMPTY = new DataTablesServerDataString (new byte [0]);
+
+  // Must be a power of 2
+  private static final int STRIPE_COUNT = 32;
+  private static final PoolStripe [] STRIPES = new PoolStripe [STRIPE_COUNT];
+  static
+  {
+    for (int i = 0; i < STRIPE_COUNT; ++i)
+      STRIPES[i] = new PoolStripe ();
+  }
+
+  /**
+   * A single part of the string pool with its own lock.
+   *
+   * @author Philip Helger
+   */
+  private static final class PoolStripe
+  {
+    private final SimpleLock m_aLock = new SimpleLock ();
+    // The value references the key itself, so it must be weak as well
+    @GuardedBy ("m_aLock")
+    private final Map <DataTablesServerDataString, WeakReference <DataTablesServerDataString>> m_aMap = new WeakHashMap <> ();
+  }
+
+  private final byte [] m_aBytes;
+  private final int m_nHashCode;
+  private volatile SoftReference <String> m_aDecoded;
+
+  private DataTablesServerDataString (final byte @NonNull [] aBytes)
+  {
+    m_aBytes = aBytes;
+    m_nHashCode = Arrays.hashCode (aBytes);
+  }
+
+  /**
+   * @return <code>true</code> if the string is empty.
+   */
+  boolean isEmpty ()
+  {
+    return m_aBytes.length == 0;
+  }
+
+  /**
+   * @return The number of bytes of the UTF-8 representation. Always &ge; 0.
+   */
+  @Nonnegative
+  int getByteCount ()
+  {
+    return m_aBytes.length;
+  }
+
+  /**
+   * @return The decoded string. Never <code>null</code>.
+   */
+  @NonNull
+  String getAsString ()
+  {
+    if (m_aBytes.length == 0)
+      return "";
+
+    final SoftReference <String> aRef = m_aDecoded;
+    String ret = aRef == null ? null : aRef.get ();
+    if (ret == null)
+    {
+      // Benign race - concurrent callers may decode the same bytes
+      ret = new String (m_aBytes, StandardCharsets.UTF_8);
+      m_aDecoded = new SoftReference <> (ret);
+    }
+    return ret;
+  }
+
+  @Override
+  public boolean equals (final Object o)
+  {
+    if (o == this)
+      return true;
+    if (o == null || !getClass ().equals (o.getClass ()))
+      return false;
+    final DataTablesServerDataString rhs = (DataTablesServerDataString) o;
+    return m_nHashCode == rhs.m_nHashCode && Arrays.equals (m_aBytes, rhs.m_aBytes);
+  }
+
+  @Override
+  public int hashCode ()
+  {
+    return m_nHashCode;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("ByteCount", m_aBytes.length).getToString ();
+  }
+
+  /**
+   * @return The number of currently pooled strings. Always &ge; 0.
+   */
+  @Nonnegative
+  static int getPoolSize ()
+  {
+    int ret = 0;
+    for (final PoolStripe aStripe : STRIPES)
+      ret += aStripe.m_aLock.lockedInt (aStripe.m_aMap::size);
+    return ret;
+  }
+
+  /**
+   * Get the interned compact representation of the provided string.
+   *
+   * @param s
+   *        The string to convert. May not be <code>null</code>.
+   * @return The pooled instance. Never <code>null</code>.
+   */
+  @NonNull
+  static DataTablesServerDataString create (@NonNull final String s)
+  {
+    ValueEnforcer.notNull (s, "String");
+    if (s.isEmpty ())
+      return EMPTY;
+
+    final DataTablesServerDataString aNew = new DataTablesServerDataString (s.getBytes (StandardCharsets.UTF_8));
+    // Spread the hash bits, as close hash codes are likely
+    final int nHash = aNew.m_nHashCode ^ (aNew.m_nHashCode >>> 16);
+    final PoolStripe aStripe = STRIPES[nHash & (STRIPE_COUNT - 1)];
+
+    // WeakHashMap.get modifies the map, so an exclusive lock is needed
+    return aStripe.m_aLock.lockedGet ( () -> {
+      final WeakReference <DataTablesServerDataString> aRef = aStripe.m_aMap.get (aNew);
+      final DataTablesServerDataString aExisting = aRef == null ? null : aRef.get ();
+      if (aExisting != null)
+        return aExisting;
+      aStripe.m_aMap.put (aNew, new WeakReference <> (aNew));
+      return aNew;
+    });
+  }
+}
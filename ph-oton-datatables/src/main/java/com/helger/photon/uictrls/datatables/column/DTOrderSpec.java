@@ -16,6 +16,7 @@
  */
 package com.helger.photon.uictrls.datatables.column;
 
+import java.text.Collator;
 import java.util.Comparator;
 import java.util.Locale;
 import java.util.function.Function;
@@ -25,7 +26,9 @@ import org.jspecify.annotations.Nullable;
 
 import com.helger.base.compare.CompareHelper;
 import com.helger.base.equals.EqualsHelper;
+import com.helger.base.reflection.GenericReflection;
 import com.helger.base.tostring.ToStringGenerator;
+import com.helger.text.collation.CollatorHelper;
 import com.helger.text.compare.ComparatorHelper;
 
 public class DTOrderSpec
@@ -37,6 +40,8 @@ public class DTOrderSpec
   private Locale m_aDisplayLocale;
   // Status vars
   private transient Comparator <String> m_aComparator;
+  private transient Function <String, Object> m_aSortKeyExtractor;
+  private transient Comparator <Object> m_aSortKeyComparator;
 
   public DTOrderSpec ()
   {}
@@ -47,6 +52,8 @@ public class DTOrderSpec
     m_bCollating = aOther.m_bCollating;
     m_aDisplayLocale = aOther.m_aDisplayLocale;
     m_aComparator = aOther.m_aComparator;
+    m_aSortKeyExtractor = aOther.m_aSortKeyExtractor;
+    m_aSortKeyComparator = aOther.m_aSortKeyComparator;
   }
 
   @Nullable
@@ -84,6 +91,8 @@ public class DTOrderSpec
     }
     // reset status vars
     m_aComparator = null;
+    m_aSortKeyExtractor = null;
+    m_aSortKeyComparator = null;
     return this;
   }
 
@@ -100,6 +109,8 @@ public class DTOrderSpec
       m_bCollating = bCollating;
       // reset status vars
       m_aComparator = null;
+      m_aSortKeyExtractor = null;
+      m_aSortKeyComparator = null;
     }
     return this;
   }
@@ -118,6 +129,8 @@ public class DTOrderSpec
       m_aDisplayLocale = aDisplayLocale;
       // reset status vars
       m_aComparator = null;
+      m_aSortKeyExtractor = null;
+      m_aSortKeyComparator = null;
     }
     return this;
   }
@@ -164,6 +177,105 @@ public class DTOrderSpec
     return ret;
   }
 
+  /**
+   * @return The locale to collate plain texts with, or <code>null</code> if plain texts are compared
+   *         as-is.
+   */
+  @Nullable
+  private Locale _getCollatingLocale ()
+  {
+    return m_aComparableExtractor == null && m_bCollating ? m_aDisplayLocale : null;
+  }
+
+  /**
+   * Get a function that extracts a sort key from a cell text. Sort keys can be computed once per
+   * cell and are compared via {@link #getSortKeyComparator()}. If a comparable extractor is present,
+   * the sort key is the extracted value. If the texts are collated, the sort key is the
+   * {@link java.text.CollationKey} of the text, so that the expensive collation happens only once
+   * per cell and not upon each comparison. Otherwise it is the text itself.
+   *
+   * @return The sort key extractor. Never <code>null</code>.
+   * @since 10.3.1
+   */
+  @NonNull
+  public Function <String, Object> getSortKeyExtractor ()
+  {
+    // Cached version available?
+    Function <String, Object> ret = m_aSortKeyExtractor;
+    if (ret == null)
+    {
+      final IComparableExtractor <?> aCE = m_aComparableExtractor;
+      if (aCE != null)
+      {
+        // Use the provided extractor
+        ret = aCE::apply;
+      }
+      else
+      {
+        final Locale aCollatingLocale = _getCollatingLocale ();
+        if (aCollatingLocale != null)
+        {
+          // Same collator as used by ComparatorHelper.getComparatorCollating, so the order is
+          // identical to getComparator
+          final Collator aCollator = CollatorHelper.getCollatorSpaceBeforeDot (aCollatingLocale);
+          ret = x -> {
+            // Collator instances are not thread-safe
+            synchronized (aCollator)
+            {
+              return aCollator.getCollationKey (x);
+            }
+          };
+        }
+        else
+        {
+          // Use Strings as-is
+          ret = x -> x;
+        }
+      }
+
+      // Cache now
+      m_aSortKeyExtractor = ret;
+    }
+    return ret;
+  }
+
+  /**
+   * Get the comparator for the sort keys created by {@link #getSortKeyExtractor()}. Comparing the
+   * sort keys of two texts has the same result as {@link #getComparator()}. It is independent of the
+   * sort order and <code>null</code> values come first.
+   *
+   * @return The sort key comparator. Never <code>null</code>.
+   * @since 10.3.1
+   */
+  @NonNull
+  public Comparator <Object> getSortKeyComparator ()
+  {
+    // Cached version available?
+    Comparator <Object> ret = m_aSortKeyComparator;
+    if (ret == null)
+    {
+      if (m_aComparableExtractor != null || _getCollatingLocale () != null)
+      {
+        // All keys are created by the same extractor (or are collation keys of the same collator)
+        // and are therefore mutually comparable
+        ret = (o1, o2) -> {
+          final Comparable <Object> aKey1 = GenericReflection.uncheckedCast (o1);
+          return aKey1.compareTo (o2);
+        };
+      }
+      else
+      {
+        // The keys are the texts themselves
+        ret = (o1, o2) -> ((String) o1).compareTo ((String) o2);
+      }
+      ret = Comparator.nullsFirst (ret);
+
+      // Cache now
+      m_aSortKeyComparator = ret;
+    }
+    return ret;
+  }
+
   @Override
   public String toString ()
   {
@@ -0,0 +1,205 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.photon.uictrls.datatables.ajax;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.Locale;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.base.compare.ESortOrder;
+import com.helger.base.io.nonblocking.NonBlockingStringWriter;
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.ICommonsList;
+import com.helger.html.css.DefaultCSSClassProvider;
+import com.helger.html.hc.html.script.HCScriptInline;
+import com.helger.html.hc.html.tabular.HCCol;
+import com.helger.html.hc.html.tabular.HCRow;
+import com.helger.html.hc.html.tabular.HCTable;
+import com.helger.html.hc.html.textlevel.HCStrong;
+import com.helger.html.hc.impl.HCNodeList;
+import com.helger.html.js.UnparsedJSCodeProvider;
+import com.helger.json.serialize.IJsonWriterSettings;
+import com.helger.json.serialize.JsonWriterSettings;
+import com.helger.photon.app.PhotonUnifiedResponse;
+import com.helger.photon.app.mock.PhotonAppWebTestRule;
+import com.helger.photon.uictrls.datatables.DataTablesLengthMenu;
+import com.helger.photon.uictrls.datatables.EDataTablesFilterType;
+
+/**
+ * Test class for class {@link AjaxExecutorDataTables}.
+ *
+ * @author Philip Helger
+ */
+public final class AjaxExecutorDataTablesTest
+{
+  private static final Logger LOGGER = LoggerFactory.getLogger (AjaxExecutorDataTablesTest.class);
+  private static final int COLUMN_COUNT = 3;
+
+  @Rule
+  public final TestRule m_aRule = new PhotonAppWebTestRule ();
+
+  private static HCTable _createTable (final int nRows)
+  {
+    final HCTable aTable = new HCTable (new HCCol (100), HCCol.star (), HCCol.star ());
+    aTable.setID ("dt" + nRows);
+    aTable.addHeaderRow ().addCells ("ID", "Name", "Status");
+    for (int i = 0; i < nRows; ++i)
+    {
+      final HCRow aRow = aTable.addBodyRow ();
+      aRow.setID ("row" + i);
+      if ((i % 2) == 0)
+        aRow.addClass (DefaultCSSClassProvider.create ("even"));
+      if ((i % 3) == 0)
+        aRow.customAttrs ().setDataAttr ("index", i);
+      aRow.addCell (Integer.toString (i));
+      aRow.addCell ("Name \"" + (i % 50) + "\" <é€> \\ /");
+      if ((i % 10) == 0)
+        aRow.addCell (new HCNodeList ().addChild (new HCStrong ().addChild ("Status " + (i % 7)))
+                                       .addChild (new HCScriptInline (new UnparsedJSCodeProvider ("var x" +
+                                                                                                  i +
+                                                                                                  "=1;"))));
+      else
+        aRow.addCell (new HCStrong ().addChild ("Status " + (i % 7)));
+    }
+    return aTable;
+  }
+
+  private static DataTablesServerData _createServerData (final HCTable aTable,
+                                                         final DataTablesServerDataRowStore aRowStore)
+  {
+    return new DataTablesServerData (aTable,
+                                     aRowStore,
+                                     new CommonsArrayList <> (),
+                                     Locale.US,
+                                     EDataTablesFilterType.DEFAULT);
+  }
+
+  private static DTSSRequestData _createRequest (final int nDraw,
+                                                 final int nStart,
+                                                 final int nLength,
+                                                 final String sSearch,
+                                                 final boolean bRegEx,
+                                                 final DTSSRequestDataOrderColumn... aOrderColumns)
+  {
+    final ICommonsList <DTSSRequestDataColumn> aColumns = new CommonsArrayList <> ();
+    for (int i = 0; i < COLUMN_COUNT; ++i)
+      aColumns.add (new DTSSRequestDataColumn (Integer.toString (i), "", true, true, null, false));
+    return new DTSSRequestData (nDraw,
+                                nStart,
+                                nLength,
+                                sSearch,
+                                bRegEx,
+                                aColumns,
+                                new CommonsArrayList <> (aOrderColumns));
+  }
+
+  private static String _getInMemory (final DTSSRequestData aRequestData,
+                                      final DataTablesServerData aServerData,
+                                      final IJsonWriterSettings aJWS)
+  {
+    final DTSSResponseData aResponseData = AjaxExecutorDataTables.createResponseData (aRequestData, aServerData);
+    return PhotonUnifiedResponse.HtmlHelper.getResponseAsJSON (aResponseData.getAsJson (),
+                                                               aResponseData.getSpecialNodes ())
+                                           .getAsJsonString (aJWS);
+  }
+
+  private static String _getStreamed (final DTSSRequestData aRequestData,
+                                      final DataTablesServerData aServerData,
+                                      final IJsonWriterSettings aJWS) throws IOException
+  {
+    try (final NonBlockingStringWriter aSW = new NonBlockingStringWriter ())
+    {
+      AjaxExecutorDataTables.writeResponseJson (aRequestData, aServerData, aJWS, aSW);
+      return aSW.getAsString ();
+    }
+  }
+
+  @Test
+  public void testStreamedIsIdentical () throws IOException
+  {
+    final IJsonWriterSettings aJWS = JsonWriterSettings.DEFAULT_SETTINGS;
+    final HCTable aTable = _createTable (250);
+    final DataTablesServerDataRowStore aRowStore = new DataTablesServerDataRowStore (aTable);
+    final DataTablesServerData aSD1 = _createServerData (aTable, aRowStore);
+    final DataTablesServerData aSD2 = _createServerData (aTable, aRowStore);
+
+    final int nAll = DataTablesLengthMenu.COUNT_ALL;
+    final DTSSRequestData [] aRequests = { _createRequest (1, 0, 10, null, false),
+                                           _createRequest (2, 20, 25, null, false),
+                                           _createRequest (3,
+                                                           0,
+                                                           10,
+                                                           null,
+                                                           false,
+                                                           new DTSSRequestDataOrderColumn (1, ESortOrder.DESCENDING)),
+                                           _createRequest (4, 0, nAll, null, false),
+                                           _createRequest (5, 5, 50, "name \"1", false),
+                                           _createRequest (6,
+                                                           0,
+                                                           nAll,
+                                                           "status 3",
+                                                           false,
+                                                           new DTSSRequestDataOrderColumn (0, ESortOrder.ASCENDING)),
+                                           _createRequest (7, 0, nAll, "Status [0-2]", true),
+                                           _createRequest (8, 0, 10, "no such text", false),
+                                           _createRequest (9, 1000, 10, null, false) };
+    for (final DTSSRequestData aRequestData : aRequests)
+    {
+      final String sExpected = _getInMemory (aRequestData, aSD1, aJWS);
+      final String sStreamed = _getStreamed (aRequestData, aSD2, aJWS);
+      assertEquals (sExpected, sStreamed);
+    }
+  }
+
+  @Test
+  public void testStreamedPerformance () throws IOException
+  {
+    final IJsonWriterSettings aJWS = JsonWriterSettings.DEFAULT_SETTINGS;
+    final HCTable aTable = _createTable (20_000);
+    final DataTablesServerDataRowStore aRowStore = new DataTablesServerDataRowStore (aTable);
+    final DataTablesServerData aSD = _createServerData (aTable, aRowStore);
+    final DTSSRequestData aRequestData = _createRequest (1, 0, DataTablesLengthMenu.COUNT_ALL, null, false);
+
+    final int nRuns = 5;
+    long nInMemoryNanos = 0;
+    long nStreamedNanos = 0;
+    for (int i = 0; i < nRuns; ++i)
+    {
+      long nStart = System.nanoTime ();
+      final String sExpected = _getInMemory (aRequestData, aSD, aJWS);
+      nInMemoryNanos += System.nanoTime () - nStart;
+
+      nStart = System.nanoTime ();
+      final String sStreamed = _getStreamed (aRequestData, aSD, aJWS);
+      nStreamedNanos += System.nanoTime () - nStart;
+
+      assertEquals (sExpected.length (), sStreamed.length ());
+    }
+    LOGGER.info ("Responding with 20000 rows: JSON tree " +
+                 (nInMemoryNanos / nRuns / 1_000_000) +
+                 "ms; streamed " +
+                 (nStreamedNanos / nRuns / 1_000_000) +
+                 "ms");
+  }
+}
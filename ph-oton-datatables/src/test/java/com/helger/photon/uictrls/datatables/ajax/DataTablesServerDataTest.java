@@ -0,0 +1,324 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.photon.uictrls.datatables.ajax;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+import org.jspecify.annotations.NonNull;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+
+import com.helger.base.compare.ESortOrder;
+import com.helger.base.string.StringParser;
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.ICommonsList;
+import com.helger.html.hc.IHCConversionSettings;
+import com.helger.html.hc.IHCNodeList;
+import com.helger.html.hc.html.tabular.HCCol;
+import com.helger.html.hc.html.tabular.HCRow;
+import com.helger.html.hc.html.tabular.HCTable;
+import com.helger.html.hc.html.tabular.IHCCell;
+import com.helger.html.hc.html.textlevel.HCStrong;
+import com.helger.html.hc.render.HCRenderer;
+import com.helger.photon.app.mock.PhotonAppWebTestRule;
+import com.helger.photon.uictrls.datatables.EDataTablesFilterType;
+import com.helger.photon.uictrls.datatables.column.DataTablesColumnDef;
+import com.helger.xml.microdom.IMicroNode;
+import com.helger.xml.microdom.IMicroNodeWithChildren;
+import com.helger.xml.microdom.serialize.MicroWriter;
+
+/**
+ * Test class for class {@link DataTablesServerData}.
+ *
+ * @author Philip Helger
+ */
+public final class DataTablesServerDataTest
+{
+  @Rule
+  public final TestRule m_aRule = new PhotonAppWebTestRule ();
+
+  /**
+   * The previous cell layout, that kept the HC tree, the MicroDOM tree, the HTML and the text.
+   */
+  private static final class LegacyCell
+  {
+    private final IHCNodeList <?> m_aContent;
+    private final IMicroNode m_aMicroNode;
+    private final String m_sHTML;
+    private final String m_sTextContent;
+
+    LegacyCell (final IHCCell <?> aCell)
+    {
+      final IHCConversionSettings aCS = DataTablesServerData.DEFAULT_CONVERSION_SETTINGS;
+      m_aContent = aCell.getAllChildrenAsNodeList ();
+      HCRenderer.prepareForConversion (m_aContent, m_aContent, aCS);
+      m_aMicroNode = m_aContent.convertToMicroNode (aCS);
+      m_sHTML = MicroWriter.getNodeAsString (m_aMicroNode, aCS.getXMLWriterSettings ());
+      m_sTextContent = ((IMicroNodeWithChildren) m_aMicroNode).getTextContent ();
+    }
+  }
+
+  private static HCTable _createTable (final int nRows)
+  {
+    final HCTable aTable = new HCTable (new HCCol (100), HCCol.star (), HCCol.star (), HCCol.star ());
+    aTable.setID ("dt" + nRows);
+    aTable.addHeaderRow ().addCells ("ID", "Name", "Status", "Amount");
+    for (int i = 0; i < nRows; ++i)
+    {
+      final HCRow aRow = aTable.addBodyRow ();
+      aRow.addCell (Integer.toString (i));
+      aRow.addCell ("Name <" + (i % 500) + ">");
+      aRow.addCell (new HCStrong ().addChild ("Status " + (i % 5)));
+      aRow.addCell ((i % 1000) + ".00 EUR");
+    }
+    return aTable;
+  }
+
+  private static DataTablesServerData _createServerData (final HCTable aTable,
+                                                         final DataTablesServerDataRowStore aRowStore)
+  {
+    return new DataTablesServerData (aTable,
+                                     aRowStore,
+                                     new CommonsArrayList <> (),
+                                     Locale.US,
+                                     EDataTablesFilterType.DEFAULT);
+  }
+
+  @Test
+  public void testCompactCells ()
+  {
+    final HCTable aTable = _createTable (10);
+    final DataTablesServerData aSD = new DataTablesServerData (aTable,
+                                                               new CommonsArrayList <> (),
+                                                               Locale.US,
+                                                               EDataTablesFilterType.DEFAULT);
+    assertEquals (10, aSD.getRowCount ());
+    assertEquals (4, aSD.getColumnCount ());
+
+    final DataTablesServerDataRow aRow = aSD.getAllRows ().get (3);
+    assertEquals ("3", aRow.getCellAtIndex (0).getTextContent ());
+    assertEquals ("Name <3>", aRow.getCellAtIndex (1).getTextContent ());
+    assertTrue (aRow.getCellAtIndex (1).getHTMLString ().startsWith ("Name &lt;3"));
+    assertEquals ("Status 3", aRow.getCellAtIndex (2).getTextContent ());
+    assertTrue (aRow.getCellAtIndex (2).getHTMLString ().startsWith ("<strong"));
+
+    // Same content as legacy rendering
+    final ICommonsList <HCRow> aLegacyRows = _createTable (10).getAllBodyRows ();
+    for (int nRow = 0; nRow < aLegacyRows.size (); ++nRow)
+    {
+      final HCRow aLegacyRow = aLegacyRows.get (nRow);
+      final DataTablesServerDataRow aNewRow = aSD.getAllRows ().get (nRow);
+      for (int i = 0; i < aLegacyRow.getCellCount (); ++i)
+      {
+        final LegacyCell aLegacy = new LegacyCell (aLegacyRow.getChildAtIndex (i));
+        assertEquals (aLegacy.m_sHTML, aNewRow.getCellAtIndex (i).getHTMLString ());
+        assertEquals (aLegacy.m_sTextContent, aNewRow.getCellAtIndex (i).getTextContent ());
+      }
+    }
+
+    // Equal contents are shared
+    assertSame (DataTablesServerDataString.create ("Name <3>"), DataTablesServerDataString.create ("Name <3>"));
+    assertSame (DataTablesServerDataString.EMPTY, DataTablesServerDataString.create (""));
+    assertEquals ("äöü €", DataTablesServerDataString.create ("äöü €").getAsString ());
+  }
+
+  @Test
+  public void testCompactContentSize ()
+  {
+    final int nRows = 1_000;
+    final HCTable aTable = _createTable (nRows);
+
+    // Only the UTF-8 bytes of HTML and text are kept - no HC or MicroDOM trees
+    long nExpectedBytes = 0;
+    for (final HCRow aRow : _createTable (nRows).getAllBodyRows ())
+      for (final IHCCell <?> aCell : aRow.getChildren ())
+      {
+        final LegacyCell aLegacy = new LegacyCell (aCell);
+        nExpectedBytes += aLegacy.m_sHTML.getBytes (StandardCharsets.UTF_8).length +
+                          aLegacy.m_sTextContent.getBytes (StandardCharsets.UTF_8).length;
+      }
+    final DataTablesServerDataRowStore aStore = new DataTablesServerDataRowStore (aTable);
+    assertEquals (nRows, aStore.getRowCount ());
+    assertEquals (4, aStore.getMaxCellCount ());
+    assertEquals (nExpectedBytes, aStore.getContentByteCount ());
+  }
+
+  @Test
+  public void testSharedContent ()
+  {
+    final int nRows = 1_000;
+    final DataTablesServerDataRowStore aStore1 = new DataTablesServerDataRowStore (_createTable (nRows));
+    final int nPoolSize = DataTablesServerDataString.getPoolSize ();
+    assertTrue (nPoolSize > 0);
+
+    // A second store of the same content must not add any new pooled string
+    final DataTablesServerDataRowStore aStore2 = new DataTablesServerDataRowStore (_createTable (nRows));
+    assertTrue (DataTablesServerDataString.getPoolSize () <= nPoolSize);
+    for (int nRow = 0; nRow < nRows; ++nRow)
+    {
+      final DataTablesServerDataRow aRow1 = aStore1.directGetAllRows ()[nRow];
+      final DataTablesServerDataRow aRow2 = aStore2.directGetAllRows ()[nRow];
+      assertNotSame (aRow1, aRow2);
+      for (int i = 0; i < 4; ++i)
+      {
+        // Same decoded instance, because the underlying strings are shared
+        assertSame (aRow1.getCellAtIndex (i).getHTMLString (), aRow2.getCellAtIndex (i).getHTMLString ());
+        assertSame (aRow1.getCellAtIndex (i).getTextContent (), aRow2.getCellAtIndex (i).getTextContent ());
+      }
+    }
+
+    // Server data on a shared store use the same rows
+    final HCTable aTable = _createTable (nRows);
+    final DataTablesServerDataRowStore aSharedStore = new DataTablesServerDataRowStore (aTable);
+    final DataTablesServerData aSD1 = _createServerData (aTable, aSharedStore);
+    final DataTablesServerData aSD2 = _createServerData (aTable, aSharedStore);
+    assertSame (aSharedStore, aSD1.getRowStore ());
+    assertSame (aSharedStore, aSD2.getRowStore ());
+    for (int nRow = 0; nRow < nRows; ++nRow)
+    {
+      assertSame (aSharedStore.directGetAllRows ()[nRow], aSD1.getAllRows ().get (nRow));
+      assertSame (aSharedStore.directGetAllRows ()[nRow], aSD2.getAllRows ().get (nRow));
+    }
+  }
+
+  @Test
+  public void testGetContent ()
+  {
+    final DataTablesServerData aSD = new DataTablesServerData (_createTable (5),
+                                                               new CommonsArrayList <> (),
+                                                               Locale.US,
+                                                               EDataTablesFilterType.DEFAULT);
+    final IHCConversionSettings aCS = DataTablesServerData.DEFAULT_CONVERSION_SETTINGS;
+    for (final DataTablesServerDataRow aRow : aSD.getAllRows ())
+      for (int i = 0; i < 4; ++i)
+      {
+        final DataTablesServerDataCell aCell = aRow.getCellAtIndex (i);
+        @SuppressWarnings ("deprecation")
+        final IHCNodeList <?> aContent = aCell.getContent ();
+        assertNotNull (aContent);
+        assertTrue (aContent.hasChildren ());
+        final IMicroNode aMicroNode = aContent.convertToMicroNode (aCS);
+        assertEquals (aCell.getTextContent (), ((IMicroNodeWithChildren) aMicroNode).getTextContent ());
+        if (i == 2)
+          assertTrue (HCRenderer.getAsHTMLString (aContent, aCS).contains ("strong"));
+      }
+  }
+
+  private static final String [] SORT_NAMES = { "Äpfel",
+                                                "apfel",
+                                                "Apfel",
+                                                "Zebra",
+                                                "zebra",
+                                                "Öl",
+                                                "Ol",
+                                                "Ober",
+                                                "a.b",
+                                                "a b",
+                                                "ab",
+                                                "Straße",
+                                                "Strasse",
+                                                "élan",
+                                                "Elan",
+                                                "",
+                                                "10",
+                                                "9" };
+
+  private static void _testSortSameAsComparator (@NonNull final DataTablesColumnDef aAmountColumn,
+                                                 @NonNull final DTSSRequestDataOrderColumn... aOrderColumns)
+  {
+    final HCTable aTable = new HCTable (HCCol.star (), HCCol.star (), HCCol.star ());
+    aTable.addHeaderRow ().addCells ("Name", "Amount", "Group");
+    for (int i = 0; i < 200; ++i)
+      aTable.addBodyRow ()
+            .addCells (SORT_NAMES[i % SORT_NAMES.length],
+                       i % 11 == 0 ? "n/a" : Integer.toString (i * 7 % 13),
+                       "G" + (i % 3));
+    final DataTablesServerData aSD = new DataTablesServerData (aTable,
+                                                               new CommonsArrayList <> (aAmountColumn),
+                                                               Locale.GERMANY,
+                                                               EDataTablesFilterType.DEFAULT);
+    final ICommonsList <DTSSRequestDataOrderColumn> aOrderColumnList = new CommonsArrayList <> (aOrderColumns);
+    final DataTablesServerSortState aSortState = new DataTablesServerSortState (aSD, aOrderColumnList, Locale.GERMANY);
+
+    // The previous implementation compared the cell texts via the order comparators
+    final ICommonsList <DataTablesServerDataRow> aExpected = aSD.getAllRows ();
+    aExpected.sort ( (aRow1, aRow2) -> {
+      for (final DTSSRequestDataOrderColumn aOrderColumn : aOrderColumnList)
+      {
+        final int nIndex = aOrderColumn.getColumnIndex ();
+        final int ret = aOrderColumn.getOrderComparator ()
+                                    .compare (aRow1.getCellAtIndex (nIndex).getTextContent (),
+                                              aRow2.getCellAtIndex (nIndex).getTextContent ());
+        if (ret != 0)
+          return ret;
+      }
+      return 0;
+    });
+
+    aSD.setServerSortStateAndSort (aSortState);
+    assertEquals (aExpected, aSD.getAllRows ());
+  }
+
+  @Test
+  public void testSortSameAsComparator ()
+  {
+    final DataTablesColumnDef aAmountColumn = new DataTablesColumnDef (1);
+    aAmountColumn.getOrderSpec ().setComparableExtractor (null, x -> StringParser.parseIntObj (x));
+
+    _testSortSameAsComparator (aAmountColumn, new DTSSRequestDataOrderColumn (0, ESortOrder.ASCENDING));
+    _testSortSameAsComparator (aAmountColumn, new DTSSRequestDataOrderColumn (0, ESortOrder.DESCENDING));
+    _testSortSameAsComparator (aAmountColumn, new DTSSRequestDataOrderColumn (1, ESortOrder.ASCENDING));
+    _testSortSameAsComparator (aAmountColumn, new DTSSRequestDataOrderColumn (1, ESortOrder.DESCENDING));
+    _testSortSameAsComparator (aAmountColumn,
+                               new DTSSRequestDataOrderColumn (2, ESortOrder.ASCENDING),
+                               new DTSSRequestDataOrderColumn (1, ESortOrder.DESCENDING),
+                               new DTSSRequestDataOrderColumn (0, ESortOrder.ASCENDING));
+    _testSortSameAsComparator (aAmountColumn,
+                               new DTSSRequestDataOrderColumn (2, ESortOrder.DESCENDING),
+                               new DTSSRequestDataOrderColumn (0, ESortOrder.DESCENDING));
+  }
+
+  @Test
+  public void testSortShortRows ()
+  {
+    final HCTable aTable = new HCTable (HCCol.star (), HCCol.star ());
+    aTable.addBodyRow ().addCells ("b", "2");
+    aTable.addBodyRow ().addCells ("a");
+    aTable.addBodyRow ().addCells ("c", "1");
+    final DataTablesServerData aSD = new DataTablesServerData (aTable,
+                                                               new CommonsArrayList <> (),
+                                                               Locale.US,
+                                                               EDataTablesFilterType.DEFAULT);
+    aSD.setServerSortStateAndSort (new DataTablesServerSortState (aSD,
+                                                                  new CommonsArrayList <> (new DTSSRequestDataOrderColumn (1,
+                                                                                                                           ESortOrder.ASCENDING)),
+                                                                  Locale.US));
+    // Missing cells come first
+    final ICommonsList <DataTablesServerDataRow> aRows = aSD.getAllRows ();
+    assertEquals ("a", aRows.get (0).getCellAtIndex (0).getTextContent ());
+    assertEquals ("c", aRows.get (1).getCellAtIndex (0).getTextContent ());
+    assertEquals ("b", aRows.get (2).getCellAtIndex (0).getTextContent ());
+  }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.photon.uictrls.datatables.column;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.text.CollationKey;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+
+import org.junit.Test;
+
+/**
+ * Test class for class {@link DTOrderSpec}.
+ *
+ * @author Philip Helger
+ */
+public final class DTOrderSpecTest
+{
+  private static final List <String> TEXTS = Arrays.asList ("\u00c4pfel",
+                                                             "apfel",
+                                                             "Zebra",
+                                                             "\u00f6l",
+                                                             "Ol",
+                                                             "a.b",
+                                                             "a b",
+                                                             "",
+                                                             null,
+                                                             "stra\u00dfe",
+                                                             "Strasse");
+
+  private static void _assertSameOrder (final DTOrderSpec aOrderSpec)
+  {
+    final Comparator <String> aComparator = Comparator.nullsFirst (aOrderSpec.getComparator ());
+    final Function <String, Object> aExtractor = aOrderSpec.getSortKeyExtractor ();
+    final Comparator <Object> aKeyComparator = aOrderSpec.getSortKeyComparator ();
+    for (final String s1 : TEXTS)
+      for (final String s2 : TEXTS)
+        assertEquals (s1 + " vs. " + s2,
+                      Integer.signum (aComparator.compare (s1, s2)),
+                      Integer.signum (aKeyComparator.compare (aExtractor.apply (s1), aExtractor.apply (s2))));
+  }
+
+  @Test
+  public void testSortKeys ()
+  {
+    // Collating
+    final DTOrderSpec aOrderSpec = new DTOrderSpec ().setDisplayLocale (Locale.GERMANY);
+    assertTrue (aOrderSpec.getSortKeyExtractor ().apply ("abc") instanceof CollationKey);
+    _assertSameOrder (aOrderSpec);
+
+    // Not collating
+    aOrderSpec.setCollating (false);
+    assertEquals ("abc", aOrderSpec.getSortKeyExtractor ().apply ("abc"));
+    _assertSameOrder (aOrderSpec);
+
+    // With extractor
+    aOrderSpec.setComparableExtractor (null, x -> x == null ? null : Integer.valueOf (x.length ()));
+    _assertSameOrder (aOrderSpec);
+  }
+}
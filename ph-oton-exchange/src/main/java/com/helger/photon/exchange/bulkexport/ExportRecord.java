@@ -23,6 +23,7 @@ import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.OffsetDateTime;
 import java.time.ZonedDateTime;
+import java.util.function.BiFunction;
 
 import org.jspecify.annotations.NonNull;
 import org.jspecify.annotations.Nullable;
@@ -215,6 +216,37 @@ public class ExportRecord implements IExportRecord
     return m_aFields.size ();
   }
 
+  /**
+   * Create a copy of the provided record, where the value of each field is
+   * converted by the provided function. The field types stay unchanged and
+   * <code>null</code> values are not passed to the converter.
+   *
+   * @param aRecord
+   *        The source record. May not be <code>null</code>.
+   * @param aConverter
+   *        The converter that gets the field type and the non-<code>null</code>
+   *        field value and returns the new field value. May not be
+   *        <code>null</code>.
+   * @return The new record. Never <code>null</code>.
+   * @since 10.3.1
+   */
+  @NonNull
+  public static ExportRecord createWithConvertedValues (@NonNull final IExportRecord aRecord,
+                                                        @NonNull final BiFunction <EExportDataType, Object, Object> aConverter)
+  {
+    ValueEnforcer.notNull (aRecord, "Record");
+    ValueEnforcer.notNull (aConverter, "Converter");
+
+    final ExportRecord ret = new ExportRecord ();
+    for (final IExportRecordField aField : aRecord.getAllFields ())
+    {
+      final EExportDataType eFieldType = aField.getFieldType ();
+      final Object aValue = aField.getFieldValue ();
+      ret.m_aFields.add (new ExportRecordField (eFieldType, aValue == null ? null : aConverter.apply (eFieldType, aValue)));
+    }
+    return ret;
+  }
+
   @Override
   public boolean equals (final Object o)
   {
@@ -43,4 +43,25 @@ public interface IExporter
    */
   @NonNull
   ESuccess exportRecords (@NonNull IExportRecordProvider aProvider, @NonNull @WillClose OutputStream aOS);
+
+  /**
+   * Prepare a single record for this exporter, before it is passed to
+   * {@link #exportRecords(IExportRecordProvider, OutputStream)}. This is the
+   * place to do the expensive, format specific value conversions that don't
+   * depend on the output state. The returned record must contain the same
+   * field types as the source record. This method may be called concurrently
+   * from multiple threads (see {@link ParallelExportRecordProvider}) and
+   * therefore must not modify the state of this exporter.
+   *
+   * @param aRecord
+   *        The record to be prepared. May not be <code>null</code>.
+   * @return The prepared record. May be the source record itself. Never
+   *         <code>null</code>.
+   * @since 10.3.1
+   */
+  @NonNull
+  default IExportRecord prepareRecord (@NonNull final IExportRecord aRecord)
+  {
+    return aRecord;
+  }
 }
@@ -0,0 +1,272 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.photon.exchange.bulkexport;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+import org.jspecify.annotations.NonNull;
+
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.NotThreadSafe;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.tostring.ToStringGenerator;
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.ICommonsList;
+
+/**
+ * An {@link IExportRecordProvider} that wraps another provider and prepares
+ * the body records in parallel. The body records of the source provider are
+ * collected into chunks of {@link #getChunkSize()} records and each chunk is
+ * prepared on the configured {@link Executor}, which defaults to the shared
+ * {@link ForkJoinPool#commonPool()}. The prepared records are passed
+ * to the consumer on the calling thread and in the original order, so any
+ * {@link IExporter} can be used without modification. The number of chunks
+ * that are pending at any time is limited to twice the parallelism, so the
+ * memory consumption stays bounded even if the source is much faster than the
+ * output. Header and footer records are prepared on the calling thread.<br>
+ * Typical usage:
+ *
+ * <pre>
+ * aExporter.exportRecords (new ParallelExportRecordProvider (aProvider, aExporter::prepareRecord), aOS);
+ * </pre>
+ *
+ * @author Philip Helger
+ * @since 10.3.1
+ */
+@NotThreadSafe
+public class ParallelExportRecordProvider implements IExportRecordProvider
+{
+  /** The default number of records per chunk */
+  public static final int DEFAULT_CHUNK_SIZE = 512;
+  /** The number of pending chunks per thread before the source is blocked */
+  public static final int PENDING_CHUNKS_PER_THREAD = 2;
+
+  private final IExportRecordProvider m_aSource;
+  private final UnaryOperator <IExportRecord> m_aPreparer;
+  private int m_nChunkSize = DEFAULT_CHUNK_SIZE;
+  private int m_nParallelism = Runtime.getRuntime ().availableProcessors ();
+  private Executor m_aExecutor = ForkJoinPool.commonPool ();
+
+  /**
+   * Constructor
+   *
+   * @param aSource
+   *        The source record provider. May not be <code>null</code>.
+   * @param aPreparer
+   *        The function to prepare a single record. Must be thread-safe,
+   *        because it is invoked concurrently. Usually this is
+   *        {@link IExporter#prepareRecord(IExportRecord)} of the exporter to
+   *        be used. May not be <code>null</code>.
+   */
+  public ParallelExportRecordProvider (@NonNull final IExportRecordProvider aSource,
+                                       @NonNull final UnaryOperator <IExportRecord> aPreparer)
+  {
+    ValueEnforcer.notNull (aSource, "Source");
+    ValueEnforcer.notNull (aPreparer, "Preparer");
+    m_aSource = aSource;
+    m_aPreparer = aPreparer;
+  }
+
+  /**
+   * @return The number of body records that are prepared together. Always
+   *         &gt; 0.
+   */
+  @Nonnegative
+  public final int getChunkSize ()
+  {
+    return m_nChunkSize;
+  }
+
+  /**
+   * @param nChunkSize
+   *        The number of body records that are prepared together. Must be
+   *        &gt; 0.
+   * @return this for chaining
+   */
+  @NonNull
+  public final ParallelExportRecordProvider setChunkSize (@Nonnegative final int nChunkSize)
+  {
+    ValueEnforcer.isGT0 (nChunkSize, "ChunkSize");
+    m_nChunkSize = nChunkSize;
+    return this;
+  }
+
+  /**
+   * @return The number of chunks that are prepared concurrently. Together
+   *         with {@link #PENDING_CHUNKS_PER_THREAD} this limits the number of
+   *         pending chunks. Always &gt; 0. Defaults to the number of available
+   *         processors.
+   */
+  @Nonnegative
+  public final int getParallelism ()
+  {
+    return m_nParallelism;
+  }
+
+  /**
+   * @param nParallelism
+   *        The number of chunks that are prepared concurrently. Must be &gt;
+   *        0.
+   * @return this for chaining
+   */
+  @NonNull
+  public final ParallelExportRecordProvider setParallelism (@Nonnegative final int nParallelism)
+  {
+    ValueEnforcer.isGT0 (nParallelism, "Parallelism");
+    m_nParallelism = nParallelism;
+    return this;
+  }
+
+  /**
+   * @return The executor used to prepare the body records. Never
+   *         <code>null</code>. Defaults to {@link ForkJoinPool#commonPool()}.
+   */
+  @NonNull
+  public final Executor getExecutor ()
+  {
+    return m_aExecutor;
+  }
+
+  /**
+   * @param aExecutor
+   *        The executor used to prepare the body records. May not be
+   *        <code>null</code>. The executor is not shut down by this class.
+   * @return this for chaining
+   */
+  @NonNull
+  public final ParallelExportRecordProvider setExecutor (@NonNull final Executor aExecutor)
+  {
+    ValueEnforcer.notNull (aExecutor, "Executor");
+    m_aExecutor = aExecutor;
+    return this;
+  }
+
+  @Override
+  public void forEachHeaderRecord (@NonNull final Consumer <? super IExportRecord> aConsumer)
+  {
+    m_aSource.forEachHeaderRecord (x -> aConsumer.accept (m_aPreparer.apply (x)));
+  }
+
+  @Override
+  public void forEachBodyRecord (@NonNull final Consumer <? super IExportRecord> aConsumer)
+  {
+    final ChunkProcessor aProcessor = new ChunkProcessor (aConsumer);
+    m_aSource.forEachBodyRecord (aProcessor);
+    aProcessor.finish ();
+  }
+
+  @Override
+  public void forEachFooterRecord (@NonNull final Consumer <? super IExportRecord> aConsumer)
+  {
+    m_aSource.forEachFooterRecord (x -> aConsumer.accept (m_aPreparer.apply (x)));
+  }
+
+  /**
+   * Collects the source records into chunks, submits them to the executor and
+   * emits the prepared chunks in order.
+   *
+   * @author Philip Helger
+   */
+  private final class ChunkProcessor implements Consumer <IExportRecord>
+  {
+    private final Executor m_aExecutor;
+    private final Consumer <? super IExportRecord> m_aConsumer;
+    private final int m_nMaxPending;
+    private final Deque <CompletableFuture <IExportRecord []>> m_aPending = new ArrayDeque <> ();
+    private ICommonsList <IExportRecord> m_aChunk;
+
+    ChunkProcessor (@NonNull final Consumer <? super IExportRecord> aConsumer)
+    {
+      m_aExecutor = ParallelExportRecordProvider.this.m_aExecutor;
+      m_aConsumer = aConsumer;
+      m_nMaxPending = m_nParallelism * PENDING_CHUNKS_PER_THREAD;
+      m_aChunk = new CommonsArrayList <> (m_nChunkSize);
+    }
+
+    private void _submitChunk ()
+    {
+      final ICommonsList <IExportRecord> aChunk = m_aChunk;
+      m_aPending.addLast (CompletableFuture.supplyAsync ( () -> {
+        final IExportRecord [] ret = new IExportRecord [aChunk.size ()];
+        for (int i = 0; i < ret.length; ++i)
+          ret[i] = m_aPreparer.apply (aChunk.get (i));
+        return ret;
+      }, m_aExecutor));
+      m_aChunk = new CommonsArrayList <> (m_nChunkSize);
+    }
+
+    private void _emitFirstChunk ()
+    {
+      // Blocks until the chunk is prepared; exceptions are propagated
+      final IExportRecord [] aRecords;
+      try
+      {
+        aRecords = m_aPending.removeFirst ().join ();
+      }
+      catch (final CompletionException ex)
+      {
+        if (ex.getCause () instanceof final RuntimeException aRTE)
+          throw aRTE;
+        throw ex;
+      }
+      for (final IExportRecord aRecord : aRecords)
+        m_aConsumer.accept (aRecord);
+    }
+
+    public void accept (@NonNull final IExportRecord aRecord)
+    {
+      m_aChunk.add (aRecord);
+      if (m_aChunk.size () >= m_nChunkSize)
+      {
+        _submitChunk ();
+
+        // Backpressure: wait for the oldest chunk if too many are pending
+        while (m_aPending.size () >= m_nMaxPending)
+          _emitFirstChunk ();
+
+        // Emit everything that is already done, to keep the output flowing
+        while (!m_aPending.isEmpty () && m_aPending.peekFirst ().isDone ())
+          _emitFirstChunk ();
+      }
+    }
+
+    void finish ()
+    {
+      if (m_aChunk.isNotEmpty ())
+        _submitChunk ();
+      while (!m_aPending.isEmpty ())
+        _emitFirstChunk ();
+    }
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Source", m_aSource)
+                                       .append ("ChunkSize", m_nChunkSize)
+                                       .append ("Parallelism", m_nParallelism)
+                                       .append ("Executor", m_aExecutor)
+                                       .getToString ();
+  }
+}
@@ -41,6 +41,7 @@ import com.helger.collection.commons.ICommonsList;
 import com.helger.csv.CCSV;
 import com.helger.csv.CSVWriter;
 import com.helger.photon.exchange.EExchangeFileType;
+import com.helger.photon.exchange.bulkexport.ExportRecord;
 import com.helger.photon.exchange.bulkexport.IExportRecord;
 import com.helger.photon.exchange.bulkexport.IExportRecordField;
 import com.helger.photon.exchange.bulkexport.IExportRecordProvider;
@@ -178,9 +179,10 @@ public class ExporterCSV implements IExporterFile
   }
 
   /**
-   * Enable or disable that empty files are written. By enabling this, all records are collected
-   * which results in higher memory consumption but safer output. If this is disabled (the default)
-   * than it my happen that nothing is written on the output stream.
+   * Enable or disable that empty files are written. By enabling this, the output (including the BOM)
+   * is only started with the first record, so nothing is written if there are no records. If this is
+   * disabled (the default) the BOM is written even if there are no records. In both cases the records
+   * are written directly, so the memory consumption does not depend on the number of records.
    *
    * @param bAvoidWriteEmpty
    *        <code>true</code> to collect before write, <code>false</code> to write directly
@@ -258,6 +260,68 @@ public class ExporterCSV implements IExporterFile
                                                                    .setAvoidFinalLineEnd (m_bAvoidFinalLineEnd);
   }
 
+  /**
+   * Writes the records as they are provided. The output is only started with the first record.
+   *
+   * @author Philip Helger
+   */
+  private final class StreamingWriter
+  {
+    private final OutputStream m_aOS;
+    private CSVWriter m_aWriter;
+    // The first error, as the consumers cannot throw checked exceptions
+    private IOException m_aError;
+
+    StreamingWriter (@NonNull final OutputStream aOS)
+    {
+      m_aOS = aOS;
+    }
+
+    void start () throws IOException
+    {
+      // Write BOM if necessary
+      if (m_eBOM != null)
+        m_aOS.write (m_eBOM.getAllBytes ());
+      m_aWriter = createCSVWriter (m_aOS);
+    }
+
+    void writeRecord (@NonNull final IExportRecord aRecord)
+    {
+      if (m_aError != null)
+        return;
+      try
+      {
+        if (m_aWriter == null)
+          start ();
+        m_aWriter.writeNext (_getAsCSVRecord (aRecord));
+      }
+      catch (final IOException ex)
+      {
+        m_aError = ex;
+      }
+    }
+
+    boolean finish () throws IOException
+    {
+      if (m_aError != null)
+        throw m_aError;
+      if (m_aWriter == null)
+        return false;
+      m_aWriter.close ();
+      return true;
+    }
+  }
+
+  /**
+   * {@inheritDoc} All field values are converted to {@link String} upfront.
+   */
+  @Override
+  @NonNull
+  public IExportRecord prepareRecord (@NonNull final IExportRecord aRecord)
+  {
+    return ExportRecord.createWithConvertedValues (aRecord, (eType, aValue) -> TypeConverter.convert (aValue, String.class));
+  }
+
   @Override
   @NonNull
   public ESuccess exportRecords (@NonNull final IExportRecordProvider aProvider,
@@ -268,43 +332,21 @@ public class ExporterCSV implements IExporterFile
       ValueEnforcer.notNull (aProvider, "Provider");
       ValueEnforcer.notNull (aOS, "OutputStream");
 
-      if (m_bAvoidWriteEmpty)
+      final StreamingWriter aSW = new StreamingWriter (aOS);
+      if (!m_bAvoidWriteEmpty)
       {
-        // Collect all records in the correct order
-        final ICommonsList <ICommonsList <String>> aCSVRecords = new CommonsArrayList <> ();
-        aProvider.forEachHeaderRecord (x -> aCSVRecords.add (_getAsCSVRecord (x)));
-        aProvider.forEachBodyRecord (x -> aCSVRecords.add (_getAsCSVRecord (x)));
-        aProvider.forEachFooterRecord (x -> aCSVRecords.add (_getAsCSVRecord (x)));
-
-        if (aCSVRecords.isEmpty ())
-        {
-          // No records to handle
-          return ESuccess.FAILURE;
-        }
-
-        // Write BOM if necessary
-        if (m_eBOM != null)
-          aOS.write (m_eBOM.getAllBytes ());
-
-        try (final CSVWriter aWriter = createCSVWriter (aOS))
-        {
-          aWriter.writeAll (aCSVRecords);
-        }
+        // Write directly, even if there are no records
+        aSW.start ();
       }
-      else
+
+      aProvider.forEachHeaderRecord (aSW::writeRecord);
+      aProvider.forEachBodyRecord (aSW::writeRecord);
+      aProvider.forEachFooterRecord (aSW::writeRecord);
+
+      if (!aSW.finish ())
       {
-        // Write directly
-
-        // Write BOM if necessary
-        if (m_eBOM != null)
-          aOS.write (m_eBOM.getAllBytes ());
-
-        try (final CSVWriter aWriter = createCSVWriter (aOS))
-        {
-          aProvider.forEachHeaderRecord (x -> aWriter.writeNext (_getAsCSVRecord (x)));
-          aProvider.forEachBodyRecord (x -> aWriter.writeNext (_getAsCSVRecord (x)));
-          aProvider.forEachFooterRecord (x -> aWriter.writeNext (_getAsCSVRecord (x)));
-        }
+        // No records to handle
+        return ESuccess.FAILURE;
       }
       return ESuccess.SUCCESS;
     }
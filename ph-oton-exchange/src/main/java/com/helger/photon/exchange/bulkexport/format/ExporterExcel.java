@@ -22,7 +22,10 @@ import java.util.Date;
 import java.util.GregorianCalendar;
 
 import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
 import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.jspecify.annotations.NonNull;
 import org.jspecify.annotations.Nullable;
 
@@ -34,9 +37,12 @@ import com.helger.annotation.style.ReturnsMutableCopy;
 import com.helger.base.enforce.ValueEnforcer;
 import com.helger.base.io.stream.StreamHelper;
 import com.helger.base.state.ESuccess;
+import com.helger.collection.commons.CommonsEnumMap;
+import com.helger.collection.commons.ICommonsMap;
 import com.helger.photon.exchange.EExchangeFileType;
 import com.helger.photon.exchange.bulkexport.EExportDataType;
 import com.helger.photon.exchange.bulkexport.EExportRecordType;
+import com.helger.photon.exchange.bulkexport.ExportRecord;
 import com.helger.photon.exchange.bulkexport.IExportRecord;
 import com.helger.photon.exchange.bulkexport.IExportRecordField;
 import com.helger.photon.exchange.bulkexport.IExportRecordProvider;
@@ -47,7 +53,9 @@ import com.helger.poi.excel.style.ExcelStyle;
 import com.helger.typeconvert.impl.TypeConverter;
 
 /**
- * Export records to Excel workbook.
+ * Export records to Excel workbook. For large XLSX exports the streaming mode should be enabled,
+ * which keeps only a sliding window of rows in memory and writes all other rows to a temporary
+ * file.
  *
  * @author Philip Helger
  */
@@ -55,6 +63,10 @@ import com.helger.typeconvert.impl.TypeConverter;
 public class ExporterExcel implements IExporterFile
 {
   public static final boolean DEFAULT_AUTOSIZE_ALL_COLUMNS = true;
+  /** @since 10.3.1 */
+  public static final boolean DEFAULT_STREAMING = false;
+  /** @since 10.3.1 */
+  public static final int DEFAULT_STREAMING_ROW_WINDOW_SIZE = SXSSFWorkbook.DEFAULT_WINDOW_SIZE;
   private static final ExcelStyle DEFAULT_STYLE_DATE = new ExcelStyle ().setDataFormat ("dd.mm.yyyy");
   private static final ExcelStyle DEFAULT_STYLE_TIME = new ExcelStyle ().setDataFormat ("hh:mm:ss");
   private static final ExcelStyle DEFAULT_STYLE_DATETIME = new ExcelStyle ().setDataFormat ("dd.mm.yyyy hh:mm:ss");
@@ -68,6 +80,8 @@ public class ExporterExcel implements IExporterFile
   private ExcelStyle m_aStyleTime = DEFAULT_STYLE_TIME;
   private ExcelStyle m_aStyleDateTime = DEFAULT_STYLE_DATETIME;
   private boolean m_bAutoSizeAllColumns = DEFAULT_AUTOSIZE_ALL_COLUMNS;
+  private boolean m_bStreaming = DEFAULT_STREAMING;
+  private int m_nStreamingRowWindowSize = DEFAULT_STREAMING_ROW_WINDOW_SIZE;
 
   public ExporterExcel (@NonNull final EExcelVersion eVersion)
   {
@@ -196,6 +210,58 @@ public class ExporterExcel implements IExporterFile
     return this;
   }
 
+  /**
+   * @return <code>true</code> if the streaming mode is enabled, <code>false</code> if not.
+   * @since 10.3.1
+   */
+  public final boolean isStreaming ()
+  {
+    return m_bStreaming;
+  }
+
+  /**
+   * Enable or disable the streaming mode. In streaming mode only the last rows (see
+   * {@link #setStreamingRowWindowSize(int)}) are kept in memory, all previous rows are flushed to a
+   * temporary file. Rows that were flushed can no longer be accessed in
+   * {@link #onAddRow(WorkbookCreationHelper, EExportRecordType, Row, int)}. The streaming mode is
+   * only supported for XLSX and is ignored for XLS.
+   *
+   * @param bStreaming
+   *        <code>true</code> to enable streaming, <code>false</code> to disable it.
+   * @return this for chaining
+   * @since 10.3.1
+   */
+  @NonNull
+  public final ExporterExcel setStreaming (final boolean bStreaming)
+  {
+    m_bStreaming = bStreaming;
+    return this;
+  }
+
+  /**
+   * @return The number of rows kept in memory in streaming mode. Always &gt; 0.
+   * @since 10.3.1
+   */
+  @Nonnegative
+  public final int getStreamingRowWindowSize ()
+  {
+    return m_nStreamingRowWindowSize;
+  }
+
+  /**
+   * @param nStreamingRowWindowSize
+   *        The number of rows to keep in memory in streaming mode. Must be &gt; 0.
+   * @return this for chaining
+   * @since 10.3.1
+   */
+  @NonNull
+  public final ExporterExcel setStreamingRowWindowSize (@Nonnegative final int nStreamingRowWindowSize)
+  {
+    ValueEnforcer.isGT0 (nStreamingRowWindowSize, "StreamingRowWindowSize");
+    m_nStreamingRowWindowSize = nStreamingRowWindowSize;
+    return this;
+  }
+
   /**
    * Callback when a new row is created.
    *
@@ -237,9 +303,75 @@ public class ExporterExcel implements IExporterFile
                             @NonNull final EExportDataType eBaseType)
   {}
 
+  private static void _applyCellStyle (@NonNull final WorkbookCreationHelper aWBCH,
+                                      @NonNull final Cell aCell,
+                                      @NonNull final ExcelStyle aStyle,
+                                      @NonNull final EExportDataType eDataType,
+                                      @NonNull final ICommonsMap <EExportDataType, CellStyle> aCellStyles)
+  {
+    // Each data type has a fixed style per export, so avoid the lookup by ExcelStyle
+    final CellStyle aCellStyle = aCellStyles.get (eDataType);
+    if (aCellStyle != null)
+      aCell.setCellStyle (aCellStyle);
+    else
+    {
+      aWBCH.addCellStyle (aStyle);
+      aCellStyles.put (eDataType, aCell.getCellStyle ());
+    }
+  }
+
+  /**
+   * Convert a date/time value to the type that is written to Excel. This is
+   * idempotent, so values from {@link #prepareRecord(IExportRecord)} are not
+   * converted again.
+   *
+   * @param eFieldType
+   *        The field type. Must be DATE, TIME or DATETIME.
+   * @param aFieldValue
+   *        The non-<code>null</code> field value.
+   * @return Either a {@link Date} or a {@link GregorianCalendar}.
+   */
+  @NonNull
+  private static Object _getConvertedDateValue (@NonNull final EExportDataType eFieldType,
+                                                @NonNull final Object aFieldValue)
+  {
+    if (eFieldType == EExportDataType.DATETIME)
+    {
+      if (aFieldValue instanceof LocalDateTime)
+      {
+        // No timezone
+        return TypeConverter.convert (aFieldValue, Date.class);
+      }
+      if (aFieldValue instanceof Date)
+      {
+        // Already converted from a LocalDateTime
+        return aFieldValue;
+      }
+      // Here we have a timezone -> use calendar
+      return TypeConverter.convert (aFieldValue, GregorianCalendar.class);
+    }
+    return TypeConverter.convert (aFieldValue, Date.class);
+  }
+
+  /**
+   * {@inheritDoc} All date and time values are converted to the types that are
+   * written to Excel upfront.
+   */
+  @Override
+  @NonNull
+  public IExportRecord prepareRecord (@NonNull final IExportRecord aRecord)
+  {
+    return ExportRecord.createWithConvertedValues (aRecord, (eType, aValue) -> switch (eType)
+    {
+      case DATE, TIME, DATETIME -> _getConvertedDateValue (eType, aValue);
+      default -> aValue;
+    });
+  }
+
   private void _emitRecord (@NonNull final WorkbookCreationHelper aWBCH,
                             @NonNull final EExportRecordType eRecordType,
-                            @NonNull final IExportRecord aRecord)
+                            @NonNull final IExportRecord aRecord,
+                            @NonNull final ICommonsMap <EExportDataType, CellStyle> aCellStyles)
   {
     final int nRowIndex = aWBCH.getRowCount ();
     final Row aRow = aWBCH.addRow ();
@@ -264,44 +396,41 @@ public class ExporterExcel implements IExporterFile
           case BOOLEAN:
             aCell = aWBCH.addCell (((Boolean) aFieldValue).booleanValue ());
             if (m_aStyleBoolean != null)
-              aWBCH.addCellStyle (m_aStyleBoolean);
+              _applyCellStyle (aWBCH, aCell, m_aStyleBoolean, EExportDataType.BOOLEAN, aCellStyles);
             break;
           case DOUBLE:
             aCell = aWBCH.addCell (((Number) aFieldValue).doubleValue ());
             if (m_aStyleDouble != null)
-              aWBCH.addCellStyle (m_aStyleDouble);
+              _applyCellStyle (aWBCH, aCell, m_aStyleDouble, EExportDataType.DOUBLE, aCellStyles);
             break;
           case INT:
             aCell = aWBCH.addCell (((Number) aFieldValue).intValue ());
             if (m_aStyleInt != null)
-              aWBCH.addCellStyle (m_aStyleInt);
+              _applyCellStyle (aWBCH, aCell, m_aStyleInt, EExportDataType.INT, aCellStyles);
             break;
           case TEXT:
             aCell = aWBCH.addCell ((String) aFieldValue);
             if (m_aStyleText != null)
-              aWBCH.addCellStyle (m_aStyleText);
+              _applyCellStyle (aWBCH, aCell, m_aStyleText, EExportDataType.TEXT, aCellStyles);
             break;
           case DATE:
-            aCell = aWBCH.addCell (TypeConverter.convert (aFieldValue, Date.class));
-            aWBCH.addCellStyle (m_aStyleDate);
+            aCell = aWBCH.addCell ((Date) _getConvertedDateValue (EExportDataType.DATE, aFieldValue));
+            _applyCellStyle (aWBCH, aCell, m_aStyleDate, EExportDataType.DATE, aCellStyles);
             break;
           case TIME:
-            aCell = aWBCH.addCell (TypeConverter.convert (aFieldValue, Date.class));
-            aWBCH.addCellStyle (m_aStyleTime);
+            aCell = aWBCH.addCell ((Date) _getConvertedDateValue (EExportDataType.TIME, aFieldValue));
+            _applyCellStyle (aWBCH, aCell, m_aStyleTime, EExportDataType.TIME, aCellStyles);
             break;
           case DATETIME:
-            if (aFieldValue instanceof LocalDateTime)
-            {
-              // No timezone
-              aCell = aWBCH.addCell (TypeConverter.convert (aFieldValue, Date.class));
-            }
+          {
+            final Object aConverted = _getConvertedDateValue (EExportDataType.DATETIME, aFieldValue);
+            if (aConverted instanceof final Date aDate)
+              aCell = aWBCH.addCell (aDate);
             else
-            {
-              // Here we have a timezone -> use calendar
-              aCell = aWBCH.addCell (TypeConverter.convert (aFieldValue, GregorianCalendar.class));
-            }
-            aWBCH.addCellStyle (m_aStyleDateTime);
+              aCell = aWBCH.addCell ((GregorianCalendar) aConverted);
+            _applyCellStyle (aWBCH, aCell, m_aStyleDateTime, EExportDataType.DATETIME, aCellStyles);
             break;
+          }
           default:
             throw new IllegalArgumentException ("The type " + aField.getFieldType () + " cannot be written to Excel!");
         }
@@ -312,6 +441,14 @@ public class ExporterExcel implements IExporterFile
     }
   }
 
+  @NonNull
+  private SXSSFWorkbook _createStreamingWorkbook ()
+  {
+    // Compress the temporary files and write strings inline, so that no shared strings table must be
+    // kept in memory
+    return new SXSSFWorkbook (null, m_nStreamingRowWindowSize, true, false);
+  }
+
   @NonNull
   public final ESuccess exportRecords (@NonNull final IExportRecordProvider aProvider,
                                        @NonNull @WillClose final OutputStream aOS)
@@ -319,18 +456,29 @@ public class ExporterExcel implements IExporterFile
     ValueEnforcer.notNull (aProvider, "Provider");
     ValueEnforcer.notNull (aOS, "OutputStream");
 
-    try (final WorkbookCreationHelper aWBCH = new WorkbookCreationHelper (m_eVersion))
+    // Streaming is only available for XLSX
+    final SXSSFWorkbook aStreamingWB = m_bStreaming && m_eVersion == EExcelVersion.XLSX ? _createStreamingWorkbook ()
+                                                                                        : null;
+    try (final WorkbookCreationHelper aWBCH = aStreamingWB != null ? new WorkbookCreationHelper (aStreamingWB)
+                                                                   : new WorkbookCreationHelper (m_eVersion))
     {
       aWBCH.createNewSheet ();
+      if (aStreamingWB != null && m_bAutoSizeAllColumns)
+      {
+        // Column widths must be tracked before the rows are flushed
+        ((SXSSFSheet) aStreamingWB.getSheetAt (0)).trackAllColumnsForAutoSizing ();
+      }
+
+      final ICommonsMap <EExportDataType, CellStyle> aCellStyles = new CommonsEnumMap <> (EExportDataType.class);
 
       // Header
-      aProvider.forEachHeaderRecord (x -> _emitRecord (aWBCH, EExportRecordType.HEADER, x));
+      aProvider.forEachHeaderRecord (x -> _emitRecord (aWBCH, EExportRecordType.HEADER, x, aCellStyles));
 
       // Body
-      aProvider.forEachBodyRecord (x -> _emitRecord (aWBCH, EExportRecordType.BODY, x));
+      aProvider.forEachBodyRecord (x -> _emitRecord (aWBCH, EExportRecordType.BODY, x, aCellStyles));
 
       // Footer
-      aProvider.forEachFooterRecord (x -> _emitRecord (aWBCH, EExportRecordType.FOOTER, x));
+      aProvider.forEachFooterRecord (x -> _emitRecord (aWBCH, EExportRecordType.FOOTER, x, aCellStyles));
 
       if (aWBCH.getRowCount () == 0)
         return ESuccess.FAILURE;
@@ -341,6 +489,11 @@ public class ExporterExcel implements IExporterFile
     }
     finally
     {
+      if (aStreamingWB != null)
+      {
+        // Delete the temporary files
+        aStreamingWB.dispose ();
+      }
       StreamHelper.close (aOS);
     }
   }
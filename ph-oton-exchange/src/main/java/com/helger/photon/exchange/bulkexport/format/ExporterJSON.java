@@ -50,7 +50,8 @@ import com.helger.photon.exchange.bulkexport.IExportRecordProvider;
 import com.helger.photon.exchange.bulkexport.IExporterFile;
 
 /**
- * Implementation of {@link IExporterFile} for JSON files
+ * Implementation of {@link IExporterFile} for JSON files. By default the whole JSON document is
+ * created in memory before it is written. In streaming mode each record is written directly.
  *
  * @author Philip Helger
  */
@@ -58,6 +59,8 @@ import com.helger.photon.exchange.bulkexport.IExporterFile;
 public class ExporterJSON implements IExporterFile
 {
   public static final boolean DEFAULT_EMIT_TYPE = true;
+  /** @since 10.3.1 */
+  public static final boolean DEFAULT_STREAMING = false;
   public static final String ELEMENT_HEADER = "header";
   public static final String ELEMENT_BODY = "body";
   public static final String ELEMENT_FOOTER = "footer";
@@ -69,6 +72,7 @@ public class ExporterJSON implements IExporterFile
   private JsonWriterSettings m_aJWS = new JsonWriterSettings ();
   private Charset m_aCharset = StandardCharsets.UTF_8;
   private boolean m_bEmitType = DEFAULT_EMIT_TYPE;
+  private boolean m_bStreaming = DEFAULT_STREAMING;
 
   public ExporterJSON ()
   {}
@@ -126,6 +130,33 @@ public class ExporterJSON implements IExporterFile
     return this;
   }
 
+  /**
+   * @return <code>true</code> if the streaming mode is enabled, <code>false</code> if not.
+   * @since 10.3.1
+   */
+  public final boolean isStreaming ()
+  {
+    return m_bStreaming;
+  }
+
+  /**
+   * Enable or disable the streaming mode. In streaming mode each record is written to the output
+   * stream as soon as it is provided, so the memory consumption does not depend on the number of
+   * records. The JSON writer settings are only applied to the single records, the surrounding
+   * object is always written without indentation.
+   *
+   * @param bStreaming
+   *        <code>true</code> to enable streaming, <code>false</code> to disable it.
+   * @return this for chaining
+   * @since 10.3.1
+   */
+  @NonNull
+  public final ExporterJSON setStreaming (final boolean bStreaming)
+  {
+    m_bStreaming = bStreaming;
+    return this;
+  }
+
   @NonNull
   @Nonempty
   private IJsonArray _emitRecord (@NonNull final IExportRecord aRecord)
@@ -183,6 +214,91 @@ public class ExporterJSON implements IExporterFile
     return aDoc;
   }
 
+  /**
+   * Writes the records of all sections as they are provided. The output is only started with the
+   * first record, so that nothing is written if there are no records at all.
+   *
+   * @author Philip Helger
+   */
+  private final class StreamingWriter
+  {
+    private final OutputStream m_aOS;
+    private Writer m_aWriter;
+    private boolean m_bAnySection = false;
+    private boolean m_bSectionOpen = false;
+    // The first error, as the consumers cannot throw checked exceptions
+    private IOException m_aError;
+
+    StreamingWriter (@NonNull final OutputStream aOS)
+    {
+      m_aOS = aOS;
+    }
+
+    void writeRecord (@NonNull @Nonempty final String sSectionName, @NonNull final IExportRecord aRecord)
+    {
+      if (m_aError != null)
+        return;
+      try
+      {
+        if (m_aWriter == null)
+        {
+          m_aWriter = StreamHelper.createWriter (m_aOS, m_aCharset);
+          m_aWriter.write ('{');
+        }
+        if (m_bSectionOpen)
+          m_aWriter.write (',');
+        else
+        {
+          if (m_bAnySection)
+            m_aWriter.write (',');
+          // Section names are constants that need no escaping
+          m_aWriter.write ('"' + sSectionName + "\":[");
+          m_bAnySection = true;
+          m_bSectionOpen = true;
+        }
+        m_aWriter.write (_emitRecord (aRecord).getAsJsonString (m_aJWS));
+      }
+      catch (final IOException ex)
+      {
+        m_aError = ex;
+      }
+    }
+
+    void endSection () throws IOException
+    {
+      if (m_aError != null)
+        throw m_aError;
+      if (m_bSectionOpen)
+      {
+        m_aWriter.write (']');
+        m_bSectionOpen = false;
+      }
+    }
+
+    boolean finish () throws IOException
+    {
+      if (m_aWriter == null)
+        return false;
+      m_aWriter.write ('}');
+      m_aWriter.close ();
+      return true;
+    }
+  }
+
+  @NonNull
+  private ESuccess _exportRecordsStreaming (@NonNull final IExportRecordProvider aProvider,
+                                            @NonNull final OutputStream aOS) throws IOException
+  {
+    final StreamingWriter aSW = new StreamingWriter (aOS);
+    aProvider.forEachHeaderRecord (x -> aSW.writeRecord (ELEMENT_HEADER, x));
+    aSW.endSection ();
+    aProvider.forEachBodyRecord (x -> aSW.writeRecord (ELEMENT_BODY, x));
+    aSW.endSection ();
+    aProvider.forEachFooterRecord (x -> aSW.writeRecord (ELEMENT_FOOTER, x));
+    aSW.endSection ();
+    return ESuccess.valueOf (aSW.finish ());
+  }
+
   @Override
   @NonNull
   public ESuccess exportRecords (@NonNull final IExportRecordProvider aProvider,
@@ -193,6 +309,9 @@ public class ExporterJSON implements IExporterFile
       ValueEnforcer.notNull (aProvider, "Provider");
       ValueEnforcer.notNull (aOS, "OutputStream");
 
+      if (m_bStreaming)
+        return _exportRecordsStreaming (aProvider, aOS);
+
       final IJsonObject aDoc = convertRecords (aProvider);
       if (aDoc == null)
         return ESuccess.FAILURE;
@@ -19,8 +19,14 @@ package com.helger.photon.exchange.bulkexport.format;
 import java.io.OutputStream;
 import java.nio.charset.Charset;
 
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
 import org.jspecify.annotations.NonNull;
 import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.helger.annotation.WillClose;
 import com.helger.annotation.concurrent.NotThreadSafe;
@@ -29,11 +35,15 @@ import com.helger.annotation.style.ReturnsMutableObject;
 import com.helger.base.enforce.ValueEnforcer;
 import com.helger.base.io.stream.StreamHelper;
 import com.helger.base.state.ESuccess;
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.ICommonsList;
 import com.helger.photon.exchange.EExchangeFileType;
+import com.helger.photon.exchange.bulkexport.ExportRecord;
 import com.helger.photon.exchange.bulkexport.IExportRecord;
 import com.helger.photon.exchange.bulkexport.IExportRecordField;
 import com.helger.photon.exchange.bulkexport.IExportRecordProvider;
 import com.helger.photon.exchange.bulkexport.IExporterFile;
+import com.helger.typeconvert.impl.TypeConverter;
 import com.helger.xml.microdom.IMicroDocument;
 import com.helger.xml.microdom.IMicroElement;
 import com.helger.xml.microdom.MicroDocument;
@@ -42,7 +52,8 @@ import com.helger.xml.serialize.write.IXMLWriterSettings;
 import com.helger.xml.serialize.write.XMLWriterSettings;
 
 /**
- * Implementation of {@link IExporterFile} for XML files
+ * Implementation of {@link IExporterFile} for XML files. By default the whole XML document is
+ * created in memory before it is written. In streaming mode each record is written directly.
  *
  * @author Philip Helger
  */
@@ -50,6 +61,8 @@ import com.helger.xml.serialize.write.XMLWriterSettings;
 public class ExporterXML implements IExporterFile
 {
   public static final boolean DEFAULT_EMIT_TYPE_ATTRIBUTE = true;
+  /** @since 10.3.1 */
+  public static final boolean DEFAULT_STREAMING = false;
   public static final String ELEMENT_ROOT = "root";
   public static final String ELEMENT_HEADER = "header";
   public static final String ELEMENT_BODY = "body";
@@ -58,8 +71,11 @@ public class ExporterXML implements IExporterFile
   public static final String ELEMENT_FIELD = "field";
   public static final String ATTR_TYPE = "type";
 
+  private static final Logger LOGGER = LoggerFactory.getLogger (ExporterXML.class);
+
   private final XMLWriterSettings m_aXWS = new XMLWriterSettings ();
   private boolean m_bEmitTypeAttr = DEFAULT_EMIT_TYPE_ATTRIBUTE;
+  private boolean m_bStreaming = DEFAULT_STREAMING;
 
   public ExporterXML ()
   {}
@@ -110,6 +126,33 @@ public class ExporterXML implements IExporterFile
     return this;
   }
 
+  /**
+   * @return <code>true</code> if the streaming mode is enabled, <code>false</code> if not.
+   * @since 10.3.1
+   */
+  public final boolean isStreaming ()
+  {
+    return m_bStreaming;
+  }
+
+  /**
+   * Enable or disable the streaming mode. In streaming mode each body and footer record is written
+   * to the output stream as soon as it is provided, so the memory consumption does not depend on
+   * the number of records. Only the header records are kept until the first body record is
+   * available. Of the XML writer settings only the charset is used in streaming mode.
+   *
+   * @param bStreaming
+   *        <code>true</code> to enable streaming, <code>false</code> to disable it.
+   * @return this for chaining
+   * @since 10.3.1
+   */
+  @NonNull
+  public final ExporterXML setStreaming (final boolean bStreaming)
+  {
+    m_bStreaming = bStreaming;
+    return this;
+  }
+
   private void _emitRecord (@NonNull final IMicroElement eParentRow, @NonNull final IExportRecord aRecord)
   {
     final IMicroElement eRecord = eParentRow.addElement (ELEMENT_RECORD);
@@ -151,6 +194,145 @@ public class ExporterXML implements IExporterFile
     return aDoc;
   }
 
+  /**
+   * Writes the records as they are provided. The document is only started with the first body
+   * record, so that nothing is written if there are no body records.
+   *
+   * @author Philip Helger
+   */
+  private final class StreamingWriter
+  {
+    private final OutputStream m_aOS;
+    private final ICommonsList <IExportRecord> m_aHeaderRecords = new CommonsArrayList <> ();
+    private XMLStreamWriter m_aWriter;
+    // The first error, as the consumers cannot throw checked exceptions
+    private XMLStreamException m_aError;
+
+    StreamingWriter (@NonNull final OutputStream aOS)
+    {
+      m_aOS = aOS;
+    }
+
+    private void _writeRecord (@NonNull final IExportRecord aRecord) throws XMLStreamException
+    {
+      m_aWriter.writeStartElement (ELEMENT_RECORD);
+      for (final IExportRecordField aField : aRecord.getAllFields ())
+      {
+        final Object aFieldValue = aField.getFieldValue ();
+        m_aWriter.writeStartElement (ELEMENT_FIELD);
+        if (m_bEmitTypeAttr)
+          m_aWriter.writeAttribute (ATTR_TYPE, aField.getFieldType ().getID ());
+        if (aFieldValue != null)
+          m_aWriter.writeCharacters (TypeConverter.convert (aFieldValue, String.class));
+        m_aWriter.writeEndElement ();
+      }
+      m_aWriter.writeEndElement ();
+    }
+
+    void addHeaderRecord (@NonNull final IExportRecord aRecord)
+    {
+      m_aHeaderRecords.add (aRecord);
+    }
+
+    void writeBodyRecord (@NonNull final IExportRecord aRecord)
+    {
+      if (m_aError != null)
+        return;
+      try
+      {
+        if (m_aWriter == null)
+        {
+          final String sCharset = m_aXWS.getCharset ().name ();
+          m_aWriter = XMLOutputFactory.newInstance ().createXMLStreamWriter (m_aOS, sCharset);
+          m_aWriter.writeStartDocument (sCharset, "1.0");
+          m_aWriter.writeStartElement (ELEMENT_ROOT);
+          m_aWriter.writeStartElement (ELEMENT_HEADER);
+          for (final IExportRecord aHeaderRecord : m_aHeaderRecords)
+            _writeRecord (aHeaderRecord);
+          m_aWriter.writeEndElement ();
+          m_aHeaderRecords.clear ();
+          m_aWriter.writeStartElement (ELEMENT_BODY);
+        }
+        _writeRecord (aRecord);
+      }
+      catch (final XMLStreamException ex)
+      {
+        m_aError = ex;
+      }
+    }
+
+    boolean startFooter () throws XMLStreamException
+    {
+      if (m_aError != null)
+        throw m_aError;
+      if (m_aWriter == null)
+        return false;
+      // Close body
+      m_aWriter.writeEndElement ();
+      m_aWriter.writeStartElement (ELEMENT_FOOTER);
+      return true;
+    }
+
+    void writeFooterRecord (@NonNull final IExportRecord aRecord)
+    {
+      if (m_aError != null)
+        return;
+      try
+      {
+        _writeRecord (aRecord);
+      }
+      catch (final XMLStreamException ex)
+      {
+        m_aError = ex;
+      }
+    }
+
+    void finish () throws XMLStreamException
+    {
+      if (m_aError != null)
+        throw m_aError;
+      // Closes footer and root
+      m_aWriter.writeEndDocument ();
+      m_aWriter.flush ();
+      m_aWriter.close ();
+    }
+  }
+
+  @NonNull
+  private ESuccess _exportRecordsStreaming (@NonNull final IExportRecordProvider aProvider,
+                                            @NonNull final OutputStream aOS)
+  {
+    final StreamingWriter aSW = new StreamingWriter (aOS);
+    try
+    {
+      aProvider.forEachHeaderRecord (aSW::addHeaderRecord);
+      aProvider.forEachBodyRecord (aSW::writeBodyRecord);
+      if (!aSW.startFooter ())
+      {
+        // No body records
+        return ESuccess.FAILURE;
+      }
+      aProvider.forEachFooterRecord (aSW::writeFooterRecord);
+      aSW.finish ();
+      return ESuccess.SUCCESS;
+    }
+    catch (final XMLStreamException ex)
+    {
+      LOGGER.error ("Failed to write XML to output stream " + aOS, ex);
+      return ESuccess.FAILURE;
+    }
+  }
+
+  /**
+   * {@inheritDoc} All field values are converted to {@link String} upfront.
+   */
+  @Override
+  @NonNull
+  public IExportRecord prepareRecord (@NonNull final IExportRecord aRecord)
+  {
+    return ExportRecord.createWithConvertedValues (aRecord, (eType, aValue) -> TypeConverter.convert (aValue, String.class));
+  }
+
   @Override
   @NonNull
   public ESuccess exportRecords (@NonNull final IExportRecordProvider aProvider,
@@ -161,6 +343,9 @@ public class ExporterXML implements IExporterFile
       ValueEnforcer.notNull (aProvider, "Provider");
       ValueEnforcer.notNull (aOS, "OutputStream");
 
+      if (m_bStreaming)
+        return _exportRecordsStreaming (aProvider, aOS);
+
       final IMicroDocument aDoc = convertRecords (aProvider);
       if (aDoc == null)
         return ESuccess.FAILURE;
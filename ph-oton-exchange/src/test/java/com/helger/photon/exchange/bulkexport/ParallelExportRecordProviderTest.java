@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.photon.exchange.bulkexport;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+
+import org.junit.Test;
+
+import com.helger.base.concurrent.ExecutorServiceHelper;
+import com.helger.base.io.nonblocking.NonBlockingByteArrayOutputStream;
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.ICommonsList;
+import com.helger.photon.exchange.bulkexport.format.ExporterCSV;
+
+/**
+ * Test class for class {@link ParallelExportRecordProvider}.
+ *
+ * @author Philip Helger
+ */
+public final class ParallelExportRecordProviderTest
+{
+  private static ICommonsList <IExportRecord> _createRecords (final int nCount)
+  {
+    final ICommonsList <IExportRecord> ret = new CommonsArrayList <> (nCount);
+    final LocalDateTime aBase = LocalDateTime.of (2026, 1, 1, 0, 0);
+    for (int i = 0; i < nCount; ++i)
+    {
+      final ExportRecord aRecord = new ExportRecord ().addField ("Row " + i).addField (i);
+      for (int j = 0; j < 5; ++j)
+        aRecord.addField (LocalDate.of (2026, 1, 1).plusDays (i + j))
+               .addField (aBase.plusMinutes (i * 7L + j))
+               .addField (ZonedDateTime.of (aBase.plusSeconds (i + j), ZoneOffset.UTC))
+               .addField (new BigDecimal (i + "." + j))
+               .addField (i * 0.5 + j);
+      ret.add (aRecord);
+    }
+    return ret;
+  }
+
+  @Test
+  public void testOrder ()
+  {
+    final ICommonsList <IExportRecord> aRecords = _createRecords (1000);
+    final IExportRecordProvider aSource = new ConstantExportRecordProvider (aRecords.getFirstOrNull (),
+                                                                            aRecords,
+                                                                            aRecords.getLastOrNull ());
+    // Add the thread name as an additional field
+    final UnaryOperator <IExportRecord> aPreparer = x -> new ExportRecord (x.getAllFields ()).addField (Thread.currentThread ()
+                                                                                                               .getName ());
+    for (final int nChunkSize : new int [] { 1, 7, 512, 5000 })
+      for (final int nParallelism : new int [] { 1, 3, 8 })
+      {
+        final ParallelExportRecordProvider aProvider = new ParallelExportRecordProvider (aSource, aPreparer);
+        aProvider.setChunkSize (nChunkSize).setParallelism (nParallelism);
+        final ICommonsList <IExportRecord> aBody = new CommonsArrayList <> ();
+        aProvider.forEachBodyRecord (aBody::add);
+        assertEquals (aRecords.size (), aBody.size ());
+        for (int i = 0; i < aRecords.size (); ++i)
+        {
+          // Same order, and the preparer was invoked exactly once
+          final int nFieldCount = aRecords.get (i).getFieldCount ();
+          assertEquals (nFieldCount + 1, aBody.get (i).getFieldCount ());
+          assertEquals (aRecords.get (i).getAllFields (), aBody.get (i).getAllFields ().subList (0, nFieldCount));
+        }
+
+        final ICommonsList <IExportRecord> aHeader = new CommonsArrayList <> ();
+        aProvider.forEachHeaderRecord (aHeader::add);
+        assertEquals (1, aHeader.size ());
+        assertEquals (aRecords.getFirstOrNull ().getFieldCount () + 1, aHeader.getFirstOrNull ().getFieldCount ());
+      }
+  }
+
+  @Test
+  public void testException ()
+  {
+    final ParallelExportRecordProvider aProvider = new ParallelExportRecordProvider (new ConstantExportRecordProvider (_createRecords (100)),
+                                                                                     x -> {
+                                                                                       throw new IllegalStateException ("oops");
+                                                                                     }).setChunkSize (10);
+    try
+    {
+      aProvider.forEachBodyRecord (x -> fail ());
+      fail ();
+    }
+    catch (final IllegalStateException ex)
+    {
+      // The exception may be wrapped by the pool
+      assertTrue (ex.getMessage ().contains ("oops"));
+    }
+  }
+
+  @Test
+  public void testCustomExecutor ()
+  {
+    final ICommonsList <IExportRecord> aRecords = _createRecords (100);
+    final AtomicInteger aSubmitted = new AtomicInteger (0);
+    final ExecutorService aES = Executors.newFixedThreadPool (2);
+    try
+    {
+      final ParallelExportRecordProvider aProvider = new ParallelExportRecordProvider (new ConstantExportRecordProvider (aRecords),
+                                                                                       UnaryOperator.identity ());
+      aProvider.setChunkSize (10).setParallelism (2).setExecutor (x -> {
+        aSubmitted.incrementAndGet ();
+        aES.execute (x);
+      });
+      final ICommonsList <IExportRecord> aBody = new CommonsArrayList <> ();
+      aProvider.forEachBodyRecord (aBody::add);
+      assertEquals (aRecords, aBody);
+      assertEquals (10, aSubmitted.get ());
+    }
+    finally
+    {
+      ExecutorServiceHelper.shutdownAndWaitUntilAllTasksAreFinished (aES);
+    }
+  }
+
+  @Test
+  public void testCSVExport ()
+  {
+    final IExportRecordProvider aSource = new ConstantExportRecordProvider (_createRecords (500));
+    final ExporterCSV aExporter = new ExporterCSV (StandardCharsets.UTF_8);
+
+    NonBlockingByteArrayOutputStream aBaos = new NonBlockingByteArrayOutputStream ();
+    assertTrue (aExporter.exportRecords (aSource, aBaos).isSuccess ());
+    final byte [] aSequential = aBaos.toByteArray ();
+
+    aBaos = new NonBlockingByteArrayOutputStream ();
+    assertTrue (aExporter.exportRecords (new ParallelExportRecordProvider (aSource, aExporter::prepareRecord).setChunkSize (16),
+                                         aBaos)
+                         .isSuccess ());
+
+    // Byte identical result
+    assertArrayEquals (aSequential, aBaos.toByteArray ());
+  }
+}
@@ -16,6 +16,8 @@
  */
 package com.helger.photon.exchange.bulkexport.format;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.math.BigDecimal;
@@ -25,6 +27,7 @@ import java.util.Arrays;
 
 import org.junit.Test;
 
+import com.helger.base.charset.EUnicodeBOM;
 import com.helger.base.io.nonblocking.NonBlockingByteArrayOutputStream;
 import com.helger.datetime.helper.PDTFactory;
 import com.helger.photon.exchange.bulkexport.ConstantExportRecordProvider;
@@ -81,4 +84,36 @@ public final class ExporterCSVTest
                                                                            aRecordWithAllTypes),
                                          new NonBlockingByteArrayOutputStream ()).isSuccess ());
   }
+
+  @Test
+  public void testAvoidWriteEmpty ()
+  {
+    final ExportRecord aRecord = new ExportRecord ().addField ("Hallo <&> \"Welt\"")
+                                                    .addField (PDTFactory.getCurrentLocalDate ())
+                                                    .addField (true)
+                                                    .addField (4711)
+                                                    .addField (3.1145)
+                                                    .addField ((String) null);
+    final ExporterCSV aExporter = new ExporterCSV (StandardCharsets.UTF_8).setUnicodeBOM (EUnicodeBOM.BOM_UTF8);
+    final ConstantExportRecordProvider aProvider = new ConstantExportRecordProvider (aRecord,
+                                                                                     Arrays.asList (aRecord, aRecord),
+                                                                                     aRecord);
+
+    // Nothing, not even the BOM, is written if there are no records
+    NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ();
+    assertTrue (aExporter.setAvoidWriteEmpty (true).exportRecords (new EmptyExportRecordProvider (), aBAOS).isFailure ());
+    assertEquals (0, aBAOS.size ());
+
+    aBAOS = new NonBlockingByteArrayOutputStream ();
+    assertTrue (aExporter.setAvoidWriteEmpty (false).exportRecords (new EmptyExportRecordProvider (), aBAOS).isSuccess ());
+    assertEquals (EUnicodeBOM.BOM_UTF8.getAllBytes ().length, aBAOS.size ());
+
+    // Same output in both modes
+    aBAOS = new NonBlockingByteArrayOutputStream ();
+    assertTrue (aExporter.setAvoidWriteEmpty (false).exportRecords (aProvider, aBAOS).isSuccess ());
+    final byte [] aExpected = aBAOS.toByteArray ();
+    aBAOS = new NonBlockingByteArrayOutputStream ();
+    assertTrue (aExporter.setAvoidWriteEmpty (true).exportRecords (aProvider, aBAOS).isSuccess ());
+    assertArrayEquals (aExpected, aBAOS.toByteArray ());
+  }
 }
@@ -16,21 +16,36 @@
  */
 package com.helger.photon.exchange.bulkexport.format;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.Arrays;
+import java.util.function.Consumer;
 
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.jspecify.annotations.NonNull;
 import org.junit.Test;
 
+import com.helger.annotation.Nonnegative;
 import com.helger.base.io.nonblocking.NonBlockingByteArrayOutputStream;
 import com.helger.datetime.helper.PDTFactory;
 import com.helger.photon.exchange.bulkexport.ConstantExportRecordProvider;
+import com.helger.photon.exchange.bulkexport.EExportRecordType;
 import com.helger.photon.exchange.bulkexport.EmptyExportRecordProvider;
 import com.helger.photon.exchange.bulkexport.ExportRecord;
+import com.helger.photon.exchange.bulkexport.IExportRecord;
+import com.helger.photon.exchange.bulkexport.IExportRecordProvider;
 import com.helger.photon.exchange.bulkexport.IExporter;
 import com.helger.poi.excel.EExcelVersion;
+import com.helger.poi.excel.WorkbookCreationHelper;
 
 /**
  * Test class for class {@link ExporterExcel}.
@@ -39,6 +54,74 @@ import com.helger.poi.excel.EExcelVersion;
  */
 public final class ExporterExcelTest
 {
+  /**
+   * Creates the body records on the fly, so that only the exporter keeps them in memory.
+   *
+   * @author Philip Helger
+   */
+  private static final class GeneratingProvider implements IExportRecordProvider
+  {
+    private final int m_nRows;
+
+    GeneratingProvider (final int nRows)
+    {
+      m_nRows = nRows;
+    }
+
+    @Override
+    public void forEachHeaderRecord (final Consumer <? super IExportRecord> aConsumer)
+    {
+      aConsumer.accept (new ExportRecord ().addField ("ID").addField ("Name").addField ("Amount").addField ("Date"));
+    }
+
+    @Override
+    public void forEachBodyRecord (final Consumer <? super IExportRecord> aConsumer)
+    {
+      for (int i = 0; i < m_nRows; ++i)
+        aConsumer.accept (new ExportRecord ().addField (i)
+                                             .addField ("Name " + i)
+                                             .addField (i * 1.5)
+                                             .addField (PDTFactory.getCurrentLocalDate ().plusDays (i % 1000)));
+    }
+
+    @Override
+    public void forEachFooterRecord (final Consumer <? super IExportRecord> aConsumer)
+    {
+      aConsumer.accept (new ExportRecord ().addField ("Total").addField (m_nRows));
+    }
+  }
+
+  /**
+   * Remembers the maximum number of rows that were kept in memory at the same time.
+   *
+   * @author Philip Helger
+   */
+  private static final class RowWindowTrackingExporter extends ExporterExcel
+  {
+    private int m_nMaxRowsInMemory;
+
+    RowWindowTrackingExporter ()
+    {
+      super (EExcelVersion.XLSX);
+    }
+
+    @Override
+    protected void onAddRow (@NonNull final WorkbookCreationHelper aWBCH,
+                             @NonNull final EExportRecordType eRecordType,
+                             @NonNull final Row aRow,
+                             @Nonnegative final int nRowIndex)
+    {
+      // All previous rows are kept in memory, unless they were flushed
+      final Sheet aSheet = aRow.getSheet ();
+      final int nFirstRowInMemory = aSheet instanceof final SXSSFSheet aStreamingSheet ? aStreamingSheet.getLastFlushedRowNum () +
+                                                                                         1 : 0;
+      if (nFirstRowInMemory > 0)
+        assertNull (aSheet.getRow (nFirstRowInMemory - 1));
+      assertNotNull (aSheet.getRow (nFirstRowInMemory));
+      m_nMaxRowsInMemory = Math.max (m_nMaxRowsInMemory, nRowIndex - nFirstRowInMemory + 1);
+    }
+  }
+
   @Test
   public void testBasicExport ()
   {
@@ -81,4 +164,51 @@ public final class ExporterExcelTest
                                            new NonBlockingByteArrayOutputStream ()).isSuccess ());
     }
   }
+
+  @Test
+  public void testStreamingExport () throws IOException
+  {
+    final int nRows = 1000;
+    final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ();
+    final ExporterExcel aExporter = new ExporterExcel (EExcelVersion.XLSX).setStreaming (true)
+                                                                          .setStreamingRowWindowSize (10);
+    assertTrue (aExporter.exportRecords (new GeneratingProvider (nRows), aBAOS).isSuccess ());
+
+    try (final XSSFWorkbook aWB = new XSSFWorkbook (aBAOS.getAsInputStream ()))
+    {
+      final Sheet aSheet = aWB.getSheetAt (0);
+      // Header, body and footer
+      assertEquals (nRows + 1, aSheet.getLastRowNum ());
+      assertEquals ("ID", aSheet.getRow (0).getCell (0).getStringCellValue ());
+      assertEquals (999, aSheet.getRow (1000).getCell (0).getNumericCellValue (), 0);
+      assertEquals ("Name 999", aSheet.getRow (1000).getCell (1).getStringCellValue ());
+      assertEquals ("Total", aSheet.getRow (1001).getCell (0).getStringCellValue ());
+      // The same style is used for all dates
+      assertEquals (aSheet.getRow (1).getCell (3).getCellStyle ().getIndex (),
+                    aSheet.getRow (1000).getCell (3).getCellStyle ().getIndex ());
+    }
+  }
+
+  @Test
+  public void testStreamingRowWindow ()
+  {
+    final int nRows = 1000;
+    // Header, body and footer
+    final int nTotalRows = nRows + 2;
+
+    final RowWindowTrackingExporter aInMemory = new RowWindowTrackingExporter ();
+    aInMemory.setAutoSizeAllColumns (false);
+    assertTrue (aInMemory.exportRecords (new GeneratingProvider (nRows), new NonBlockingByteArrayOutputStream ())
+                         .isSuccess ());
+    assertEquals (nTotalRows, aInMemory.m_nMaxRowsInMemory);
+
+    for (final int nWindowSize : new int [] { 1, 10, 100 })
+    {
+      final RowWindowTrackingExporter aStreaming = new RowWindowTrackingExporter ();
+      aStreaming.setAutoSizeAllColumns (false).setStreaming (true).setStreamingRowWindowSize (nWindowSize);
+      assertTrue (aStreaming.exportRecords (new GeneratingProvider (nRows), new NonBlockingByteArrayOutputStream ())
+                            .isSuccess ());
+      assertEquals (nWindowSize, aStreaming.m_nMaxRowsInMemory);
+    }
+  }
 }
@@ -16,6 +16,7 @@
  */
 package com.helger.photon.exchange.bulkexport.format;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.math.BigDecimal;
@@ -26,6 +27,8 @@ import org.junit.Test;
 
 import com.helger.base.io.nonblocking.NonBlockingByteArrayOutputStream;
 import com.helger.datetime.helper.PDTFactory;
+import com.helger.json.IJson;
+import com.helger.json.serialize.JsonReader;
 import com.helger.photon.exchange.bulkexport.ConstantExportRecordProvider;
 import com.helger.photon.exchange.bulkexport.EmptyExportRecordProvider;
 import com.helger.photon.exchange.bulkexport.ExportRecord;
@@ -76,4 +79,45 @@ public final class ExporterJSONTest
                                                                            aRecordWithAllTypes),
                                          new NonBlockingByteArrayOutputStream ()).isSuccess ());
   }
+
+  @Test
+  public void testStreamingExport ()
+  {
+    final ExportRecord aRecord = new ExportRecord ().addField ("Hallo <&> \"Welt\"")
+                                                    .addField (PDTFactory.getCurrentLocalDate ())
+                                                    .addField (true)
+                                                    .addField (4711)
+                                                    .addField (3.1145)
+                                                    .addField ((String) null);
+    final ExporterJSON aExporter = new ExporterJSON ();
+    final ExporterJSON aStreamingExporter = new ExporterJSON ().setStreaming (true);
+
+    // Nothing is written if there are no records
+    NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ();
+    assertTrue (aStreamingExporter.exportRecords (new EmptyExportRecordProvider (), aBAOS).isFailure ());
+    assertEquals (0, aBAOS.size ());
+
+    for (final ConstantExportRecordProvider aProvider : new ConstantExportRecordProvider [] { new ConstantExportRecordProvider (Arrays.asList (aRecord)),
+                                                                                              new ConstantExportRecordProvider (aRecord,
+                                                                                                                                Arrays.asList (aRecord,
+                                                                                                                                               aRecord),
+                                                                                                                                null),
+                                                                                              new ConstantExportRecordProvider (null,
+                                                                                                                                Arrays.asList (aRecord),
+                                                                                                                                aRecord),
+                                                                                              new ConstantExportRecordProvider (aRecord,
+                                                                                                                                Arrays.asList (aRecord,
+                                                                                                                                               aRecord),
+                                                                                                                                aRecord) })
+    {
+      aBAOS = new NonBlockingByteArrayOutputStream ();
+      assertTrue (aExporter.exportRecords (aProvider, aBAOS).isSuccess ());
+      final IJson aExpected = JsonReader.builder ().source (aBAOS.toByteArray ()).read ();
+
+      aBAOS = new NonBlockingByteArrayOutputStream ();
+      assertTrue (aStreamingExporter.exportRecords (aProvider, aBAOS).isSuccess ());
+      final IJson aStreamed = JsonReader.builder ().source (aBAOS.toByteArray ()).read ();
+      assertEquals (aExpected, aStreamed);
+    }
+  }
 }
@@ -16,11 +16,15 @@
  */
 package com.helger.photon.exchange.bulkexport.format;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.Collections;
 
 import org.junit.Test;
 
@@ -29,6 +33,9 @@ import com.helger.datetime.helper.PDTFactory;
 import com.helger.photon.exchange.bulkexport.ConstantExportRecordProvider;
 import com.helger.photon.exchange.bulkexport.EmptyExportRecordProvider;
 import com.helger.photon.exchange.bulkexport.ExportRecord;
+import com.helger.xml.microdom.IMicroDocument;
+import com.helger.xml.microdom.serialize.MicroReader;
+import com.helger.xml.microdom.serialize.MicroWriter;
 
 /**
  * Test class for class {@link ExporterXML}.
@@ -76,4 +83,43 @@ public final class ExporterXMLTest
                                                                            aRecordWithAllTypes),
                                          new NonBlockingByteArrayOutputStream ()).isSuccess ());
   }
+
+  @Test
+  public void testStreamingExport ()
+  {
+    final ExportRecord aRecord = new ExportRecord ().addField ("Hallo <&> \"Welt\"")
+                                                    .addField (PDTFactory.getCurrentLocalDate ())
+                                                    .addField (true)
+                                                    .addField (4711)
+                                                    .addField (3.1145)
+                                                    .addField ((String) null);
+    final ExporterXML aExporter = new ExporterXML ();
+    final ExporterXML aStreamingExporter = new ExporterXML ().setStreaming (true);
+
+    // Nothing is written if there are no body records
+    NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ();
+    assertTrue (aStreamingExporter.exportRecords (new ConstantExportRecordProvider (aRecord, Collections.emptyList (), aRecord), aBAOS)
+                                  .isFailure ());
+    assertEquals (0, aBAOS.size ());
+
+    for (final ConstantExportRecordProvider aProvider : new ConstantExportRecordProvider [] { new ConstantExportRecordProvider (Arrays.asList (aRecord)),
+                                                                                              new ConstantExportRecordProvider (aRecord,
+                                                                                                                                Arrays.asList (aRecord,
+                                                                                                                                               aRecord),
+                                                                                                                                null),
+                                                                                              new ConstantExportRecordProvider (aRecord,
+                                                                                                                                Arrays.asList (aRecord,
+                                                                                                                                               aRecord),
+                                                                                                                                aRecord) })
+    {
+      final String sExpected = MicroWriter.getNodeAsString (aExporter.convertRecords (aProvider),
+                                                            aExporter.getXMLWriterSettings ());
+
+      aBAOS = new NonBlockingByteArrayOutputStream ();
+      assertTrue (aStreamingExporter.exportRecords (aProvider, aBAOS).isSuccess ());
+      final IMicroDocument aStreamed = MicroReader.readMicroXML (aBAOS.getAsString (StandardCharsets.UTF_8));
+      assertNotNull (aStreamed);
+      assertEquals (sExpected, MicroWriter.getNodeAsString (aStreamed, aExporter.getXMLWriterSettings ()));
+    }
+  }
 }
@@ -17,6 +17,12 @@
 package com.helger.html.hc.render;
 
 import java.io.OutputStream;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Set;
 
 import org.jspecify.annotations.NonNull;
 import org.jspecify.annotations.Nullable;
@@ -34,7 +40,6 @@ import com.helger.html.hc.IHCConversionSettings;
 import com.helger.html.hc.IHCConversionSettingsToNode;
 import com.helger.html.hc.IHCCustomizer;
 import com.helger.html.hc.IHCHasChildrenMutable;
-import com.helger.html.hc.IHCIteratorNonBreakableCallback;
 import com.helger.html.hc.IHCNode;
 import com.helger.html.hc.config.HCSettings;
 import com.helger.html.hc.html.root.HCHtml;
@@ -122,16 +127,50 @@ public final class HCRenderer
     ValueEnforcer.notNull (aGlobalTargetNode, "TargetNode");
     ValueEnforcer.notNull (aConversionSettings, "ConversionSettings");
 
+    // All nodes that were ever added to a worklist - by identity
+    final Set <IHCNode> aSeenNodes = Collections.newSetFromMap (new IdentityHashMap <> ());
+    aSeenNodes.add (aStartNode);
+
+    final Deque <PrepareEntry> aWorklist = new ArrayDeque <> ();
+    aWorklist.add (new PrepareEntry (null, aStartNode));
+    _prepareWorklist (aWorklist, aSeenNodes, aGlobalTargetNode, aConversionSettings);
+  }
+
+  private static final class PrepareEntry
+  {
+    private final IHCNode m_aParentNode;
+    private final IHCNode m_aNode;
+
+    PrepareEntry (@Nullable final IHCNode aParentNode, @NonNull final IHCNode aNode)
+    {
+      m_aParentNode = aParentNode;
+      m_aNode = aNode;
+    }
+  }
+
+  /**
+   * Prepare all nodes of the passed worklist in breadth-first order. Nodes
+   * added by a customizer, by finalization or by resource registration are
+   * prepared immediately, without rescanning the nodes that were already
+   * prepared.
+   */
+  private static void _prepareWorklist (@NonNull final Deque <PrepareEntry> aWorklist,
+                                        @NonNull final Set <IHCNode> aSeenNodes,
+                                        @NonNull final IHCHasChildrenMutable <?, ? super IHCNode> aGlobalTargetNode,
+                                        @NonNull final IHCConversionSettingsToNode aConversionSettings)
+  {
     final IHCCustomizer aCustomizer = aConversionSettings.getCustomizer ();
     final EHTMLVersion eHTMLVersion = aConversionSettings.getHTMLVersion ();
 
-    // Customize all elements before extracting out-of-band nodes, in case the
-    // customizer adds some out-of-band nodes as well
-    // Than finalize and register external resources
-    final IHCIteratorNonBreakableCallback aCB = (aParentNode, aChildNode) -> {
+    while (!aWorklist.isEmpty ())
+    {
+      final PrepareEntry aEntry = aWorklist.removeFirst ();
+      final IHCNode aParentNode = aEntry.m_aParentNode;
+      final IHCNode aChildNode = aEntry.m_aNode;
+
       // If the parent node is suitable, use it, else use the global target
       // node
-      IHCHasChildrenMutable <?, ? super IHCNode> aRealTargetNode;
+      final IHCHasChildrenMutable <?, ? super IHCNode> aRealTargetNode;
       if (aParentNode instanceof IHCHasChildrenMutable <?, ?>)
       {
         // Unchecked conversion
@@ -142,7 +181,9 @@ public final class HCRenderer
 
       final int nTargetNodeChildren = aRealTargetNode.getChildCount ();
 
-      // Run the global customizer
+      // Customize all elements before extracting out-of-band nodes, in case the
+      // customizer adds some out-of-band nodes as well
+      // Than finalize and register external resources
       aChildNode.customizeNode (aCustomizer, eHTMLVersion, aRealTargetNode);
 
       // finalize the node
@@ -155,16 +196,42 @@ public final class HCRenderer
       final boolean bForcedResourceRegistration = false;
       aChildNode.registerExternalResources (aConversionSettings, bForcedResourceRegistration);
 
+      // Remember the children for later processing. This must happen after
+      // the node itself was prepared, as it may have added children to itself
+      if (aChildNode.hasChildren ())
+        for (final IHCNode aChild : aChildNode.getChildren ())
+          if (aSeenNodes.add (aChild))
+            aWorklist.addLast (new PrepareEntry (aChildNode, aChild));
+
       // Something was added?
       if (aRealTargetNode.getChildCount () > nTargetNodeChildren)
       {
-        // Recursive call on the target node only.
-        // It's important to scan the whole tree, as a hierarchy of nodes may
-        // have been added!
-        prepareForConversion (aRealTargetNode, aRealTargetNode, aConversionSettings);
+        // Prepare only the newly added nodes. It's important to handle the
+        // whole hierarchy of the new nodes before continuing.
+        // New nodes are usually appended, so search backwards until all of them
+        // were found.
+        final int nAddedCount = aRealTargetNode.getChildCount () - nTargetNodeChildren;
+        final Deque <PrepareEntry> aNewNodes = new ArrayDeque <> ();
+        for (int nIndex = aRealTargetNode.getChildCount () - 1; nIndex >= 0 && aNewNodes.size () < nAddedCount; --nIndex)
+        {
+          final IHCNode aChild = aRealTargetNode.getChildAtIndex (nIndex);
+          if (aSeenNodes.add (aChild))
+            aNewNodes.addFirst (new PrepareEntry (aRealTargetNode, aChild));
+        }
+
+        if (aNewNodes.isEmpty ())
+        {
+          // The new nodes were added somewhere deeper in the target node - scan
+          // the target node for nodes not yet seen
+          HCHelper.iterateChildrenNonBreakable (aRealTargetNode, (aCurParentNode, aCurChildNode) -> {
+            if (aSeenNodes.add (aCurChildNode))
+              aNewNodes.addLast (new PrepareEntry (aCurParentNode, aCurChildNode));
+          });
+        }
+
+        _prepareWorklist (aNewNodes, aSeenNodes, aGlobalTargetNode, aConversionSettings);
       }
-    };
-    HCHelper.iterateTreeNonBreakable (aStartNode, aCB);
+    }
   }
 
   /**
@@ -278,6 +345,20 @@ public final class HCRenderer
     return getAsHTMLString (aHCNode, HCSettings.getConversionSettingsWithoutNamespaces ());
   }
 
+  /**
+   * Convert the passed HC node and write the HTML representation directly to
+   * the passed output stream, without creating an intermediate String. The
+   * output is identical to {@link #getAsHTMLString(IHCNode, IHCConversionSettings)}
+   * encoded in the charset of the XML writer settings.
+   *
+   * @param aHCNode
+   *        The HC node to be converted. May not be <code>null</code>.
+   * @param aConversionSettings
+   *        The conversion settings to be used. May not be <code>null</code>.
+   * @param aOS
+   *        The output stream to write to. Is closed afterwards. May not be
+   *        <code>null</code>.
+   */
   public static void writeHtmlTo (@NonNull final IHCNode aHCNode,
                                   @NonNull final IHCConversionSettings aConversionSettings,
                                   @NonNull @WillClose final OutputStream aOS)
@@ -293,4 +374,35 @@ public final class HCRenderer
       StreamHelper.close (aOS);
     }
   }
+
+  /**
+   * Convert the passed HC node and write the HTML representation directly to
+   * the passed writer, without creating an intermediate String. The MicroDOM
+   * is serialized straight into the writer. The output is identical to
+   * {@link #getAsHTMLString(IHCNode, IHCConversionSettings)}.
+   *
+   * @param aHCNode
+   *        The HC node to be converted. May not be <code>null</code>.
+   * @param aConversionSettings
+   *        The conversion settings to be used. May not be <code>null</code>.
+   * @param aWriter
+   *        The writer to write to. Is closed afterwards. May not be
+   *        <code>null</code>.
+   * @since 10.3.1
+   */
+  public static void writeHtmlTo (@NonNull final IHCNode aHCNode,
+                                  @NonNull final IHCConversionSettings aConversionSettings,
+                                  @NonNull @WillClose final Writer aWriter)
+  {
+    try
+    {
+      final IMicroNode aMicroNode = getAsNode (aHCNode, aConversionSettings);
+      if (aMicroNode != null)
+        MicroWriter.writeToWriter (aMicroNode, aWriter, aConversionSettings.getXMLWriterSettings ());
+    }
+    finally
+    {
+      StreamHelper.close (aWriter);
+    }
+  }
 }
@@ -0,0 +1,209 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.html.hc.render;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.function.Supplier;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+
+import com.helger.base.io.nonblocking.NonBlockingByteArrayOutputStream;
+import com.helger.base.io.nonblocking.NonBlockingStringWriter;
+import com.helger.base.reflection.GenericReflection;
+import com.helger.html.EHTMLVersion;
+import com.helger.html.css.DefaultCSSClassProvider;
+import com.helger.html.hc.HCHelper;
+import com.helger.html.hc.IHCConversionSettings;
+import com.helger.html.hc.IHCConversionSettingsToNode;
+import com.helger.html.hc.IHCCustomizer;
+import com.helger.html.hc.IHCHasChildrenMutable;
+import com.helger.html.hc.IHCNode;
+import com.helger.html.hc.config.HCConversionSettings;
+import com.helger.html.hc.config.HCSettings;
+import com.helger.html.hc.html.forms.HCEdit;
+import com.helger.html.hc.html.forms.HCForm;
+import com.helger.html.hc.html.forms.HCLabel;
+import com.helger.html.hc.html.forms.HCOption;
+import com.helger.html.hc.html.forms.HCSelect;
+import com.helger.html.hc.html.forms.HCTextArea;
+import com.helger.html.hc.html.grouping.HCDiv;
+import com.helger.html.hc.html.tabular.HCCol;
+import com.helger.html.hc.html.tabular.HCTable;
+import com.helger.html.hc.html.textlevel.HCSpan;
+import com.helger.html.hc.impl.HCNodeList;
+import com.helger.unittest.junit4.DebugModeTestRule;
+
+/**
+ * Test class for class {@link HCRenderer}.
+ *
+ * @author Philip Helger
+ */
+public final class HCRendererTest
+{
+  @Rule
+  public final TestRule m_aRule = new DebugModeTestRule ();
+
+  private static HCTable _createTable (final int nRows)
+  {
+    final HCTable aTable = new HCTable (new HCCol (100), HCCol.star (), HCCol.star ());
+    aTable.setID ("table" + nRows);
+    aTable.addHeaderRow ().addCells ("ID", "Name", "Value");
+    for (int i = 0; i < nRows; ++i)
+      aTable.addBodyRow ().addCells (Integer.toString (i), "Name <" + i + ">", "Value & " + i);
+    return aTable;
+  }
+
+  private static HCForm _createForm (final int nFields)
+  {
+    final HCForm aForm = new HCForm ();
+    for (int i = 0; i < nFields; ++i)
+    {
+      final HCDiv aDiv = aForm.addAndReturnChild (new HCDiv ());
+      aDiv.addChild (new HCLabel ().addChild ("Field " + i));
+      switch (i % 3)
+      {
+        case 0:
+          aDiv.addChild (new HCEdit ("edit" + i).setValue ("v\"" + i));
+          break;
+        case 1:
+          aDiv.addChild (new HCTextArea ("area" + i, "Text\n" + i));
+          break;
+        default:
+          final HCSelect aSelect = new HCSelect ("select" + i);
+          aSelect.addOption (new HCOption ().setValue ("a").addChild ("A"));
+          aSelect.addOption (new HCOption ().setValue ("b").addChild ("B"));
+          aDiv.addChild (aSelect);
+          break;
+      }
+    }
+    return aForm;
+  }
+
+  private static void _testIdentical (final Supplier <? extends IHCNode> aFactory)
+  {
+    final IHCConversionSettings aCS = HCSettings.getConversionSettings ();
+    final String sExpected = HCRenderer.getAsHTMLString (aFactory.get (), aCS);
+
+    try (final NonBlockingStringWriter aSW = new NonBlockingStringWriter ())
+    {
+      HCRenderer.writeHtmlTo (aFactory.get (), aCS, aSW);
+      assertEquals (sExpected, aSW.getAsString ());
+    }
+
+    try (final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ())
+    {
+      HCRenderer.writeHtmlTo (aFactory.get (), aCS, aBAOS);
+      assertArrayEquals (sExpected.getBytes (aCS.getCharset ()), aBAOS.toByteArray ());
+    }
+  }
+
+  @Test
+  public void testWriteHtmlToIdentical ()
+  {
+    _testIdentical ( () -> _createTable (5));
+    _testIdentical ( () -> _createTable (1_000));
+    _testIdentical ( () -> _createForm (5));
+    _testIdentical ( () -> _createForm (1_000));
+  }
+
+  /**
+   * The previous recursive implementation of
+   * {@link HCRenderer#prepareForConversion(IHCNode, IHCHasChildrenMutable, IHCConversionSettingsToNode)}
+   * that rescans the whole target node if a node was added.
+   */
+  private static void _prepareForConversionRecursive (final IHCNode aStartNode,
+                                                      final IHCHasChildrenMutable <?, ? super IHCNode> aGlobalTargetNode,
+                                                      final IHCConversionSettingsToNode aConversionSettings)
+  {
+    HCHelper.iterateTreeNonBreakable (aStartNode, (aParentNode, aChildNode) -> {
+      final IHCHasChildrenMutable <?, ? super IHCNode> aRealTargetNode;
+      if (aParentNode instanceof IHCHasChildrenMutable <?, ?>)
+        aRealTargetNode = GenericReflection.uncheckedCast (aParentNode);
+      else
+        aRealTargetNode = aGlobalTargetNode;
+
+      final int nTargetNodeChildren = aRealTargetNode.getChildCount ();
+      aChildNode.customizeNode (aConversionSettings.getCustomizer (),
+                                aConversionSettings.getHTMLVersion (),
+                                aRealTargetNode);
+      aChildNode.finalizeNodeState (aConversionSettings, aRealTargetNode);
+      aChildNode.consistencyCheck (aConversionSettings);
+      aChildNode.registerExternalResources (aConversionSettings, false);
+      if (aRealTargetNode.getChildCount () > nTargetNodeChildren)
+        _prepareForConversionRecursive (aRealTargetNode, aRealTargetNode, aConversionSettings);
+    });
+  }
+
+  /**
+   * Customizer that adds a new hierarchy of nodes for each div with an ID and
+   * that adds a class to each span.
+   */
+  private static final IHCCustomizer ADDING_CUSTOMIZER = new IHCCustomizer ()
+  {
+    public void customizeNode (final IHCNode aNode,
+                               final EHTMLVersion eHTMLVersion,
+                               final IHCHasChildrenMutable <?, ? super IHCNode> aTargetNode)
+    {
+      if (aNode instanceof final HCDiv aDiv && aDiv.getID () != null)
+      {
+        final HCDiv aNewDiv = new HCDiv ();
+        aNewDiv.addChild (new HCSpan ().addChild ("added to " + aDiv.getID ()));
+        aTargetNode.addChild (aNewDiv);
+      }
+      else
+        if (aNode instanceof final HCSpan aSpan)
+          aSpan.addClass (DefaultCSSClassProvider.create ("customized"));
+    }
+  };
+
+  private static HCNodeList _createPage (final int nDivs)
+  {
+    final HCNodeList aPage = new HCNodeList ();
+    for (int i = 0; i < nDivs; ++i)
+    {
+      final HCDiv aDiv = aPage.addAndReturnChild (new HCDiv ());
+      if ((i % 2) == 0)
+        aDiv.setID ("div" + i);
+      aDiv.addChild (new HCSpan ().addChild ("a" + i));
+      aDiv.addChild (new HCSpan ().addChild ("b" + i));
+    }
+    return aPage;
+  }
+
+  @Test
+  public void testPrepareForConversionSameTree ()
+  {
+    final HCConversionSettings aCS = HCSettings.getMutableConversionSettings ().getClone ().setCustomizer (ADDING_CUSTOMIZER);
+    for (final int nDivs : new int [] { 1, 5, 100, 500 })
+    {
+      final HCNodeList aPage1 = _createPage (nDivs);
+      _prepareForConversionRecursive (aPage1, aPage1, aCS);
+      final String sExpected = HCRenderer.getAsHTMLString (aPage1, aCS);
+
+      final HCNodeList aPage2 = _createPage (nDivs);
+      HCRenderer.prepareForConversion (aPage2, aPage2, aCS);
+      assertEquals (sExpected, HCRenderer.getAsHTMLString (aPage2, aCS));
+
+      // Each div with an ID added a new div
+      assertEquals (nDivs + (nDivs + 1) / 2, aPage2.getChildCount ());
+    }
+  }
+}
@@ -16,17 +16,33 @@
  */
 package com.helger.photon.io.dao;
 
+import java.util.function.Function;
+
 import org.jspecify.annotations.NonNull;
 import org.jspecify.annotations.Nullable;
 
+import com.helger.annotation.Nonempty;
+import com.helger.annotation.concurrent.ELockType;
+import com.helger.annotation.concurrent.GuardedBy;
+import com.helger.annotation.concurrent.MustBeLocked;
+import com.helger.base.enforce.ValueEnforcer;
 import com.helger.base.id.IHasID;
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.ICommonsList;
 import com.helger.dao.DAOException;
 import com.helger.dao.wal.AbstractMapBasedWALDAO;
+import com.helger.dao.wal.IMapBasedDAOCallback;
 import com.helger.photon.io.WebFileIO;
 
 /**
  * Special {@link AbstractMapBasedWALDAO} that uses the
- * {@link WebFileIO#getDataIO()} for read/write.
+ * {@link WebFileIO#getDataIO()} for read/write.<br>
+ * Derived classes may declare secondary indexes via
+ * {@link #registerIndex(String, Function)} or
+ * {@link #registerMultiKeyIndex(String, Function)} to avoid linear scans. Indexes are
+ * maintained automatically whenever an item is created, updated, (un)marked as
+ * deleted or deleted via the respective <code>internal*Item</code> methods, and
+ * are rebuilt upon {@link #reload()}.
  *
  * @author Philip Helger
  * @param <INTERFACETYPE>
@@ -38,6 +54,44 @@ public abstract class AbstractPhotonMapBasedWALDAO <INTERFACETYPE extends IHasID
                                                    extends
                                                    AbstractMapBasedWALDAO <INTERFACETYPE, IMPLTYPE>
 {
+  /**
+   * Keeps all registered indexes in sync with the DAO content. Invoked by the
+   * base class inside the write lock.
+   *
+   * @author Philip Helger
+   */
+  private final class IndexMaintainingCallback implements IMapBasedDAOCallback <INTERFACETYPE>
+  {
+    public void onCreateItem (@NonNull final INTERFACETYPE aNewItem)
+    {
+      _putInIndexes (aNewItem);
+    }
+
+    public void onUpdateItem (@NonNull final INTERFACETYPE aItem)
+    {
+      _putInIndexes (aItem);
+    }
+
+    public void onDeleteItem (@NonNull final INTERFACETYPE aItem)
+    {
+      for (final DAOSecondaryIndex <?, INTERFACETYPE> aIndex : m_aIndexes)
+        aIndex.remove (aItem.getID ());
+    }
+
+    public void onMarkItemDeleted (@NonNull final INTERFACETYPE aItem)
+    {
+      _putInIndexes (aItem);
+    }
+
+    public void onMarkItemUndeleted (@NonNull final INTERFACETYPE aItem)
+    {
+      _putInIndexes (aItem);
+    }
+  }
+
+  @GuardedBy ("m_aRWLock")
+  private final ICommonsList <DAOSecondaryIndex <?, INTERFACETYPE>> m_aIndexes = new CommonsArrayList <> ();
+
   public AbstractPhotonMapBasedWALDAO (@NonNull final Class <IMPLTYPE> aImplClass,
                                        @Nullable final String sFilename) throws DAOException
   {
@@ -49,6 +103,7 @@ public abstract class AbstractPhotonMapBasedWALDAO <INTERFACETYPE extends IHasID
                                        @NonNull final InitSettings <IMPLTYPE> aInitSettings) throws DAOException
   {
     super (aImplClass, WebFileIO.getDataIO (), sFilename, aInitSettings);
+    callbacks ().add (new IndexMaintainingCallback ());
   }
 
   @Override
@@ -63,6 +118,88 @@ public abstract class AbstractPhotonMapBasedWALDAO <INTERFACETYPE extends IHasID
     m_aRWLock.writeLockedThrowing ( () -> {
       internalRemoveAllItemsNoCallback ();
       initialRead ();
+      _rebuildIndexes ();
     });
   }
+
+  @MustBeLocked (ELockType.WRITE)
+  private void _rebuildIndexes ()
+  {
+    if (m_aIndexes.isNotEmpty ())
+    {
+      final ICommonsList <INTERFACETYPE> aAll = getAll ();
+      for (final DAOSecondaryIndex <?, INTERFACETYPE> aIndex : m_aIndexes)
+      {
+        aIndex.clear ();
+        for (final INTERFACETYPE aItem : aAll)
+          aIndex.put (aItem);
+      }
+    }
+  }
+
+  /**
+   * Register a new secondary index. The index is filled with all items
+   * currently contained. This is usually called in the constructor of derived
+   * classes.
+   *
+   * @param <KEYTYPE>
+   *        The index key type
+   * @param sName
+   *        The name of the index. May neither be <code>null</code> nor empty.
+   * @param aKeyExtractor
+   *        The function to extract the index key from an item. May return
+   *        <code>null</code> for items that should not be indexed. May not be
+   *        <code>null</code>.
+   * @return The created index. Lookups on the index must be performed inside
+   *         the read lock of this DAO.
+   * @since 10.3.1
+   */
+  @NonNull
+  protected final <KEYTYPE> DAOSecondaryIndex <KEYTYPE, INTERFACETYPE> registerIndex (@NonNull @Nonempty final String sName,
+                                                                                      @NonNull final Function <? super INTERFACETYPE, ? extends KEYTYPE> aKeyExtractor)
+  {
+    ValueEnforcer.notNull (aKeyExtractor, "KeyExtractor");
+    return registerMultiKeyIndex (sName, x -> {
+      final KEYTYPE aKey = aKeyExtractor.apply (x);
+      return aKey == null ? null : new CommonsArrayList <KEYTYPE> (aKey);
+    });
+  }
+
+  /**
+   * Register a new secondary index where each item may have multiple keys. The
+   * index is filled with all items currently contained. This is usually called
+   * in the constructor of derived classes.
+   *
+   * @param <KEYTYPE>
+   *        The index key type
+   * @param sName
+   *        The name of the index. May neither be <code>null</code> nor empty.
+   * @param aKeysExtractor
+   *        The function to extract all index keys from an item. May return
+   *        <code>null</code> or an empty iterable for items that should not be
+   *        indexed. May not be <code>null</code>.
+   * @return The created index. Lookups on the index must be performed inside
+   *         the read lock of this DAO.
+   * @since 10.3.1
+   */
+  @NonNull
+  protected final <KEYTYPE> DAOSecondaryIndex <KEYTYPE, INTERFACETYPE> registerMultiKeyIndex (@NonNull @Nonempty final String sName,
+                                                                                              @NonNull final Function <? super INTERFACETYPE, ? extends Iterable <? extends KEYTYPE>> aKeysExtractor)
+  {
+    final DAOSecondaryIndex <KEYTYPE, INTERFACETYPE> ret = new DAOSecondaryIndex <> (sName, aKeysExtractor);
+    m_aRWLock.writeLocked ( () -> {
+      for (final INTERFACETYPE aItem : getAll ())
+        ret.put (aItem);
+      m_aIndexes.add (ret);
+    });
+    return ret;
+  }
+
+  @MustBeLocked (ELockType.WRITE)
+  private void _putInIndexes (@NonNull final INTERFACETYPE aItem)
+  {
+    // The keys may have changed, e.g. for items modified in place
+    for (final DAOSecondaryIndex <?, INTERFACETYPE> aIndex : m_aIndexes)
+      aIndex.put (aItem);
+  }
 }
@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.photon.io.dao;
+
+import java.util.function.Function;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import com.helger.annotation.Nonempty;
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.NotThreadSafe;
+import com.helger.annotation.style.ReturnsMutableCopy;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.id.IHasID;
+import com.helger.base.tostring.ToStringGenerator;
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.CommonsHashMap;
+import com.helger.collection.commons.ICommonsList;
+import com.helger.collection.commons.ICommonsMap;
+
+/**
+ * A secondary index on top of a map based DAO. It maps an extracted key to all items having this
+ * key. Keys are not required to be unique and an item may have multiple keys. Items for which the
+ * key extractor returns no key are not indexed.<br>
+ * Instances are created via {@link AbstractPhotonMapBasedWALDAO#registerIndex(String, Function)}
+ * or {@link AbstractPhotonMapBasedWALDAO#registerMultiKeyIndex(String, Function)} and are
+ * maintained by the owning DAO. This class is not thread-safe - all accesses must happen inside the
+ * lock of the owning DAO.
+ *
+ * @author Philip Helger
+ * @param <KEYTYPE>
+ *        The index key type. Must implement equals and hashCode.
+ * @param <VALUETYPE>
+ *        The indexed item type.
+ * @since 10.3.1
+ */
+@NotThreadSafe
+public final class DAOSecondaryIndex <KEYTYPE, VALUETYPE extends IHasID <String>>
+{
+  private final String m_sName;
+  private final Function <? super VALUETYPE, ? extends Iterable <? extends KEYTYPE>> m_aKeysExtractor;
+  private final ICommonsMap <KEYTYPE, ICommonsList <VALUETYPE>> m_aMap = new CommonsHashMap <> ();
+  // The keys under which each ID was indexed - required because items may be modified in place
+  private final ICommonsMap <String, ICommonsList <KEYTYPE>> m_aKeysOfID = new CommonsHashMap <> ();
+
+  DAOSecondaryIndex (@NonNull @Nonempty final String sName,
+                     @NonNull final Function <? super VALUETYPE, ? extends Iterable <? extends KEYTYPE>> aKeysExtractor)
+  {
+    ValueEnforcer.notEmpty (sName, "Name");
+    ValueEnforcer.notNull (aKeysExtractor, "KeysExtractor");
+    m_sName = sName;
+    m_aKeysExtractor = aKeysExtractor;
+  }
+
+  /**
+   * @return The name of the index as provided in the constructor. Neither <code>null</code> nor
+   *         empty.
+   */
+  @NonNull
+  @Nonempty
+  public String getName ()
+  {
+    return m_sName;
+  }
+
+  void clear ()
+  {
+    m_aMap.clear ();
+    m_aKeysOfID.clear ();
+  }
+
+  void remove (@NonNull final String sID)
+  {
+    final ICommonsList <KEYTYPE> aOldKeys = m_aKeysOfID.remove (sID);
+    if (aOldKeys != null)
+      for (final KEYTYPE aOldKey : aOldKeys)
+      {
+        final ICommonsList <VALUETYPE> aList = m_aMap.get (aOldKey);
+        if (aList != null)
+        {
+          aList.removeIf (x -> x.getID ().equals (sID));
+          if (aList.isEmpty ())
+            m_aMap.remove (aOldKey);
+        }
+      }
+  }
+
+  void put (@NonNull final VALUETYPE aItem)
+  {
+    // Remove any previous entry, as the keys may have changed
+    final String sID = aItem.getID ();
+    remove (sID);
+
+    final Iterable <? extends KEYTYPE> aKeys = m_aKeysExtractor.apply (aItem);
+    if (aKeys != null)
+    {
+      final ICommonsList <KEYTYPE> aAddedKeys = new CommonsArrayList <> (1);
+      for (final KEYTYPE aKey : aKeys)
+        if (aKey != null && !aAddedKeys.contains (aKey))
+        {
+          m_aMap.computeIfAbsent (aKey, k -> new CommonsArrayList <> (1)).add (aItem);
+          aAddedKeys.add (aKey);
+        }
+      if (aAddedKeys.isNotEmpty ())
+        m_aKeysOfID.put (sID, aAddedKeys);
+    }
+  }
+
+  /**
+   * Get the first item with the provided key.
+   *
+   * @param aKey
+   *        The key to search. May be <code>null</code>.
+   * @return <code>null</code> if no such item is contained.
+   */
+  @Nullable
+  public VALUETYPE getFirst (@Nullable final KEYTYPE aKey)
+  {
+    if (aKey == null)
+      return null;
+    final ICommonsList <VALUETYPE> aList = m_aMap.get (aKey);
+    return aList == null ? null : aList.getFirstOrNull ();
+  }
+
+  /**
+   * Get all items with the provided key.
+   *
+   * @param aKey
+   *        The key to search. May be <code>null</code>.
+   * @return A new list with all matching items. Never <code>null</code> but maybe empty.
+   */
+  @NonNull
+  @ReturnsMutableCopy
+  public ICommonsList <VALUETYPE> getAll (@Nullable final KEYTYPE aKey)
+  {
+    if (aKey == null)
+      return new CommonsArrayList <> ();
+    final ICommonsList <VALUETYPE> aList = m_aMap.get (aKey);
+    return aList == null ? new CommonsArrayList <> () : aList.getClone ();
+  }
+
+  /**
+   * @param aKey
+   *        The key to check. May be <code>null</code>.
+   * @return <code>true</code> if at least one item with the provided key is contained.
+   */
+  public boolean containsKey (@Nullable final KEYTYPE aKey)
+  {
+    return aKey != null && m_aMap.containsKey (aKey);
+  }
+
+  /**
+   * @return The number of distinct keys in this index.
+   */
+  @Nonnegative
+  public int getKeyCount ()
+  {
+    return m_aMap.size ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Name", m_sName)
+                                       .append ("KeyCount", m_aMap.size ())
+                                       .append ("ItemCount", m_aKeysOfID.size ())
+                                       .getToString ();
+  }
+}
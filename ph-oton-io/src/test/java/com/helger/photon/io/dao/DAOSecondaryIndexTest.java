@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.photon.io.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.helger.base.id.IHasID;
+import com.helger.collection.commons.CommonsArrayList;
+
+/**
+ * Test class for class {@link DAOSecondaryIndex}.
+ *
+ * @author Philip Helger
+ */
+public final class DAOSecondaryIndexTest
+{
+  private static final class MockItem implements IHasID <String>
+  {
+    private final String m_sID;
+    private String m_sKey;
+
+    MockItem (final String sID, final String sKey)
+    {
+      m_sID = sID;
+      m_sKey = sKey;
+    }
+
+    public String getID ()
+    {
+      return m_sID;
+    }
+  }
+
+  @Test
+  public void testBasic ()
+  {
+    final DAOSecondaryIndex <String, MockItem> aIndex = new DAOSecondaryIndex <> ("key",
+                                                                                  x -> x.m_sKey == null ? null
+                                                                                                        : new CommonsArrayList <> (x.m_sKey));
+    final MockItem a = new MockItem ("1", "a");
+    final MockItem b = new MockItem ("2", "a");
+    final MockItem c = new MockItem ("3", null);
+    aIndex.put (a);
+    aIndex.put (b);
+    aIndex.put (c);
+    assertEquals (1, aIndex.getKeyCount ());
+    assertSame (a, aIndex.getFirst ("a"));
+    assertEquals (2, aIndex.getAll ("a").size ());
+    assertNull (aIndex.getFirst (null));
+    assertFalse (aIndex.containsKey ("b"));
+
+    // Modify in place
+    a.m_sKey = "b";
+    aIndex.put (a);
+    assertSame (b, aIndex.getFirst ("a"));
+    assertSame (a, aIndex.getFirst ("b"));
+    assertEquals (1, aIndex.getAll ("a").size ());
+
+    aIndex.remove (b.getID ());
+    assertFalse (aIndex.containsKey ("a"));
+    assertTrue (aIndex.containsKey ("b"));
+
+    aIndex.clear ();
+    assertEquals (0, aIndex.getKeyCount ());
+  }
+
+  @Test
+  public void testMultiKeyManyItems ()
+  {
+    // Each item is reachable via two keys
+    final DAOSecondaryIndex <String, MockItem> aIndex = new DAOSecondaryIndex <> ("token",
+                                                                                  x -> new CommonsArrayList <> ("token-" +
+                                                                                                                x.m_sKey,
+                                                                                                                "old-" +
+                                                                                                                          x.m_sKey));
+    final int nItems = 10_000;
+    for (int i = 0; i < nItems; ++i)
+      aIndex.put (new MockItem (Integer.toString (i), Integer.toString (i)));
+    assertEquals (2 * nItems, aIndex.getKeyCount ());
+
+    for (int i = 0; i < nItems; ++i)
+    {
+      final String sID = Integer.toString (i);
+      assertEquals (sID, aIndex.getFirst ("token-" + i).getID ());
+      assertEquals (sID, aIndex.getFirst ("old-" + i).getID ());
+      assertEquals (1, aIndex.getAll ("token-" + i).size ());
+    }
+
+    // Removing an item removes all of its keys
+    for (int i = 0; i < nItems; i += 2)
+      aIndex.remove (Integer.toString (i));
+    assertEquals (nItems, aIndex.getKeyCount ());
+    assertFalse (aIndex.containsKey ("token-0"));
+    assertFalse (aIndex.containsKey ("old-0"));
+    assertTrue (aIndex.containsKey ("token-1"));
+    assertTrue (aIndex.containsKey ("old-1"));
+  }
+}
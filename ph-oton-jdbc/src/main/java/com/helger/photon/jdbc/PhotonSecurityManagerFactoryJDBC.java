@@ -16,6 +16,7 @@
  */
 package com.helger.photon.jdbc;
 
+import java.time.Duration;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
@@ -36,6 +37,7 @@ import com.helger.photon.security.role.IRoleManager;
 import com.helger.photon.security.token.user.IUserTokenManager;
 import com.helger.photon.security.user.IUserManager;
 import com.helger.photon.security.usergroup.IUserGroupManager;
+import com.helger.photon.security.util.EffectiveUserPermissionCache;
 
 /**
  * An implementation of {@link IFactory} for JDBC based managers.
@@ -87,6 +89,19 @@ public class PhotonSecurityManagerFactoryJDBC implements PhotonSecurityManager.I
     return new UserTokenManagerJDBC (m_aDBExecSupplier, m_aTableNameCustomizer, aUserMgr);
   }
 
+  /**
+   * {@inheritDoc} The database may be modified by other nodes, which are not
+   * reported via the local modification callbacks. Therefore the cache is
+   * disabled and all checks use the user group manager with its own read
+   * through caches. Override this method to use a time to live instead.
+   */
+  @Override
+  @NonNull
+  public EffectiveUserPermissionCache createEffectivePermissionCache (@NonNull final IUserGroupManager aUserGroupMgr)
+  {
+    return new EffectiveUserPermissionCache (aUserGroupMgr, Duration.ZERO);
+  }
+
   /**
    * @param aDBExecSupplier
    *        The main supplier for {@link DBExecutor} objects. This will be passed to all the main
@@ -0,0 +1,456 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.photon.jdbc.audit;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.jspecify.annotations.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.base.concurrent.BasicThreadFactoryBuilder;
+import com.helger.base.concurrent.ThreadHelper;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.state.EChange;
+import com.helger.base.state.ESuccess;
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.ICommonsList;
+import com.helger.photon.audit.AbstractAuditor;
+import com.helger.photon.audit.AsynchronousAuditor;
+import com.helger.photon.audit.IAuditItem;
+import com.helger.security.authentication.subject.user.ICurrentUserIDProvider;
+
+/**
+ * A JDBC auditor that handles audit items asynchronously, similar to {@link AsynchronousAuditor}.
+ * Audit items are put into a bounded queue and written by a background thread via
+ * {@link AuditorJDBC#insertAuditItems(java.util.List)}. A batch is written as soon as it contains
+ * the maximum number of items or when the oldest item in the batch reached the maximum age.<br>
+ * If the queue stays full for longer than the enqueue timeout, or if the auditor was already
+ * stopped, the item is written synchronously in the calling thread, so that no item is lost.<br>
+ * A batch that cannot be written is retried (see {@link #setMaxWriteAttempts(int)}). If all
+ * attempts fail, the batch is passed to the failed batch handler, which logs all items by
+ * default.<br>
+ * Please ensure to call {@link #stop()} if this auditor is no longer used, so that all queued items
+ * are written.
+ *
+ * @author Philip Helger
+ * @since 10.3.1
+ */
+@ThreadSafe
+public class AsynchronousAuditorJDBC extends AbstractAuditor
+{
+  /** The default maximum number of queued audit items */
+  public static final int DEFAULT_QUEUE_CAPACITY = 10_000;
+  /** The default maximum number of audit items written in one batch */
+  public static final int DEFAULT_MAX_BATCH_SIZE = 500;
+  /** The default maximum time an audit item waits for the batch to fill up */
+  public static final Duration DEFAULT_MAX_BATCH_AGE = Duration.ofMillis (250);
+  /** The default maximum time a caller waits for space in a full queue */
+  public static final Duration DEFAULT_ENQUEUE_TIMEOUT = Duration.ofSeconds (1);
+  /** The default number of attempts to write a single batch */
+  public static final int DEFAULT_MAX_WRITE_ATTEMPTS = 3;
+  /** The default delay before the first retry of a failed batch. Doubled for each further retry. */
+  public static final Duration DEFAULT_RETRY_DELAY = Duration.ofMillis (500);
+
+  // Just to have custom named threads....
+  private static final ThreadFactory THREAD_FACTORY = new BasicThreadFactoryBuilder ().namingPattern ("AsyncAuditorJDBC")
+                                                                                      .daemon (true)
+                                                                                      .build ();
+  private static final Logger LOGGER = LoggerFactory.getLogger (AsynchronousAuditorJDBC.class);
+
+  private final AuditorJDBC m_aTarget;
+  private final BlockingQueue <IAuditItem> m_aQueue;
+  private final int m_nMaxBatchSize;
+  private final long m_nMaxBatchAgeNanos;
+  private final ExecutorService m_aWriterThreadPool;
+  private volatile boolean m_bStopped = false;
+  private volatile Duration m_aEnqueueTimeout = DEFAULT_ENQUEUE_TIMEOUT;
+  private volatile int m_nMaxWriteAttempts = DEFAULT_MAX_WRITE_ATTEMPTS;
+  private volatile Duration m_aRetryDelay = DEFAULT_RETRY_DELAY;
+  private volatile Consumer <? super ICommonsList <IAuditItem>> m_aFailedBatchHandler;
+  private final AtomicLong m_aSynchronousWriteCount = new AtomicLong (0);
+  private final AtomicLong m_aFailedItemCount = new AtomicLong (0);
+
+  public AsynchronousAuditorJDBC (@NonNull final AuditorJDBC aTarget,
+                                  @NonNull final ICurrentUserIDProvider aUserIDProvider)
+  {
+    this (aTarget, aUserIDProvider, DEFAULT_QUEUE_CAPACITY, DEFAULT_MAX_BATCH_SIZE, DEFAULT_MAX_BATCH_AGE);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param aTarget
+   *        The JDBC auditor that performs the actual writing. May not be <code>null</code>.
+   * @param aUserIDProvider
+   *        The current user ID provider. May not be <code>null</code>.
+   * @param nQueueCapacity
+   *        The maximum number of queued audit items. Must be &gt; 0.
+   * @param nMaxBatchSize
+   *        The maximum number of audit items to write in a single batch. Must be &gt; 0.
+   * @param aMaxBatchAge
+   *        The maximum time to wait for a batch to fill up. May not be <code>null</code>.
+   */
+  public AsynchronousAuditorJDBC (@NonNull final AuditorJDBC aTarget,
+                                  @NonNull final ICurrentUserIDProvider aUserIDProvider,
+                                  @Nonnegative final int nQueueCapacity,
+                                  @Nonnegative final int nMaxBatchSize,
+                                  @NonNull final Duration aMaxBatchAge)
+  {
+    super (aUserIDProvider);
+    ValueEnforcer.notNull (aTarget, "Target");
+    ValueEnforcer.isGT0 (nQueueCapacity, "QueueCapacity");
+    ValueEnforcer.isGT0 (nMaxBatchSize, "MaxBatchSize");
+    ValueEnforcer.notNull (aMaxBatchAge, "MaxBatchAge");
+    ValueEnforcer.isFalse (aMaxBatchAge.isNegative (), "MaxBatchAge may not be negative");
+
+    m_aTarget = aTarget;
+    m_aQueue = new ArrayBlockingQueue <> (nQueueCapacity);
+    m_nMaxBatchSize = nMaxBatchSize;
+    m_nMaxBatchAgeNanos = aMaxBatchAge.toNanos ();
+    m_aFailedBatchHandler = AsynchronousAuditorJDBC::_logFailedBatch;
+    m_aWriterThreadPool = Executors.newSingleThreadExecutor (THREAD_FACTORY);
+    m_aWriterThreadPool.submit (this::_writeLoop);
+  }
+
+  @NonNull
+  public final AuditorJDBC getTarget ()
+  {
+    return m_aTarget;
+  }
+
+  private static void _logFailedBatch (@NonNull final ICommonsList <IAuditItem> aItems)
+  {
+    // Last resort, so that the audit records are at least contained in the log
+    for (final IAuditItem aItem : aItems)
+      LOGGER.error ("Failed to write audit item " + aItem);
+  }
+
+  /**
+   * @return The maximum time a caller waits for space in a full queue, before the item is written
+   *         synchronously. Never <code>null</code>.
+   */
+  @NonNull
+  public final Duration getEnqueueTimeout ()
+  {
+    return m_aEnqueueTimeout;
+  }
+
+  /**
+   * @param aEnqueueTimeout
+   *        The maximum time a caller waits for space in a full queue, before the item is written
+   *        synchronously. May not be <code>null</code> nor negative.
+   * @return this for chaining
+   */
+  @NonNull
+  public final AsynchronousAuditorJDBC setEnqueueTimeout (@NonNull final Duration aEnqueueTimeout)
+  {
+    ValueEnforcer.notNull (aEnqueueTimeout, "EnqueueTimeout");
+    ValueEnforcer.isFalse (aEnqueueTimeout.isNegative (), "EnqueueTimeout may not be negative");
+    m_aEnqueueTimeout = aEnqueueTimeout;
+    return this;
+  }
+
+  /**
+   * @return The number of attempts to write a single batch. Always &gt; 0.
+   */
+  @Nonnegative
+  public final int getMaxWriteAttempts ()
+  {
+    return m_nMaxWriteAttempts;
+  }
+
+  /**
+   * @param nMaxWriteAttempts
+   *        The number of attempts to write a single batch. Must be &gt; 0.
+   * @return this for chaining
+   */
+  @NonNull
+  public final AsynchronousAuditorJDBC setMaxWriteAttempts (@Nonnegative final int nMaxWriteAttempts)
+  {
+    ValueEnforcer.isGT0 (nMaxWriteAttempts, "MaxWriteAttempts");
+    m_nMaxWriteAttempts = nMaxWriteAttempts;
+    return this;
+  }
+
+  /**
+   * @return The delay before the first retry of a failed batch. Never <code>null</code>.
+   */
+  @NonNull
+  public final Duration getRetryDelay ()
+  {
+    return m_aRetryDelay;
+  }
+
+  /**
+   * @param aRetryDelay
+   *        The delay before the first retry of a failed batch. It is doubled for each further retry.
+   *        May not be <code>null</code> nor negative.
+   * @return this for chaining
+   */
+  @NonNull
+  public final AsynchronousAuditorJDBC setRetryDelay (@NonNull final Duration aRetryDelay)
+  {
+    ValueEnforcer.notNull (aRetryDelay, "RetryDelay");
+    ValueEnforcer.isFalse (aRetryDelay.isNegative (), "RetryDelay may not be negative");
+    m_aRetryDelay = aRetryDelay;
+    return this;
+  }
+
+  /**
+   * Set the handler for batches that could not be written after all attempts, e.g. to spill them
+   * to a file. By default all items are logged.
+   *
+   * @param aFailedBatchHandler
+   *        The handler to use. May not be <code>null</code>.
+   * @return this for chaining
+   */
+  @NonNull
+  public final AsynchronousAuditorJDBC setFailedBatchHandler (@NonNull final Consumer <? super ICommonsList <IAuditItem>> aFailedBatchHandler)
+  {
+    ValueEnforcer.notNull (aFailedBatchHandler, "FailedBatchHandler");
+    m_aFailedBatchHandler = aFailedBatchHandler;
+    return this;
+  }
+
+  /**
+   * Write a batch, retrying on failure. If all attempts fail, the batch is passed to the failed
+   * batch handler.
+   *
+   * @param aBatch
+   *        The batch to write. May not be <code>null</code>.
+   */
+  private void _writeBatch (@NonNull final ICommonsList <IAuditItem> aBatch)
+  {
+    if (aBatch.isEmpty ())
+      return;
+
+    final int nMaxAttempts = m_nMaxWriteAttempts;
+    long nDelayMillis = m_aRetryDelay.toMillis ();
+    for (int nAttempt = 1; nAttempt <= nMaxAttempts; ++nAttempt)
+    {
+      ESuccess eSuccess;
+      try
+      {
+        eSuccess = m_aTarget.insertAuditItems (aBatch);
+      }
+      catch (final RuntimeException ex)
+      {
+        LOGGER.warn ("Exception writing " + aBatch.size () + " audit items", ex);
+        eSuccess = ESuccess.FAILURE;
+      }
+      if (eSuccess.isSuccess ())
+        return;
+
+      if (nAttempt < nMaxAttempts)
+      {
+        LOGGER.warn ("Failed to write " +
+                     aBatch.size () +
+                     " audit items (attempt " +
+                     nAttempt +
+                     " of " +
+                     nMaxAttempts +
+                     ") - retrying in " +
+                     nDelayMillis +
+                     " ms");
+        if (nDelayMillis > 0)
+        {
+          if (ThreadHelper.sleep (nDelayMillis).isFailure ())
+          {
+            // Interrupted - don't wait any longer
+            break;
+          }
+          nDelayMillis *= 2;
+        }
+      }
+    }
+
+    m_aFailedItemCount.addAndGet (aBatch.size ());
+    try
+    {
+      m_aFailedBatchHandler.accept (aBatch.getClone ());
+    }
+    catch (final RuntimeException ex)
+    {
+      LOGGER.error ("Failed batch handler failed", ex);
+      _logFailedBatch (aBatch);
+    }
+  }
+
+  private void _writeLoop ()
+  {
+    final ICommonsList <IAuditItem> aBatch = new CommonsArrayList <> (m_nMaxBatchSize);
+    while (true)
+    {
+      try
+      {
+        // Wait for the first item of the next batch
+        final IAuditItem aFirst = m_aQueue.poll (100, TimeUnit.MILLISECONDS);
+        if (aFirst == null)
+        {
+          if (m_bStopped && m_aQueue.isEmpty ())
+            break;
+          continue;
+        }
+        aBatch.add (aFirst);
+
+        // Fill the batch until it is full or too old
+        final long nDeadline = System.nanoTime () + m_nMaxBatchAgeNanos;
+        while (aBatch.size () < m_nMaxBatchSize)
+        {
+          // Take what is already there without waiting
+          if (m_aQueue.drainTo (aBatch, m_nMaxBatchSize - aBatch.size ()) > 0)
+            continue;
+
+          final long nRemaining = nDeadline - System.nanoTime ();
+          if (nRemaining <= 0 || m_bStopped)
+            break;
+          final IAuditItem aNext = m_aQueue.poll (nRemaining, TimeUnit.NANOSECONDS);
+          if (aNext == null)
+            break;
+          aBatch.add (aNext);
+        }
+      }
+      catch (final InterruptedException ex)
+      {
+        LOGGER.error ("Audit writer was interrupted", ex);
+        Thread.currentThread ().interrupt ();
+        // Write what we have and the rest
+        m_aQueue.drainTo (aBatch);
+        _writeBatch (aBatch);
+        break;
+      }
+
+      _writeBatch (aBatch);
+      aBatch.clear ();
+    }
+  }
+
+  @Override
+  protected void handleAuditItem (@NonNull final IAuditItem aAuditItem)
+  {
+    ValueEnforcer.notNull (aAuditItem, "AuditItem");
+
+    if (!m_bStopped)
+    {
+      boolean bQueued = false;
+      try
+      {
+        // Blocks at most for the enqueue timeout if the queue is full
+        bQueued = m_aQueue.offer (aAuditItem, m_aEnqueueTimeout.toNanos (), TimeUnit.NANOSECONDS);
+      }
+      catch (final InterruptedException ex)
+      {
+        LOGGER.error ("Interrupted while queuing audit item " + aAuditItem, ex);
+        Thread.currentThread ().interrupt ();
+      }
+
+      if (bQueued)
+      {
+        // If stop() was called concurrently, the writer may already be gone. If the item is still in
+        // the queue, it is taken back and written here. Otherwise the writer took it and writes it.
+        if (!m_bStopped || !m_aQueue.remove (aAuditItem))
+          return;
+      }
+      else
+        LOGGER.warn ("JDBC audit queue is full - writing audit item synchronously");
+    }
+
+    // Stopped or queue full
+    m_aSynchronousWriteCount.incrementAndGet ();
+    final ICommonsList <IAuditItem> aSingleBatch = new CommonsArrayList <> (1);
+    aSingleBatch.add (aAuditItem);
+    _writeBatch (aSingleBatch);
+  }
+
+  /**
+   * @return The number of audit items that are waiting to be written.
+   */
+  @Nonnegative
+  public int getQueueLength ()
+  {
+    return m_aQueue.size ();
+  }
+
+  /**
+   * @return The number of audit items that were written synchronously in the calling thread,
+   *         because the queue was full or the auditor was already stopped.
+   */
+  @Nonnegative
+  public long getSynchronousWriteCount ()
+  {
+    return m_aSynchronousWriteCount.get ();
+  }
+
+  /**
+   * @return The number of audit items that could not be written after all attempts and that were
+   *         passed to the failed batch handler.
+   */
+  @Nonnegative
+  public long getFailedItemCount ()
+  {
+    return m_aFailedItemCount.get ();
+  }
+
+  /**
+   * It avoids further queuing of objects and waits until all queued items are written. This method
+   * blocks until all remaining objects are handled. Items audited afterwards are written
+   * synchronously.
+   *
+   * @return {@link EChange#CHANGED} if the shutdown was performed, {@link EChange#UNCHANGED} if the
+   *         auditor was already shut down.
+   */
+  @NonNull
+  public EChange stop ()
+  {
+    synchronized (m_aWriterThreadPool)
+    {
+      if (m_bStopped)
+        return EChange.UNCHANGED;
+      m_bStopped = true;
+      m_aWriterThreadPool.shutdown ();
+    }
+
+    final int nQueueLength = m_aQueue.size ();
+    if (nQueueLength > 0)
+      LOGGER.info ("Stopping JDBC auditor queue with " + nQueueLength + " items");
+
+    try
+    {
+      while (!m_aWriterThreadPool.awaitTermination (1, TimeUnit.SECONDS))
+      {
+        // wait until we're done
+      }
+    }
+    catch (final InterruptedException ex)
+    {
+      LOGGER.error ("Error stopping JDBC auditor queue", ex);
+      Thread.currentThread ().interrupt ();
+    }
+    return EChange.CHANGED;
+  }
+}
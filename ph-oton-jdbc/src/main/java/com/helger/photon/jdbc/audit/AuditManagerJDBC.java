@@ -40,7 +40,8 @@ import com.helger.security.authentication.subject.user.ICurrentUserIDProvider;
  */
 public class AuditManagerJDBC implements IAuditManager
 {
-  private final AuditorJDBC m_aAuditor;
+  private final AuditorJDBC m_aAuditorJDBC;
+  private final IAuditor m_aAuditor;
 
   public AuditManagerJDBC (@NonNull final Supplier <? extends DBExecutor> aDBExecSupplier,
                            @NonNull final Function <String, String> aTableNameCustomizer)
@@ -52,7 +53,41 @@ public class AuditManagerJDBC implements IAuditManager
                            @NonNull final Function <String, String> aTableNameCustomizer,
                            @NonNull final ICurrentUserIDProvider aCurrentUserIDProvider)
   {
-    m_aAuditor = new AuditorJDBC (aDBExecSupplier, aTableNameCustomizer, aCurrentUserIDProvider);
+    this (aDBExecSupplier, aTableNameCustomizer, aCurrentUserIDProvider, false);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param aDBExecSupplier
+   *        The supplier for {@link DBExecutor} objects. May not be <code>null</code>.
+   * @param aTableNameCustomizer
+   *        A customizer for database table names used by this class. May not be <code>null</code>.
+   * @param aCurrentUserIDProvider
+   *        The current user ID provider. May not be <code>null</code>.
+   * @param bAsynchronous
+   *        <code>true</code> to write the audit items asynchronously in batches using an
+   *        {@link AsynchronousAuditorJDBC}, <code>false</code> to write each audit item
+   *        synchronously on the calling thread.
+   * @since 10.3.1
+   */
+  public AuditManagerJDBC (@NonNull final Supplier <? extends DBExecutor> aDBExecSupplier,
+                           @NonNull final Function <String, String> aTableNameCustomizer,
+                           @NonNull final ICurrentUserIDProvider aCurrentUserIDProvider,
+                           final boolean bAsynchronous)
+  {
+    m_aAuditorJDBC = new AuditorJDBC (aDBExecSupplier, aTableNameCustomizer, aCurrentUserIDProvider);
+    m_aAuditor = bAsynchronous ? new AsynchronousAuditorJDBC (m_aAuditorJDBC, aCurrentUserIDProvider)
+                               : m_aAuditorJDBC;
+  }
+
+  /**
+   * @return <code>true</code> if audit items are written asynchronously in batches.
+   * @since 10.3.1
+   */
+  public boolean isAsynchronous ()
+  {
+    return m_aAuditor instanceof AsynchronousAuditorJDBC;
   }
 
   public boolean isInMemory ()
@@ -77,17 +112,19 @@ public class AuditManagerJDBC implements IAuditManager
   @ReturnsMutableCopy
   public ICommonsList <IAuditItem> getLastAuditItems (@Nonnegative final int nMaxItems)
   {
-    return m_aAuditor.getLastAuditItems (nMaxItems);
+    return m_aAuditorJDBC.getLastAuditItems (nMaxItems);
   }
 
   public void stop ()
   {
-    // Nothing to do
+    // Blocks until all queued items are written
+    if (m_aAuditor instanceof final AsynchronousAuditorJDBC aAsyncAuditor)
+      aAsyncAuditor.stop ();
   }
 
   @Nullable
   public LocalDate getEarliestAuditDate ()
   {
-    return m_aAuditor.getEarliestAuditDate ();
+    return m_aAuditorJDBC.getEarliestAuditDate ();
   }
 }
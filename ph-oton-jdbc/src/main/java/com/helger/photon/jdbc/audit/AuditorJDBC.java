@@ -18,6 +18,7 @@ package com.helger.photon.jdbc.audit;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
@@ -58,6 +59,12 @@ import com.helger.security.authentication.subject.user.ICurrentUserIDProvider;
  */
 public class AuditorJDBC extends AbstractJDBCEnabledManager implements IAuditor
 {
+  /**
+   * The maximum number of rows in a single multi-row INSERT statement used by
+   * {@link #insertAuditItems(List)}.
+   */
+  public static final int MAX_ROWS_PER_INSERT = 100;
+
   private static final Logger LOGGER = LoggerFactory.getLogger (AuditorJDBC.class);
 
   private final String m_sTableName;
@@ -140,6 +147,71 @@ public class AuditorJDBC extends AbstractJDBCEnabledManager implements IAuditor
       LOGGER.error ("Failed to write audit item to DB");
   }
 
+  /**
+   * Write all provided audit items in a single transaction. The items are written with multi-row
+   * INSERT statements containing at most {@link #MAX_ROWS_PER_INSERT} rows each, so the number of
+   * database round trips is much smaller than with {@link #createAuditItem(EAuditActionType,
+   * ESuccess, ObjectType, String, Object...)}.
+   *
+   * @param aAuditItems
+   *        The audit items to write. May not be <code>null</code>.
+   * @return {@link ESuccess#SUCCESS} if all items were written, {@link ESuccess#FAILURE} otherwise.
+   * @since 10.3.1
+   */
+  @NonNull
+  public ESuccess insertAuditItems (@NonNull final List <? extends IAuditItem> aAuditItems)
+  {
+    ValueEnforcer.notNull (aAuditItems, "AuditItems");
+    if (aAuditItems.isEmpty ())
+      return ESuccess.SUCCESS;
+
+    final DBExecutor aExecutor;
+    try
+    {
+      aExecutor = newExecutor ();
+    }
+    catch (final IllegalStateException ex)
+    {
+      // Happens e.g. on shutdown
+      return ESuccess.FAILURE;
+    }
+    final ESuccess eDBSuccess = aExecutor.performInTransaction ( () -> {
+      final int nTotal = aAuditItems.size ();
+      for (int nStart = 0; nStart < nTotal; nStart += MAX_ROWS_PER_INSERT)
+      {
+        final int nEnd = Math.min (nStart + MAX_ROWS_PER_INSERT, nTotal);
+        final StringBuilder aSQL = new StringBuilder ("INSERT INTO ").append (m_sTableName)
+                                                                     .append (" (dt, userid, actiontype, success, action) VALUES ");
+        final ICommonsList <Object> aValues = new CommonsArrayList <> ((nEnd - nStart) * 5);
+        for (int i = nStart; i < nEnd; ++i)
+        {
+          final IAuditItem aItem = aAuditItems.get (i);
+          if (i > nStart)
+            aSQL.append (", ");
+          aSQL.append ("(?, ?, ?, ?, ?)");
+          aValues.add (DBValueHelper.toTimestamp (aItem.getDateTime ()));
+          aValues.add (DBValueHelper.getTrimmedToLength (aItem.getUserID (), GlobalIDFactory.STRING_ID_MAX_LENGTH));
+          aValues.add (DBValueHelper.getTrimmedToLength (aItem.getTypeID (), EAuditActionType.MAX_ID_LENGTH));
+          aValues.add (Boolean.valueOf (aItem.isSuccess ()));
+          aValues.add (aItem.getAction ());
+        }
+
+        final long nCreated = aExecutor.insertOrUpdateOrDelete (aSQL.toString (),
+                                                                new ConstantPreparedStatementDataProvider (aValues));
+        if (nCreated != nEnd - nStart)
+          throw new IllegalStateException ("Failed to create new DB entries (" +
+                                           nCreated +
+                                           " instead of " +
+                                           (nEnd - nStart) +
+                                           ")");
+      }
+    });
+
+    if (eDBSuccess.isFailure ())
+      LOGGER.error ("Failed to write " + aAuditItems.size () + " audit items to DB");
+    return eDBSuccess;
+  }
+
   @NonNull
   @ReturnsMutableCopy
   public ICommonsList <IAuditItem> getLastAuditItems (@Nonnegative final int nMaxItems)
@@ -0,0 +1,309 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.photon.jdbc.security;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.GuardedBy;
+import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.base.concurrent.SimpleLock;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.tostring.ToStringGenerator;
+
+/**
+ * A small, size bounded read-through cache with LRU eviction and an optional
+ * time to live, used by the JDBC security managers to avoid repeated database
+ * roundtrips for hot lookups. The cache is only kept consistent with
+ * modifications of the owning manager instance - modifications performed
+ * directly in the database or by another application node are only visible
+ * after {@link #clearCache()}, eviction or expiration.
+ *
+ * @author Philip Helger
+ * @param <KEYTYPE>
+ *        Cache key type
+ * @param <VALUETYPE>
+ *        Cache value type
+ * @since 10.3.1
+ */
+@ThreadSafe
+public final class JDBCReadThroughCache <KEYTYPE, VALUETYPE>
+{
+  /**
+   * A single cached value with its load time.
+   *
+   * @author Philip Helger
+   */
+  private static final class CacheEntry <VALUETYPE>
+  {
+    private final VALUETYPE m_aValue;
+    private final long m_nLoadedNanos;
+
+    CacheEntry (@NonNull final VALUETYPE aValue, final long nLoadedNanos)
+    {
+      m_aValue = aValue;
+      m_nLoadedNanos = nLoadedNanos;
+    }
+  }
+
+  public static final int DEFAULT_MAX_SIZE = 1000;
+  public static final Duration DEFAULT_TIME_TO_LIVE = Duration.ofMinutes (5);
+
+  private final SimpleLock m_aLock = new SimpleLock ();
+  private final int m_nMaxSize;
+  private final long m_nTimeToLiveNanos;
+  @GuardedBy ("m_aLock")
+  private final Map <KEYTYPE, CacheEntry <VALUETYPE>> m_aMap;
+  // Incremented on every invalidation, so that values loaded concurrently are
+  // not stored
+  @GuardedBy ("m_aLock")
+  private long m_nModCount = 0;
+  @GuardedBy ("m_aLock")
+  private long m_nHits = 0;
+  @GuardedBy ("m_aLock")
+  private long m_nMisses = 0;
+
+  /**
+   * Constructor
+   *
+   * @param nMaxSize
+   *        The maximum number of entries to keep. If 0 the cache is disabled
+   *        and every access is delegated to the loader.
+   */
+  public JDBCReadThroughCache (@Nonnegative final int nMaxSize)
+  {
+    this (nMaxSize, null);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param nMaxSize
+   *        The maximum number of entries to keep. If 0 the cache is disabled
+   *        and every access is delegated to the loader.
+   * @param aTimeToLive
+   *        The maximum time an entry is kept after it was loaded. May be
+   *        <code>null</code> to keep entries until they are evicted or
+   *        invalidated.
+   */
+  public JDBCReadThroughCache (@Nonnegative final int nMaxSize, @Nullable final Duration aTimeToLive)
+  {
+    ValueEnforcer.isGE0 (nMaxSize, "MaxSize");
+    ValueEnforcer.isFalse (aTimeToLive != null && aTimeToLive.isNegative (), "TimeToLive may not be negative");
+    m_nMaxSize = nMaxSize;
+    m_nTimeToLiveNanos = aTimeToLive == null ? Long.MAX_VALUE : aTimeToLive.toNanos ();
+    m_aMap = new LinkedHashMap <> (16, 0.75f, true)
+    {
+      @Override
+      protected boolean removeEldestEntry (final Map.Entry <KEYTYPE, CacheEntry <VALUETYPE>> aEldest)
+      {
+        return size () > m_nMaxSize;
+      }
+    };
+  }
+
+  /**
+   * @return The maximum number of entries. 0 means the cache is disabled.
+   */
+  @Nonnegative
+  public int getMaxSize ()
+  {
+    return m_nMaxSize;
+  }
+
+  /**
+   * @return The modification count, that is incremented on every
+   *         invalidation. To be used with
+   *         {@link #putInCache(Object, Object, long)}.
+   */
+  public long getModificationCount ()
+  {
+    return m_aLock.lockedGet ( () -> Long.valueOf (m_nModCount)).longValue ();
+  }
+
+  /**
+   * Get the cached value for the provided key without loading it.
+   *
+   * @param aKey
+   *        The key to resolve. May not be <code>null</code>.
+   * @return <code>null</code> if the key is not cached or expired.
+   */
+  @Nullable
+  public VALUETYPE getIfPresent (@NonNull final KEYTYPE aKey)
+  {
+    if (m_nMaxSize == 0)
+      return null;
+
+    return m_aLock.lockedGet ( () -> {
+      final CacheEntry <VALUETYPE> aEntry = m_aMap.get (aKey);
+      if (aEntry != null)
+      {
+        if (System.nanoTime () - aEntry.m_nLoadedNanos < m_nTimeToLiveNanos)
+        {
+          m_nHits++;
+          return aEntry.m_aValue;
+        }
+        // Expired
+        m_aMap.remove (aKey);
+      }
+      m_nMisses++;
+      return null;
+    });
+  }
+
+  /**
+   * Put a value that was loaded outside of this cache. The value is only stored
+   * if no invalidation happened since the provided modification count was
+   * retrieved.
+   *
+   * @param aKey
+   *        The key to use. May not be <code>null</code>.
+   * @param aValue
+   *        The value to store. May not be <code>null</code>.
+   * @param nExpectedModCount
+   *        The result of {@link #getModificationCount()} before the value was
+   *        loaded.
+   */
+  public void putInCache (@NonNull final KEYTYPE aKey, @NonNull final VALUETYPE aValue, final long nExpectedModCount)
+  {
+    if (m_nMaxSize > 0)
+      m_aLock.locked ( () -> {
+        if (m_nModCount == nExpectedModCount)
+          m_aMap.put (aKey, new CacheEntry <> (aValue, System.nanoTime ()));
+      });
+  }
+
+  /**
+   * Get the cached value for the provided key, or load and cache it if not
+   * present. The loader is invoked outside of the lock.
+   *
+   * @param aKey
+   *        The key to resolve. May not be <code>null</code>.
+   * @param aLoader
+   *        The loader to use on a cache miss. May not be <code>null</code>. A
+   *        <code>null</code> result is returned but not cached.
+   * @return The cached or loaded value. May be <code>null</code>.
+   */
+  @Nullable
+  public VALUETYPE getFromCache (@NonNull final KEYTYPE aKey,
+                                 @NonNull final Function <? super KEYTYPE, ? extends VALUETYPE> aLoader)
+  {
+    if (m_nMaxSize == 0)
+      return aLoader.apply (aKey);
+
+    final long nModCount = getModificationCount ();
+    final VALUETYPE aValue = getIfPresent (aKey);
+    if (aValue != null)
+      return aValue;
+
+    final VALUETYPE aLoaded = aLoader.apply (aKey);
+    if (aLoaded != null)
+      putInCache (aKey, aLoaded, nModCount);
+    return aLoaded;
+  }
+
+  /**
+   * Remove a single entry.
+   *
+   * @param aKey
+   *        The key to remove. May be <code>null</code>.
+   */
+  public void invalidate (@Nullable final KEYTYPE aKey)
+  {
+    m_aLock.locked ( () -> {
+      m_nModCount++;
+      m_aMap.remove (aKey);
+    });
+  }
+
+  /**
+   * Remove all entries matching the provided filter.
+   *
+   * @param aFilter
+   *        The filter to use. May not be <code>null</code>.
+   */
+  public void invalidateIf (@NonNull final BiPredicate <? super KEYTYPE, ? super VALUETYPE> aFilter)
+  {
+    ValueEnforcer.notNull (aFilter, "Filter");
+    m_aLock.locked ( () -> {
+      m_nModCount++;
+      final Iterator <Map.Entry <KEYTYPE, CacheEntry <VALUETYPE>>> it = m_aMap.entrySet ().iterator ();
+      while (it.hasNext ())
+      {
+        final Map.Entry <KEYTYPE, CacheEntry <VALUETYPE>> aEntry = it.next ();
+        if (aFilter.test (aEntry.getKey (), aEntry.getValue ().m_aValue))
+          it.remove ();
+      }
+    });
+  }
+
+  /**
+   * Remove all entries.
+   */
+  public void clearCache ()
+  {
+    m_aLock.locked ( () -> {
+      m_nModCount++;
+      m_aMap.clear ();
+    });
+  }
+
+  /**
+   * @return The number of cached entries.
+   */
+  @Nonnegative
+  public int size ()
+  {
+    return m_aLock.lockedInt (m_aMap::size);
+  }
+
+  /**
+   * @return The number of lookups answered from the cache.
+   */
+  @Nonnegative
+  public long getHitCount ()
+  {
+    return m_aLock.lockedGet ( () -> Long.valueOf (m_nHits)).longValue ();
+  }
+
+  /**
+   * @return The number of lookups that required the loader.
+   */
+  @Nonnegative
+  public long getMissCount ()
+  {
+    return m_aLock.lockedGet ( () -> Long.valueOf (m_nMisses)).longValue ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("MaxSize", m_nMaxSize)
+                                       .append ("Size", size ())
+                                       .append ("Hits", getHitCount ())
+                                       .append ("Misses", getMissCount ())
+                                       .getToString ();
+  }
+}
@@ -16,6 +16,7 @@
  */
 package com.helger.photon.jdbc.security;
 
+import java.time.Duration;
 import java.util.Map;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -24,6 +25,7 @@ import org.jspecify.annotations.NonNull;
 import org.jspecify.annotations.Nullable;
 
 import com.helger.annotation.Nonempty;
+import com.helger.annotation.Nonnegative;
 import com.helger.annotation.style.ReturnsMutableCopy;
 import com.helger.annotation.style.ReturnsMutableObject;
 import com.helger.base.callback.CallbackList;
@@ -61,6 +63,8 @@ public class RoleManagerJDBC extends AbstractJDBCEnabledSecurityManager implemen
 {
   private final String m_sTableName;
   private final CallbackList <IRoleModificationCallback> m_aCallbacks = new CallbackList <> ();
+  private volatile JDBCReadThroughCache <String, IRole> m_aCache = new JDBCReadThroughCache <> (JDBCReadThroughCache.DEFAULT_MAX_SIZE,
+                                                                                                JDBCReadThroughCache.DEFAULT_TIME_TO_LIVE);
 
   public RoleManagerJDBC (@NonNull final Supplier <? extends DBExecutor> aDBExecSupplier,
                           @NonNull final Function <String, String> aTableNameCustomizer)
@@ -80,6 +84,35 @@ public class RoleManagerJDBC extends AbstractJDBCEnabledSecurityManager implemen
     return m_sTableName;
   }
 
+  /**
+   * @return The cache of the {@link IRole} objects by ID. Never <code>null</code>.
+   * @since 10.3.1
+   */
+  @NonNull
+  public final JDBCReadThroughCache <String, IRole> getCache ()
+  {
+    return m_aCache;
+  }
+
+  /**
+   * Change the settings of the role cache. All cached entries are discarded.
+   *
+   * @param nMaxSize
+   *        The maximum number of cached roles. Use 0 to disable caching.
+   * @param aTimeToLive
+   *        The maximum time a role is cached. May be <code>null</code> to
+   *        cache until eviction or modification. Should be set if the table is
+   *        modified by other application nodes.
+   * @return this for chaining
+   * @since 10.3.1
+   */
+  @NonNull
+  public final RoleManagerJDBC setCacheSettings (@Nonnegative final int nMaxSize, @Nullable final Duration aTimeToLive)
+  {
+    m_aCache = new JDBCReadThroughCache <> (nMaxSize, aTimeToLive);
+    return this;
+  }
+
   @NonNull
   @ReturnsMutableCopy
   public ICommonsList <IRole> getAll ()
@@ -265,6 +298,8 @@ public class RoleManagerJDBC extends AbstractJDBCEnabledSecurityManager implemen
       aUpdated.set (nUpdated);
     });
 
+    m_aCache.invalidate (sRoleID);
+
     if (eSuccess.isFailure ())
     {
       // DB error
@@ -293,6 +328,12 @@ public class RoleManagerJDBC extends AbstractJDBCEnabledSecurityManager implemen
     if (StringHelper.isEmpty (sRoleID))
       return null;
 
+    return m_aCache.getFromCache (sRoleID, this::_loadRoleOfID);
+  }
+
+  @Nullable
+  private IRole _loadRoleOfID (@NonNull final String sRoleID)
+  {
     final Wrapper <DBResultRow> aDBResult = new Wrapper <> ();
     newExecutor ().querySingle ("SELECT creationdt, creationuserid, lastmoddt, lastmoduserid, deletedt, deleteuserid, attrs," +
                                 " name, description" +
@@ -339,6 +380,8 @@ public class RoleManagerJDBC extends AbstractJDBCEnabledSecurityManager implemen
       aUpdated.set (nUpdated);
     });
 
+    m_aCache.invalidate (sRoleID);
+
     if (eSuccess.isFailure ())
     {
       // DB error
@@ -388,6 +431,8 @@ public class RoleManagerJDBC extends AbstractJDBCEnabledSecurityManager implemen
       aUpdated.set (nUpdated);
     });
 
+    m_aCache.invalidate (sRoleID);
+
     if (eSuccess.isFailure ())
     {
       // DB error
@@ -16,6 +16,7 @@
  */
 package com.helger.photon.jdbc.security;
 
+import java.time.Duration;
 import java.util.Map;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -24,6 +25,8 @@ import org.jspecify.annotations.NonNull;
 import org.jspecify.annotations.Nullable;
 
 import com.helger.annotation.Nonempty;
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.Immutable;
 import com.helger.annotation.style.ReturnsMutableCopy;
 import com.helger.annotation.style.ReturnsMutableObject;
 import com.helger.base.callback.CallbackList;
@@ -59,16 +62,71 @@ import com.helger.photon.security.usergroup.UserGroup;
 import com.helger.photon.security.usergroup.UserGroupManager;
 
 /**
- * Implementation of {@link IUserGroupManager} for JDBC backends.
+ * Implementation of {@link IUserGroupManager} for JDBC backends.<br>
+ * By default the assigned user IDs and role IDs are only stored as JSON arrays
+ * in the columns <code>userids</code> and <code>roleids</code>, so lookups by
+ * user or role need a <code>LIKE</code> scan. If
+ * {@link #setUseAssignmentTables(boolean)} is enabled, all assignments are
+ * additionally maintained in the two join tables
+ * <code>secusergroupuser (usergroupid, userid)</code> and
+ * <code>secusergrouprole (usergroupid, roleid)</code>, and all lookups are
+ * answered with indexed queries on them. The join tables can be created via
+ * {@link #createAssignmentTables()} (see {@link #getAllAssignmentTablesDDL()}
+ * for the statements) and can be filled from the existing columns via
+ * {@link #migrateToAssignmentTables()}.<br>
+ * The user group and role IDs per user are additionally kept in a bounded
+ * read-through cache with a time to live (see
+ * {@link #setCacheSettings(int, Duration)}), that is invalidated by all
+ * modifying methods of this class.
  *
  * @author Philip Helger
  */
 public class UserGroupManagerJDBC extends AbstractJDBCEnabledSecurityManager implements IUserGroupManager
 {
+  /**
+   * The cached assignments of a single user.
+   *
+   * @author Philip Helger
+   */
+  @Immutable
+  private static final class UserAssignment
+  {
+    private final ICommonsList <String> m_aUserGroupIDs;
+    private final ICommonsSet <String> m_aRoleIDs;
+
+    UserAssignment (@NonNull final ICommonsList <String> aUserGroupIDs, @NonNull final ICommonsSet <String> aRoleIDs)
+    {
+      m_aUserGroupIDs = aUserGroupIDs;
+      m_aRoleIDs = aRoleIDs;
+    }
+
+    boolean containsUserGroupID (@NonNull final String sUserGroupID)
+    {
+      return m_aUserGroupIDs.contains (sUserGroupID);
+    }
+
+    boolean containsRoleID (@NonNull final String sRoleID)
+    {
+      return m_aRoleIDs.contains (sRoleID);
+    }
+  }
+
+  /**
+   * The maximum length of the IDs in the join tables
+   *
+   * @since 10.3.1
+   */
+  public static final int ID_MAX_LENGTH = 255;
+
   private final String m_sTableName;
+  private final String m_sUserAssignmentTableName;
+  private final String m_sRoleAssignmentTableName;
   private final IUserManager m_aUserMgr;
   private final IRoleManager m_aRoleMgr;
   private final CallbackList <IUserGroupModificationCallback> m_aCallbacks = new CallbackList <> ();
+  private volatile JDBCReadThroughCache <String, UserAssignment> m_aUserCache = new JDBCReadThroughCache <> (JDBCReadThroughCache.DEFAULT_MAX_SIZE,
+                                                                                                            JDBCReadThroughCache.DEFAULT_TIME_TO_LIVE);
+  private volatile boolean m_bUseAssignmentTables = false;
 
   public UserGroupManagerJDBC (@NonNull final Supplier <? extends DBExecutor> aDBExecSupplier,
                                @NonNull final Function <String, String> aTableNameCustomizer,
@@ -77,6 +135,8 @@ public class UserGroupManagerJDBC extends AbstractJDBCEnabledSecurityManager imp
   {
     super (aDBExecSupplier);
     m_sTableName = aTableNameCustomizer.apply ("secusergroup");
+    m_sUserAssignmentTableName = aTableNameCustomizer.apply ("secusergroupuser");
+    m_sRoleAssignmentTableName = aTableNameCustomizer.apply ("secusergrouprole");
     m_aUserMgr = ValueEnforcer.notNull (aUserMgr, "UserManager");
     m_aRoleMgr = ValueEnforcer.notNull (aRoleMgr, "RoleManager");
   }
@@ -92,6 +152,148 @@ public class UserGroupManagerJDBC extends AbstractJDBCEnabledSecurityManager imp
     return m_sTableName;
   }
 
+  /**
+   * @return The name of the user assignment join table. Neither
+   *         <code>null</code> nor empty.
+   * @since 10.3.1
+   */
+  @NonNull
+  @Nonempty
+  public final String getUserAssignmentTableName ()
+  {
+    return m_sUserAssignmentTableName;
+  }
+
+  /**
+   * @return The name of the role assignment join table. Neither
+   *         <code>null</code> nor empty.
+   * @since 10.3.1
+   */
+  @NonNull
+  @Nonempty
+  public final String getRoleAssignmentTableName ()
+  {
+    return m_sRoleAssignmentTableName;
+  }
+
+  /**
+   * @return <code>true</code> if the join tables are maintained and used for
+   *         lookups, <code>false</code> if only the JSON columns are used.
+   *         Default is <code>false</code>.
+   * @since 10.3.1
+   */
+  public final boolean isUseAssignmentTables ()
+  {
+    return m_bUseAssignmentTables;
+  }
+
+  /**
+   * Enable or disable the usage of the join tables. Before enabling it on an
+   * existing database, {@link #migrateToAssignmentTables()} must be called
+   * once.
+   *
+   * @param bUseAssignmentTables
+   *        <code>true</code> to use the join tables, <code>false</code> to use
+   *        only the JSON columns.
+   * @return this for chaining
+   * @since 10.3.1
+   */
+  @NonNull
+  public final UserGroupManagerJDBC setUseAssignmentTables (final boolean bUseAssignmentTables)
+  {
+    m_bUseAssignmentTables = bUseAssignmentTables;
+    m_aUserCache.clearCache ();
+    return this;
+  }
+
+  /**
+   * @return The read-through cache of the user group and role IDs per user ID.
+   *         Never <code>null</code>.
+   * @since 10.3.1
+   */
+  @NonNull
+  public final JDBCReadThroughCache <String, ?> getUserCache ()
+  {
+    return m_aUserCache;
+  }
+
+  /**
+   * Change the settings of the user cache. All cached entries are discarded.
+   *
+   * @param nMaxSize
+   *        The maximum number of cached users. Use 0 to disable caching.
+   * @param aTimeToLive
+   *        The maximum time the assignments of a user are cached. May be
+   *        <code>null</code> to cache until eviction or modification. Should be
+   *        set if the tables are modified by other application nodes.
+   * @return this for chaining
+   * @since 10.3.1
+   */
+  @NonNull
+  public final UserGroupManagerJDBC setCacheSettings (@Nonnegative final int nMaxSize,
+                                                      @Nullable final Duration aTimeToLive)
+  {
+    m_aUserCache = new JDBCReadThroughCache <> (nMaxSize, aTimeToLive);
+    return this;
+  }
+
+  /**
+   * Get the SQL statements to create the join tables including their indexes.
+   * The statements use standard SQL data types and the customized table names.
+   *
+   * @return The DDL statements in the order they need to be executed. Never
+   *         <code>null</code>.
+   * @since 10.3.1
+   */
+  @NonNull
+  @ReturnsMutableCopy
+  public ICommonsList <String> getAllAssignmentTablesDDL ()
+  {
+    return new CommonsArrayList <> ("CREATE TABLE " +
+                                    m_sUserAssignmentTableName +
+                                    " (usergroupid VARCHAR(" +
+                                    ID_MAX_LENGTH +
+                                    ") NOT NULL, userid VARCHAR(" +
+                                    ID_MAX_LENGTH +
+                                    ") NOT NULL, PRIMARY KEY (usergroupid, userid))",
+                                    "CREATE INDEX " +
+                                    m_sUserAssignmentTableName +
+                                    "_userid ON " +
+                                    m_sUserAssignmentTableName +
+                                    " (userid)",
+                                    "CREATE TABLE " +
+                                    m_sRoleAssignmentTableName +
+                                    " (usergroupid VARCHAR(" +
+                                    ID_MAX_LENGTH +
+                                    ") NOT NULL, roleid VARCHAR(" +
+                                    ID_MAX_LENGTH +
+                                    ") NOT NULL, PRIMARY KEY (usergroupid, roleid))",
+                                    "CREATE INDEX " +
+                                    m_sRoleAssignmentTableName +
+                                    "_roleid ON " +
+                                    m_sRoleAssignmentTableName +
+                                    " (roleid)");
+  }
+
+  /**
+   * Create the join tables and their indexes using the statements of
+   * {@link #getAllAssignmentTablesDDL()}. This must be called once before
+   * {@link #migrateToAssignmentTables()} on an existing database. It fails if
+   * the tables already exist.
+   *
+   * @return {@link ESuccess}
+   * @since 10.3.1
+   */
+  @NonNull
+  public ESuccess createAssignmentTables ()
+  {
+    final DBExecutor aExecutor = newExecutor ();
+    for (final String sSQL : getAllAssignmentTablesDDL ())
+      if (aExecutor.executeStatement (sSQL).isFailure ())
+        return ESuccess.FAILURE;
+    return ESuccess.SUCCESS;
+  }
+
   @NonNull
   public final IUserManager getUserManager ()
   {
@@ -243,6 +445,122 @@ public class UserGroupManagerJDBC extends AbstractJDBCEnabledSecurityManager imp
     return m_aCallbacks;
   }
 
+  private void _insertAssignment (@NonNull final DBExecutor aExecutor,
+                                  @NonNull final String sTableName,
+                                  @NonNull final String sColumnName,
+                                  @NonNull final String sUserGroupID,
+                                  @NonNull final String sID)
+  {
+    if (m_bUseAssignmentTables)
+    {
+      final long nCreated = aExecutor.insertOrUpdateOrDelete ("INSERT INTO " +
+                                                              sTableName +
+                                                              " (usergroupid, " +
+                                                              sColumnName +
+                                                              ") VALUES (?, ?)",
+                                                              new ConstantPreparedStatementDataProvider (sUserGroupID, sID));
+      if (nCreated != 1)
+        throw new IllegalStateException ("Failed to create new assignment DB entry (" + nCreated + ")");
+    }
+  }
+
+  private void _deleteAssignment (@NonNull final DBExecutor aExecutor,
+                                  @NonNull final String sTableName,
+                                  @NonNull final String sColumnName,
+                                  @NonNull final String sUserGroupID,
+                                  @NonNull final String sID)
+  {
+    if (m_bUseAssignmentTables)
+      aExecutor.insertOrUpdateOrDelete ("DELETE FROM " + sTableName + " WHERE usergroupid=? AND " + sColumnName + "=?",
+                                        new ConstantPreparedStatementDataProvider (sUserGroupID, sID));
+  }
+
+  private void _invalidateUsersOfUserGroup (@NonNull final String sUserGroupID)
+  {
+    m_aUserCache.invalidateIf ( (k, v) -> v.containsUserGroupID (sUserGroupID));
+  }
+
+  /**
+   * Fill the join tables from the JSON columns <code>userids</code> and
+   * <code>roleids</code> of all user groups. Existing join table entries of
+   * these user groups are replaced. This is the migration path for existing
+   * databases and can safely be called multiple times. It works independent of
+   * {@link #isUseAssignmentTables()}.
+   *
+   * @return {@link ESuccess}
+   * @since 10.3.1
+   */
+  @NonNull
+  public ESuccess migrateToAssignmentTables ()
+  {
+    final DBExecutor aExecutor = newExecutor ();
+    final ESuccess eSuccess = aExecutor.performInTransaction ( () -> {
+      final ICommonsList <DBResultRow> aRows = aExecutor.queryAll ("SELECT id, userids, roleids FROM " + m_sTableName);
+      for (final DBResultRow aRow : aRows)
+      {
+        final String sUserGroupID = aRow.getAsString (0);
+        aExecutor.insertOrUpdateOrDelete ("DELETE FROM " + m_sUserAssignmentTableName + " WHERE usergroupid=?",
+                                          new ConstantPreparedStatementDataProvider (sUserGroupID));
+        aExecutor.insertOrUpdateOrDelete ("DELETE FROM " + m_sRoleAssignmentTableName + " WHERE usergroupid=?",
+                                          new ConstantPreparedStatementDataProvider (sUserGroupID));
+
+        final ICommonsSet <String> aUserIDs = idsToSet (aRow.getAsString (1));
+        if (aUserIDs != null)
+          for (final String sUserID : aUserIDs)
+            aExecutor.insertOrUpdateOrDelete ("INSERT INTO " +
+                                              m_sUserAssignmentTableName +
+                                              " (usergroupid, userid) VALUES (?, ?)",
+                                              new ConstantPreparedStatementDataProvider (sUserGroupID, sUserID));
+        final ICommonsSet <String> aRoleIDs = idsToSet (aRow.getAsString (2));
+        if (aRoleIDs != null)
+          for (final String sRoleID : aRoleIDs)
+            aExecutor.insertOrUpdateOrDelete ("INSERT INTO " +
+                                              m_sRoleAssignmentTableName +
+                                              " (usergroupid, roleid) VALUES (?, ?)",
+                                              new ConstantPreparedStatementDataProvider (sUserGroupID, sRoleID));
+      }
+    });
+    m_aUserCache.clearCache ();
+    return eSuccess;
+  }
+
+  @NonNull
+  private UserAssignment _loadUserAssignment (@NonNull final String sUserID)
+  {
+    final ICommonsList <String> aUserGroupIDs = new CommonsArrayList <> ();
+    final ICommonsSet <String> aRoleIDs = new CommonsHashSet <> ();
+    if (m_bUseAssignmentTables)
+    {
+      // One indexed query for all user groups and roles
+      final ICommonsList <DBResultRow> aDBResult = newExecutor ().queryAll ("SELECT u.usergroupid, r.roleid FROM " +
+                                                                            m_sUserAssignmentTableName +
+                                                                            " u LEFT OUTER JOIN " +
+                                                                            m_sRoleAssignmentTableName +
+                                                                            " r ON u.usergroupid=r.usergroupid" +
+                                                                            " WHERE u.userid=?",
+                                                                            new ConstantPreparedStatementDataProvider (sUserID));
+      if (aDBResult != null)
+        for (final DBResultRow aRow : aDBResult)
+        {
+          final String sUserGroupID = aRow.getAsString (0);
+          if (!aUserGroupIDs.contains (sUserGroupID))
+            aUserGroupIDs.add (sUserGroupID);
+          final String sRoleID = aRow.getAsString (1);
+          if (sRoleID != null)
+            aRoleIDs.add (sRoleID);
+        }
+    }
+    else
+    {
+      for (final IUserGroup aUserGroup : getAllUserGroupsWithAssignedUser (sUserID))
+      {
+        aUserGroupIDs.add (aUserGroup.getID ());
+        aRoleIDs.addAll (aUserGroup.getAllContainedRoleIDs ());
+      }
+    }
+    return new UserAssignment (aUserGroupIDs, aRoleIDs);
+  }
+
   @NonNull
   private ESuccess _internalCreateItem (@NonNull final UserGroup aUserGroup)
   {
@@ -273,6 +591,11 @@ public class UserGroupManagerJDBC extends AbstractJDBCEnabledSecurityManager imp
                                                                                                          idsToString (aUserGroup.getAllContainedRoleIDs ())));
       if (nCreated != 1)
         throw new IllegalStateException ("Failed to create new DB entry (" + nCreated + ")");
+
+      for (final String sUserID : aUserGroup.getAllContainedUserIDs ())
+        _insertAssignment (aExecutor, m_sUserAssignmentTableName, "userid", aUserGroup.getID (), sUserID);
+      for (final String sRoleID : aUserGroup.getAllContainedRoleIDs ())
+        _insertAssignment (aExecutor, m_sRoleAssignmentTableName, "roleid", aUserGroup.getID (), sRoleID);
     });
   }
 
@@ -301,6 +624,9 @@ public class UserGroupManagerJDBC extends AbstractJDBCEnabledSecurityManager imp
                                       aUserGroup.attrs (),
                                       bPredefined ? "predefined" : "custom");
 
+    for (final String sUserID : aUserGroup.getAllContainedUserIDs ())
+      m_aUserCache.invalidate (sUserID);
+
     if (bRunCallback)
     {
       // Execute callback as the very last action
@@ -603,6 +929,8 @@ public class UserGroupManagerJDBC extends AbstractJDBCEnabledSecurityManager imp
                                                                                                            DBValueHelper.getTrimmedToLength (sUserGroupID,
                                                                                                                                              IUserGroup.USER_GROUP_ID_MAX_LENGTH)));
         aUpdated.set (nUpdated);
+        if (nUpdated > 0)
+          _insertAssignment (aExecutor, m_sUserAssignmentTableName, "userid", sUserGroupID, sUserID);
       }
     });
 
@@ -628,6 +956,8 @@ public class UserGroupManagerJDBC extends AbstractJDBCEnabledSecurityManager imp
 
     AuditHelper.onAuditModifySuccess (UserGroup.OT, "assign-user", sUserGroupID, sUserID);
 
+    m_aUserCache.invalidate (sUserID);
+
     // Execute callback as the very last action
     m_aCallbacks.forEach (aCB -> aCB.onUserGroupUserAssignment (sUserGroupID, sUserID, true));
 
@@ -669,6 +999,8 @@ public class UserGroupManagerJDBC extends AbstractJDBCEnabledSecurityManager imp
                                                                                                            DBValueHelper.getTrimmedToLength (sUserGroupID,
                                                                                                                                              IUserGroup.USER_GROUP_ID_MAX_LENGTH)));
         aUpdated.set (nUpdated);
+        if (nUpdated > 0)
+          _deleteAssignment (aExecutor, m_sUserAssignmentTableName, "userid", sUserGroupID, sUserID);
       }
     });
 
@@ -694,6 +1026,8 @@ public class UserGroupManagerJDBC extends AbstractJDBCEnabledSecurityManager imp
 
     AuditHelper.onAuditModifySuccess (UserGroup.OT, "unassign-user", sUserGroupID, sUserID);
 
+    m_aUserCache.invalidate (sUserID);
+
     // Execute callback as the very last action
     m_aCallbacks.forEach (aCB -> aCB.onUserGroupUserAssignment (sUserGroupID, sUserID, false));
 
@@ -732,6 +1066,7 @@ public class UserGroupManagerJDBC extends AbstractJDBCEnabledSecurityManager imp
                                                                                                              DBValueHelper.getTrimmedToLength (sUserGroupID,
                                                                                                                                                IUserGroup.USER_GROUP_ID_MAX_LENGTH)));
           aUpdated.inc (nUpdated);
+          _deleteAssignment (aExecutor, m_sUserAssignmentTableName, "userid", sUserGroupID, sUserID);
         }
       }
     });
@@ -751,6 +1086,8 @@ public class UserGroupManagerJDBC extends AbstractJDBCEnabledSecurityManager imp
 
     AuditHelper.onAuditModifySuccess (UserGroup.OT, "unassign-user-from-all-usergroups", sUserID);
 
+    m_aUserCache.invalidate (sUserID);
+
     // Execute callback as the very last action
     for (final String sUserGroupID : aAffectedUserGroups)
       m_aCallbacks.forEach (aCB -> aCB.onUserGroupUserAssignment (sUserGroupID, sUserID, false));
@@ -765,6 +1102,10 @@ public class UserGroupManagerJDBC extends AbstractJDBCEnabledSecurityManager imp
     if (StringHelper.isEmpty (sUserID))
       return new CommonsArrayList <> ();
 
+    if (m_bUseAssignmentTables)
+      return _getAllWhere ("id IN (SELECT usergroupid FROM " + m_sUserAssignmentTableName + " WHERE userid=?)",
+                           new ConstantPreparedStatementDataProvider (sUserID));
+
     // Limit from the SQL point as much as possible and filter the results here
     return _getAllWhere ("userids LIKE ?", new ConstantPreparedStatementDataProvider ("%" + sUserID + "%")).getAll (
                                                                                                                     aUserGroup -> aUserGroup.containsUserID (sUserID));
@@ -777,7 +1118,7 @@ public class UserGroupManagerJDBC extends AbstractJDBCEnabledSecurityManager imp
     if (StringHelper.isEmpty (sUserID))
       return new CommonsArrayList <> ();
 
-    return getAllUserGroupsWithAssignedUser (sUserID).getAllMapped (IUserGroup::getID);
+    return m_aUserCache.getFromCache (sUserID, this::_loadUserAssignment).m_aUserGroupIDs.getClone ();
   }
 
   @NonNull
@@ -815,6 +1156,8 @@ public class UserGroupManagerJDBC extends AbstractJDBCEnabledSecurityManager imp
                                                                                                            DBValueHelper.getTrimmedToLength (sUserGroupID,
                                                                                                                                              IUserGroup.USER_GROUP_ID_MAX_LENGTH)));
         aUpdated.set (nUpdated);
+        if (nUpdated > 0)
+          _insertAssignment (aExecutor, m_sRoleAssignmentTableName, "roleid", sUserGroupID, sRoleID);
       }
     });
 
@@ -840,6 +1183,8 @@ public class UserGroupManagerJDBC extends AbstractJDBCEnabledSecurityManager imp
 
     AuditHelper.onAuditModifySuccess (UserGroup.OT, "assign-role", sUserGroupID, sRoleID);
 
+    _invalidateUsersOfUserGroup (sUserGroupID);
+
     // Execute callback as the very last action
     m_aCallbacks.forEach (aCB -> aCB.onUserGroupRoleAssignment (sUserGroupID, sRoleID, true));
 
@@ -881,6 +1226,8 @@ public class UserGroupManagerJDBC extends AbstractJDBCEnabledSecurityManager imp
                                                                                                            DBValueHelper.getTrimmedToLength (sUserGroupID,
                                                                                                                                              IUserGroup.USER_GROUP_ID_MAX_LENGTH)));
         aUpdated.set (nUpdated);
+        if (nUpdated > 0)
+          _deleteAssignment (aExecutor, m_sRoleAssignmentTableName, "roleid", sUserGroupID, sRoleID);
       }
     });
 
@@ -906,6 +1253,8 @@ public class UserGroupManagerJDBC extends AbstractJDBCEnabledSecurityManager imp
 
     AuditHelper.onAuditModifySuccess (UserGroup.OT, "unassign-role", sUserGroupID, sRoleID);
 
+    _invalidateUsersOfUserGroup (sUserGroupID);
+
     // Execute callback as the very last action
     m_aCallbacks.forEach (aCB -> aCB.onUserGroupRoleAssignment (sUserGroupID, sRoleID, false));
 
@@ -944,6 +1293,7 @@ public class UserGroupManagerJDBC extends AbstractJDBCEnabledSecurityManager imp
                                                                                                              DBValueHelper.getTrimmedToLength (sUserGroupID,
                                                                                                                                                IUserGroup.USER_GROUP_ID_MAX_LENGTH)));
           aUpdated.inc (nUpdated);
+          _deleteAssignment (aExecutor, m_sRoleAssignmentTableName, "roleid", sUserGroupID, sRoleID);
         }
       }
     });
@@ -963,6 +1313,8 @@ public class UserGroupManagerJDBC extends AbstractJDBCEnabledSecurityManager imp
 
     AuditHelper.onAuditModifySuccess (UserGroup.OT, "unassign-role-from-all-usergroups", sRoleID);
 
+    m_aUserCache.invalidateIf ( (k, v) -> v.containsRoleID (sRoleID));
+
     // Execute callback as the very last action
     for (final String sUserGroupID : aAffectedUserGroups)
       m_aCallbacks.forEach (aCB -> aCB.onUserGroupRoleAssignment (sUserGroupID, sRoleID, false));
@@ -977,6 +1329,10 @@ public class UserGroupManagerJDBC extends AbstractJDBCEnabledSecurityManager imp
     if (StringHelper.isEmpty (sRoleID))
       return getNone ();
 
+    if (m_bUseAssignmentTables)
+      return _getAllWhere ("id IN (SELECT usergroupid FROM " + m_sRoleAssignmentTableName + " WHERE roleid=?)",
+                           new ConstantPreparedStatementDataProvider (sRoleID));
+
     // Limit from the SQL point as much as possible and filter the results here
     return _getAllWhere ("roleids LIKE ?", new ConstantPreparedStatementDataProvider ("%" + sRoleID + "%")).getAll (
                                                                                                                     aUserGroup -> aUserGroup.containsRoleID (sRoleID));
@@ -989,11 +1345,31 @@ public class UserGroupManagerJDBC extends AbstractJDBCEnabledSecurityManager imp
     if (StringHelper.isEmpty (sRoleID))
       return getNone ();
 
+    if (m_bUseAssignmentTables)
+    {
+      final ICommonsList <String> ret = new CommonsArrayList <> ();
+      final ICommonsList <DBResultRow> aDBResult = newExecutor ().queryAll ("SELECT usergroupid FROM " +
+                                                                            m_sRoleAssignmentTableName +
+                                                                            " WHERE roleid=?",
+                                                                            new ConstantPreparedStatementDataProvider (sRoleID));
+      if (aDBResult != null)
+        for (final DBResultRow aRow : aDBResult)
+          ret.add (aRow.getAsString (0));
+      return ret;
+    }
+
     return getAllUserGroupsWithAssignedRole (sRoleID).getAllMapped (IUserGroup::getID);
   }
 
   public boolean containsUserGroupWithAssignedRole (@Nullable final String sRoleID)
   {
+    if (StringHelper.isEmpty (sRoleID))
+      return false;
+
+    if (m_bUseAssignmentTables)
+      return newExecutor ().queryCount ("SELECT COUNT(*) FROM " + m_sRoleAssignmentTableName + " WHERE roleid=?",
+                                        new ConstantPreparedStatementDataProvider (sRoleID)) > 0;
+
     // Limit from the SQL point as much as possible and filter the results here
     return _getAllWhere ("roleids LIKE ?", new ConstantPreparedStatementDataProvider ("%" + sRoleID + "%"))
                                                                                                            .containsAny (aUserGroup -> aUserGroup.containsRoleID (sRoleID));
@@ -1007,10 +1383,6 @@ public class UserGroupManagerJDBC extends AbstractJDBCEnabledSecurityManager imp
     if (StringHelper.isEmpty (sRoleID))
       return false;
 
-    // Limit from the SQL point as much as possible and filter the results here
-    return _getAllWhere ("userids LIKE ? AND roleids LIKE ?",
-                         new ConstantPreparedStatementDataProvider ("%" + sUserID + "%", "%" + sRoleID + "%"))
-                                                                                                              .containsAny (aUserGroup -> aUserGroup.containsUserID (sUserID) &&
-                                                                                                                                          aUserGroup.containsRoleID (sRoleID));
+    return m_aUserCache.getFromCache (sUserID, this::_loadUserAssignment).containsRoleID (sRoleID);
   }
 }
@@ -16,6 +16,8 @@
  */
 package com.helger.photon.jdbc.security;
 
+import java.time.Duration;
+import java.util.Collection;
 import java.util.Locale;
 import java.util.Map;
 import java.util.function.Function;
@@ -39,8 +41,10 @@ import com.helger.base.state.ESuccess;
 import com.helger.base.string.StringHelper;
 import com.helger.base.wrapper.Wrapper;
 import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.CommonsLinkedHashMap;
 import com.helger.collection.commons.CommonsLinkedHashSet;
 import com.helger.collection.commons.ICommonsList;
+import com.helger.collection.commons.ICommonsOrderedMap;
 import com.helger.collection.commons.ICommonsOrderedSet;
 import com.helger.datetime.helper.PDTFactory;
 import com.helger.db.api.helper.DBValueHelper;
@@ -70,9 +74,13 @@ public class UserManagerJDBC extends AbstractJDBCEnabledSecurityManager implemen
 {
   private static final Logger LOGGER = LoggerFactory.getLogger (UserManagerJDBC.class);
   private static final boolean DEFAULT_DISABLED = false;
+  // Stay below the parameter limits of all common databases
+  private static final int MAX_IDS_PER_QUERY = 500;
 
   private final String m_sTableName;
   private final CallbackList <IUserModificationCallback> m_aCallbacks = new CallbackList <> ();
+  private volatile JDBCReadThroughCache <String, IUser> m_aCache = new JDBCReadThroughCache <> (JDBCReadThroughCache.DEFAULT_MAX_SIZE,
+                                                                                                JDBCReadThroughCache.DEFAULT_TIME_TO_LIVE);
 
   public UserManagerJDBC (@NonNull final Supplier <? extends DBExecutor> aDBExecSupplier,
                           @NonNull final Function <String, String> aTableNameCustomizer)
@@ -92,6 +100,35 @@ public class UserManagerJDBC extends AbstractJDBCEnabledSecurityManager implemen
     return m_sTableName;
   }
 
+  /**
+   * @return The cache of the {@link IUser} objects by ID. Never <code>null</code>.
+   * @since 10.3.1
+   */
+  @NonNull
+  public final JDBCReadThroughCache <String, IUser> getCache ()
+  {
+    return m_aCache;
+  }
+
+  /**
+   * Change the settings of the user cache. All cached entries are discarded.
+   *
+   * @param nMaxSize
+   *        The maximum number of cached users. Use 0 to disable caching.
+   * @param aTimeToLive
+   *        The maximum time a user is cached. May be <code>null</code> to
+   *        cache until eviction or modification. Should be set if the table is
+   *        modified by other application nodes.
+   * @return this for chaining
+   * @since 10.3.1
+   */
+  @NonNull
+  public final UserManagerJDBC setCacheSettings (@Nonnegative final int nMaxSize, @Nullable final Duration aTimeToLive)
+  {
+    m_aCache = new JDBCReadThroughCache <> (nMaxSize, aTimeToLive);
+    return this;
+  }
+
   @NonNull
   @ReturnsMutableCopy
   private ICommonsList <IUser> _getAllWhere (@Nullable final String sCondition,
@@ -382,6 +419,63 @@ public class UserManagerJDBC extends AbstractJDBCEnabledSecurityManager implemen
     if (StringHelper.isEmpty (sUserID))
       return null;
 
+    return m_aCache.getFromCache (sUserID, this::_loadUserOfID);
+  }
+
+  @NonNull
+  @ReturnsMutableCopy
+  public ICommonsList <IUser> getUsersOfIDs (@Nullable final Collection <String> aUserIDs)
+  {
+    final ICommonsList <IUser> ret = new CommonsArrayList <> ();
+    if (aUserIDs == null || aUserIDs.isEmpty ())
+      return ret;
+
+    final JDBCReadThroughCache <String, IUser> aCache = m_aCache;
+    final long nModCount = aCache.getModificationCount ();
+
+    // Unique IDs in request order - null values are resolved from the DB
+    final ICommonsOrderedMap <String, IUser> aResolved = new CommonsLinkedHashMap <> ();
+    final ICommonsList <String> aMissingIDs = new CommonsArrayList <> ();
+    for (final String sUserID : aUserIDs)
+      if (StringHelper.isNotEmpty (sUserID) && !aResolved.containsKey (sUserID))
+      {
+        final IUser aUser = aCache.getIfPresent (sUserID);
+        aResolved.put (sUserID, aUser);
+        if (aUser == null)
+          aMissingIDs.add (sUserID);
+      }
+
+    // Resolve all missing users with as few queries as possible
+    for (int nStart = 0; nStart < aMissingIDs.size (); nStart += MAX_IDS_PER_QUERY)
+    {
+      final ICommonsList <String> aChunk = new CommonsArrayList <> (aMissingIDs.subList (nStart,
+                                                                                         Math.min (nStart +
+                                                                                                   MAX_IDS_PER_QUERY,
+                                                                                                   aMissingIDs.size ())));
+      final StringBuilder aCond = new StringBuilder (aChunk.size () * 2);
+      for (int i = 0; i < aChunk.size (); ++i)
+      {
+        if (i > 0)
+          aCond.append (',');
+        aCond.append ('?');
+      }
+      for (final IUser aUser : _getAllWhere ("id IN (" + aCond.toString () + ")",
+                                             new ConstantPreparedStatementDataProvider (aChunk)))
+      {
+        aResolved.put (aUser.getID (), aUser);
+        aCache.putInCache (aUser.getID (), aUser, nModCount);
+      }
+    }
+
+    for (final IUser aUser : aResolved.values ())
+      if (aUser != null)
+        ret.add (aUser);
+    return ret;
+  }
+
+  @Nullable
+  private IUser _loadUserOfID (@NonNull final String sUserID)
+  {
     final Wrapper <DBResultRow> aDBResult = new Wrapper <> ();
     newExecutor ().querySingle ("SELECT creationdt, creationuserid, lastmoddt, lastmoduserid, deletedt, deleteuserid, attrs," +
                                 " loginname, email, pwalgo, pwsalt, pwhash, firstname, lastname, description, locale, lastlogindt, logincount, failedlogins, disabled" +
@@ -613,6 +707,8 @@ public class UserManagerJDBC extends AbstractJDBCEnabledSecurityManager implemen
                                                                                                                                            IUser.USER_ID_MAX_LENGTH)));
       aUpdated.set (nUpdated);
     });
+    m_aCache.invalidate (sUserID);
+
     if (eSuccess.isFailure ())
     {
       // DB error
@@ -682,6 +778,8 @@ public class UserManagerJDBC extends AbstractJDBCEnabledSecurityManager implemen
                                                                                                                                            IUser.USER_ID_MAX_LENGTH)));
       aUpdated.set (nUpdated);
     });
+    m_aCache.invalidate (sUserID);
+
     if (eSuccess.isFailure ())
     {
       // DB error
@@ -722,6 +820,8 @@ public class UserManagerJDBC extends AbstractJDBCEnabledSecurityManager implemen
                                                                                                          sUserID));
       aUpdated.set (nUpdated);
     });
+    m_aCache.invalidate (sUserID);
+
     if (eSuccess.isFailure ())
     {
       // DB error
@@ -754,6 +854,8 @@ public class UserManagerJDBC extends AbstractJDBCEnabledSecurityManager implemen
                                                               new ConstantPreparedStatementDataProvider (sUserID));
       aUpdated.set (nUpdated);
     });
+    m_aCache.invalidate (sUserID);
+
     if (eSuccess.isFailure ())
     {
       // DB error
@@ -794,6 +896,8 @@ public class UserManagerJDBC extends AbstractJDBCEnabledSecurityManager implemen
                                                                                                                                            IUser.USER_ID_MAX_LENGTH)));
       aUpdated.set (nUpdated);
     });
+    m_aCache.invalidate (sUserID);
+
     if (eSuccess.isFailure ())
     {
       // DB error
@@ -834,6 +938,8 @@ public class UserManagerJDBC extends AbstractJDBCEnabledSecurityManager implemen
                                                                                                                                            IUser.USER_ID_MAX_LENGTH)));
       aUpdated.set (nUpdated);
     });
+    m_aCache.invalidate (sUserID);
+
     if (eSuccess.isFailure ())
     {
       // DB error
@@ -875,6 +981,8 @@ public class UserManagerJDBC extends AbstractJDBCEnabledSecurityManager implemen
                                                                                                                                            IUser.USER_ID_MAX_LENGTH)));
       aUpdated.set (nUpdated);
     });
+    m_aCache.invalidate (sUserID);
+
     if (eSuccess.isFailure ())
     {
       // DB error
@@ -916,6 +1024,8 @@ public class UserManagerJDBC extends AbstractJDBCEnabledSecurityManager implemen
                                                                                                                                            IUser.USER_ID_MAX_LENGTH)));
       aUpdated.set (nUpdated);
     });
+    m_aCache.invalidate (sUserID);
+
     if (eSuccess.isFailure ())
     {
       // DB error
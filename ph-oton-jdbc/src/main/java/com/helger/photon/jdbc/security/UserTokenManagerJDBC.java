@@ -631,9 +631,12 @@ public class UserTokenManagerJDBC extends AbstractJDBCEnabledSecurityManager imp
     if (StringHelper.isEmpty (sTokenString))
       return null;
 
+    // Same semantics as the in-memory implementation: only non-deleted user
+    // tokens with a currently valid active access token
     final ICommonsList <DBResultRow> aDBResult = newExecutor ().queryAll ("SELECT id, accesstokens" +
                                                                           " FROM " +
-                                                                          m_sTableName);
+                                                                          m_sTableName +
+                                                                          " WHERE deletedt IS NULL");
     if (aDBResult != null)
       for (final DBResultRow aRow : aDBResult)
       {
@@ -642,8 +645,9 @@ public class UserTokenManagerJDBC extends AbstractJDBCEnabledSecurityManager imp
         final ICommonsList <AccessToken> aAccessTokens = _parseAccessTokens (sAccessTokens);
         final AccessTokenList aAccessTokenList = new AccessTokenList (aAccessTokens);
 
-        if (sTokenString.equals (aAccessTokenList.getActiveTokenString ()))
-          return getUserTokenOfID (sUserTokenID);
+        final IAccessToken aActiveAccessToken = aAccessTokenList.getActiveAccessToken ();
+        if (aActiveAccessToken != null && sTokenString.equals (aActiveAccessToken.getTokenString ()))
+          return aActiveAccessToken.isValidNow () ? getUserTokenOfID (sUserTokenID) : null;
       }
 
     return null;
@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.photon.jdbc.audit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jspecify.annotations.NonNull;
+import org.junit.Test;
+
+import com.helger.base.state.ESuccess;
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.ICommonsList;
+import com.helger.photon.audit.EAuditActionType;
+import com.helger.photon.audit.IAuditItem;
+import com.helger.photon.audit.mock.MockCurrentUserIDProvider;
+
+/**
+ * Test class for class {@link AsynchronousAuditorJDBC}.
+ *
+ * @author Philip Helger
+ */
+public final class AsynchronousAuditorJDBCTest
+{
+  /**
+   * A JDBC auditor that collects the written items in memory instead of using a database.
+   *
+   * @author Philip Helger
+   */
+  private static final class CollectingAuditorJDBC extends AuditorJDBC
+  {
+    private final ICommonsList <IAuditItem> m_aWritten = new CommonsArrayList <> ();
+    private final AtomicInteger m_aFailuresLeft;
+
+    CollectingAuditorJDBC (final int nFailures)
+    {
+      super ( () -> null, x -> x, MockCurrentUserIDProvider.getInstance ());
+      m_aFailuresLeft = new AtomicInteger (nFailures);
+    }
+
+    @Override
+    @NonNull
+    public ESuccess insertAuditItems (@NonNull final List <? extends IAuditItem> aAuditItems)
+    {
+      if (m_aFailuresLeft.getAndDecrement () > 0)
+        return ESuccess.FAILURE;
+      synchronized (m_aWritten)
+      {
+        m_aWritten.addAll (aAuditItems);
+      }
+      return ESuccess.SUCCESS;
+    }
+
+    int getWrittenCount ()
+    {
+      synchronized (m_aWritten)
+      {
+        return m_aWritten.size ();
+      }
+    }
+  }
+
+  private static void _audit (@NonNull final AsynchronousAuditorJDBC aAuditor, final int nCount)
+  {
+    for (int i = 0; i < nCount; ++i)
+      aAuditor.createAuditItem (EAuditActionType.EXECUTE, ESuccess.SUCCESS, null, "action" + i);
+  }
+
+  @Test
+  public void testWriteAllAndAfterStop ()
+  {
+    final CollectingAuditorJDBC aTarget = new CollectingAuditorJDBC (0);
+    final AsynchronousAuditorJDBC aAuditor = new AsynchronousAuditorJDBC (aTarget,
+                                                                          MockCurrentUserIDProvider.getInstance (),
+                                                                          100,
+                                                                          10,
+                                                                          Duration.ofMillis (10));
+    _audit (aAuditor, 1000);
+    assertTrue (aAuditor.stop ().isChanged ());
+    assertTrue (aAuditor.stop ().isUnchanged ());
+    assertEquals (1000, aTarget.getWrittenCount ());
+    assertEquals (0, aAuditor.getQueueLength ());
+
+    // Written synchronously - nothing is lost
+    _audit (aAuditor, 5);
+    assertEquals (1005, aTarget.getWrittenCount ());
+    assertEquals (5, aAuditor.getSynchronousWriteCount ());
+    assertEquals (0, aAuditor.getFailedItemCount ());
+  }
+
+  @Test
+  public void testRetry ()
+  {
+    final CollectingAuditorJDBC aTarget = new CollectingAuditorJDBC (2);
+    final AsynchronousAuditorJDBC aAuditor = new AsynchronousAuditorJDBC (aTarget,
+                                                                          MockCurrentUserIDProvider.getInstance ());
+    aAuditor.setRetryDelay (Duration.ZERO);
+    aAuditor.stop ();
+
+    // Third attempt succeeds
+    _audit (aAuditor, 1);
+    assertEquals (1, aTarget.getWrittenCount ());
+    assertEquals (0, aAuditor.getFailedItemCount ());
+  }
+
+  @Test
+  public void testFailedBatchHandler ()
+  {
+    final CollectingAuditorJDBC aTarget = new CollectingAuditorJDBC (Integer.MAX_VALUE);
+    final ICommonsList <IAuditItem> aSpilled = new CommonsArrayList <> ();
+    final AsynchronousAuditorJDBC aAuditor = new AsynchronousAuditorJDBC (aTarget,
+                                                                          MockCurrentUserIDProvider.getInstance ());
+    aAuditor.setRetryDelay (Duration.ZERO).setMaxWriteAttempts (2).setFailedBatchHandler (x -> {
+      synchronized (aSpilled)
+      {
+        aSpilled.addAll (x);
+      }
+    });
+    _audit (aAuditor, 50);
+    aAuditor.stop ();
+
+    assertEquals (0, aTarget.getWrittenCount ());
+    assertEquals (50, aAuditor.getFailedItemCount ());
+    synchronized (aSpilled)
+    {
+      assertEquals (50, aSpilled.size ());
+    }
+  }
+}
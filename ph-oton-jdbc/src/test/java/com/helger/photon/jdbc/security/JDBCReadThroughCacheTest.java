@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.photon.jdbc.security;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Test class for class {@link JDBCReadThroughCache}.
+ *
+ * @author Philip Helger
+ */
+public final class JDBCReadThroughCacheTest
+{
+  @Test
+  public void testBasic ()
+  {
+    final AtomicInteger aLoads = new AtomicInteger (0);
+    final JDBCReadThroughCache <String, String> aCache = new JDBCReadThroughCache <> (2);
+    assertEquals ("a1", aCache.getFromCache ("a", k -> k + aLoads.incrementAndGet ()));
+    assertEquals ("a1", aCache.getFromCache ("a", k -> k + aLoads.incrementAndGet ()));
+    assertEquals (1, aCache.getHitCount ());
+    assertEquals (1, aCache.getMissCount ());
+
+    // LRU eviction of "b"
+    assertEquals ("b2", aCache.getFromCache ("b", k -> k + aLoads.incrementAndGet ()));
+    assertEquals ("a1", aCache.getFromCache ("a", k -> k + aLoads.incrementAndGet ()));
+    assertEquals ("c3", aCache.getFromCache ("c", k -> k + aLoads.incrementAndGet ()));
+    assertEquals (2, aCache.size ());
+    assertEquals ("b4", aCache.getFromCache ("b", k -> k + aLoads.incrementAndGet ()));
+
+    // Invalidation
+    aCache.invalidate ("b");
+    assertEquals ("b5", aCache.getFromCache ("b", k -> k + aLoads.incrementAndGet ()));
+    aCache.invalidateIf ( (k, v) -> v.startsWith ("b"));
+    assertEquals (1, aCache.size ());
+    aCache.clearCache ();
+    assertEquals (0, aCache.size ());
+
+    // null is not cached
+    assertNull (aCache.getFromCache ("x", k -> null));
+    assertEquals (0, aCache.size ());
+  }
+
+  @Test
+  public void testDisabled ()
+  {
+    final AtomicInteger aLoads = new AtomicInteger (0);
+    final JDBCReadThroughCache <String, String> aCache = new JDBCReadThroughCache <> (0);
+    assertEquals ("a1", aCache.getFromCache ("a", k -> k + aLoads.incrementAndGet ()));
+    assertEquals ("a2", aCache.getFromCache ("a", k -> k + aLoads.incrementAndGet ()));
+    assertEquals (0, aCache.size ());
+  }
+
+  @Test
+  public void testTimeToLive ()
+  {
+    final AtomicInteger aLoads = new AtomicInteger (0);
+    final JDBCReadThroughCache <String, String> aCache = new JDBCReadThroughCache <> (10, Duration.ZERO);
+    assertEquals ("a1", aCache.getFromCache ("a", k -> k + aLoads.incrementAndGet ()));
+    // Immediately expired
+    assertNull (aCache.getIfPresent ("a"));
+    assertEquals ("a2", aCache.getFromCache ("a", k -> k + aLoads.incrementAndGet ()));
+
+    // Stale values are not stored
+    final long nModCount = aCache.getModificationCount ();
+    aCache.invalidate ("b");
+    aCache.putInCache ("b", "b0", nModCount);
+    assertEquals (1, aCache.size ());
+  }
+}
@@ -16,11 +16,15 @@
  */
 package com.helger.photon.security.lock;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
 
 import org.jspecify.annotations.NonNull;
 import org.jspecify.annotations.Nullable;
@@ -28,12 +32,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.helger.annotation.Nonempty;
-import com.helger.annotation.concurrent.ELockType;
-import com.helger.annotation.concurrent.GuardedBy;
-import com.helger.annotation.concurrent.MustBeLocked;
+import com.helger.annotation.Nonnegative;
 import com.helger.annotation.concurrent.ThreadSafe;
 import com.helger.annotation.style.ReturnsMutableCopy;
-import com.helger.base.concurrent.SimpleReadWriteLock;
 import com.helger.base.debug.GlobalDebug;
 import com.helger.base.enforce.ValueEnforcer;
 import com.helger.base.state.EChange;
@@ -41,15 +42,25 @@ import com.helger.base.string.StringHelper;
 import com.helger.base.tostring.ToStringGenerator;
 import com.helger.collection.CollectionHelper;
 import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.CommonsConcurrentHashMap;
 import com.helger.collection.commons.CommonsHashMap;
 import com.helger.collection.commons.CommonsHashSet;
 import com.helger.collection.commons.ICommonsList;
 import com.helger.collection.commons.ICommonsMap;
 import com.helger.collection.commons.ICommonsSet;
+import com.helger.datetime.helper.PDTFactory;
 import com.helger.security.authentication.subject.user.ICurrentUserIDProvider;
 
 /**
- * Default implementation of a locking manager.
+ * Default implementation of a locking manager.<br>
+ * The locks are kept in a concurrent map, so that operations on different objects don't block each
+ * other. Additionally the locked objects are indexed per user, so that unlocking all objects of a
+ * user (e.g. on logout) only touches the locks of that user.<br>
+ * Locks may optionally have a lease (see {@link #setDefaultLeaseDuration(Duration)} and
+ * {@link #lockObject(Object, String, Duration)}). Expired locks are treated as not existing and are
+ * removed by a timer wheel, that is advanced as part of the regular lock operations. Applications
+ * with little lock traffic may additionally call {@link #expireLeases()} regularly. Leases are
+ * measured with a monotonic time source, so they are not affected by changes of the wall clock.
  *
  * @author Philip Helger
  * @param <IDTYPE>
@@ -61,17 +72,57 @@ public class DefaultLockManager <IDTYPE> implements ILockManager <IDTYPE>
 {
   private static final Logger LOGGER = LoggerFactory.getLogger (DefaultLockManager.class);
 
-  private final SimpleReadWriteLock m_aRWLock = new SimpleReadWriteLock ();
-  @GuardedBy ("m_aRWLock")
-  private ICurrentUserIDProvider m_aCurrentUserIDProvider;
-  @GuardedBy ("m_aRWLock")
+  /**
+   * The outcome of a single lock attempt, determined inside the atomic map update.
+   *
+   * @author Philip Helger
+   */
+  private static final class LockAttempt
+  {
+    private boolean m_bLocked;
+    private boolean m_bIsNewLock;
+    private ILockInfo m_aExpiredLock;
+    private ILockInfo m_aLeasedLock;
+  }
+
+  private volatile ICurrentUserIDProvider m_aCurrentUserIDProvider;
   // Key: lockedObjectID, value: lock-info
-  private final ICommonsMap <IDTYPE, ILockInfo> m_aLockedObjs = new CommonsHashMap <> ();
+  private final CommonsConcurrentHashMap <IDTYPE, ILockInfo> m_aLockedObjs = new CommonsConcurrentHashMap <> ();
+  // Key: userID, value: IDs of the objects locked by the user
+  // Only modified from within the atomic updates of m_aLockedObjs
+  private final CommonsConcurrentHashMap <String, Set <IDTYPE>> m_aLockedObjsPerUser = new CommonsConcurrentHashMap <> ();
+  private final LongSupplier m_aNanoTimeSupplier;
+  private final LockLeaseTimerWheel <IDTYPE> m_aLeaseWheel;
+  private volatile Duration m_aDefaultLeaseDuration;
   private final AtomicBoolean m_aSilentMode = new AtomicBoolean (GlobalDebug.DEFAULT_SILENT_MODE);
+  // Metrics
+  private final AtomicLong m_aNewLockCount = new AtomicLong (0);
+  private final AtomicLong m_aContendedLockCount = new AtomicLong (0);
+  private final AtomicLong m_aExpiredLockCount = new AtomicLong (0);
 
   public DefaultLockManager (@NonNull final ICurrentUserIDProvider aCurrentUserIDProvider)
   {
+    this (aCurrentUserIDProvider, System::nanoTime);
+  }
+
+  /**
+   * Constructor with a custom time source for the leases.
+   *
+   * @param aCurrentUserIDProvider
+   *        The current user ID provider. May not be <code>null</code>.
+   * @param aNanoTimeSupplier
+   *        The monotonic time source, usually {@link System#nanoTime()}. May not be
+   *        <code>null</code>.
+   */
+  DefaultLockManager (@NonNull final ICurrentUserIDProvider aCurrentUserIDProvider,
+                      @NonNull final LongSupplier aNanoTimeSupplier)
+  {
+    ValueEnforcer.notNull (aNanoTimeSupplier, "NanoTimeSupplier");
     setCurrentUserIDProvider (aCurrentUserIDProvider);
+    m_aNanoTimeSupplier = aNanoTimeSupplier;
+    m_aLeaseWheel = new LockLeaseTimerWheel <> (LockLeaseTimerWheel.DEFAULT_TICK_DURATION,
+                                                LockLeaseTimerWheel.DEFAULT_BUCKET_COUNT,
+                                                aNanoTimeSupplier);
   }
 
   public boolean isSilentMode ()
@@ -87,19 +138,142 @@ public class DefaultLockManager <IDTYPE> implements ILockManager <IDTYPE>
   public final void setCurrentUserIDProvider (@NonNull final ICurrentUserIDProvider aCurrentUserIDProvider)
   {
     ValueEnforcer.notNull (aCurrentUserIDProvider, "CurrentUserIDProvider");
-    m_aRWLock.writeLocked ( () -> m_aCurrentUserIDProvider = aCurrentUserIDProvider);
+    m_aCurrentUserIDProvider = aCurrentUserIDProvider;
+  }
+
+  /**
+   * @return The lease duration applied to all locks that are created without an explicit lease. May
+   *         be <code>null</code> if these locks never expire, which is the default.
+   * @since 10.3.1
+   */
+  @Nullable
+  public final Duration getDefaultLeaseDuration ()
+  {
+    return m_aDefaultLeaseDuration;
+  }
+
+  /**
+   * Set the lease duration applied to all locks that are created without an explicit lease. This
+   * ensures that locks are released eventually, even if the owning session is lost without a
+   * logout. Existing locks are not affected.
+   *
+   * @param aDefaultLeaseDuration
+   *        The default lease duration. May be <code>null</code> to let these locks never expire.
+   *        Must be positive if provided.
+   * @since 10.3.1
+   */
+  public final void setDefaultLeaseDuration (@Nullable final Duration aDefaultLeaseDuration)
+  {
+    if (aDefaultLeaseDuration != null)
+      ValueEnforcer.isFalse (aDefaultLeaseDuration.isNegative () || aDefaultLeaseDuration.isZero (),
+                             "DefaultLeaseDuration must be positive");
+    m_aDefaultLeaseDuration = aDefaultLeaseDuration;
   }
 
   @Nullable
   private String _getCurrentUserID ()
   {
-    return m_aRWLock.readLockedGet ( () -> m_aCurrentUserIDProvider.getCurrentUserID ());
+    return m_aCurrentUserIDProvider.getCurrentUserID ();
+  }
+
+  private boolean _isExpired (@NonNull final ILockInfo aLockInfo)
+  {
+    return aLockInfo.isLockExpired (m_aNanoTimeSupplier.getAsLong ());
+  }
+
+  private void _addToUserIndex (@NonNull final String sUserID, @NonNull final IDTYPE aObjID)
+  {
+    m_aLockedObjsPerUser.compute (sUserID, (k, aObjIDs) -> {
+      final Set <IDTYPE> ret = aObjIDs != null ? aObjIDs : ConcurrentHashMap.newKeySet ();
+      ret.add (aObjID);
+      return ret;
+    });
+  }
+
+  private void _removeFromUserIndex (@NonNull final String sUserID, @NonNull final IDTYPE aObjID)
+  {
+    m_aLockedObjsPerUser.computeIfPresent (sUserID, (k, aObjIDs) -> {
+      aObjIDs.remove (aObjID);
+      return aObjIDs.isEmpty () ? null : aObjIDs;
+    });
+  }
+
+  /**
+   * Remove the lock of the provided object, if it is still the provided lock.
+   *
+   * @return <code>true</code> if the lock was removed, <code>false</code> if the object is now
+   *         unlocked or locked differently.
+   */
+  private boolean _removeLock (@NonNull final IDTYPE aObjID, @NonNull final ILockInfo aLockInfo)
+  {
+    final AtomicBoolean aRemoved = new AtomicBoolean (false);
+    m_aLockedObjs.computeIfPresent (aObjID, (k, aCurrentLock) -> {
+      if (aCurrentLock != aLockInfo)
+        return aCurrentLock;
+      _removeFromUserIndex (aCurrentLock.getLockUserID (), k);
+      aRemoved.set (true);
+      return null;
+    });
+    return aRemoved.get ();
+  }
+
+  private void _onLockExpired (@NonNull final IDTYPE aObjID, @NonNull final ILockInfo aLockInfo)
+  {
+    m_aExpiredLockCount.incrementAndGet ();
+    if (!isSilentMode ())
+      LOGGER.info ("The lease of user '" +
+                   aLockInfo.getLockUserID () +
+                   "' on object '" +
+                   aObjID +
+                   "' expired at " +
+                   aLockInfo.getLockExpirationDateTime ());
+  }
+
+  /**
+   * Remove the provided lock if its lease is over.
+   *
+   * @return <code>true</code> if the lock is no longer relevant (expired now, or already unlocked
+   *         or renewed), <code>false</code> if the lease is not yet over.
+   */
+  private boolean _expireLock (@NonNull final IDTYPE aObjID, @NonNull final ILockInfo aLockInfo)
+  {
+    if (!_isExpired (aLockInfo))
+      return m_aLockedObjs.get (aObjID) != aLockInfo;
+    if (_removeLock (aObjID, aLockInfo))
+      _onLockExpired (aObjID, aLockInfo);
+    return true;
+  }
+
+  /**
+   * Remove all locks whose lease is over. This happens automatically as part of the lock operations,
+   * so calling this method is only needed to release expired locks in times without any lock
+   * traffic.
+   *
+   * @return The number of scheduled leases that were processed. This includes leases of objects that
+   *         were unlocked or renewed in the meantime.
+   * @since 10.3.1
+   */
+  @Nonnegative
+  public final int expireLeases ()
+  {
+    return m_aLeaseWheel.advance (this::_expireLock);
   }
 
   @Nullable
   public final ILockInfo getLockInfo (@Nullable final IDTYPE aObjID)
   {
-    return m_aRWLock.readLockedGet ( () -> m_aLockedObjs.get (aObjID));
+    if (aObjID == null)
+      return null;
+
+    final ILockInfo aLockInfo = m_aLockedObjs.get (aObjID);
+    if (aLockInfo != null && _isExpired (aLockInfo))
+    {
+      // Don't wait for the timer wheel
+      if (_removeLock (aObjID, aLockInfo))
+        _onLockExpired (aObjID, aLockInfo);
+      return null;
+    }
+    return aLockInfo;
   }
 
   @Nullable
@@ -128,44 +302,76 @@ public class DefaultLockManager <IDTYPE> implements ILockManager <IDTYPE>
   @NonNull
   private LockResult <IDTYPE> _lockObjectAndUnlockOthers (@NonNull final IDTYPE aObjID,
                                                           @Nullable final String sUserID,
-                                                          final boolean bUnlockOtherObjects)
+                                                          final boolean bUnlockOtherObjects,
+                                                          @Nullable final Duration aLeaseDuration)
   {
     if (StringHelper.isEmpty (sUserID))
       return LockResult.createFailure (aObjID);
 
-    ELocked eLocked;
-    boolean bIsNewLock = false;
-    ICommonsList <IDTYPE> aUnlockedObjects = null;
+    expireLeases ();
 
-    m_aRWLock.writeLock ().lock ();
-    try
+    ICommonsList <IDTYPE> aUnlockedObjects = null;
+    if (bUnlockOtherObjects)
     {
-      if (bUnlockOtherObjects)
-      {
-        // Unlock other objects first
-        aUnlockedObjects = new CommonsArrayList <> ();
-        // Unlock all except the object to be locked
-        _unlockAllObjects (sUserID, new CommonsHashSet <> (aObjID), aUnlockedObjects);
-      }
-      final ILockInfo aCurrentLock = m_aLockedObjs.get (aObjID);
+      // Unlock other objects first
+      aUnlockedObjects = new CommonsArrayList <> ();
+      // Unlock all except the object to be locked
+      _unlockAllObjects (sUserID, new CommonsHashSet <> (aObjID), aUnlockedObjects);
+    }
+
+    final LockAttempt aAttempt = new LockAttempt ();
+    m_aLockedObjs.compute (aObjID, (k, aCurrentLock) -> {
       if (aCurrentLock != null)
       {
-        // Object is already locked.
-        // Check whether the current user locked the object
-        eLocked = ELocked.valueOf (aCurrentLock.getLockUserID ().equals (sUserID));
-      }
-      else
-      {
-        // Object is not locked so far - lock it now!
-        m_aLockedObjs.put (aObjID, new LockInfo (sUserID));
-        eLocked = ELocked.LOCKED;
-        bIsNewLock = true;
+        if (!_isExpired (aCurrentLock))
+        {
+          // Object is already locked.
+          // Check whether the current user locked the object
+          if (!aCurrentLock.getLockUserID ().equals (sUserID))
+            return aCurrentLock;
+
+          aAttempt.m_bLocked = true;
+          // Only an existing lease is renewed - a lock without a lease stays like that
+          if (aLeaseDuration == null ||
+              !(aCurrentLock instanceof LockInfo) ||
+              aCurrentLock.getLockExpirationDateTime () == null)
+            return aCurrentLock;
+
+          // Renew the lease
+          final ILockInfo aRenewedLock = ((LockInfo) aCurrentLock).getWithRenewedLease (aLeaseDuration,
+                                                                                        m_aNanoTimeSupplier.getAsLong ());
+          aAttempt.m_aLeasedLock = aRenewedLock;
+          return aRenewedLock;
+        }
+
+        // The lease of the previous owner is over
+        _removeFromUserIndex (aCurrentLock.getLockUserID (), k);
+        aAttempt.m_aExpiredLock = aCurrentLock;
       }
-    }
-    finally
-    {
-      m_aRWLock.writeLock ().unlock ();
-    }
+
+      // Object is not locked so far - lock it now!
+      final ILockInfo aNewLock = new LockInfo (sUserID,
+                                               PDTFactory.getCurrentLocalDateTime (),
+                                               m_aNanoTimeSupplier.getAsLong (),
+                                               aLeaseDuration);
+      _addToUserIndex (sUserID, k);
+      aAttempt.m_bLocked = true;
+      aAttempt.m_bIsNewLock = true;
+      if (aLeaseDuration != null)
+        aAttempt.m_aLeasedLock = aNewLock;
+      return aNewLock;
+    });
+
+    if (aAttempt.m_aExpiredLock != null)
+      _onLockExpired (aObjID, aAttempt.m_aExpiredLock);
+    if (aAttempt.m_aLeasedLock != null)
+      m_aLeaseWheel.schedule (aObjID, aAttempt.m_aLeasedLock, aLeaseDuration);
+    if (aAttempt.m_bIsNewLock)
+      m_aNewLockCount.incrementAndGet ();
+    else
+      if (!aAttempt.m_bLocked)
+        m_aContendedLockCount.incrementAndGet ();
+
     if (!isSilentMode ())
     {
       if (CollectionHelper.isNotEmpty (aUnlockedObjects))
@@ -176,19 +382,48 @@ public class DefaultLockManager <IDTYPE> implements ILockManager <IDTYPE>
                      " except '" +
                      aObjID +
                      "'");
-      if (bIsNewLock)
+      if (aAttempt.m_bIsNewLock)
         LOGGER.info ("User '" + sUserID + "' locked object '" + aObjID + "'");
     }
-    return new LockResult <> (aObjID, eLocked, bIsNewLock, aUnlockedObjects);
+    return new LockResult <> (aObjID, ELocked.valueOf (aAttempt.m_bLocked), aAttempt.m_bIsNewLock, aUnlockedObjects);
   }
 
   @NonNull
   public final ELocked lockObject (@NonNull final IDTYPE aObjID, @Nullable final String sUserID)
+  {
+    return lockObject (aObjID, sUserID, m_aDefaultLeaseDuration);
+  }
+
+  /**
+   * Lock the passed object with a lease. If the object is already locked by the same user with a
+   * lease, the lease is renewed. If the object is already locked by the same user without a lease,
+   * the lock is kept as is and never expires - locking again never converts a lock without a lease
+   * into a leased one.
+   *
+   * @param aObjID
+   *        The object ID to be locked. May not be <code>null</code>.
+   * @param sUserID
+   *        The ID of the user locking the object. May be <code>null</code>.
+   * @param aLeaseDuration
+   *        The duration of the lease. May be <code>null</code> for a lock that never expires. Must
+   *        be positive if provided.
+   * @return {@link ELocked#LOCKED} if the object is locked by the passed user,
+   *         {@link ELocked#NOT_LOCKED} if no user ID was provided or if the object is locked by
+   *         another user.
+   * @since 10.3.1
+   */
+  @NonNull
+  public final ELocked lockObject (@NonNull final IDTYPE aObjID,
+                                   @Nullable final String sUserID,
+                                   @Nullable final Duration aLeaseDuration)
   {
     ValueEnforcer.notNull (aObjID, "ObjectID");
+    if (aLeaseDuration != null)
+      ValueEnforcer.isFalse (aLeaseDuration.isNegative () || aLeaseDuration.isZero (),
+                             "LeaseDuration must be positive");
 
     // Don't unlock other objects
-    final LockResult <IDTYPE> aLockResult = _lockObjectAndUnlockOthers (aObjID, sUserID, false);
+    final LockResult <IDTYPE> aLockResult = _lockObjectAndUnlockOthers (aObjID, sUserID, false, aLeaseDuration);
     return ELocked.valueOf (aLockResult);
   }
 
@@ -208,7 +443,7 @@ public class DefaultLockManager <IDTYPE> implements ILockManager <IDTYPE>
     ValueEnforcer.notNull (aObjID, "ObjectID");
 
     // Unlock other objects
-    return _lockObjectAndUnlockOthers (aObjID, sUserID, true);
+    return _lockObjectAndUnlockOthers (aObjID, sUserID, true, m_aDefaultLeaseDuration);
   }
 
   @NonNull
@@ -227,6 +462,8 @@ public class DefaultLockManager <IDTYPE> implements ILockManager <IDTYPE>
     ValueEnforcer.notNull (sUserID, "UserID");
     ValueEnforcer.notNull (aObjID, "ObjectID");
 
+    expireLeases ();
+
     // Get the locking information of the objects
     final ILockInfo aCurrentLock = getLockInfo (aObjID);
     if (aCurrentLock == null)
@@ -250,11 +487,12 @@ public class DefaultLockManager <IDTYPE> implements ILockManager <IDTYPE>
                      "'");
       return EChange.UNCHANGED;
     }
-    m_aRWLock.writeLocked ( () -> {
-      // this user locked the object -> unlock it
-      if (m_aLockedObjs.remove (aObjID) == null)
-        throw new IllegalStateException ("Internal inconsistency: removing '" + aObjID + "' from lock list failed!");
-    });
+    // this user locked the object -> unlock it
+    if (!_removeLock (aObjID, aCurrentLock))
+    {
+      // Unlocked, expired or renewed concurrently
+      return EChange.UNCHANGED;
+    }
 
     if (!isSilentMode ())
       LOGGER.info ("User '" + sUserID + "' unlocked object '" + aObjID + "'");
@@ -283,32 +521,30 @@ public class DefaultLockManager <IDTYPE> implements ILockManager <IDTYPE>
     return unlockAllObjectsOfUserExcept (sUserID, (Set <IDTYPE>) null);
   }
 
-  @MustBeLocked (ELockType.WRITE)
   private void _unlockAllObjects (@NonNull @Nonempty final String sUserID,
                                   @Nullable final Set <IDTYPE> aObjectsToKeepLocked,
                                   @NonNull final List <IDTYPE> aUnlockedObjects)
   {
-    // determine locks to be removed
-    for (final Map.Entry <IDTYPE, ILockInfo> aEntry : m_aLockedObjs.entrySet ())
-    {
-      final String sLockUserID = aEntry.getValue ().getLockUserID ();
-      if (sLockUserID.equals (sUserID))
+    final Set <IDTYPE> aObjIDs = m_aLockedObjsPerUser.get (sUserID);
+    if (aObjIDs == null)
+      return;
+
+    // Copy, because the set is modified while unlocking
+    for (final IDTYPE aObjID : new CommonsArrayList <> (aObjIDs))
+      if (aObjectsToKeepLocked == null || !aObjectsToKeepLocked.contains (aObjID))
       {
-        // Object is locked by current user
-        final IDTYPE aObjID = aEntry.getKey ();
-        if (aObjectsToKeepLocked == null || !aObjectsToKeepLocked.contains (aObjID))
+        final AtomicBoolean aRemoved = new AtomicBoolean (false);
+        m_aLockedObjs.computeIfPresent (aObjID, (k, aCurrentLock) -> {
+          // Object may have been unlocked and re-locked by another user in between
+          if (!aCurrentLock.getLockUserID ().equals (sUserID))
+            return aCurrentLock;
+          _removeFromUserIndex (sUserID, k);
+          aRemoved.set (true);
+          return null;
+        });
+        if (aRemoved.get ())
           aUnlockedObjects.add (aObjID);
       }
-    }
-    // remove locks
-    for (final IDTYPE aObjID : aUnlockedObjects)
-      if (m_aLockedObjs.remove (aObjID) == null)
-        throw new IllegalStateException ("Internal inconsistency: user '" +
-                                         sUserID +
-                                         "' failed to unlock '" +
-                                         aObjID +
-                                         "' from " +
-                                         aUnlockedObjects);
   }
 
   @NonNull
@@ -319,7 +555,8 @@ public class DefaultLockManager <IDTYPE> implements ILockManager <IDTYPE>
     final ICommonsList <IDTYPE> aUnlockedObjects = new CommonsArrayList <> ();
     if (StringHelper.isNotEmpty (sUserID))
     {
-      m_aRWLock.writeLocked ( () -> _unlockAllObjects (sUserID, aObjectsToKeepLocked, aUnlockedObjects));
+      expireLeases ();
+      _unlockAllObjects (sUserID, aObjectsToKeepLocked, aUnlockedObjects);
 
       if (aUnlockedObjects.isNotEmpty ())
         if (!isSilentMode ())
@@ -365,14 +602,22 @@ public class DefaultLockManager <IDTYPE> implements ILockManager <IDTYPE>
   @ReturnsMutableCopy
   public final ICommonsSet <IDTYPE> getAllLockedObjects ()
   {
-    return m_aRWLock.readLockedGet (m_aLockedObjs::copyOfKeySet);
+    final ICommonsSet <IDTYPE> ret = new CommonsHashSet <> ();
+    for (final Map.Entry <IDTYPE, ILockInfo> aEntry : m_aLockedObjs.entrySet ())
+      if (!_isExpired (aEntry.getValue ()))
+        ret.add (aEntry.getKey ());
+    return ret;
   }
 
   @NonNull
   @ReturnsMutableCopy
   public final ICommonsMap <IDTYPE, ILockInfo> getAllLockInfos ()
   {
-    return m_aRWLock.readLockedGet (m_aLockedObjs::getClone);
+    final ICommonsMap <IDTYPE, ILockInfo> ret = new CommonsHashMap <> ();
+    for (final Map.Entry <IDTYPE, ILockInfo> aEntry : m_aLockedObjs.entrySet ())
+      if (!_isExpired (aEntry.getValue ()))
+        ret.put (aEntry.getKey (), aEntry.getValue ());
+    return ret;
   }
 
   @NonNull
@@ -390,21 +635,81 @@ public class DefaultLockManager <IDTYPE> implements ILockManager <IDTYPE>
     final ICommonsSet <IDTYPE> ret = new CommonsHashSet <> ();
     if (StringHelper.isNotEmpty (sUserID))
     {
-      m_aRWLock.readLocked ( () -> {
-        for (final Map.Entry <IDTYPE, ILockInfo> aEntry : m_aLockedObjs.entrySet ())
-          if (aEntry.getValue ().getLockUserID ().equals (sUserID))
-            ret.add (aEntry.getKey ());
-      });
+      final Set <IDTYPE> aObjIDs = m_aLockedObjsPerUser.get (sUserID);
+      if (aObjIDs != null)
+        for (final IDTYPE aObjID : aObjIDs)
+        {
+          final ILockInfo aLockInfo = m_aLockedObjs.get (aObjID);
+          if (aLockInfo != null && !_isExpired (aLockInfo) && aLockInfo.getLockUserID ().equals (sUserID))
+            ret.add (aObjID);
+        }
     }
     return ret;
   }
 
+  /**
+   * @return The number of objects currently locked, including locks whose lease is over but that
+   *         were not yet removed.
+   * @since 10.3.1
+   */
+  @Nonnegative
+  public final int getLockedObjectCount ()
+  {
+    return m_aLockedObjs.size ();
+  }
+
+  /**
+   * @return The number of users currently holding at least one lock.
+   * @since 10.3.1
+   */
+  @Nonnegative
+  public final int getLockingUserCount ()
+  {
+    return m_aLockedObjsPerUser.size ();
+  }
+
+  /**
+   * @return The total number of locks created since this manager was created.
+   * @since 10.3.1
+   */
+  @Nonnegative
+  public final long getNewLockCount ()
+  {
+    return m_aNewLockCount.get ();
+  }
+
+  /**
+   * @return The total number of lock attempts that failed because the object was locked by another
+   *         user.
+   * @since 10.3.1
+   */
+  @Nonnegative
+  public final long getContendedLockCount ()
+  {
+    return m_aContendedLockCount.get ();
+  }
+
+  /**
+   * @return The total number of locks that were removed because their lease was over.
+   * @since 10.3.1
+   */
+  @Nonnegative
+  public final long getExpiredLockCount ()
+  {
+    return m_aExpiredLockCount.get ();
+  }
+
   @Override
   public String toString ()
   {
     return new ToStringGenerator (this).append ("CurrentUserIDProvider", m_aCurrentUserIDProvider)
                                        .append ("LockedObjects", m_aLockedObjs)
+                                       .appendIfNotNull ("DefaultLeaseDuration", m_aDefaultLeaseDuration)
+                                       .append ("LeaseWheel", m_aLeaseWheel)
                                        .append ("SilentMode", m_aSilentMode)
+                                       .append ("NewLockCount", m_aNewLockCount)
+                                       .append ("ContendedLockCount", m_aContendedLockCount)
+                                       .append ("ExpiredLockCount", m_aExpiredLockCount)
                                        .getToString ();
   }
 }
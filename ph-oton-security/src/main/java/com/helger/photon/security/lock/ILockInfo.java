@@ -20,6 +20,7 @@ import java.io.Serializable;
 import java.time.LocalDateTime;
 
 import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
 
 /**
  * A single lock information object.
@@ -39,4 +40,42 @@ public interface ILockInfo extends Serializable
    */
   @NonNull
   LocalDateTime getLockDateTime ();
+
+  /**
+   * @return The date and time when the lease of this lock ends. May be <code>null</code> for locks
+   *         that never expire. This is for display purposes only - whether the lease is over is
+   *         determined by {@link #isLockExpired(long)}.
+   * @since 10.3.1
+   */
+  @Nullable
+  default LocalDateTime getLockExpirationDateTime ()
+  {
+    return null;
+  }
+
+  /**
+   * @return <code>true</code> if this lock has a lease and the lease is over, <code>false</code>
+   *         otherwise.
+   * @since 10.3.1
+   */
+  default boolean isLockExpired ()
+  {
+    return isLockExpired (System.nanoTime ());
+  }
+
+  /**
+   * Check if the lease of this lock is over. This is based on a monotonic time source, so that
+   * changes of the wall clock (e.g. daylight saving time) don't affect the lease.
+   *
+   * @param nNanoTime
+   *        The current value of the monotonic time source the lock was created with - usually
+   *        {@link System#nanoTime()}.
+   * @return <code>true</code> if this lock has a lease and the lease is over, <code>false</code>
+   *         otherwise.
+   * @since 10.3.1
+   */
+  default boolean isLockExpired (final long nNanoTime)
+  {
+    return false;
+  }
 }
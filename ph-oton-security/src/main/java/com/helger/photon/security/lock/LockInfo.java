@@ -16,13 +16,16 @@
  */
 package com.helger.photon.security.lock;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 
 import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
 
 import com.helger.annotation.Nonempty;
 import com.helger.annotation.concurrent.Immutable;
 import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.equals.EqualsHelper;
 import com.helger.base.hashcode.HashCodeGenerator;
 import com.helger.base.tostring.ToStringGenerator;
 import com.helger.datetime.helper.PDTFactory;
@@ -37,11 +40,63 @@ public final class LockInfo implements ILockInfo
 {
   private final String m_sUserID;
   private final LocalDateTime m_aLockTime;
+  private final LocalDateTime m_aExpirationTime;
+  // Monotonic expiration time - only relevant if m_aExpirationTime is set
+  private final long m_nExpirationNanos;
 
   public LockInfo (@NonNull @Nonempty final String sUserID)
   {
+    this (sUserID, (Duration) null);
+  }
+
+  /**
+   * Constructor for a lock with an optional lease.
+   *
+   * @param sUserID
+   *        The ID of the user owning the lock. May neither be <code>null</code> nor empty.
+   * @param aLeaseDuration
+   *        The duration of the lease, starting now. May be <code>null</code> for a lock that never
+   *        expires.
+   * @since 10.3.1
+   */
+  public LockInfo (@NonNull @Nonempty final String sUserID, @Nullable final Duration aLeaseDuration)
+  {
+    this (sUserID, PDTFactory.getCurrentLocalDateTime (), System.nanoTime (), aLeaseDuration);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param sUserID
+   *        The ID of the user owning the lock. May neither be <code>null</code> nor empty.
+   * @param aLockTime
+   *        The time the object was locked. May not be <code>null</code>.
+   * @param nNowNanos
+   *        The current value of the monotonic time source, the lease is based upon.
+   * @param aLeaseDuration
+   *        The duration of the lease, starting now. May be <code>null</code> for a lock that never
+   *        expires.
+   */
+  LockInfo (@NonNull @Nonempty final String sUserID,
+            @NonNull final LocalDateTime aLockTime,
+            final long nNowNanos,
+            @Nullable final Duration aLeaseDuration)
+  {
+    ValueEnforcer.notNull (aLockTime, "LockTime");
+    if (aLeaseDuration != null)
+      ValueEnforcer.isFalse (aLeaseDuration.isNegative (), "LeaseDuration may not be negative");
     m_sUserID = ValueEnforcer.notEmpty (sUserID, "UserID");
-    m_aLockTime = PDTFactory.getCurrentLocalDateTime ();
+    m_aLockTime = aLockTime;
+    if (aLeaseDuration == null)
+    {
+      m_aExpirationTime = null;
+      m_nExpirationNanos = 0;
+    }
+    else
+    {
+      m_aExpirationTime = PDTFactory.getCurrentLocalDateTime ().plus (aLeaseDuration);
+      m_nExpirationNanos = nNowNanos + aLeaseDuration.toNanos ();
+    }
   }
 
   @NonNull
@@ -57,6 +112,40 @@ public final class LockInfo implements ILockInfo
     return m_aLockTime;
   }
 
+  @Nullable
+  public LocalDateTime getLockExpirationDateTime ()
+  {
+    return m_aExpirationTime;
+  }
+
+  @Override
+  public boolean isLockExpired (final long nNanoTime)
+  {
+    // Overflow safe comparison as recommended by System.nanoTime
+    return m_aExpirationTime != null && nNanoTime - m_nExpirationNanos >= 0;
+  }
+
+  /**
+   * Create a copy of this lock with a new lease. The user and the original lock time are retained.
+   *
+   * @param aLeaseDuration
+   *        The duration of the new lease, starting now. May be <code>null</code> for a lock that
+   *        never expires.
+   * @return The new lock information. Never <code>null</code>.
+   * @since 10.3.1
+   */
+  @NonNull
+  public LockInfo getWithRenewedLease (@Nullable final Duration aLeaseDuration)
+  {
+    return getWithRenewedLease (aLeaseDuration, System.nanoTime ());
+  }
+
+  @NonNull
+  LockInfo getWithRenewedLease (@Nullable final Duration aLeaseDuration, final long nNowNanos)
+  {
+    return new LockInfo (m_sUserID, m_aLockTime, nNowNanos, aLeaseDuration);
+  }
+
   @Override
   public boolean equals (final Object o)
   {
@@ -65,18 +154,28 @@ public final class LockInfo implements ILockInfo
     if (o == null || !getClass ().equals (o.getClass ()))
       return false;
     final LockInfo rhs = (LockInfo) o;
-    return m_sUserID.equals (rhs.m_sUserID) && m_aLockTime.equals (rhs.m_aLockTime);
+    return m_sUserID.equals (rhs.m_sUserID) &&
+           m_aLockTime.equals (rhs.m_aLockTime) &&
+           EqualsHelper.equals (m_aExpirationTime, rhs.m_aExpirationTime) &&
+           m_nExpirationNanos == rhs.m_nExpirationNanos;
   }
 
   @Override
   public int hashCode ()
   {
-    return new HashCodeGenerator (this).append (m_sUserID).append (m_aLockTime).getHashCode ();
+    return new HashCodeGenerator (this).append (m_sUserID)
+                                       .append (m_aLockTime)
+                                       .append (m_aExpirationTime)
+                                       .append (m_nExpirationNanos)
+                                       .getHashCode ();
   }
 
   @Override
   public String toString ()
   {
-    return new ToStringGenerator (this).append ("userID", m_sUserID).append ("lockTime", m_aLockTime).getToString ();
+    return new ToStringGenerator (this).append ("userID", m_sUserID)
+                                       .append ("lockTime", m_aLockTime)
+                                       .appendIfNotNull ("expirationTime", m_aExpirationTime)
+                                       .getToString ();
   }
 }
@@ -0,0 +1,236 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.photon.security.lock;
+
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiPredicate;
+import java.util.function.LongSupplier;
+
+import org.jspecify.annotations.NonNull;
+
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.tostring.ToStringGenerator;
+
+/**
+ * A hashed timer wheel for the lease expiration of {@link DefaultLockManager}. Each scheduled lock
+ * is put into the bucket of the tick in which its lease ends, so that a sweep only needs to look at
+ * the buckets of the ticks that passed since the last sweep - independent of the total number of
+ * locks. Leases longer than one revolution of the wheel simply stay in their bucket until their
+ * tick is reached.<br>
+ * The wheel does not own a thread. It is advanced by calling {@link #advance(BiPredicate)}, which
+ * is cheap if no tick passed and which only ever runs in one thread at a time.
+ *
+ * @author Philip Helger
+ * @param <IDTYPE>
+ *        The type of the locked objects.
+ * @since 10.3.1
+ */
+@ThreadSafe
+final class LockLeaseTimerWheel <IDTYPE>
+{
+  /** The default duration of a single tick */
+  public static final Duration DEFAULT_TICK_DURATION = Duration.ofSeconds (1);
+  /** The default number of buckets. Must be a power of 2. */
+  public static final int DEFAULT_BUCKET_COUNT = 512;
+
+  /**
+   * A single scheduled lease.
+   *
+   * @author Philip Helger
+   * @param <IDTYPE>
+   *        The type of the locked objects.
+   */
+  private static final class Entry <IDTYPE>
+  {
+    private final IDTYPE m_aObjID;
+    private final ILockInfo m_aLockInfo;
+    private final long m_nDeadlineTick;
+
+    Entry (@NonNull final IDTYPE aObjID, @NonNull final ILockInfo aLockInfo, final long nDeadlineTick)
+    {
+      m_aObjID = aObjID;
+      m_aLockInfo = aLockInfo;
+      m_nDeadlineTick = nDeadlineTick;
+    }
+  }
+
+  private final long m_nTickNanos;
+  private final int m_nMask;
+  private final Queue <Entry <IDTYPE>> [] m_aBuckets;
+  private final LongSupplier m_aNanoTimeSupplier;
+  private final long m_nStartNanos;
+  // The next tick that was not yet processed
+  private final AtomicLong m_aNextTick = new AtomicLong (0);
+  private final AtomicInteger m_aSize = new AtomicInteger (0);
+  private final AtomicBoolean m_aAdvancing = new AtomicBoolean (false);
+
+  LockLeaseTimerWheel ()
+  {
+    this (DEFAULT_TICK_DURATION, DEFAULT_BUCKET_COUNT, System::nanoTime);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param aTickDuration
+   *        The duration of a single tick. Must be positive.
+   * @param nBucketCount
+   *        The number of buckets. Must be a power of 2.
+   * @param aNanoTimeSupplier
+   *        The monotonic time source, usually {@link System#nanoTime()}. May not be
+   *        <code>null</code>.
+   */
+  @SuppressWarnings ("unchecked")
+  LockLeaseTimerWheel (@NonNull final Duration aTickDuration,
+                       @Nonnegative final int nBucketCount,
+                       @NonNull final LongSupplier aNanoTimeSupplier)
+  {
+    ValueEnforcer.notNull (aTickDuration, "TickDuration");
+    ValueEnforcer.notNull (aNanoTimeSupplier, "NanoTimeSupplier");
+    ValueEnforcer.isTrue (aTickDuration.toNanos () > 0, "TickDuration must be positive");
+    ValueEnforcer.isTrue (nBucketCount > 0 && Integer.bitCount (nBucketCount) == 1,
+                          "BucketCount must be a power of 2");
+    m_nTickNanos = aTickDuration.toNanos ();
+    m_nMask = nBucketCount - 1;
+    m_aBuckets = new Queue [nBucketCount];
+    for (int i = 0; i < nBucketCount; ++i)
+      m_aBuckets[i] = new ConcurrentLinkedQueue <> ();
+    m_aNanoTimeSupplier = aNanoTimeSupplier;
+    m_nStartNanos = aNanoTimeSupplier.getAsLong ();
+  }
+
+  private long _getTick (final long nNanos)
+  {
+    return (nNanos - m_nStartNanos) / m_nTickNanos;
+  }
+
+  @NonNull
+  private Queue <Entry <IDTYPE>> _getBucket (final long nTick)
+  {
+    return m_aBuckets[(int) (nTick & m_nMask)];
+  }
+
+  /**
+   * Schedule the expiration of a lease.
+   *
+   * @param aObjID
+   *        The locked object ID. May not be <code>null</code>.
+   * @param aLockInfo
+   *        The lock with the lease. May not be <code>null</code>.
+   * @param aLeaseDuration
+   *        The duration of the lease. May not be <code>null</code>.
+   */
+  void schedule (@NonNull final IDTYPE aObjID,
+                 @NonNull final ILockInfo aLockInfo,
+                 @NonNull final Duration aLeaseDuration)
+  {
+    // Round up, so that a lease is never processed before it ended
+    final long nDeadlineTick = Math.max (_getTick (m_aNanoTimeSupplier.getAsLong () + aLeaseDuration.toNanos ()) + 1,
+                                         m_aNextTick.get ());
+    _getBucket (nDeadlineTick).add (new Entry <> (aObjID, aLockInfo, nDeadlineTick));
+    m_aSize.incrementAndGet ();
+  }
+
+  /**
+   * Process all ticks that passed since the last call. If another thread is currently advancing the
+   * wheel, this method returns immediately.
+   *
+   * @param aExpirer
+   *        The callback invoked for each lease whose tick passed. It must return <code>true</code>
+   *        if the lease was handled (expired, renewed or unlocked in between) and
+   *        <code>false</code> if the lease should be checked again in the next tick.
+   * @return The number of leases handled.
+   */
+  @Nonnegative
+  int advance (@NonNull final BiPredicate <IDTYPE, ILockInfo> aExpirer)
+  {
+    final long nCurrentTick = _getTick (m_aNanoTimeSupplier.getAsLong ());
+    if (nCurrentTick < m_aNextTick.get () || m_aSize.get () == 0)
+      return 0;
+    if (!m_aAdvancing.compareAndSet (false, true))
+      return 0;
+
+    int nHandled = 0;
+    try
+    {
+      long nTick = m_aNextTick.get ();
+      // At most one revolution needs to be looked at
+      final long nLastTick = Math.min (nCurrentTick, nTick + m_nMask);
+      for (; nTick <= nLastTick; ++nTick)
+      {
+        final Queue <Entry <IDTYPE>> aBucket = _getBucket (nTick);
+        // Only look at the entries present now - rescheduled entries are added at the end
+        int nRemaining = aBucket.size ();
+        Entry <IDTYPE> aEntry;
+        while (nRemaining-- > 0 && (aEntry = aBucket.poll ()) != null)
+        {
+          if (aEntry.m_nDeadlineTick > nCurrentTick)
+          {
+            // Lease longer than one revolution
+            aBucket.add (aEntry);
+          }
+          else
+            if (aExpirer.test (aEntry.m_aObjID, aEntry.m_aLockInfo))
+            {
+              m_aSize.decrementAndGet ();
+              nHandled++;
+            }
+            else
+            {
+              // Not yet expired according to the lock itself - check again in the next tick
+              _getBucket (nCurrentTick + 1).add (new Entry <> (aEntry.m_aObjID,
+                                                               aEntry.m_aLockInfo,
+                                                               nCurrentTick + 1));
+            }
+        }
+      }
+      m_aNextTick.set (nCurrentTick + 1);
+    }
+    finally
+    {
+      m_aAdvancing.set (false);
+    }
+    return nHandled;
+  }
+
+  /**
+   * @return The number of scheduled leases, including the ones of locks that were already unlocked
+   *         or renewed and that are discarded with the next sweep.
+   */
+  @Nonnegative
+  int size ()
+  {
+    return m_aSize.get ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("TickNanos", m_nTickNanos)
+                                       .append ("BucketCount", m_aBuckets.length)
+                                       .append ("NextTick", m_aNextTick)
+                                       .append ("Size", m_aSize)
+                                       .getToString ();
+  }
+}
@@ -19,6 +19,9 @@ package com.helger.photon.security.login;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.time.Duration;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.jspecify.annotations.NonNull;
 import org.jspecify.annotations.Nullable;
@@ -27,7 +30,6 @@ import org.slf4j.LoggerFactory;
 
 import com.helger.annotation.Nonempty;
 import com.helger.annotation.Nonnegative;
-import com.helger.annotation.concurrent.GuardedBy;
 import com.helger.annotation.concurrent.ThreadSafe;
 import com.helger.annotation.style.ReturnsMutableCopy;
 import com.helger.annotation.style.ReturnsMutableObject;
@@ -36,7 +38,7 @@ import com.helger.base.callback.CallbackList;
 import com.helger.base.enforce.ValueEnforcer;
 import com.helger.base.state.EChange;
 import com.helger.base.tostring.ToStringGenerator;
-import com.helger.collection.commons.CommonsHashMap;
+import com.helger.collection.commons.CommonsConcurrentHashMap;
 import com.helger.collection.commons.ICommonsCollection;
 import com.helger.collection.commons.ICommonsMap;
 import com.helger.collection.commons.ICommonsSet;
@@ -57,7 +59,10 @@ import com.helger.web.scope.session.ISessionWebScopeActivationHandler;
 import com.helger.web.scope.singleton.AbstractSessionWebSingleton;
 
 /**
- * This class manages all logged-in users.
+ * This class manages all logged-in users. The registry of logged-in users is a
+ * concurrent map, so that login and logout of different users don't block each
+ * other and all read accesses are lock-free. Callbacks are never invoked while
+ * holding a lock.
  *
  * @author Philip Helger
  */
@@ -73,9 +78,10 @@ public final class LoggedInUserManager extends AbstractGlobalSingleton implement
   public static final class InternalSessionUserHolder extends AbstractSessionWebSingleton implements
                                                       ISessionWebScopeActivationHandler
   {
-    private IUser m_aUser;
-    private String m_sUserID;
-    private LoggedInUserManager m_aOwningMgr;
+    // Written under the write lock, read without a lock
+    private volatile IUser m_aUser;
+    private volatile String m_sUserID;
+    private volatile LoggedInUserManager m_aOwningMgr;
 
     @Deprecated (forRemoval = false)
     @UsedViaReflection
@@ -139,24 +145,40 @@ public final class LoggedInUserManager extends AbstractGlobalSingleton implement
       return m_sUserID;
     }
 
-    private void _setUser (@NonNull final LoggedInUserManager aOwningMgr, @NonNull final IUser aUser)
+    /**
+     * Atomically set the user of this session, if none is set yet.
+     *
+     * @param aOwningMgr
+     *        The owning manager. May not be <code>null</code>.
+     * @param aUser
+     *        The user to set. May not be <code>null</code>.
+     * @return <code>true</code> if the user was set, <code>false</code> if this session already has
+     *         a user.
+     */
+    private boolean _trySetUser (@NonNull final LoggedInUserManager aOwningMgr, @NonNull final IUser aUser)
     {
       ValueEnforcer.notNull (aOwningMgr, "OwningMgr");
       ValueEnforcer.notNull (aUser, "User");
-      if (m_aUser != null)
-        throw new IllegalStateException ("Session already has a user!");
 
-      m_aOwningMgr = aOwningMgr;
-      m_aUser = aUser;
-      m_sUserID = aUser.getID ();
+      return m_aRWLock.writeLockedBoolean ( () -> {
+        if (m_aUser != null)
+          return false;
+
+        m_aOwningMgr = aOwningMgr;
+        m_aUser = aUser;
+        m_sUserID = aUser.getID ();
+        return true;
+      });
     }
 
     private void _reset ()
     {
       // Reset to avoid access while or after logout
-      m_aUser = null;
-      m_sUserID = null;
-      m_aOwningMgr = null;
+      m_aRWLock.writeLocked ( () -> {
+        m_aUser = null;
+        m_sUserID = null;
+        m_aOwningMgr = null;
+      });
     }
 
     @Override
@@ -165,11 +187,20 @@ public final class LoggedInUserManager extends AbstractGlobalSingleton implement
       // Called when the session is destroyed
       // -> Ensure the user is logged out!
 
-      // Remember stuff
-      final LoggedInUserManager aOwningMgr = m_aOwningMgr;
-      final String sUserID = m_sUserID;
-
-      _reset ();
+      // Remember stuff and reset in one step
+      final LoggedInUserManager aOwningMgr;
+      final String sUserID;
+      m_aRWLock.writeLock ().lock ();
+      try
+      {
+        aOwningMgr = m_aOwningMgr;
+        sUserID = m_sUserID;
+        _reset ();
+      }
+      finally
+      {
+        m_aRWLock.writeLock ().unlock ();
+      }
 
       // Finally logout the user
       if (aOwningMgr != null)
@@ -205,13 +236,16 @@ public final class LoggedInUserManager extends AbstractGlobalSingleton implement
 
   private static final Logger LOGGER = LoggerFactory.getLogger (LoggedInUserManager.class);
 
-  // Set of logged in user IDs
-  @GuardedBy ("m_aRWLock")
-  private final ICommonsMap <String, LoginInfo> m_aLoggedInUsers = new CommonsHashMap <> ();
+  // Map from logged in user ID to login details
+  private final ICommonsMap <String, LoginInfo> m_aLoggedInUsers = new CommonsConcurrentHashMap <> ();
+  // Unmodifiable live view on the logged in user IDs
+  private final Set <String> m_aLoggedInUserIDsView = Collections.unmodifiableSet (m_aLoggedInUsers.keySet ());
+  // Maintained on every successful add and remove, to avoid size () on the map
+  private final AtomicInteger m_aLoggedInUserCount = new AtomicInteger (0);
   private final CallbackList <IUserLoginCallback> m_aUserLoginCallbacks = new CallbackList <> ();
   private final CallbackList <IUserLogoutCallback> m_aUserLogoutCallbacks = new CallbackList <> ();
-  private boolean m_bLogoutAlreadyLoggedInUser = DEFAULT_LOGOUT_ALREADY_LOGGED_IN_USER;
-  private boolean m_bAnonymousLogging = DEFAULT_ANONYMOUS_LOGGING;
+  private volatile boolean m_bLogoutAlreadyLoggedInUser = DEFAULT_LOGOUT_ALREADY_LOGGED_IN_USER;
+  private volatile boolean m_bAnonymousLogging = DEFAULT_ANONYMOUS_LOGGING;
 
   @Deprecated (forRemoval = false)
   @UsedViaReflection
@@ -256,22 +290,22 @@ public final class LoggedInUserManager extends AbstractGlobalSingleton implement
    */
   public boolean isLogoutAlreadyLoggedInUser ()
   {
-    return m_aRWLock.readLockedBoolean ( () -> m_bLogoutAlreadyLoggedInUser);
+    return m_bLogoutAlreadyLoggedInUser;
   }
 
   public void setLogoutAlreadyLoggedInUser (final boolean bLogoutAlreadyLoggedInUser)
   {
-    m_aRWLock.writeLocked ( () -> m_bLogoutAlreadyLoggedInUser = bLogoutAlreadyLoggedInUser);
+    m_bLogoutAlreadyLoggedInUser = bLogoutAlreadyLoggedInUser;
   }
 
   public boolean isAnonymousLogging ()
   {
-    return m_aRWLock.readLockedBoolean ( () -> m_bAnonymousLogging);
+    return m_bAnonymousLogging;
   }
 
   public void setAnonymousLogging (final boolean bAnonymousLogging)
   {
-    m_aRWLock.writeLocked ( () -> m_bAnonymousLogging = bAnonymousLogging);
+    m_bAnonymousLogging = bAnonymousLogging;
   }
 
   @NonNull
@@ -289,13 +323,35 @@ public final class LoggedInUserManager extends AbstractGlobalSingleton implement
     return eLoginResult;
   }
 
+  @NonNull
+  private ELoginResult _onSessionAlreadyHasUser (@NonNull final InternalSessionUserHolder aSUH,
+                                                 @NonNull @Nonempty final String sUserID)
+  {
+    LOGGER.warn ("The session user holder already has the user ID '" +
+                 aSUH._getUserID () +
+                 "' so the new ID '" +
+                 sUserID +
+                 "' will not be set!");
+    AuditHelper.onAuditExecuteFailure ("login", sUserID, "session-already-has-user");
+    return _onLoginError (sUserID, ELoginResult.SESSION_ALREADY_HAS_USER);
+  }
+
   void internalSessionActivateUser (@NonNull final IUser aUser, @NonNull final ISessionScope aSessionScope)
   {
     ValueEnforcer.notNull (aUser, "User");
     ValueEnforcer.notNull (aSessionScope, "SessionScope");
 
     final LoginInfo aInfo = new LoginInfo (aUser, aSessionScope);
-    m_aRWLock.writeLocked ( () -> m_aLoggedInUsers.put (aUser.getID (), aInfo));
+    if (m_aLoggedInUsers.put (aUser.getID (), aInfo) == null)
+      m_aLoggedInUserCount.incrementAndGet ();
+  }
+
+  private boolean _removeLoginInfo (@NonNull final String sUserID, @NonNull final LoginInfo aInfo)
+  {
+    if (!m_aLoggedInUsers.remove (sUserID, aInfo))
+      return false;
+    m_aLoggedInUserCount.decrementAndGet ();
+    return true;
   }
 
   /**
@@ -408,9 +464,8 @@ public final class LoggedInUserManager extends AbstractGlobalSingleton implement
     }
 
     boolean bLoggedOutUser = false;
-    LoginInfo aInfo;
-    m_aRWLock.writeLock ().lock ();
-    try
+    final LoginInfo aInfo = new LoginInfo (aUser, ScopeManager.getSessionScope ());
+    while (true)
     {
       if (m_aLoggedInUsers.containsKey (sUserID))
       {
@@ -423,11 +478,6 @@ public final class LoggedInUserManager extends AbstractGlobalSingleton implement
         }
         // Explicitly log out
         logoutUser (sUserID);
-
-        // Just a short check
-        if (m_aLoggedInUsers.containsKey (sUserID))
-          throw new IllegalStateException ("Failed to logout '" + sUserID + "'");
-
         AuditHelper.onAuditExecuteSuccess ("logout-in-login", sUserID);
         bLoggedOutUser = true;
       }
@@ -436,21 +486,22 @@ public final class LoggedInUserManager extends AbstractGlobalSingleton implement
       if (aSUH._hasUser ())
       {
         // This session already has a user
-        LOGGER.warn ("The session user holder already has the user ID '" +
-                     aSUH._getUserID () +
-                     "' so the new ID '" +
-                     sUserID +
-                     "' will not be set!");
-        AuditHelper.onAuditExecuteFailure ("login", sUserID, "session-already-has-user");
-        return _onLoginError (sUserID, ELoginResult.SESSION_ALREADY_HAS_USER);
+        return _onSessionAlreadyHasUser (aSUH, sUserID);
+      }
+
+      // Atomic per user - if another thread logged in the same user in the
+      // meantime, start over
+      if (m_aLoggedInUsers.putIfAbsent (sUserID, aInfo) == null)
+      {
+        m_aLoggedInUserCount.incrementAndGet ();
+        if (!aSUH._trySetUser (this, aUser))
+        {
+          // Concurrent login in the same session - undo the registration
+          _removeLoginInfo (sUserID, aInfo);
+          return _onSessionAlreadyHasUser (aSUH, sUserID);
+        }
+        break;
       }
-      aInfo = new LoginInfo (aUser, ScopeManager.getSessionScope ());
-      m_aLoggedInUsers.put (sUserID, aInfo);
-      aSUH._setUser (this, aUser);
-    }
-    finally
-    {
-      m_aRWLock.writeLock ().unlock ();
     }
     LOGGER.info ("Logged in " +
                  _getUserIDLogText (sUserID) +
@@ -481,11 +532,9 @@ public final class LoggedInUserManager extends AbstractGlobalSingleton implement
     ValueEnforcer.notNull (aNewSession, "NewSession");
 
     final String sOldID = aOldSession.getID ();
-    m_aRWLock.writeLocked ( () -> {
-      for (final LoginInfo aInfo : m_aLoggedInUsers.values ())
-        if (aInfo.getSessionScope ().getID ().equals (sOldID))
-          aInfo.internalSetSessionScope (aNewSession);
-    });
+    for (final LoginInfo aInfo : m_aLoggedInUsers.values ())
+      if (aInfo.getSessionScope ().getID ().equals (sOldID))
+        aInfo.internalSetSessionScope (aNewSession);
   }
 
   /**
@@ -498,30 +547,22 @@ public final class LoggedInUserManager extends AbstractGlobalSingleton implement
   @NonNull
   public EChange logoutUser (@Nullable final String sUserID)
   {
-    final LoginInfo aInfo;
-    m_aRWLock.writeLock ().lock ();
-    try
+    // Only the thread that removes the entry performs the logout
+    final LoginInfo aInfo = sUserID == null ? null : m_aLoggedInUsers.get (sUserID);
+    if (aInfo == null || !_removeLoginInfo (sUserID, aInfo))
     {
-      aInfo = m_aLoggedInUsers.remove (sUserID);
-      if (aInfo == null)
-      {
-        AuditHelper.onAuditExecuteSuccess ("logout", sUserID, "user-not-logged-in");
-        return EChange.UNCHANGED;
-      }
-      // Ensure that the SessionUser is empty. This is only relevant if user is
-      // manually logged out without destructing the underlying session
-      final InternalSessionUserHolder aSUH = InternalSessionUserHolder._getInstanceIfInstantiatedInScope (aInfo.getSessionScope ());
-      if (aSUH != null)
-        aSUH._reset ();
-
-      // Set logout time - in case somebody has a strong reference to the
-      // LoginInfo object
-      aInfo.setLogoutDTNow ();
-    }
-    finally
-    {
-      m_aRWLock.writeLock ().unlock ();
+      AuditHelper.onAuditExecuteSuccess ("logout", sUserID, "user-not-logged-in");
+      return EChange.UNCHANGED;
     }
+    // Ensure that the SessionUser is empty. This is only relevant if user is
+    // manually logged out without destructing the underlying session
+    final InternalSessionUserHolder aSUH = InternalSessionUserHolder._getInstanceIfInstantiatedInScope (aInfo.getSessionScope ());
+    if (aSUH != null)
+      aSUH._reset ();
+
+    // Set logout time - in case somebody has a strong reference to the
+    // LoginInfo object
+    aInfo.setLogoutDTNow ();
     LOGGER.info ("Logged out " +
                  _getUserIDLogText (sUserID) +
                  " after " +
@@ -554,17 +595,31 @@ public final class LoggedInUserManager extends AbstractGlobalSingleton implement
    */
   public boolean isUserLoggedIn (@Nullable final String sUserID)
   {
-    return m_aRWLock.readLockedBoolean ( () -> m_aLoggedInUsers.containsKey (sUserID));
+    return sUserID != null && m_aLoggedInUsers.containsKey (sUserID);
   }
 
   /**
    * @return A non-<code>null</code> but maybe empty set with all currently logged in user IDs.
+   * @see #getLoggedInUserIDsView()
    */
   @NonNull
   @ReturnsMutableCopy
   public ICommonsSet <String> getAllLoggedInUserIDs ()
   {
-    return m_aRWLock.readLockedGet (m_aLoggedInUsers::copyOfKeySet);
+    return m_aLoggedInUsers.copyOfKeySet ();
+  }
+
+  /**
+   * @return A non-<code>null</code>, unmodifiable live view on the IDs of all currently logged in
+   *         users. It reflects concurrent logins and logouts and never throws a
+   *         {@link java.util.ConcurrentModificationException} when iterated. Use this instead of
+   *         {@link #getAllLoggedInUserIDs()} if no copy is needed.
+   * @since 10.3.1
+   */
+  @NonNull
+  public Set <String> getLoggedInUserIDsView ()
+  {
+    return m_aLoggedInUserIDsView;
   }
 
   /**
@@ -577,7 +632,7 @@ public final class LoggedInUserManager extends AbstractGlobalSingleton implement
   @Nullable
   public LoginInfo getLoginInfo (@Nullable final String sUserID)
   {
-    return m_aRWLock.readLockedGet ( () -> m_aLoggedInUsers.get (sUserID));
+    return sUserID == null ? null : m_aLoggedInUsers.get (sUserID);
   }
 
   /**
@@ -588,7 +643,7 @@ public final class LoggedInUserManager extends AbstractGlobalSingleton implement
   @ReturnsMutableCopy
   public ICommonsCollection <LoginInfo> getAllLoginInfos ()
   {
-    return m_aRWLock.readLockedGet (m_aLoggedInUsers::copyOfValues);
+    return m_aLoggedInUsers.copyOfValues ();
   }
 
   /**
@@ -597,7 +652,7 @@ public final class LoggedInUserManager extends AbstractGlobalSingleton implement
   @Nonnegative
   public int getLoggedInUserCount ()
   {
-    return m_aRWLock.readLockedInt (m_aLoggedInUsers::size);
+    return m_aLoggedInUserCount.get ();
   }
 
   /**
@@ -46,6 +46,7 @@ import com.helger.photon.security.user.IUserManager;
 import com.helger.photon.security.user.UserManager;
 import com.helger.photon.security.usergroup.IUserGroupManager;
 import com.helger.photon.security.usergroup.UserGroupManager;
+import com.helger.photon.security.util.EffectiveUserPermissionCache;
 import com.helger.scope.IScope;
 import com.helger.scope.singleton.AbstractGlobalSingleton;
 
@@ -119,6 +120,20 @@ public final class PhotonSecurityManager extends AbstractGlobalSingleton
      */
     @NonNull
     IUserTokenManager createUserTokenMgr (@NonNull final IUserManager aUserMgr) throws Exception;
+
+    /**
+     * @param aUserGroupMgr
+     *        The user group manager. Never <code>null</code>.
+     * @return A new instance of {@link EffectiveUserPermissionCache}. By
+     *         default with the
+     *         {@link EffectiveUserPermissionCache#DEFAULT_TIME_TO_LIVE}.
+     * @since 10.3.1
+     */
+    @NonNull
+    default EffectiveUserPermissionCache createEffectivePermissionCache (@NonNull final IUserGroupManager aUserGroupMgr)
+    {
+      return new EffectiveUserPermissionCache (aUserGroupMgr);
+    }
   }
 
   /**
@@ -221,6 +236,7 @@ public final class PhotonSecurityManager extends AbstractGlobalSingleton
   private IRoleManager m_aRoleMgr;
   private IUserGroupManager m_aUserGroupMgr;
   private IUserTokenManager m_aUserTokenMgr;
+  private EffectiveUserPermissionCache m_aEffectivePermissionCache;
 
   @Deprecated (forRemoval = false)
   @UsedViaReflection
@@ -263,6 +279,7 @@ public final class PhotonSecurityManager extends AbstractGlobalSingleton
       m_aRoleMgr = s_aFactory.createRoleMgr ();
       m_aUserGroupMgr = s_aFactory.createUserGroupMgr (m_aUserMgr, m_aRoleMgr);
       m_aUserTokenMgr = s_aFactory.createUserTokenMgr (m_aUserMgr);
+      m_aEffectivePermissionCache = s_aFactory.createEffectivePermissionCache (m_aUserGroupMgr);
       INITED.set (true);
 
       // Init callbacks after all managers
@@ -340,4 +357,15 @@ public final class PhotonSecurityManager extends AbstractGlobalSingleton
   {
     return getInstance ().m_aUserTokenMgr;
   }
+
+  /**
+   * @return The cache for the effective permissions of all users, that is
+   *         automatically kept in sync with the local user group manager.
+   * @since 10.3.1
+   */
+  @NonNull
+  public static EffectiveUserPermissionCache getEffectivePermissionCache ()
+  {
+    return getInstance ().m_aEffectivePermissionCache;
+  }
 }
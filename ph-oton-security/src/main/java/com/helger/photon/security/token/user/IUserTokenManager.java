@@ -29,6 +29,7 @@ import com.helger.base.callback.CallbackList;
 import com.helger.base.state.EChange;
 import com.helger.collection.commons.ICommonsList;
 import com.helger.photon.io.mgr.IPhotonManager;
+import com.helger.photon.security.token.accesstoken.IAccessToken;
 import com.helger.photon.security.user.IUser;
 
 /**
@@ -155,11 +156,16 @@ public interface IUserTokenManager extends IPhotonManager <IUserToken>
   IUserToken getUserTokenOfID (@Nullable String sUserTokenID);
 
   /**
-   * Find the user token that has the provided access token string.
+   * Find the user token that has the provided access token string as its
+   * active access token. Deleted user tokens and user tokens whose active
+   * access token is not valid now (see {@link IAccessToken#isValidNow()}) are
+   * not returned. Use {@link #isAccessTokenUsed(String)} to check if a token
+   * string was ever used.
    *
    * @param sTokenString
    *        The token string to search.
-   * @return <code>null</code> if no user token uses this access token string.
+   * @return <code>null</code> if no non-deleted user token uses this access
+   *         token string as its currently valid active access token.
    */
   @Nullable
   IUserToken getUserTokenOfTokenString (@Nullable String sTokenString);
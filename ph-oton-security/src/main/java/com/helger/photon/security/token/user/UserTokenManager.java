@@ -32,8 +32,10 @@ import com.helger.collection.commons.ICommonsList;
 import com.helger.dao.DAOException;
 import com.helger.photon.audit.AuditHelper;
 import com.helger.photon.io.dao.AbstractPhotonMapBasedWALDAO;
+import com.helger.photon.io.dao.DAOSecondaryIndex;
 import com.helger.photon.security.object.BusinessObjectHelper;
 import com.helger.photon.security.token.accesstoken.AccessToken;
+import com.helger.photon.security.token.accesstoken.IAccessToken;
 import com.helger.photon.security.token.object.AccessTokenList;
 import com.helger.photon.security.user.IUser;
 
@@ -45,10 +47,20 @@ import com.helger.photon.security.user.IUser;
 public class UserTokenManager extends AbstractPhotonMapBasedWALDAO <IUserToken, UserToken> implements IUserTokenManager
 {
   private final CallbackList <IUserTokenModificationCallback> m_aCallbacks = new CallbackList <> ();
+  // Active token string of all non-deleted user tokens
+  private final DAOSecondaryIndex <String, IUserToken> m_aActiveTokenIndex;
+  // All token strings ever used, including revoked ones
+  private final DAOSecondaryIndex <String, IUserToken> m_aUsedTokenIndex;
 
   public UserTokenManager (@NonNull @Nonempty final String sFilename) throws DAOException
   {
     super (UserToken.class, sFilename);
+    m_aActiveTokenIndex = registerIndex ("active-token-string",
+                                         x -> x.isDeleted () ? null : x.getAccessTokenList ().getActiveTokenString ());
+    m_aUsedTokenIndex = registerMultiKeyIndex ("used-token-string",
+                                               x -> x.getAccessTokenList ()
+                                                     .getAllAccessTokens ()
+                                                     .getAllMapped (IAccessToken::getTokenString));
   }
 
   @NonNull
@@ -248,7 +260,16 @@ public class UserTokenManager extends AbstractPhotonMapBasedWALDAO <IUserToken,
     if (StringHelper.isEmpty (sTokenString))
       return null;
 
-    return findFirst (x -> sTokenString.equals (x.getAccessTokenList ().getActiveTokenString ()));
+    return m_aRWLock.readLockedGet ( () -> {
+      final IUserToken aUserToken = m_aActiveTokenIndex.getFirst (sTokenString);
+      if (aUserToken == null)
+        return null;
+
+      // Expired tokens are filtered here, as removing them from the index would
+      // require the write lock
+      final IAccessToken aActiveAccessToken = aUserToken.getAccessTokenList ().getActiveAccessToken ();
+      return aActiveAccessToken != null && aActiveAccessToken.isValidNow () ? aUserToken : null;
+    });
   }
 
   public boolean isAccessTokenUsed (@Nullable final String sTokenString)
@@ -256,7 +277,6 @@ public class UserTokenManager extends AbstractPhotonMapBasedWALDAO <IUserToken,
     if (StringHelper.isEmpty (sTokenString))
       return false;
 
-    return containsAny (x -> x.getAccessTokenList ()
-                              .findFirstAccessToken (y -> y.getTokenString ().equals (sTokenString)) != null);
+    return m_aRWLock.readLockedBoolean ( () -> m_aUsedTokenIndex.containsKey (sTokenString));
   }
 }
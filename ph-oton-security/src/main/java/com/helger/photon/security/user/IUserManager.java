@@ -16,6 +16,7 @@
  */
 package com.helger.photon.security.user;
 
+import java.util.Collection;
 import java.util.Locale;
 import java.util.Map;
 
@@ -28,6 +29,8 @@ import com.helger.annotation.style.ReturnsMutableCopy;
 import com.helger.annotation.style.ReturnsMutableObject;
 import com.helger.base.callback.CallbackList;
 import com.helger.base.state.EChange;
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.CommonsLinkedHashSet;
 import com.helger.collection.commons.ICommonsList;
 import com.helger.photon.io.mgr.IPhotonManager;
 import com.helger.photon.security.password.GlobalPasswordSettings;
@@ -141,6 +144,31 @@ public interface IUserManager extends IPhotonManager <IUser>
   @Nullable
   IUser getUserOfID (@Nullable String sUserID);
 
+  /**
+   * Get all users with the specified IDs. Unknown IDs are ignored and duplicate
+   * IDs are only resolved once.
+   *
+   * @param aUserIDs
+   *        The user IDs to resolve. May be <code>null</code>.
+   * @return The resolved users in the order of the provided IDs. Never
+   *         <code>null</code> but maybe empty.
+   * @since 10.3.1
+   */
+  @NonNull
+  @ReturnsMutableCopy
+  default ICommonsList <IUser> getUsersOfIDs (@Nullable final Collection <String> aUserIDs)
+  {
+    final ICommonsList <IUser> ret = new CommonsArrayList <> ();
+    if (aUserIDs != null)
+      for (final String sUserID : new CommonsLinkedHashSet <> (aUserIDs))
+      {
+        final IUser aUser = getUserOfID (sUserID);
+        if (aUser != null)
+          ret.add (aUser);
+      }
+    return ret;
+  }
+
   /**
    * Get the user with the specified ID but only if the user is neither deleted
    * nor disabled.
@@ -37,6 +37,7 @@ import com.helger.collection.commons.ICommonsList;
 import com.helger.dao.DAOException;
 import com.helger.photon.audit.AuditHelper;
 import com.helger.photon.io.dao.AbstractPhotonMapBasedWALDAO;
+import com.helger.photon.io.dao.DAOSecondaryIndex;
 import com.helger.photon.security.CSecurity;
 import com.helger.photon.security.object.BusinessObjectHelper;
 import com.helger.photon.security.password.GlobalPasswordSettings;
@@ -54,10 +55,31 @@ public class UserManager extends AbstractPhotonMapBasedWALDAO <IUser, User> impl
   private static final Logger LOGGER = LoggerFactory.getLogger (UserManager.class);
 
   private final CallbackList <IUserModificationCallback> m_aCallbacks = new CallbackList <> ();
+  private final DAOSecondaryIndex <String, IUser> m_aLoginNameIndex;
+  private final DAOSecondaryIndex <String, IUser> m_aEmailAddressIndex;
+  private final DAOSecondaryIndex <String, IUser> m_aEmailAddressLCIndex;
 
   public UserManager (@NonNull @Nonempty final String sFilename) throws DAOException
   {
     super (User.class, sFilename);
+    m_aLoginNameIndex = registerIndex ("login-name", IUser::getLoginName);
+    m_aEmailAddressIndex = registerIndex ("email-address", IUser::getEmailAddress);
+    m_aEmailAddressLCIndex = registerIndex ("email-address-lc", x -> _getFolded (x.getEmailAddress ()));
+  }
+
+  /**
+   * Get the case folded version of the provided string for the case insensitive email address
+   * index. Each code point is folded the same way as in {@link String#equalsIgnoreCase(String)}, so
+   * that all strings that are equal ignoring the case have the same key.
+   */
+  @Nullable
+  private static String _getFolded (@Nullable final String s)
+  {
+    if (s == null)
+      return null;
+    final StringBuilder aSB = new StringBuilder (s.length ());
+    s.codePoints ().forEach (cp -> aSB.appendCodePoint (Character.toLowerCase (Character.toUpperCase (cp))));
+    return aSB.toString ();
   }
 
   @NonNull
@@ -246,7 +268,7 @@ public class UserManager extends AbstractPhotonMapBasedWALDAO <IUser, User> impl
     if (StringHelper.isEmpty (sLoginName))
       return null;
 
-    return findFirst (x -> x.getLoginName ().equals (sLoginName));
+    return m_aRWLock.readLockedGet ( () -> m_aLoginNameIndex.getFirst (sLoginName));
   }
 
   @Nullable
@@ -255,7 +277,7 @@ public class UserManager extends AbstractPhotonMapBasedWALDAO <IUser, User> impl
     if (StringHelper.isEmpty (sEmailAddress))
       return null;
 
-    return findFirst (x -> sEmailAddress.equals (x.getEmailAddress ()));
+    return m_aRWLock.readLockedGet ( () -> m_aEmailAddressIndex.getFirst (sEmailAddress));
   }
 
   @Nullable
@@ -264,7 +286,9 @@ public class UserManager extends AbstractPhotonMapBasedWALDAO <IUser, User> impl
     if (StringHelper.isEmpty (sEmailAddress))
       return null;
 
-    return findFirst (x -> sEmailAddress.equalsIgnoreCase (x.getEmailAddress ()));
+    // Verify each candidate, to keep the exact semantics of equalsIgnoreCase
+    return m_aRWLock.readLockedGet ( () -> m_aEmailAddressLCIndex.getAll (_getFolded (sEmailAddress))
+                                                                 .findFirst (x -> sEmailAddress.equalsIgnoreCase (x.getEmailAddress ())));
   }
 
   @NonNull
@@ -0,0 +1,343 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.photon.security.util;
+
+import java.time.Duration;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import com.helger.annotation.Nonempty;
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.string.StringHelper;
+import com.helger.base.tostring.ToStringGenerator;
+import com.helger.collection.commons.CommonsHashSet;
+import com.helger.collection.commons.ICommonsSet;
+import com.helger.photon.security.role.IRoleModificationCallback;
+import com.helger.photon.security.usergroup.IUserGroup;
+import com.helger.photon.security.usergroup.IUserGroupManager;
+import com.helger.photon.security.usergroup.IUserGroupModificationCallback;
+
+/**
+ * A lazily filled cache of {@link EffectiveUserPermissions} per user ID. The
+ * snapshots are built on first access from the user group manager and are
+ * invalidated via the user group and role modification callbacks, so that
+ * only the affected users need to be recomputed.<br>
+ * Note: modifications that bypass the callbacks (like
+ * {@link IUserGroupManager#createDefaultsForTest()}) require an explicit call
+ * to {@link #invalidateAll()}.<br>
+ * As the callbacks are only invoked for modifications on the local node, each
+ * snapshot additionally expires after a configurable time to live. For
+ * managers that are shared between several nodes (e.g. JDBC based managers)
+ * the cache should be disabled by using a time to live of
+ * {@link Duration#ZERO}, so that every check reads from the user group
+ * manager.
+ *
+ * @author Philip Helger
+ * @since 10.3.1
+ */
+@ThreadSafe
+public class EffectiveUserPermissionCache
+{
+  /**
+   * The default time to live of a snapshot. This is identical to the default
+   * time to live of the JDBC read through caches.
+   */
+  public static final Duration DEFAULT_TIME_TO_LIVE = Duration.ofMinutes (5);
+
+  /**
+   * A cached snapshot together with its creation time.
+   *
+   * @author Philip Helger
+   */
+  private static final class CacheEntry
+  {
+    private final EffectiveUserPermissions m_aPermissions;
+    private final long m_nCreationNanos;
+
+    CacheEntry (@NonNull final EffectiveUserPermissions aPermissions, final long nCreationNanos)
+    {
+      m_aPermissions = aPermissions;
+      m_nCreationNanos = nCreationNanos;
+    }
+  }
+
+  private final IUserGroupManager m_aUserGroupMgr;
+  private final Duration m_aTimeToLive;
+  private final long m_nTimeToLiveNanos;
+  private final LongSupplier m_aNanoTimeSupplier;
+  // Role ID to bit index - never shrinks, so indices are stable
+  private final Map <String, Integer> m_aRoleIndex = new ConcurrentHashMap <> ();
+  private final AtomicInteger m_aNextRoleIndex = new AtomicInteger (0);
+  private final Map <String, CacheEntry> m_aCache = new ConcurrentHashMap <> ();
+  // Incremented before each invalidation
+  private final AtomicLong m_aModCount = new AtomicLong (0);
+  private final EffectiveUserPermissions m_aEmpty = EffectiveUserPermissions.createEmpty (null);
+
+  /**
+   * Constructor using the {@link #DEFAULT_TIME_TO_LIVE}. Registers the
+   * modification callbacks on the user group manager and its role manager.
+   *
+   * @param aUserGroupMgr
+   *        The user group manager to read from. May not be <code>null</code>.
+   */
+  public EffectiveUserPermissionCache (@NonNull final IUserGroupManager aUserGroupMgr)
+  {
+    this (aUserGroupMgr, DEFAULT_TIME_TO_LIVE);
+  }
+
+  /**
+   * Constructor. Registers the modification callbacks on the user group
+   * manager and its role manager.
+   *
+   * @param aUserGroupMgr
+   *        The user group manager to read from. May not be <code>null</code>.
+   * @param aTimeToLive
+   *        The maximum time a snapshot is cached. Use {@link Duration#ZERO} to
+   *        disable caching. May not be <code>null</code> or negative.
+   */
+  public EffectiveUserPermissionCache (@NonNull final IUserGroupManager aUserGroupMgr,
+                                       @NonNull final Duration aTimeToLive)
+  {
+    this (aUserGroupMgr, aTimeToLive, System::nanoTime);
+  }
+
+  EffectiveUserPermissionCache (@NonNull final IUserGroupManager aUserGroupMgr,
+                                @NonNull final Duration aTimeToLive,
+                                @NonNull final LongSupplier aNanoTimeSupplier)
+  {
+    ValueEnforcer.notNull (aUserGroupMgr, "UserGroupMgr");
+    ValueEnforcer.notNull (aTimeToLive, "TimeToLive");
+    ValueEnforcer.isFalse (aTimeToLive.isNegative (), "TimeToLive may not be negative");
+    ValueEnforcer.notNull (aNanoTimeSupplier, "NanoTimeSupplier");
+    m_aUserGroupMgr = aUserGroupMgr;
+    m_aTimeToLive = aTimeToLive;
+    m_nTimeToLiveNanos = aTimeToLive.toNanos ();
+    m_aNanoTimeSupplier = aNanoTimeSupplier;
+
+    aUserGroupMgr.userGroupModificationCallbacks ().add (new IUserGroupModificationCallback ()
+    {
+      @Override
+      public void onUserGroupCreated (@NonNull final IUserGroup aUserGroup, final boolean bPredefinedUserGroup)
+      {
+        _invalidateUserGroup (aUserGroup.getID ());
+      }
+
+      @Override
+      public void onUserGroupDeleted (@NonNull @Nonempty final String sUserGroupID)
+      {
+        _invalidateUserGroup (sUserGroupID);
+      }
+
+      @Override
+      public void onUserGroupUndeleted (@NonNull @Nonempty final String sUserGroupID)
+      {
+        _invalidateUserGroup (sUserGroupID);
+      }
+
+      @Override
+      public void onUserGroupUserAssignment (@NonNull @Nonempty final String sUserGroupID,
+                                             @NonNull @Nonempty final String sUserID,
+                                             final boolean bAssign)
+      {
+        invalidateUser (sUserID);
+      }
+
+      @Override
+      public void onUserGroupRoleAssignment (@NonNull @Nonempty final String sUserGroupID,
+                                             @NonNull @Nonempty final String sRoleID,
+                                             final boolean bAssign)
+      {
+        _invalidateUserGroup (sUserGroupID);
+      }
+    });
+    aUserGroupMgr.getRoleManager ().roleModificationCallbacks ().add (new IRoleModificationCallback ()
+    {
+      @Override
+      public void onRoleDeleted (@NonNull @Nonempty final String sRoleID)
+      {
+        _invalidateIf (x -> x.hasRole (sRoleID));
+      }
+    });
+  }
+
+  private int _getOrCreateRoleIndex (@NonNull final String sRoleID)
+  {
+    return m_aRoleIndex.computeIfAbsent (sRoleID, k -> Integer.valueOf (m_aNextRoleIndex.getAndIncrement ()))
+                       .intValue ();
+  }
+
+  private int _getRoleIndex (@NonNull final String sRoleID)
+  {
+    final Integer aIndex = m_aRoleIndex.get (sRoleID);
+    return aIndex == null ? -1 : aIndex.intValue ();
+  }
+
+  @NonNull
+  private EffectiveUserPermissions _build (@NonNull final String sUserID)
+  {
+    final ICommonsSet <String> aUserGroupIDs = new CommonsHashSet <> ();
+    final ICommonsSet <String> aRoleIDs = new CommonsHashSet <> ();
+    final BitSet aRoleBits = new BitSet ();
+    for (final IUserGroup aUserGroup : m_aUserGroupMgr.getAllUserGroupsWithAssignedUser (sUserID))
+    {
+      aUserGroupIDs.add (aUserGroup.getID ());
+      for (final String sRoleID : aUserGroup.getAllContainedRoleIDs ())
+        if (aRoleIDs.add (sRoleID))
+          aRoleBits.set (_getOrCreateRoleIndex (sRoleID));
+    }
+    return new EffectiveUserPermissions (sUserID, aUserGroupIDs, aRoleIDs, aRoleBits, this::_getRoleIndex);
+  }
+
+  /**
+   * @return The maximum time a snapshot is cached. Never <code>null</code>.
+   */
+  @NonNull
+  public final Duration getTimeToLive ()
+  {
+    return m_aTimeToLive;
+  }
+
+  /**
+   * @return <code>true</code> if snapshots are cached, <code>false</code> if
+   *         each call to {@link #getPermissions(String)} reads from the user
+   *         group manager.
+   */
+  public final boolean isEnabled ()
+  {
+    return m_nTimeToLiveNanos > 0;
+  }
+
+  /**
+   * Get the effective permissions of the provided user. The snapshot is built
+   * on first access and cached until one of the underlying user groups or roles
+   * changes or until the time to live is exceeded.
+   *
+   * @param sUserID
+   *        The user ID to query. May be <code>null</code>.
+   * @return The permission snapshot. Never <code>null</code>. If no user ID is
+   *         provided, an empty snapshot is returned.
+   */
+  @NonNull
+  public EffectiveUserPermissions getPermissions (@Nullable final String sUserID)
+  {
+    if (StringHelper.isEmpty (sUserID))
+      return m_aEmpty;
+
+    if (!isEnabled ())
+      return _build (sUserID);
+
+    final long nNow = m_aNanoTimeSupplier.getAsLong ();
+    final CacheEntry aEntry = m_aCache.get (sUserID);
+    if (aEntry != null)
+    {
+      if (nNow - aEntry.m_nCreationNanos < m_nTimeToLiveNanos)
+        return aEntry.m_aPermissions;
+      m_aCache.remove (sUserID, aEntry);
+    }
+
+    final long nModCount = m_aModCount.get ();
+    final EffectiveUserPermissions ret = _build (sUserID);
+    if (m_aModCount.get () == nModCount)
+    {
+      final CacheEntry aNewEntry = new CacheEntry (ret, nNow);
+      m_aCache.put (sUserID, aNewEntry);
+      // An invalidation may have happened in between - don't keep a stale
+      // snapshot in that case
+      if (m_aModCount.get () != nModCount)
+        m_aCache.remove (sUserID, aNewEntry);
+    }
+    return ret;
+  }
+
+  private void _invalidateIf (@NonNull final Predicate <EffectiveUserPermissions> aFilter)
+  {
+    m_aModCount.incrementAndGet ();
+    m_aCache.values ().removeIf (x -> aFilter.test (x.m_aPermissions));
+  }
+
+  private void _invalidateUserGroup (@NonNull final String sUserGroupID)
+  {
+    _invalidateIf (x -> x.isAssignedToUserGroup (sUserGroupID));
+
+    // Users of the user group that were not yet part of it
+    final IUserGroup aUserGroup = m_aUserGroupMgr.getUserGroupOfID (sUserGroupID);
+    if (aUserGroup != null)
+      for (final String sUserID : aUserGroup.getAllContainedUserIDs ())
+        invalidateUser (sUserID);
+  }
+
+  /**
+   * Remove the cached snapshot of a single user.
+   *
+   * @param sUserID
+   *        The user ID to invalidate. May be <code>null</code>.
+   */
+  public void invalidateUser (@Nullable final String sUserID)
+  {
+    if (StringHelper.isNotEmpty (sUserID))
+    {
+      m_aModCount.incrementAndGet ();
+      m_aCache.remove (sUserID);
+    }
+  }
+
+  /**
+   * Remove all cached snapshots.
+   */
+  public void invalidateAll ()
+  {
+    m_aModCount.incrementAndGet ();
+    m_aCache.clear ();
+  }
+
+  /**
+   * @return The number of currently cached user snapshots.
+   */
+  @Nonnegative
+  public int getCachedUserCount ()
+  {
+    return m_aCache.size ();
+  }
+
+  /**
+   * @return The number of distinct role IDs interned so far.
+   */
+  @Nonnegative
+  public int getInternedRoleCount ()
+  {
+    return m_aRoleIndex.size ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("TimeToLive", m_aTimeToLive)
+                                       .append ("CachedUsers", m_aCache.size ())
+                                       .append ("InternedRoles", m_aRoleIndex.size ())
+                                       .getToString ();
+  }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.photon.security.util;
+
+import java.util.BitSet;
+import java.util.function.ToIntFunction;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import com.helger.annotation.concurrent.Immutable;
+import com.helger.annotation.style.ReturnsMutableCopy;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.string.StringHelper;
+import com.helger.base.tostring.ToStringGenerator;
+import com.helger.collection.commons.CommonsHashSet;
+import com.helger.collection.commons.ICommonsSet;
+
+/**
+ * An immutable snapshot of the effective permissions of a single user, as
+ * derived from all user groups the user is assigned to. Role checks are
+ * answered from a bit set over the role indices interned by the owning
+ * {@link EffectiveUserPermissionCache}.
+ *
+ * @author Philip Helger
+ * @since 10.3.1
+ */
+@Immutable
+public final class EffectiveUserPermissions
+{
+  private final String m_sUserID;
+  private final ICommonsSet <String> m_aUserGroupIDs;
+  private final ICommonsSet <String> m_aRoleIDs;
+  private final BitSet m_aRoleBits;
+  private final ToIntFunction <String> m_aRoleIndexResolver;
+
+  EffectiveUserPermissions (@Nullable final String sUserID,
+                            @NonNull final ICommonsSet <String> aUserGroupIDs,
+                            @NonNull final ICommonsSet <String> aRoleIDs,
+                            @NonNull final BitSet aRoleBits,
+                            @NonNull final ToIntFunction <String> aRoleIndexResolver)
+  {
+    ValueEnforcer.notNull (aUserGroupIDs, "UserGroupIDs");
+    ValueEnforcer.notNull (aRoleIDs, "RoleIDs");
+    ValueEnforcer.notNull (aRoleBits, "RoleBits");
+    ValueEnforcer.notNull (aRoleIndexResolver, "RoleIndexResolver");
+    m_sUserID = sUserID;
+    m_aUserGroupIDs = aUserGroupIDs;
+    m_aRoleIDs = aRoleIDs;
+    m_aRoleBits = aRoleBits;
+    m_aRoleIndexResolver = aRoleIndexResolver;
+  }
+
+  /**
+   * @return The ID of the user this snapshot belongs to. May be
+   *         <code>null</code> for the snapshot of "no user".
+   */
+  @Nullable
+  public String getUserID ()
+  {
+    return m_sUserID;
+  }
+
+  /**
+   * @return A copy of the IDs of all user groups the user is assigned to. Never
+   *         <code>null</code>.
+   */
+  @NonNull
+  @ReturnsMutableCopy
+  public ICommonsSet <String> getAllUserGroupIDs ()
+  {
+    return m_aUserGroupIDs.getClone ();
+  }
+
+  /**
+   * @return A copy of the IDs of all roles the user has via the assigned user
+   *         groups. Never <code>null</code>.
+   */
+  @NonNull
+  @ReturnsMutableCopy
+  public ICommonsSet <String> getAllRoleIDs ()
+  {
+    return m_aRoleIDs.getClone ();
+  }
+
+  /**
+   * @return The number of distinct roles the user has.
+   */
+  public int getRoleCount ()
+  {
+    return m_aRoleIDs.size ();
+  }
+
+  /**
+   * Check if the user is assigned to the provided user group.
+   *
+   * @param sUserGroupID
+   *        The user group ID to check. May be <code>null</code>.
+   * @return <code>true</code> if the user is assigned to the user group.
+   */
+  public boolean isAssignedToUserGroup (@Nullable final String sUserGroupID)
+  {
+    return StringHelper.isNotEmpty (sUserGroupID) && m_aUserGroupIDs.contains (sUserGroupID);
+  }
+
+  /**
+   * Check if the user has the provided role.
+   *
+   * @param sRoleID
+   *        The role ID to check. May be <code>null</code>.
+   * @return <code>true</code> if the user has the role.
+   */
+  public boolean hasRole (@Nullable final String sRoleID)
+  {
+    if (StringHelper.isEmpty (sRoleID))
+      return false;
+    final int nIndex = m_aRoleIndexResolver.applyAsInt (sRoleID);
+    return nIndex >= 0 && m_aRoleBits.get (nIndex);
+  }
+
+  /**
+   * Check if the user has all of the provided roles.
+   *
+   * @param aRoleIDs
+   *        The role IDs to check. May be <code>null</code>.
+   * @return <code>true</code> if no role ID was provided or if the user has all
+   *         of them.
+   */
+  public boolean hasAllRoles (@Nullable final Iterable <String> aRoleIDs)
+  {
+    if (aRoleIDs != null)
+      for (final String sRoleID : aRoleIDs)
+        if (!hasRole (sRoleID))
+          return false;
+    return true;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("UserID", m_sUserID)
+                                       .append ("UserGroupIDs", m_aUserGroupIDs)
+                                       .append ("RoleIDs", m_aRoleIDs)
+                                       .getToString ();
+  }
+
+  @NonNull
+  static EffectiveUserPermissions createEmpty (@Nullable final String sUserID)
+  {
+    return new EffectiveUserPermissions (sUserID, new CommonsHashSet <> (), new CommonsHashSet <> (), new BitSet (), x -> -1);
+  }
+}
@@ -28,9 +28,7 @@ import com.helger.annotation.style.PresentForCodeCoverage;
 import com.helger.annotation.style.ReturnsMutableCopy;
 import com.helger.base.enforce.ValueEnforcer;
 import com.helger.base.string.StringHelper;
-import com.helger.collection.CollectionHelper;
 import com.helger.collection.commons.CommonsHashSet;
-import com.helger.collection.commons.ICommonsList;
 import com.helger.collection.commons.ICommonsSet;
 import com.helger.photon.security.ESecurityUIText;
 import com.helger.photon.security.login.GlobalUserIDProvider;
@@ -38,7 +36,6 @@ import com.helger.photon.security.mgr.PhotonSecurityManager;
 import com.helger.photon.security.role.IRole;
 import com.helger.photon.security.role.IRoleManager;
 import com.helger.photon.security.user.IUser;
-import com.helger.photon.security.usergroup.IUserGroup;
 
 /**
  * Security utility methods
@@ -64,7 +61,10 @@ public final class SecurityHelper
       // No user logged in
       return false;
     }
-    return PhotonSecurityManager.getUserGroupMgr ().isUserAssignedToUserGroup (sUserGroupID, sUserID);
+    final EffectiveUserPermissionCache aCache = PhotonSecurityManager.getEffectivePermissionCache ();
+    if (!aCache.isEnabled ())
+      return PhotonSecurityManager.getUserGroupMgr ().isUserAssignedToUserGroup (sUserGroupID, sUserID);
+    return aCache.getPermissions (sUserID).isAssignedToUserGroup (sUserGroupID);
   }
 
   public static boolean hasCurrentUserRole (@Nullable final String sRoleID)
@@ -78,41 +78,39 @@ public final class SecurityHelper
     return hasUserRole (sUserID, sRoleID);
   }
 
+  /**
+   * Get the effective permissions of the provided user. They are cached, unless
+   * the cache is disabled.
+   *
+   * @param sUserID
+   *        User ID. May be <code>null</code>.
+   * @return The effective permissions. Never <code>null</code>.
+   * @since 10.3.1
+   */
+  @NonNull
+  public static EffectiveUserPermissions getEffectivePermissions (@Nullable final String sUserID)
+  {
+    return PhotonSecurityManager.getEffectivePermissionCache ().getPermissions (sUserID);
+  }
+
   public static boolean hasUserRole (@Nullable final String sUserID, @Nullable final String sRoleID)
   {
-    return PhotonSecurityManager.getUserGroupMgr ().containsAnyUserGroupWithAssignedUserAndRole (sUserID, sRoleID);
+    final EffectiveUserPermissionCache aCache = PhotonSecurityManager.getEffectivePermissionCache ();
+    if (!aCache.isEnabled ())
+      return PhotonSecurityManager.getUserGroupMgr ().containsAnyUserGroupWithAssignedUserAndRole (sUserID, sRoleID);
+    return aCache.getPermissions (sUserID).hasRole (sRoleID);
   }
 
   public static boolean hasUserAllRoles (@Nullable final String sUserID, @Nullable final Iterable <String> aRoleIDs)
   {
-    if (CollectionHelper.isNotEmpty (aRoleIDs))
-    {
-      final ICommonsList <IUserGroup> aUserGroups = PhotonSecurityManager.getUserGroupMgr ().getAllUserGroupsWithAssignedUser (sUserID);
-      for (final String sRoleID : aRoleIDs)
-      {
-        boolean bFoundRole = false;
-        for (final IUserGroup aUserGroup : aUserGroups)
-          if (aUserGroup.containsRoleID (sRoleID))
-          {
-            bFoundRole = true;
-            break;
-          }
-        if (!bFoundRole)
-          return false;
-      }
-    }
-    return true;
+    return getEffectivePermissions (sUserID).hasAllRoles (aRoleIDs);
   }
 
   @NonNull
   @ReturnsMutableCopy
   public static ICommonsSet <String> getAllUserRoleIDs (@Nullable final String sUserID)
   {
-    final ICommonsSet <String> ret = new CommonsHashSet <> ();
-    final ICommonsList <IUserGroup> aUserGroups = PhotonSecurityManager.getUserGroupMgr ().getAllUserGroupsWithAssignedUser (sUserID);
-    for (final IUserGroup aUserGroup : aUserGroups)
-      ret.addAll (aUserGroup.getAllContainedRoleIDs ());
-    return ret;
+    return getEffectivePermissions (sUserID).getAllRoleIDs ();
   }
 
   @NonNull
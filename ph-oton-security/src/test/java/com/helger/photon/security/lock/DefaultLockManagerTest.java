@@ -19,9 +19,12 @@ package com.helger.photon.security.lock;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.junit.Test;
 
@@ -235,4 +238,91 @@ public final class DefaultLockManagerTest
     assertTrue (aLM.getAllLockedObjects ().isEmpty ());
     assertTrue (aLM.getAllLockedObjectsOfCurrentUser ().isEmpty ());
   }
+
+  @Test
+  public void testUnlockAllObjectsOfUser ()
+  {
+    final DefaultLockManager <String> aLM = new DefaultLockManager <> (MockCurrentUserIDProvider.getInstance ());
+    aLM.setSilentMode (true);
+    for (int i = 0; i < 1000; ++i)
+      assertTrue (aLM.lockObject ("obj" + i, "user" + (i % 10)).isLocked ());
+    assertEquals (1000, aLM.getLockedObjectCount ());
+    assertEquals (10, aLM.getLockingUserCount ());
+    assertEquals (1000, aLM.getNewLockCount ());
+    assertEquals (100, aLM.getAllLockedObjectsOfUser ("user3").size ());
+
+    // Contention
+    assertFalse (aLM.lockObject ("obj3", "user4").isLocked ());
+    assertEquals (1, aLM.getContendedLockCount ());
+
+    final List <String> aUnlocked = aLM.unlockAllObjectsOfUser ("user3");
+    assertEquals (100, aUnlocked.size ());
+    assertTrue (aUnlocked.contains ("obj3"));
+    assertEquals (900, aLM.getLockedObjectCount ());
+    assertEquals (9, aLM.getLockingUserCount ());
+    assertTrue (aLM.getAllLockedObjectsOfUser ("user3").isEmpty ());
+    assertFalse (aLM.isObjectLockedByAnyUser ("obj3"));
+
+    // Now the other user may lock it
+    assertTrue (aLM.lockObject ("obj3", "user4").isLocked ());
+    assertEquals (101, aLM.getAllLockedObjectsOfUser ("user4").size ());
+    assertTrue (aLM.unlockAllObjectsOfUser ("user3").isEmpty ());
+  }
+
+  @Test
+  public void testLease ()
+  {
+    final String sUser1 = "user1";
+    final String sUser2 = "user2";
+    final AtomicLong aNanos = new AtomicLong (0);
+    final DefaultLockManager <String> aLM = new DefaultLockManager <> (MockCurrentUserIDProvider.getInstance (),
+                                                                       aNanos::get);
+    aLM.setSilentMode (true);
+    assertTrue (aLM.lockObject ("obj1", sUser1, Duration.ofSeconds (10)).isLocked ());
+    assertTrue (aLM.lockObject ("obj2", sUser1).isLocked ());
+    assertNotNull (aLM.getLockInfo ("obj1").getLockExpirationDateTime ());
+    assertNull (aLM.getLockInfo ("obj2").getLockExpirationDateTime ());
+    assertFalse (aLM.lockObject ("obj1", sUser2).isLocked ());
+    assertEquals (2, aLM.getAllLockedObjectsOfUser (sUser1).size ());
+
+    // Right before the end of the lease
+    aNanos.addAndGet (Duration.ofSeconds (10).toNanos () - 1);
+    assertTrue (aLM.isObjectLockedByAnyUser ("obj1"));
+
+    aNanos.incrementAndGet ();
+
+    // Expired lease is gone, the lock without a lease is retained
+    assertFalse (aLM.isObjectLockedByAnyUser ("obj1"));
+    assertTrue (aLM.isObjectLockedByAnyUser ("obj2"));
+    assertEquals (1, aLM.getAllLockedObjectsOfUser (sUser1).size ());
+    assertEquals (1, aLM.getExpiredLockCount ());
+    assertTrue (aLM.lockObject ("obj1", sUser2).isLocked ());
+
+    // Renewing a lease keeps the lock
+    aLM.setDefaultLeaseDuration (Duration.ofSeconds (30));
+    assertTrue (aLM.lockObject ("obj3", sUser1).isLocked ());
+    aNanos.addAndGet (Duration.ofSeconds (20).toNanos ());
+    assertTrue (aLM.lockObject ("obj3", sUser1, Duration.ofSeconds (30)).isLocked ());
+    aNanos.addAndGet (Duration.ofSeconds (20).toNanos ());
+    assertEquals (sUser1, aLM.getLockUserID ("obj3"));
+
+    // A lock without a lease is not converted into a leased one
+    assertTrue (aLM.lockObject ("obj2", sUser1, Duration.ofSeconds (1)).isLocked ());
+    assertNull (aLM.getLockInfo ("obj2").getLockExpirationDateTime ());
+
+    // Expired lock may directly be taken over by another user
+    aNanos.addAndGet (Duration.ofSeconds (10).toNanos ());
+    assertTrue (aLM.lockObject ("obj3", sUser2).isLocked ());
+    assertEquals (sUser2, aLM.getLockUserID ("obj3"));
+    assertTrue (aLM.getAllLockedObjectsOfUser (sUser1).contains ("obj2"));
+    assertFalse (aLM.getAllLockedObjectsOfUser (sUser1).contains ("obj3"));
+    assertEquals (2, aLM.getExpiredLockCount ());
+
+    // The timer wheel removes expired locks without any access to them
+    assertTrue (aLM.lockObject ("obj4", sUser1, Duration.ofSeconds (5)).isLocked ());
+    aNanos.addAndGet (Duration.ofSeconds (10).toNanos ());
+    assertTrue (aLM.expireLeases () > 0);
+    assertEquals (3, aLM.getExpiredLockCount ());
+    assertEquals (3, aLM.getLockedObjectCount ());
+  }
 }
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.photon.security.lock;
+
+import static org.junit.Assert.assertEquals;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+/**
+ * Test class for class {@link LockLeaseTimerWheel}.
+ *
+ * @author Philip Helger
+ */
+public final class LockLeaseTimerWheelTest
+{
+  private static final long TICK_NANOS = Duration.ofMillis (10).toNanos ();
+
+  @Test
+  public void testAdvance ()
+  {
+    // 8 buckets of 10ms = 80ms per revolution
+    final AtomicLong aNanos = new AtomicLong (0);
+    final LockLeaseTimerWheel <String> aWheel = new LockLeaseTimerWheel <> (Duration.ofNanos (TICK_NANOS),
+                                                                            8,
+                                                                            aNanos::get);
+    final Set <String> aExpired = ConcurrentHashMap.newKeySet ();
+    aWheel.schedule ("short", new LockInfo ("user"), Duration.ofMillis (20));
+    aWheel.schedule ("long", new LockInfo ("user"), Duration.ofMillis (300));
+    assertEquals (2, aWheel.size ());
+    assertEquals (0, aWheel.advance ( (aObjID, aLockInfo) -> aExpired.add (aObjID)));
+
+    // The lease is rounded up to the next tick
+    aNanos.set (2 * TICK_NANOS);
+    assertEquals (0, aWheel.advance ( (aObjID, aLockInfo) -> aExpired.add (aObjID)));
+    aNanos.set (3 * TICK_NANOS);
+    assertEquals (1, aWheel.advance ( (aObjID, aLockInfo) -> aExpired.add (aObjID)));
+    assertEquals (Set.of ("short"), aExpired);
+    assertEquals (1, aWheel.size ());
+
+    // Longer than one revolution - stays in its bucket until its tick is reached
+    aNanos.set (10 * TICK_NANOS);
+    assertEquals (0, aWheel.advance ( (aObjID, aLockInfo) -> aExpired.add (aObjID)));
+    aNanos.set (31 * TICK_NANOS);
+    assertEquals (1, aWheel.advance ( (aObjID, aLockInfo) -> aExpired.add (aObjID)));
+    assertEquals (Set.of ("short", "long"), aExpired);
+    assertEquals (0, aWheel.size ());
+  }
+
+  @Test
+  public void testNotYetExpired ()
+  {
+    final AtomicLong aNanos = new AtomicLong (0);
+    final LockLeaseTimerWheel <String> aWheel = new LockLeaseTimerWheel <> (Duration.ofNanos (TICK_NANOS),
+                                                                            8,
+                                                                            aNanos::get);
+    aWheel.schedule ("obj", new LockInfo ("user"), Duration.ofMillis (10));
+    aNanos.set (5 * TICK_NANOS);
+    // Callback refuses - rescheduled for the next tick
+    assertEquals (0, aWheel.advance ( (aObjID, aLockInfo) -> false));
+    assertEquals (1, aWheel.size ());
+    // Same tick - nothing to do
+    assertEquals (0, aWheel.advance ( (aObjID, aLockInfo) -> true));
+    assertEquals (1, aWheel.size ());
+    aNanos.set (6 * TICK_NANOS);
+    assertEquals (1, aWheel.advance ( (aObjID, aLockInfo) -> true));
+    assertEquals (0, aWheel.size ());
+  }
+}
@@ -18,16 +18,39 @@ package com.helger.photon.security.login;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.time.Clock;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestRule;
 
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.ICommonsList;
 import com.helger.photon.app.mock.PhotonAppWebTestRule;
 import com.helger.photon.security.CSecurity;
 import com.helger.photon.security.mgr.PhotonSecurityManager;
+import com.helger.photon.security.password.GlobalPasswordSettings;
+import com.helger.photon.security.user.IUser;
+import com.helger.photon.security.user.User;
+import com.helger.scope.ISessionScope;
+import com.helger.scope.mgr.ScopeManager;
+import com.helger.security.password.hash.PasswordHash;
+import com.helger.servlet.mock.MockHttpServletRequest;
+import com.helger.web.scope.mgr.WebScopeManager;
+import com.helger.web.scope.mgr.WebScoped;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpSession;
 
 /**
  * Test class for class {@link LoggedInUserManager}.
@@ -84,4 +107,200 @@ public final class LoggedInUserManagerTest
     assertEquals (0, aUM.getLoggedInUserCount ());
     assertNull (aUM.getCurrentUserID ());
   }
+
+  @Test
+  public void testContention () throws Exception
+  {
+    final int nThreads = 8;
+    final int nUsersPerThread = 50;
+    final int nReadsPerUser = 200;
+
+    final LoggedInUserManager aUM = LoggedInUserManager.getInstance ();
+    final ISessionScope aSessionScope = ScopeManager.getSessionScope ();
+    final PasswordHash aPasswordHash = GlobalPasswordSettings.createUserDefaultPasswordHash (null, "password");
+    final ICommonsList <ICommonsList <IUser>> aUsersPerThread = new CommonsArrayList <> ();
+    for (int t = 0; t < nThreads; ++t)
+    {
+      final ICommonsList <IUser> aUsers = new CommonsArrayList <> ();
+      for (int i = 0; i < nUsersPerThread; ++i)
+        aUsers.add (new User ("bench" + t + "-" + i, null, aPasswordHash, null, null, null, null, null, false));
+      aUsersPerThread.add (aUsers);
+    }
+
+    final ExecutorService aES = Executors.newFixedThreadPool (nThreads);
+    try
+    {
+      final CountDownLatch aStart = new CountDownLatch (1);
+      final ICommonsList <Future <?>> aFutures = new CommonsArrayList <> ();
+      for (final ICommonsList <IUser> aUsers : aUsersPerThread)
+        aFutures.add (aES.submit ( () -> {
+          aStart.await ();
+          // Concurrent logins mixed with many reads
+          for (final IUser aUser : aUsers)
+          {
+            aUM.internalSessionActivateUser (aUser, aSessionScope);
+            for (int i = 0; i < nReadsPerUser; ++i)
+            {
+              assertTrue (aUM.isUserLoggedIn (aUser.getID ()));
+              assertTrue (aUM.getLoggedInUserCount () > 0);
+            }
+          }
+          for (final IUser aUser : aUsers)
+            assertTrue (aUM.logoutUser (aUser.getID ()).isChanged ());
+          return null;
+        }));
+
+      aStart.countDown ();
+      for (final Future <?> aFuture : aFutures)
+        aFuture.get ();
+    }
+    finally
+    {
+      aES.shutdownNow ();
+    }
+
+    assertEquals (0, aUM.getLoggedInUserCount ());
+    assertTrue (aUM.getLoggedInUserIDsView ().isEmpty ());
+  }
+
+  /**
+   * Run {@link LoggedInUserManager#loginUser(String, String)} concurrently, each thread in its own
+   * request scope.
+   *
+   * @param aLoginNames
+   *        The login names to use - one per thread.
+   * @param aHttpSession
+   *        The HTTP session to share between all threads. If <code>null</code> each thread uses a
+   *        new session.
+   * @return The login results in the order of the login names.
+   */
+  @NonNull
+  private static ICommonsList <ELoginResult> _loginConcurrently (@NonNull final ICommonsList <String> aLoginNames,
+                                                                 @Nullable final HttpSession aHttpSession) throws Exception
+  {
+    final LoggedInUserManager aUM = LoggedInUserManager.getInstance ();
+    final HttpServletRequest aCurrentRequest = WebScopeManager.getRequestScope ().getRequest ();
+    final ExecutorService aES = Executors.newFixedThreadPool (aLoginNames.size ());
+    try
+    {
+      final CountDownLatch aStart = new CountDownLatch (1);
+      final ICommonsList <Future <ELoginResult>> aFutures = new CommonsArrayList <> ();
+      for (final String sLoginName : aLoginNames)
+        aFutures.add (aES.submit ( () -> {
+          final MockHttpServletRequest aRequest = new MockHttpServletRequest (aCurrentRequest.getServletContext ());
+          if (aHttpSession != null)
+            aRequest.setSession (aHttpSession);
+          try (final WebScoped aWebScoped = new WebScoped (aRequest))
+          {
+            aStart.await ();
+            return aUM.loginUser (sLoginName, "password");
+          }
+        }));
+
+      aStart.countDown ();
+      final ICommonsList <ELoginResult> ret = new CommonsArrayList <> ();
+      for (final Future <ELoginResult> aFuture : aFutures)
+        ret.add (aFuture.get ());
+      return ret;
+    }
+    finally
+    {
+      aES.shutdownNow ();
+    }
+  }
+
+  @NonNull
+  private static ICommonsList <IUser> _createUsers (@NonNull final String sPrefix, final int nCount)
+  {
+    final String sSuffix = Long.toString (Clock.systemUTC ().millis ());
+    final ICommonsList <IUser> ret = new CommonsArrayList <> ();
+    for (int i = 0; i < nCount; ++i)
+    {
+      final IUser aUser = PhotonSecurityManager.getUserMgr ()
+                                               .createNewUser (sPrefix + sSuffix + "-" + i,
+                                                               null,
+                                                               "password",
+                                                               null,
+                                                               null,
+                                                               null,
+                                                               null,
+                                                               null,
+                                                               false);
+      assertNotNull (aUser);
+      ret.add (aUser);
+    }
+    return ret;
+  }
+
+  @Test
+  public void testConcurrentLoginSameSession () throws Exception
+  {
+    final int nThreads = 8;
+    final LoggedInUserManager aUM = LoggedInUserManager.getInstance ();
+    final ICommonsList <IUser> aUsers = _createUsers ("samesession", nThreads);
+    final HttpSession aHttpSession = WebScopeManager.getRequestScope ().getRequest ().getSession (true);
+
+    // Different users in the same session - only one may win
+    final ICommonsList <ELoginResult> aResults = _loginConcurrently (aUsers.getAllMapped (IUser::getLoginName),
+                                                                     aHttpSession);
+    assertEquals (1, aResults.getCount (x -> x == ELoginResult.SUCCESS));
+    assertEquals (nThreads - 1, aResults.getCount (x -> x == ELoginResult.SESSION_ALREADY_HAS_USER));
+
+    // No leaked login info
+    final String sWinnerID = aUsers.get (aResults.indexOf (ELoginResult.SUCCESS)).getID ();
+    assertEquals (1, aUM.getLoggedInUserCount ());
+    assertEquals (1, aUM.getLoggedInUserIDsView ().size ());
+    assertTrue (aUM.isUserLoggedIn (sWinnerID));
+    assertEquals (sWinnerID, aUM.getCurrentUserID ());
+
+    assertTrue (aUM.logoutUser (sWinnerID).isChanged ());
+    assertEquals (0, aUM.getLoggedInUserCount ());
+    assertNull (aUM.getCurrentUserID ());
+  }
+
+  @Test
+  public void testConcurrentLoginSameUser () throws Exception
+  {
+    final int nThreads = 8;
+    final LoggedInUserManager aUM = LoggedInUserManager.getInstance ();
+    final IUser aUser = _createUsers ("sameuser", 1).getFirstOrNull ();
+    final ICommonsList <String> aLoginNames = new CommonsArrayList <> ();
+    for (int i = 0; i < nThreads; ++i)
+      aLoginNames.add (aUser.getLoginName ());
+
+    // Same user in different sessions - only one may win
+    final boolean bOldLogout = aUM.isLogoutAlreadyLoggedInUser ();
+    aUM.setLogoutAlreadyLoggedInUser (false);
+    try
+    {
+      final ICommonsList <ELoginResult> aResults = _loginConcurrently (aLoginNames, null);
+      assertEquals (1, aResults.getCount (x -> x == ELoginResult.SUCCESS));
+      assertEquals (nThreads - 1, aResults.getCount (x -> x == ELoginResult.USER_ALREADY_LOGGED_IN));
+    }
+    finally
+    {
+      aUM.setLogoutAlreadyLoggedInUser (bOldLogout);
+    }
+    assertEquals (1, aUM.getLoggedInUserCount ());
+    assertTrue (aUM.isUserLoggedIn (aUser.getID ()));
+
+    // Now with logout of the already logged in user - exactly one session ends up with the user
+    aUM.setLogoutAlreadyLoggedInUser (true);
+    try
+    {
+      final ICommonsList <ELoginResult> aResults = _loginConcurrently (aLoginNames, null);
+      for (final ELoginResult eResult : aResults)
+        assertTrue (eResult.toString (),
+                    eResult == ELoginResult.SUCCESS_WITH_LOGOUT || eResult == ELoginResult.SUCCESS);
+    }
+    finally
+    {
+      aUM.setLogoutAlreadyLoggedInUser (bOldLogout);
+    }
+    assertEquals (1, aUM.getLoggedInUserCount ());
+    assertEquals (1, aUM.getLoggedInUserIDsView ().size ());
+
+    assertTrue (aUM.logoutUser (aUser.getID ()).isChanged ());
+    assertEquals (0, aUM.getLoggedInUserCount ());
+  }
 }
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.photon.security.token.user;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+
+import com.helger.base.concurrent.ThreadHelper;
+import com.helger.dao.DAOException;
+import com.helger.datetime.helper.PDTFactory;
+import com.helger.photon.app.mock.PhotonAppWebTestRule;
+import com.helger.photon.security.CSecurity;
+import com.helger.photon.security.token.accesstoken.AccessToken;
+import com.helger.photon.security.user.UserManager;
+
+/**
+ * Test class for class {@link UserTokenManager}.
+ *
+ * @author Philip Helger
+ */
+public final class UserTokenManagerTest
+{
+  @Rule
+  public final TestRule m_aRule = new PhotonAppWebTestRule ().setDeleteAllData (true);
+
+  @Test
+  public void testTokenStringLookup () throws DAOException
+  {
+    final UserTokenManager aMgr = new UserTokenManager ("dummy-usertokens.xml");
+    final UserToken aUserToken = aMgr.createUserToken (null,
+                                                       (Map <String, String>) null,
+                                                       UserManager.createDefaultUserAdministrator (),
+                                                       "desc");
+    final String sToken1 = aUserToken.getAccessTokenList ().getActiveTokenString ();
+    assertNotNull (sToken1);
+    assertSame (aUserToken, aMgr.getUserTokenOfTokenString (sToken1));
+    assertTrue (aMgr.isAccessTokenUsed (sToken1));
+    assertNull (aMgr.getUserTokenOfTokenString ("does-not-exist"));
+    assertFalse (aMgr.isAccessTokenUsed ("does-not-exist"));
+
+    // Create a new access token - revokes the old one
+    assertTrue (aMgr.createNewAccessToken (aUserToken.getID (),
+                                           CSecurity.USER_ADMINISTRATOR_ID,
+                                           PDTFactory.getCurrentLocalDateTime (),
+                                           "test",
+                                           null)
+                    .isChanged ());
+    final String sToken2 = aUserToken.getAccessTokenList ().getActiveTokenString ();
+    assertNull (aMgr.getUserTokenOfTokenString (sToken1));
+    assertTrue (aMgr.isAccessTokenUsed (sToken1));
+    assertSame (aUserToken, aMgr.getUserTokenOfTokenString (sToken2));
+
+    // Reload
+    aMgr.reload ();
+    assertNotNull (aMgr.getUserTokenOfTokenString (sToken2));
+    assertTrue (aMgr.isAccessTokenUsed (sToken1));
+
+    // Revoke
+    assertTrue (aMgr.revokeAccessToken (aUserToken.getID (),
+                                        CSecurity.USER_ADMINISTRATOR_ID,
+                                        PDTFactory.getCurrentLocalDateTime (),
+                                        "test")
+                    .isChanged ());
+    assertNull (aMgr.getUserTokenOfTokenString (sToken2));
+    assertTrue (aMgr.isAccessTokenUsed (sToken2));
+
+    // Delete
+    assertTrue (aMgr.createNewAccessToken (aUserToken.getID (),
+                                           CSecurity.USER_ADMINISTRATOR_ID,
+                                           PDTFactory.getCurrentLocalDateTime (),
+                                           "test",
+                                           "my-token")
+                    .isChanged ());
+    assertNotNull (aMgr.getUserTokenOfTokenString ("my-token"));
+    assertTrue (aMgr.deleteUserToken (aUserToken.getID ()).isChanged ());
+    assertNull (aMgr.getUserTokenOfTokenString ("my-token"));
+    assertTrue (aMgr.isAccessTokenUsed ("my-token"));
+  }
+
+  @Test
+  public void testExpiredTokenString () throws DAOException
+  {
+    final UserTokenManager aMgr = new UserTokenManager ("dummy-usertokens.xml");
+    final UserToken aUserToken = aMgr.createUserToken (null,
+                                                       (Map <String, String>) null,
+                                                       UserManager.createDefaultUserAdministrator (),
+                                                       "desc");
+    final String sToken = aUserToken.getAccessTokenList ().getActiveTokenString ();
+    assertSame (aUserToken, aMgr.getUserTokenOfTokenString (sToken));
+
+    // Let the active access token expire
+    final AccessToken aActiveAccessToken = (AccessToken) aUserToken.getAccessTokenList ().getActiveAccessToken ();
+    aActiveAccessToken.setNotAfter (aActiveAccessToken.getNotBefore ());
+    ThreadHelper.sleep (10);
+    assertFalse (aActiveAccessToken.isValidNow ());
+
+    // Expired tokens are not found, but are still considered used
+    assertNull (aMgr.getUserTokenOfTokenString (sToken));
+    assertTrue (aMgr.isAccessTokenUsed (sToken));
+  }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.photon.security.user;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Clock;
+import java.util.Locale;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+
+import com.helger.dao.DAOException;
+import com.helger.photon.app.mock.PhotonAppWebTestRule;
+
+/**
+ * Test class for class {@link UserManager}.
+ *
+ * @author Philip Helger
+ */
+public final class UserManagerTest
+{
+  @Rule
+  public final TestRule m_aRule = new PhotonAppWebTestRule ();
+
+  @Test
+  public void testIndexedLookup () throws DAOException
+  {
+    final UserManager aMgr = new UserManager ("dummy-users.xml");
+    final String sSuffix = Long.toString (Clock.systemUTC ().millis ());
+    final String sLoginName = "login" + sSuffix;
+    final String sEmail = "Test" + sSuffix + "@Example.org";
+
+    final IUser aUser = aMgr.createNewUser (sLoginName,
+                                            sEmail,
+                                            "password",
+                                            "First",
+                                            "Last",
+                                            null,
+                                            Locale.GERMANY,
+                                            null,
+                                            false);
+    assertNotNull (aUser);
+    // Duplicate login name
+    assertNull (aMgr.createNewUser (sLoginName, null, "password", null, null, null, null, null, false));
+
+    assertSame (aUser, aMgr.getUserOfLoginName (sLoginName));
+    assertSame (aUser, aMgr.getUserOfEmailAddress (sEmail));
+    assertNull (aMgr.getUserOfEmailAddress (sEmail.toLowerCase (Locale.ROOT)));
+    assertSame (aUser, aMgr.getUserOfEmailAddressIgnoreCase (sEmail.toUpperCase (Locale.ROOT)));
+
+    // Change login name and email address
+    final String sNewLoginName = "new" + sLoginName;
+    assertTrue (aMgr.setUserData (aUser.getID (),
+                                  sNewLoginName,
+                                  null,
+                                  "First",
+                                  "Last",
+                                  null,
+                                  Locale.GERMANY,
+                                  null,
+                                  false)
+                    .isChanged ());
+    assertNull (aMgr.getUserOfLoginName (sLoginName));
+    assertSame (aUser, aMgr.getUserOfLoginName (sNewLoginName));
+    assertNull (aMgr.getUserOfEmailAddress (sEmail));
+    assertNull (aMgr.getUserOfEmailAddressIgnoreCase (sEmail));
+
+    // Indexes must survive a reload
+    aMgr.reload ();
+    final IUser aReloaded = aMgr.getUserOfLoginName (sNewLoginName);
+    assertNotNull (aReloaded);
+    assertSame (aMgr.getUserOfID (aUser.getID ()), aReloaded);
+    assertNull (aMgr.getUserOfLoginName (sLoginName));
+  }
+
+  @Test
+  public void testEmailAddressIgnoreCaseSemantics () throws DAOException
+  {
+    final UserManager aMgr = new UserManager ("dummy-users.xml");
+    final String sSuffix = Long.toString (Clock.systemUTC ().millis ());
+    // Capital I with dot above: equalsIgnoreCase matches "i", whereas
+    // toLowerCase would create two chars
+    final String sEmail = "\u0130nfo" + sSuffix + "@example.org";
+    final IUser aUser = aMgr.createNewUser ("ic" + sSuffix,
+                                            sEmail,
+                                            "password",
+                                            null,
+                                            null,
+                                            null,
+                                            null,
+                                            null,
+                                            false);
+    assertNotNull (aUser);
+
+    final String sOther = "info" + sSuffix + "@EXAMPLE.org";
+    assertTrue (sEmail.equalsIgnoreCase (sOther));
+    assertSame (aUser, aMgr.getUserOfEmailAddressIgnoreCase (sOther));
+    assertNull (aMgr.getUserOfEmailAddress (sOther));
+  }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.photon.security.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.photon.app.mock.PhotonAppWebTestRule;
+import com.helger.photon.security.mgr.PhotonSecurityManager;
+import com.helger.photon.security.role.IRole;
+import com.helger.photon.security.role.IRoleManager;
+import com.helger.photon.security.usergroup.IUserGroup;
+import com.helger.photon.security.usergroup.IUserGroupManager;
+
+/**
+ * Test class for class {@link EffectiveUserPermissionCache}.
+ *
+ * @author Philip Helger
+ */
+public final class EffectiveUserPermissionCacheTest
+{
+  @Rule
+  public final TestRule m_aRule = new PhotonAppWebTestRule ();
+
+  @Test
+  public void testInvalidation ()
+  {
+    final IRoleManager aRoleMgr = PhotonSecurityManager.getRoleMgr ();
+    final IUserGroupManager aUserGroupMgr = PhotonSecurityManager.getUserGroupMgr ();
+    final EffectiveUserPermissionCache aCache = new EffectiveUserPermissionCache (aUserGroupMgr);
+
+    final IRole aRole1 = aRoleMgr.createNewRole ("Role1", null, null);
+    final IRole aRole2 = aRoleMgr.createNewRole ("Role2", null, null);
+    assertNotNull (aRole1);
+    assertNotNull (aRole2);
+    final IUserGroup aUG = aUserGroupMgr.createNewUserGroup ("UG1", null, null);
+    assertNotNull (aUG);
+    final String sUserID = "user-" + aUG.getID ();
+
+    EffectiveUserPermissions aPerms = aCache.getPermissions (sUserID);
+    assertFalse (aPerms.isAssignedToUserGroup (aUG.getID ()));
+    assertFalse (aPerms.hasRole (aRole1.getID ()));
+    assertSame (aPerms, aCache.getPermissions (sUserID));
+
+    // Assign the user
+    assertTrue (aUserGroupMgr.assignUserToUserGroup (aUG.getID (), sUserID).isChanged ());
+    aPerms = aCache.getPermissions (sUserID);
+    assertTrue (aPerms.isAssignedToUserGroup (aUG.getID ()));
+    assertFalse (aPerms.hasRole (aRole1.getID ()));
+
+    // Assign the roles
+    assertTrue (aUserGroupMgr.assignRoleToUserGroup (aUG.getID (), aRole1.getID ()).isChanged ());
+    assertTrue (aUserGroupMgr.assignRoleToUserGroup (aUG.getID (), aRole2.getID ()).isChanged ());
+    aPerms = aCache.getPermissions (sUserID);
+    assertTrue (aPerms.hasRole (aRole1.getID ()));
+    assertTrue (aPerms.hasAllRoles (new CommonsArrayList <> (aRole1.getID (), aRole2.getID ())));
+    assertFalse (aPerms.hasAllRoles (new CommonsArrayList <> (aRole1.getID (), "unknown")));
+    assertEquals (2, aPerms.getRoleCount ());
+
+    // Unassign a role
+    assertTrue (aUserGroupMgr.unassignRoleFromUserGroup (aUG.getID (), aRole2.getID ()).isChanged ());
+    aPerms = aCache.getPermissions (sUserID);
+    assertTrue (aPerms.hasRole (aRole1.getID ()));
+    assertFalse (aPerms.hasRole (aRole2.getID ()));
+
+    // Delete the role
+    assertTrue (aRoleMgr.deleteRole (aRole1.getID ()).isChanged ());
+    assertEquals (0, aCache.getCachedUserCount ());
+
+    // Unassign the user
+    aCache.getPermissions (sUserID);
+    assertTrue (aUserGroupMgr.unassignUserFromUserGroup (aUG.getID (), sUserID).isChanged ());
+    aPerms = aCache.getPermissions (sUserID);
+    assertFalse (aPerms.isAssignedToUserGroup (aUG.getID ()));
+    assertTrue (aPerms.getAllRoleIDs ().isEmpty ());
+
+    // No user
+    assertFalse (aCache.getPermissions (null).hasRole (aRole1.getID ()));
+    assertTrue (aCache.getPermissions (null).hasAllRoles (null));
+  }
+
+  @Test
+  public void testTimeToLive ()
+  {
+    final IUserGroupManager aUserGroupMgr = PhotonSecurityManager.getUserGroupMgr ();
+    final AtomicLong aNanos = new AtomicLong (0);
+    final EffectiveUserPermissionCache aCache = new EffectiveUserPermissionCache (aUserGroupMgr,
+                                                                                  Duration.ofSeconds (10),
+                                                                                  aNanos::get);
+    assertTrue (aCache.isEnabled ());
+    final IUserGroup aUG = aUserGroupMgr.createNewUserGroup ("UG-TTL", null, null);
+    assertNotNull (aUG);
+    final String sUserID = "user-" + aUG.getID ();
+
+    final EffectiveUserPermissions aPerms = aCache.getPermissions (sUserID);
+    aNanos.addAndGet (Duration.ofSeconds (9).toNanos ());
+    assertSame (aPerms, aCache.getPermissions (sUserID));
+
+    // Expired - rebuilt
+    aNanos.addAndGet (Duration.ofSeconds (1).toNanos ());
+    final EffectiveUserPermissions aPerms2 = aCache.getPermissions (sUserID);
+    assertNotSame (aPerms, aPerms2);
+    assertSame (aPerms2, aCache.getPermissions (sUserID));
+    assertEquals (1, aCache.getCachedUserCount ());
+  }
+
+  @Test
+  public void testDisabled ()
+  {
+    final IUserGroupManager aUserGroupMgr = PhotonSecurityManager.getUserGroupMgr ();
+    final EffectiveUserPermissionCache aCache = new EffectiveUserPermissionCache (aUserGroupMgr, Duration.ZERO);
+    assertFalse (aCache.isEnabled ());
+
+    final IUserGroup aUG = aUserGroupMgr.createNewUserGroup ("UG-Disabled", null, null);
+    assertNotNull (aUG);
+    final String sUserID = "user-" + aUG.getID ();
+    final EffectiveUserPermissions aPerms = aCache.getPermissions (sUserID);
+    assertFalse (aPerms.isAssignedToUserGroup (aUG.getID ()));
+    assertNotSame (aPerms, aCache.getPermissions (sUserID));
+    assertEquals (0, aCache.getCachedUserCount ());
+
+    // Always up to date
+    assertTrue (aUserGroupMgr.assignUserToUserGroup (aUG.getID (), sUserID).isChanged ());
+    assertTrue (aCache.getPermissions (sUserID).isAssignedToUserGroup (aUG.getID ()));
+  }
+}